@@ -0,0 +1,160 @@
+/**
+ * Imports necessary for the ActiveRenderLoop class.
+ */
+import java.awt.Canvas;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Drives a canvas with active rendering instead of repaint().
+ *
+ * A dedicated thread draws frames into the canvas's {@link BufferStrategy}, which page-flips when the
+ * display supports it and blits otherwise. The simulation steps on a {@link SimulationThread} of its
+ * own, so the frame rate does not depend on the tick rate. Frames are paced to a target rate, or
+ * produced as fast as possible when the target is 0. Once a second the measured frame pacing is handed
+ * to a report callback.
+ */
+class ActiveRenderLoop implements Runnable {
+    /**
+     * @param canvas Canvas the frames are drawn into.
+     * @param frameNanos Target time between frames, or 0 for uncapped.
+     * @param draw Draws one frame.
+     * @param report Receives the frame pacing summary once a second.
+     * @param thread Thread running the loop.
+     * @param running Flag telling the loop to keep going.
+     */
+    private final Canvas canvas;
+    private final long frameNanos;
+    private final Consumer<Graphics> draw;
+    private final Consumer<String> report;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Constructs a render loop. Nothing runs until {@link #start()} is called.
+     *
+     * @param canvas    The canvas to draw into; it must be displayable when the loop starts.
+     * @param targetFps The target frame rate, or 0 for uncapped.
+     * @param draw      Draws one frame.
+     * @param report    Receives the frame pacing summary once a second.
+     */
+    ActiveRenderLoop(Canvas canvas, int targetFps, Consumer<Graphics> draw, Consumer<String> report) {
+        this.canvas = canvas;
+        this.frameNanos = targetFps > 0 ? 1_000_000_000L / targetFps : 0;
+        this.draw = draw;
+        this.report = report;
+    }
+
+    /**
+     * Creates the buffer strategy and starts the loop thread.
+     */
+    void start() {
+        canvas.createBufferStrategy(2);
+        running = true;
+        thread = new Thread(this, "render-loop");
+        thread.start();
+    }
+
+    /**
+     * Stops the loop thread and waits for it to finish.
+     */
+    void stop() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Runs the loop: draw a frame, then wait for the next frame.
+     */
+    @Override
+    public void run() {
+        BufferStrategy strategy = canvas.getBufferStrategy();
+        long nextFrame = System.nanoTime();
+
+        long windowStart = nextFrame;
+        long lastFrame = nextFrame;
+        int frames = 0;
+        long intervalSum = 0;
+        long intervalSquares = 0;
+        long intervalMax = 0;
+
+        while (running) {
+            renderFrame(strategy);
+
+            // Measure the time since the previous frame.
+            long now = System.nanoTime();
+            long interval = now - lastFrame;
+            lastFrame = now;
+            frames++;
+            intervalSum += interval;
+            intervalSquares += interval / 1000 * (interval / 1000);
+            intervalMax = Math.max(intervalMax, interval);
+            if (now - windowStart >= 1_000_000_000L) {
+                double meanMicros = intervalSum / 1000.0 / frames;
+                double jitterMicros = Math.sqrt(Math.max(0, (double) intervalSquares / frames - meanMicros * meanMicros));
+                report.accept(String.format("%.1f fps, avg %.2f ms, max %.2f ms, jitter %.2f ms",
+                    frames * 1e9 / (now - windowStart), meanMicros / 1000, intervalMax / 1e6, jitterMicros / 1000));
+                windowStart = now;
+                frames = 0;
+                intervalSum = 0;
+                intervalSquares = 0;
+                intervalMax = 0;
+            }
+
+            waitForNextFrame(nextFrame += frameNanos);
+            if (System.nanoTime() - nextFrame > frameNanos) {
+                // Too far behind to catch up; start pacing again from now.
+                nextFrame = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Draws one frame into the back buffer and shows it, redrawing if the buffer's contents were lost.
+     *
+     * @param strategy The canvas's buffer strategy.
+     */
+    private void renderFrame(BufferStrategy strategy) {
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    draw.accept(g);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    /**
+     * Waits until the given time, parking for most of the wait and yielding for the last millisecond
+     * to keep the wake-up precise. Returns immediately when the loop is uncapped.
+     *
+     * @param deadline The System.nanoTime() to wait for.
+     */
+    private void waitForNextFrame(long deadline) {
+        if (frameNanos == 0) {
+            return;
+        }
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > 1_000_000L) {
+                LockSupport.parkNanos(remaining - 1_000_000L);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+}
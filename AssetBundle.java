@@ -0,0 +1,178 @@
+/**
+ * Imports necessary for the AssetBundle class.
+ */
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The game's asset files packed into one file, so startup opens and maps a single file instead of
+ * looking up every asset on the classpath.
+ *
+ * The layout is little-endian: the magic number, a version byte and the number of entries, then each
+ * entry's name as a short length and UTF-8 bytes with the offset and length of its contents, then the
+ * contents. The file is memory-mapped and every entry is a read-only slice of the mapping, so reading
+ * an asset out of the bundle copies nothing until it is decoded.
+ *
+ * Usage: {@code java AssetBundle FILE} packs the game's images and sounds from the working directory
+ * into FILE; the game reads it with -Dspacegame.assets=FILE.
+ */
+public class AssetBundle {
+    /**
+     * @param MAGIC Number every bundle starts with, "SGAB" in little-endian.
+     * @param VERSION Layout version written into the header.
+     * @param mapping The mapped bundle file.
+     * @param entries Contents of each asset by its file name, as slices of the mapping.
+     */
+    private static final int MAGIC = 0x42414753;
+    private static final byte VERSION = 1;
+
+    private final MappedByteBuffer mapping;
+    private final Map<String, ByteBuffer> entries;
+
+    /**
+     * Constructs a bundle from its mapped file.
+     *
+     * @param mapping The mapped bundle file.
+     * @param entries The contents of each asset by its file name.
+     */
+    private AssetBundle(MappedByteBuffer mapping, Map<String, ByteBuffer> entries) {
+        this.mapping = mapping;
+        this.entries = entries;
+    }
+
+    /**
+     * Packs the game's assets into a bundle file.
+     *
+     * @param args The bundle file to write.
+     * @throws IOException If an asset cannot be read or the bundle cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Usage: java AssetBundle FILE");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        write(file, AssetManager.gameAssets());
+        System.out.println("Packed " + AssetManager.gameAssets().size() + " assets into " + file + " ("
+            + Files.size(file) + " bytes)");
+    }
+
+    /**
+     * Writes a bundle of assets. The bundle is written to a temporary file first and moved into place,
+     * so a bundle in use is never seen half written.
+     *
+     * @param file  The bundle file.
+     * @param names The file names of the assets, read from the classpath or the working directory.
+     * @throws IOException If an asset cannot be read or the bundle cannot be written.
+     */
+    static void write(Path file, List<String> names) throws IOException {
+        byte[][] contents = new byte[names.size()][];
+        byte[][] encodedNames = new byte[names.size()][];
+        int headerSize = 4 + 1 + 4;
+        for (int i = 0; i < names.size(); i++) {
+            contents[i] = AssetManager.readBytes(names.get(i), null);
+            encodedNames[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+            headerSize += 2 + encodedNames[i].length + 4 + 4;
+        }
+        int size = headerSize;
+        for (byte[] content : contents) {
+            size += content.length;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC);
+        out.put(VERSION);
+        out.putInt(names.size());
+        int offset = headerSize;
+        for (int i = 0; i < names.size(); i++) {
+            out.putShort((short) encodedNames[i].length);
+            out.put(encodedNames[i]);
+            out.putInt(offset);
+            out.putInt(contents[i].length);
+            offset += contents[i].length;
+        }
+        for (byte[] content : contents) {
+            out.put(content);
+        }
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, out.array());
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Maps a bundle file and reads its table of contents.
+     *
+     * @param file The bundle file.
+     * @return The bundle.
+     * @throws IOException If the file cannot be read or is not a bundle.
+     */
+    static AssetBundle open(Path file) throws IOException {
+        MappedByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer in = mapping.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not an asset bundle: " + file);
+            }
+            byte version = in.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported asset bundle version " + version + ": " + file);
+            }
+            int count = in.getInt();
+            Map<String, ByteBuffer> entries = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[in.getShort() & 0xFFFF];
+                in.get(name);
+                int offset = in.getInt();
+                int length = in.getInt();
+                ByteBuffer content = mapping.duplicate();
+                content.position(offset).limit(offset + length);
+                entries.put(new String(name, StandardCharsets.UTF_8), content.slice().asReadOnlyBuffer());
+            }
+            return new AssetBundle(mapping, entries);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Damaged asset bundle: " + file, e);
+        }
+    }
+
+    /**
+     * Returns the contents of an asset.
+     *
+     * @param name The file name of the asset.
+     * @return A read-only buffer over the contents, of its own, or null if the bundle does not hold it.
+     */
+    ByteBuffer get(String name) {
+        ByteBuffer content = entries.get(name);
+        return content == null ? null : content.duplicate();
+    }
+
+    /**
+     * Returns the size of the mapped bundle.
+     *
+     * @return The size in bytes.
+     */
+    int size() {
+        return mapping.capacity();
+    }
+}
@@ -0,0 +1,338 @@
+/**
+ * Imports necessary for the AssetManager class.
+ */
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.imageio.ImageIO;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Loads and decodes the game's assets on a pool of background threads and caches them by key.
+ *
+ * Every asset is loaded at most once: asking for a key again returns the same future, whether or not it
+ * has completed. Images and sounds are keyed by file name and read from the {@link AssetBundle} when
+ * one is given, else from the classpath, else from the working directory. Work derived from loaded
+ * assets, like scaling sprites, runs on the same pool as soon as its inputs are ready and is cached
+ * under a key of its own. Nothing here blocks the caller; the game checks whether a future is done
+ * and draws or plays what is ready.
+ *
+ * The time each asset took, from the moment its work could start to the moment it was done, is
+ * recorded for {@link #report(long)}, together with when the last asset finished.
+ */
+class AssetManager implements AutoCloseable {
+    /**
+     * @param bundle Bundle the files are read from, or null to read them one by one.
+     * @param pool Threads the assets are loaded on.
+     * @param cache Future of every asset asked for, by key.
+     * @param timings Time each completed asset took, in the order they completed.
+     * @param lastDoneNanos System.nanoTime() at which the last asset completed.
+     */
+    private final AssetBundle bundle;
+    private final ExecutorService pool;
+    private final Map<String, CompletableFuture<?>> cache = new ConcurrentHashMap<>();
+    private final List<String> timings = new ArrayList<>();
+    private volatile long lastDoneNanos;
+
+    /**
+     * Sound data decoded to PCM, ready to be opened as voices.
+     */
+    static final class Pcm {
+        /**
+         * @param format Format of the data.
+         * @param data The decoded samples.
+         */
+        final AudioFormat format;
+        final byte[] data;
+
+        /**
+         * Constructs decoded sound data.
+         *
+         * @param format The format of the data.
+         * @param data   The decoded samples.
+         */
+        Pcm(AudioFormat format, byte[] data) {
+            this.format = format;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Constructs a manager loading on the given number of daemon threads.
+     *
+     * @param bundle  The bundle to read files from, or null to read them one by one.
+     * @param threads The number of loader threads.
+     */
+    AssetManager(AssetBundle bundle, int threads) {
+        this.bundle = bundle;
+        AtomicInteger counter = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "asset-loader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates the manager the game uses, with a loader thread per core. When a bundle is given but
+     * cannot be opened, the assets are read one by one instead.
+     *
+     * @param bundleFile The bundle file, or null to read the files one by one.
+     * @return The manager.
+     */
+    static AssetManager createDefault(String bundleFile) {
+        AssetBundle bundle = null;
+        if (bundleFile != null) {
+            try {
+                bundle = AssetBundle.open(Paths.get(bundleFile));
+            } catch (IOException e) {
+                System.out.println("Cannot open " + bundleFile + ", reading the asset files instead: " + e.getMessage());
+            }
+        }
+        return new AssetManager(bundle, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns the file names of all of the game's assets.
+     *
+     * @return The images followed by the sounds.
+     */
+    static List<String> gameAssets() {
+        List<String> names = new ArrayList<>(SpriteAtlas.IMAGE_FILES);
+        for (Sound sound : Sound.values()) {
+            names.add(sound.fileName);
+        }
+        return names;
+    }
+
+    /**
+     * Starts loading every image and sound of the game.
+     */
+    void preload() {
+        for (String name : SpriteAtlas.IMAGE_FILES) {
+            image(name);
+        }
+        for (Sound sound : Sound.values()) {
+            sound(sound.fileName);
+        }
+    }
+
+    /**
+     * Returns a decoded image.
+     *
+     * @param name The file name of the image.
+     * @return The future of the image.
+     */
+    CompletableFuture<BufferedImage> image(String name) {
+        return load(name, () -> decodeImage(name, bundle));
+    }
+
+    /**
+     * Returns a sound decoded to PCM.
+     *
+     * @param name The file name of the sound.
+     * @return The future of the sound.
+     */
+    CompletableFuture<Pcm> sound(String name) {
+        return load(name, () -> decodeSound(name, bundle));
+    }
+
+    /**
+     * Returns an asset, starting to load it on the pool if it has not been asked for before.
+     *
+     * @param key    The key of the asset.
+     * @param loader The work that loads the asset.
+     * @param <T>    The type of the asset.
+     * @return The future of the asset.
+     */
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<T> load(String key, Callable<T> loader) {
+        return (CompletableFuture<T>) cache.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            T asset = call(loader);
+            done(k, start);
+            return asset;
+        }, pool));
+    }
+
+    /**
+     * Returns an asset made from another, made on the pool once the other has loaded.
+     *
+     * @param key    The key of the asset.
+     * @param from   The future of the asset it is made from.
+     * @param derive The work that makes the asset.
+     * @param <S>    The type of the asset it is made from.
+     * @param <T>    The type of the asset.
+     * @return The future of the asset.
+     */
+    @SuppressWarnings("unchecked")
+    <S, T> CompletableFuture<T> derive(String key, CompletableFuture<S> from, Function<S, T> derive) {
+        return (CompletableFuture<T>) cache.computeIfAbsent(key, k -> from.thenApplyAsync(source -> {
+            long start = System.nanoTime();
+            T asset = derive.apply(source);
+            done(k, start);
+            return asset;
+        }, pool));
+    }
+
+    /**
+     * Returns a future that completes when every asset asked for so far has completed.
+     *
+     * @return The future.
+     */
+    CompletableFuture<Void> allLoaded() {
+        return CompletableFuture.allOf(cache.values().toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Returns the time each completed asset took, one asset per line in the order they completed, and
+     * when the last of them completed.
+     *
+     * @param sinceNanos The System.nanoTime() the completion of the last asset is reported relative to.
+     * @return The report.
+     */
+    String report(long sinceNanos) {
+        StringBuilder report = new StringBuilder();
+        synchronized (timings) {
+            for (String line : timings) {
+                report.append(line).append('\n');
+            }
+        }
+        report.append(String.format("%-28s %8.1f ms after start, ", "all assets", (lastDoneNanos - sinceNanos) / 1e6));
+        report.append(bundle != null ? "read from a bundle of " + bundle.size() + " bytes" : "read from the asset files");
+        return report.toString();
+    }
+
+    /**
+     * Stops the loader threads. Assets still loading are abandoned.
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Records that an asset has completed.
+     *
+     * @param key   The key of the asset.
+     * @param start System.nanoTime() at which its work started.
+     */
+    private void done(String key, long start) {
+        long end = System.nanoTime();
+        synchronized (timings) {
+            timings.add(String.format("%-28s %8.1f ms  (%s)", key, (end - start) / 1e6, Thread.currentThread().getName()));
+            lastDoneNanos = Math.max(lastDoneNanos, end);
+        }
+    }
+
+    /**
+     * Runs a loader, rethrowing its checked exceptions unchecked so they complete the future.
+     *
+     * @param loader The loader.
+     * @param <T>    The type of the asset.
+     * @return The asset.
+     */
+    private static <T> T call(Callable<T> loader) {
+        try {
+            return loader.call();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Decodes an image.
+     *
+     * @param name   The file name of the image.
+     * @param bundle The bundle to read it from, or null.
+     * @return The decoded image.
+     * @throws IOException If the image cannot be read.
+     */
+    static BufferedImage decodeImage(String name, AssetBundle bundle) throws IOException {
+        try (InputStream in = open(name, bundle)) {
+            BufferedImage decoded = ImageIO.read(in);
+            if (decoded == null) {
+                throw new IOException("Unsupported image format: " + name);
+            }
+            return decoded;
+        }
+    }
+
+    /**
+     * Decodes a sound to PCM.
+     *
+     * @param name   The file name of the sound.
+     * @param bundle The bundle to read it from, or null.
+     * @return The decoded sound.
+     * @throws IOException If the sound cannot be read.
+     */
+    static Pcm decodeSound(String name, AssetBundle bundle) throws IOException {
+        // AudioSystem needs to mark and reset the stream to find the file type, so it is read in full first.
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(
+                new ByteArrayInputStream(readBytes(name, bundle)))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return new Pcm(in.getFormat(), out.toByteArray());
+        } catch (UnsupportedAudioFileException e) {
+            throw new IOException("Unsupported sound format: " + name, e);
+        }
+    }
+
+    /**
+     * Reads the contents of an asset file.
+     *
+     * @param name   The file name of the asset.
+     * @param bundle The bundle to read it from, or null.
+     * @return The contents.
+     * @throws IOException If the asset cannot be read.
+     */
+    static byte[] readBytes(String name, AssetBundle bundle) throws IOException {
+        try (InputStream in = open(name, bundle)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Opens an asset file from the bundle, the classpath or the working directory, in that order.
+     *
+     * @param name   The file name of the asset.
+     * @param bundle The bundle to look in first, or null.
+     * @return A stream over the contents.
+     * @throws IOException If the asset cannot be found.
+     */
+    private static InputStream open(String name, AssetBundle bundle) throws IOException {
+        ByteBuffer content = bundle != null ? bundle.get(name) : null;
+        if (content != null) {
+            byte[] bytes = new byte[content.remaining()];
+            content.get(bytes);
+            return new ByteArrayInputStream(bytes);
+        }
+        InputStream in = AssetManager.class.getResourceAsStream(name);
+        return in != null ? in : Files.newInputStream(new File(name).toPath());
+    }
+}
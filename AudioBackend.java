@@ -0,0 +1,49 @@
+/**
+ * Imports necessary for the AudioBackend interface.
+ */
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Turns decoded PCM data into voices that can be started and stopped.
+ *
+ * The mixer only talks to this interface, so it runs the same with a real sound device and with
+ * {@link NullAudioBackend} on machines that have none.
+ */
+interface AudioBackend {
+    /**
+     * A single playback channel bound to one decoded sound.
+     */
+    interface Voice {
+        /**
+         * Rewinds the voice and starts playing it from the beginning.
+         */
+        void restart();
+
+        /**
+         * Stops the voice if it is playing.
+         */
+        void stop();
+
+        /**
+         * Determines whether the voice is still playing.
+         *
+         * @return True if the voice is playing.
+         */
+        boolean isActive();
+
+        /**
+         * Releases the resources held by the voice.
+         */
+        void close();
+    }
+
+    /**
+     * Opens a voice that plays the given PCM data.
+     *
+     * @param format The format of the data.
+     * @param data   The decoded PCM data.
+     * @return The opened voice.
+     * @throws Exception If the backend cannot open another voice.
+     */
+    Voice openVoice(AudioFormat format, byte[] data) throws Exception;
+}
@@ -0,0 +1,317 @@
+/**
+ * Imports necessary for the AudioMixer class.
+ */
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * Plays the game's sound effects from a fixed set of preopened voices.
+ *
+ * Every {@link Sound} is decoded once and gets its own few voices, either when the mixer is created or,
+ * given an {@link AssetManager}, on its loader threads; a sound played before its voices are open is
+ * skipped rather than waited for. Calls to
+ * {@link #play(Sound)} only queue the request, and a daemon thread starts the voices, so the game
+ * thread never waits on the audio device. At most {@code maxVoices} voices play at once; a request
+ * beyond that cap, or for a sound whose voices are all busy, stops the voice that started longest ago.
+ */
+class AudioMixer {
+    /**
+     * @param backend Backend that opens the voices.
+     * @param maxVoices Maximum number of voices playing at once.
+     * @param voices Voices of each sound, indexed by sound ordinal; null for sounds that failed to load
+     *     or are still loading.
+     * @param loading Voices of each sound still being opened by an asset manager, or null.
+     * @param startedAt System.nanoTime() at which each voice was last started.
+     * @param requests Sounds waiting to be started by the playback thread.
+     * @param playbackThread Thread that starts the queued sounds.
+     * @param played Number of sounds started.
+     * @param stolen Number of playing voices stopped to make room for another sound.
+     * @param dropped Number of requests dropped because the queue was full.
+     */
+    private final AudioBackend backend;
+    private final int maxVoices;
+    private final AudioBackend.Voice[][] voices;
+    private final List<CompletableFuture<AudioBackend.Voice[]>> loading;
+    private final long[][] startedAt;
+    private final BlockingQueue<Sound> requests = new ArrayBlockingQueue<>(64);
+    private final Thread playbackThread;
+    private volatile long played;
+    private volatile long stolen;
+    private volatile long dropped;
+
+    /**
+     * Constructs a mixer, decoding every sound and opening its voices up front.
+     *
+     * @param backend        The backend that opens the voices.
+     * @param maxVoices      The maximum number of voices playing at once.
+     * @param voicesPerSound The number of voices opened for each sound.
+     */
+    AudioMixer(AudioBackend backend, int maxVoices, int voicesPerSound) {
+        this(backend, maxVoices, voicesPerSound, null);
+    }
+
+    /**
+     * Constructs a mixer whose sounds are decoded and whose voices are opened by an asset manager.
+     *
+     * @param backend        The backend that opens the voices.
+     * @param maxVoices      The maximum number of voices playing at once.
+     * @param voicesPerSound The number of voices opened for each sound.
+     * @param assets         The manager to load the sounds with, or null to load them up front.
+     */
+    AudioMixer(AudioBackend backend, int maxVoices, int voicesPerSound, AssetManager assets) {
+        this.backend = backend;
+        this.maxVoices = maxVoices;
+        Sound[] sounds = Sound.values();
+        voices = new AudioBackend.Voice[sounds.length][];
+        startedAt = new long[sounds.length][];
+        loading = assets != null ? new ArrayList<>() : null;
+        for (Sound sound : sounds) {
+            startedAt[sound.ordinal()] = new long[voicesPerSound];
+            if (assets == null) {
+                voices[sound.ordinal()] = openVoices(sound, voicesPerSound);
+                continue;
+            }
+            CompletableFuture<AudioBackend.Voice[]> opened = assets.derive(sound.fileName + " voices",
+                assets.sound(sound.fileName), pcm -> openVoices(pcm, voicesPerSound));
+            opened.exceptionally(e -> {
+                e.printStackTrace();
+                return null;
+            });
+            loading.add(opened);
+        }
+        playbackThread = new Thread(this::runPlayback, "audio-mixer");
+        playbackThread.setDaemon(true);
+        playbackThread.start();
+    }
+
+    /**
+     * Creates the mixer the game uses: Java Sound when an audio device is available, silent otherwise.
+     * Setting the system property spacegame.audio=off forces the silent backend.
+     *
+     * @param assets The manager to load the sounds with.
+     * @return The mixer.
+     */
+    static AudioMixer createDefault(AssetManager assets) {
+        AudioBackend backend = new NullAudioBackend();
+        if (!GraphicsEnvironment.isHeadless() && !"off".equals(System.getProperty("spacegame.audio"))
+                && AudioSystem.getMixerInfo().length > 0) {
+            backend = new JavaSoundBackend();
+        }
+        return new AudioMixer(backend, 8, 4, assets);
+    }
+
+    /**
+     * Queues a sound to be played. Never blocks; if the queue is full the request is dropped.
+     *
+     * @param sound The sound to play.
+     */
+    void play(Sound sound) {
+        if (!requests.offer(sound)) {
+            dropped++;
+        }
+    }
+
+    /**
+     * Stops the playback thread and releases every voice.
+     */
+    void close() {
+        playbackThread.interrupt();
+        for (int s = 0; s < voices.length; s++) {
+            if (voices[s] != null) {
+                closeVoices(voices[s]);
+            } else if (loading != null) {
+                loading.get(s).thenAccept(AudioMixer::closeVoices);
+            }
+        }
+    }
+
+    /**
+     * Releases the voices of a sound.
+     *
+     * @param soundVoices The voices, or null.
+     */
+    private static void closeVoices(AudioBackend.Voice[] soundVoices) {
+        if (soundVoices != null) {
+            for (AudioBackend.Voice voice : soundVoices) {
+                voice.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of sounds started so far.
+     *
+     * @return The number of sounds started.
+     */
+    long playedCount() {
+        return played;
+    }
+
+    /**
+     * Returns the number of playing voices stopped to make room for another sound.
+     *
+     * @return The number of stolen voices.
+     */
+    long stolenCount() {
+        return stolen;
+    }
+
+    /**
+     * Counts the voices that are currently playing.
+     *
+     * @return The number of active voices.
+     */
+    int activeVoices() {
+        return countActive();
+    }
+
+    /**
+     * Returns a one-line summary of the mixer's counters.
+     *
+     * @return The summary.
+     */
+    String stats() {
+        return "played=" + played + " stolen=" + stolen + " dropped=" + dropped + " active=" + countActive();
+    }
+
+    /**
+     * Decodes a sound and opens its voices.
+     *
+     * @param sound The sound to load.
+     * @param count The number of voices to open.
+     * @return The voices, or null if the sound could not be decoded or no voice could be opened.
+     */
+    private AudioBackend.Voice[] openVoices(Sound sound, int count) {
+        try {
+            return openVoices(AssetManager.decodeSound(sound.fileName, null), count);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Opens the voices of a decoded sound.
+     *
+     * @param pcm   The decoded sound.
+     * @param count The number of voices to open.
+     * @return The voices.
+     * @throws IllegalStateException If the backend cannot open a voice.
+     */
+    private AudioBackend.Voice[] openVoices(AssetManager.Pcm pcm, int count) {
+        AudioBackend.Voice[] opened = new AudioBackend.Voice[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                opened[i] = backend.openVoice(pcm.format, pcm.data);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot open a voice", e);
+        }
+        return opened;
+    }
+
+    /**
+     * Starts queued sounds until the thread is interrupted.
+     */
+    private void runPlayback() {
+        try {
+            while (true) {
+                start(requests.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts a sound on a free voice, stealing the oldest voice when the voice cap is reached or all of
+     * the sound's voices are busy.
+     *
+     * @param sound The sound to start.
+     */
+    private void start(Sound sound) {
+        AudioBackend.Voice[] soundVoices = voices[sound.ordinal()];
+        if (soundVoices == null && loading != null) {
+            // Completing the future published the voices to this thread.
+            CompletableFuture<AudioBackend.Voice[]> opened = loading.get(sound.ordinal());
+            if (opened.isDone() && !opened.isCompletedExceptionally()) {
+                soundVoices = opened.join();
+                voices[sound.ordinal()] = soundVoices;
+            }
+        }
+        if (soundVoices == null) {
+            return;
+        }
+        if (countActive() >= maxVoices) {
+            stealOldest(-1);
+        }
+        int s = sound.ordinal();
+        int chosen = -1;
+        for (int v = 0; v < soundVoices.length; v++) {
+            if (!soundVoices[v].isActive()) {
+                chosen = v;
+                break;
+            }
+        }
+        if (chosen < 0) {
+            chosen = stealOldest(s);
+        }
+        soundVoices[chosen].restart();
+        startedAt[s][chosen] = System.nanoTime();
+        played++;
+    }
+
+    /**
+     * Stops the playing voice that was started longest ago.
+     *
+     * @param soundOrdinal The sound whose voices to consider, or -1 for all sounds.
+     * @return The index of the stopped voice within its sound, or -1 if no voice was playing.
+     */
+    private int stealOldest(int soundOrdinal) {
+        int oldestSound = -1;
+        int oldestVoice = -1;
+        long oldestStart = Long.MAX_VALUE;
+        for (int s = 0; s < voices.length; s++) {
+            if (voices[s] == null || (soundOrdinal >= 0 && s != soundOrdinal)) {
+                continue;
+            }
+            for (int v = 0; v < voices[s].length; v++) {
+                if (voices[s][v].isActive() && startedAt[s][v] < oldestStart) {
+                    oldestStart = startedAt[s][v];
+                    oldestSound = s;
+                    oldestVoice = v;
+                }
+            }
+        }
+        if (oldestVoice < 0) {
+            return soundOrdinal >= 0 ? 0 : -1;
+        }
+        voices[oldestSound][oldestVoice].stop();
+        stolen++;
+        return oldestVoice;
+    }
+
+    /**
+     * Counts the voices that are currently playing.
+     *
+     * @return The number of active voices.
+     */
+    private int countActive() {
+        int active = 0;
+        for (AudioBackend.Voice[] soundVoices : voices) {
+            if (soundVoices != null) {
+                for (AudioBackend.Voice voice : soundVoices) {
+                    if (voice.isActive()) {
+                        active++;
+                    }
+                }
+            }
+        }
+        return active;
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Imports necessary for the BatchRunner class.
+ */
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+
+/**
+ * Plays large numbers of independent headless games in parallel, for tuning the level parameters.
+ *
+ * Game i of a batch is seeded with {@code baseSeed + i} and driven by its own {@link InputPolicy}, so a
+ * batch gives the same {@link BatchStats} whatever the number of threads. Games run on a fork-join pool
+ * of the requested size and are folded into per-thread totals as they finish, which are merged at the end;
+ * each worker thread reuses one world for all of its games. With no shared state between games the
+ * throughput grows with the number of cores.
+ *
+ * Usage: {@code java BatchRunner [games] [level] [random|dodging] [threads] [spawnChance] [powerUpDelaySeconds] [stepTicks]}.
+ * A stepTicks above 1 steps each world that many ticks at a time, which is faster but lets the policy
+ * react less often; collisions stay exact since the world sweeps them.
+ * With {@code --scaling [games]} it instead runs the same batch on 1, 2, 4, ... threads up to the
+ * number of cores and prints the throughput of each.
+ */
+public class BatchRunner {
+    /**
+     * @param obstacleSpeed Obstacle speed of the level being tuned.
+     * @param obstacleSpawnChance Chance of a new obstacle appearing on each tick.
+     * @param powerUpDelayTicks Ticks from the start of a level until a power-up appears.
+     * @param policies Factory creating the input policy of a game from the game's seed.
+     * @param stepTicks Number of ticks each world advances per step.
+     * @param worlds World reused by each worker thread.
+     */
+    final int obstacleSpeed;
+    final double obstacleSpawnChance;
+    final int powerUpDelayTicks;
+    final LongFunction<InputPolicy> policies;
+    int stepTicks = 1;
+    private final ThreadLocal<GameWorld> worlds = ThreadLocal.withInitial(() -> new GameWorld(0));
+
+    /**
+     * Constructs a runner for one set of level parameters.
+     *
+     * @param obstacleSpeed       The obstacle speed, 3 for easy and 6 for hard.
+     * @param obstacleSpawnChance The chance of a new obstacle appearing on each tick.
+     * @param powerUpDelayTicks   The ticks from the start of a level until a power-up appears.
+     * @param policies            The factory creating the input policy of a game from the game's seed.
+     */
+    BatchRunner(int obstacleSpeed, double obstacleSpawnChance, int powerUpDelayTicks, LongFunction<InputPolicy> policies) {
+        this.obstacleSpeed = obstacleSpeed;
+        this.obstacleSpawnChance = obstacleSpawnChance;
+        this.powerUpDelayTicks = powerUpDelayTicks;
+        this.policies = policies;
+    }
+
+    /**
+     * Plays a batch of games and returns their combined statistics.
+     *
+     * @param baseSeed The seed of the first game; the others follow consecutively.
+     * @param games    The number of games to play.
+     * @param threads  The number of worker threads.
+     * @return The statistics of the batch.
+     * @throws InterruptedException If interrupted while waiting for the batch.
+     */
+    BatchStats run(long baseSeed, int games, int threads) throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // A parallel stream started from inside a pool runs its tasks on that pool.
+            return pool.submit(() -> LongStream.range(0, games).parallel()
+                .collect(BatchStats::new, (stats, i) -> stats.add(play(baseSeed + i)), BatchStats::merge)).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays one game to the end on the calling thread's world.
+     *
+     * @param seed The seed of the game.
+     * @return The world of the finished game, valid until the thread plays its next game.
+     */
+    GameWorld play(long seed) {
+        GameWorld world = worlds.get();
+        world.reset();
+        world.reseed(seed);
+        world.obstacleSpawnChance = obstacleSpawnChance;
+        world.powerUpDelayTicks = powerUpDelayTicks;
+        world.stepTicks = stepTicks;
+        world.selectLevel(obstacleSpeed);
+        InputPolicy policy = policies.apply(seed);
+        while (!world.isGameOver) {
+            world.step(policy.nextInputs(world));
+        }
+        return world;
+    }
+
+    /**
+     * The entry point for the batch runner.
+     *
+     * @param args Optional number of games, level (1 - Easy, 2 - Hard), input policy, number of threads,
+     *             obstacle spawn chance, power-up delay in seconds and ticks per step.
+     * @throws InterruptedException If interrupted while waiting for a batch.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (args.length > 0 && args[0].equals("--scaling")) {
+            int games = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+            BatchRunner runner = new BatchRunner(3, GameWorld.OBSTACLE_SPAWN_CHANCE, GameWorld.POWER_UP_DELAY_TICKS,
+                InputPolicy::random);
+            runner.run(0, games / 10, cores);
+            double single = 0;
+            for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+                long start = System.nanoTime();
+                BatchStats stats = runner.run(0, games, threads);
+                double gamesPerSecond = games / ((System.nanoTime() - start) / 1e9);
+                if (threads == 1) {
+                    single = gamesPerSecond;
+                }
+                System.out.printf("threads=%d gamesPerSecond=%.0f ticksPerSecond=%.0f speedup=%.2f%n",
+                    threads, gamesPerSecond, gamesPerSecond * stats.ticks / stats.games, gamesPerSecond / single);
+                if (threads == cores) {
+                    break;
+                }
+            }
+            return;
+        }
+
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int obstacleSpeed = args.length > 1 && args[1].equals("2") ? 6 : 3;
+        boolean dodging = args.length > 2 && args[2].equals("dodging");
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : cores;
+        double spawnChance = args.length > 4 ? Double.parseDouble(args[4]) : GameWorld.OBSTACLE_SPAWN_CHANCE;
+        int powerUpDelay = args.length > 5 ? Integer.parseInt(args[5]) * GameWorld.TICKS_PER_SECOND
+            : GameWorld.POWER_UP_DELAY_TICKS;
+
+        BatchRunner runner = new BatchRunner(obstacleSpeed, spawnChance, powerUpDelay,
+            dodging ? seed -> InputPolicy.dodging() : InputPolicy::random);
+        runner.stepTicks = args.length > 6 ? Integer.parseInt(args[6]) : 1;
+        long start = System.nanoTime();
+        BatchStats stats = runner.run(System.nanoTime(), games, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(stats);
+        System.out.printf("threads=%d time=%.2fs gamesPerSecond=%.0f ticksPerSecond=%.0f%n",
+            threads, seconds, games / seconds, stats.ticks / seconds);
+    }
+}
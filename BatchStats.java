@@ -0,0 +1,95 @@
+/**
+ * Running totals over a batch of finished games.
+ *
+ * Each game is folded in as soon as it ends and only sums and histograms are kept, so the memory used
+ * does not depend on the number of games. Two partial results can be merged, and since every total is
+ * an integer sum the merged result does not depend on how the games were split between threads.
+ */
+class BatchStats {
+    /**
+     * @param games Number of games folded in.
+     * @param deaths Number of games that ended with the player out of health rather than out of time.
+     * @param ticks Total number of ticks simulated.
+     * @param scoreSum Sum of the final scores.
+     * @param scoreSquares Sum of the squared final scores.
+     * @param scores Histogram of the final scores.
+     * @param survivalTicks Histogram of the number of ticks each game lasted.
+     */
+    long games;
+    long deaths;
+    long ticks;
+    long scoreSum;
+    long scoreSquares;
+    final LatencyHistogram scores = new LatencyHistogram();
+    final LatencyHistogram survivalTicks = new LatencyHistogram();
+
+    /**
+     * Folds in a finished game.
+     *
+     * @param world The world of the game, after its game over tick.
+     */
+    void add(GameWorld world) {
+        games++;
+        if (world.health <= 0) {
+            deaths++;
+        }
+        ticks += world.tick;
+        scoreSum += world.score;
+        scoreSquares += (long) world.score * world.score;
+        scores.record(world.score);
+        survivalTicks.record(world.tick);
+    }
+
+    /**
+     * Adds the totals of another batch to this one.
+     *
+     * @param other The batch to merge in.
+     */
+    void merge(BatchStats other) {
+        games += other.games;
+        deaths += other.deaths;
+        ticks += other.ticks;
+        scoreSum += other.scoreSum;
+        scoreSquares += other.scoreSquares;
+        scores.add(other.scores);
+        survivalTicks.add(other.survivalTicks);
+    }
+
+    /**
+     * Returns the mean final score.
+     *
+     * @return The mean, or 0 for an empty batch.
+     */
+    double meanScore() {
+        return games == 0 ? 0 : (double) scoreSum / games;
+    }
+
+    /**
+     * Returns the standard deviation of the final scores.
+     *
+     * @return The population standard deviation, or 0 for an empty batch.
+     */
+    double scoreDeviation() {
+        if (games == 0) {
+            return 0;
+        }
+        double mean = meanScore();
+        return Math.sqrt(Math.max(0, (double) scoreSquares / games - mean * mean));
+    }
+
+    /**
+     * Formats the batch as a short summary. Survival is given in seconds of game time.
+     *
+     * @return The summary.
+     */
+    @Override
+    public String toString() {
+        double secondsPerTick = 1.0 / GameWorld.TICKS_PER_SECOND;
+        return String.format("games=%d deaths=%.1f%% score mean=%.1f sd=%.1f p10=%d p50=%d p90=%d max=%d"
+                + " survival mean=%.1fs p10=%.1fs p50=%.1fs",
+            games, games == 0 ? 0 : 100.0 * deaths / games, meanScore(), scoreDeviation(),
+            scores.percentile(10), scores.percentile(50), scores.percentile(90), scores.max(),
+            survivalTicks.mean() * secondsPerTick, survivalTicks.percentile(10) * secondsPerTick,
+            survivalTicks.percentile(50) * secondsPerTick);
+    }
+}
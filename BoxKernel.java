@@ -0,0 +1,27 @@
+/**
+ * Tests one box against a run of boxes of the same size, for {@link Collision#intersectsAll}.
+ *
+ * The scalar loop in {@link Collision} always works. A kernel written against the incubating Vector
+ * API is compiled apart from the game and only used when that module is loaded, so the game builds
+ * and runs the same on a JDK started without it.
+ */
+interface BoxKernel {
+    /**
+     * Flags each box of the run that the box intersects, with the semantics of
+     * {@link Collision#intersects}. The boxes are not empty.
+     *
+     * @param x    The x-coordinate of the box.
+     * @param y    The y-coordinate of the box.
+     * @param w    The width of the box.
+     * @param h    The height of the box.
+     * @param xs   The x-coordinates of the boxes of the run.
+     * @param ys   The y-coordinates of the boxes of the run.
+     * @param bw   The width of every box of the run.
+     * @param bh   The height of every box of the run.
+     * @param from The index of the first box of the run.
+     * @param to   The index after the last box of the run.
+     * @param hits Receives at each index of the run whether that box intersects the box.
+     */
+    void intersectsAll(int x, int y, int w, int h, int[] xs, int[] ys, int bw, int bh, int from, int to,
+        boolean[] hits);
+}
@@ -0,0 +1,207 @@
+/**
+ * Imports necessary for the Collision class.
+ */
+import java.util.Arrays;
+
+/**
+ * Axis-aligned box tests shared by the simulation.
+ *
+ * The boxes are given as plain ints so hot loops can test obstacles straight out of their arrays
+ * without building a {@link java.awt.Rectangle} for each one, and {@link #intersectsAll} tests a whole
+ * run of them in one batch. {@link #sweep} tests boxes that move during a step rather than where they
+ * end up, so a fast box cannot pass through another between two steps.
+ */
+final class Collision {
+    /**
+     * @param VECTOR_MODULE Name of the module the Vector API kernel needs.
+     * @param SCALAR Batched box test as a plain loop, which works on every JDK.
+     * @param KERNEL Batched box test in use: the Vector API one when its module is loaded, else SCALAR.
+     */
+    static final String VECTOR_MODULE = "jdk.incubator.vector";
+    static final BoxKernel SCALAR = Collision::intersectsAllScalar;
+    static final BoxKernel KERNEL = loadKernel();
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private Collision() {
+    }
+
+    /**
+     * Determines whether two boxes intersect, with exactly the semantics of
+     * {@link java.awt.Rectangle#intersects(java.awt.Rectangle)}: empty boxes never intersect and boxes
+     * that only share an edge do not intersect.
+     *
+     * @param ax The x-coordinate of the first box.
+     * @param ay The y-coordinate of the first box.
+     * @param aw The width of the first box.
+     * @param ah The height of the first box.
+     * @param bx The x-coordinate of the second box.
+     * @param by The y-coordinate of the second box.
+     * @param bw The width of the second box.
+     * @param bh The height of the second box.
+     * @return True if the boxes intersect.
+     */
+    static boolean intersects(int ax, int ay, int aw, int ah, int bx, int by, int bw, int bh) {
+        if (aw <= 0 || ah <= 0 || bw <= 0 || bh <= 0) {
+            return false;
+        }
+        // The right and bottom edges are compared as in Rectangle, which tolerates int overflow.
+        aw += ax;
+        ah += ay;
+        bw += bx;
+        bh += by;
+        return ((aw < ax || aw > bx) && (ah < ay || ah > by) && (bw < bx || bw > ax) && (bh < by || bh > ay));
+    }
+
+    /**
+     * Tests one box against a run of boxes of the same size with the semantics of {@link #intersects},
+     * and flags each box of the run that it intersects.
+     *
+     * The boxes are tested by {@link #KERNEL}, which is the Vector API kernel when the JVM was started
+     * with its module and the scalar loop otherwise.
+     *
+     * @param x    The x-coordinate of the box.
+     * @param y    The y-coordinate of the box.
+     * @param w    The width of the box.
+     * @param h    The height of the box.
+     * @param xs   The x-coordinates of the boxes of the run.
+     * @param ys   The y-coordinates of the boxes of the run.
+     * @param bw   The width of every box of the run.
+     * @param bh   The height of every box of the run.
+     * @param from The index of the first box of the run.
+     * @param to   The index after the last box of the run.
+     * @param hits Receives at each index of the run whether that box intersects the box.
+     */
+    static void intersectsAll(int x, int y, int w, int h, int[] xs, int[] ys, int bw, int bh, int from, int to,
+            boolean[] hits) {
+        if (w <= 0 || h <= 0 || bw <= 0 || bh <= 0) {
+            Arrays.fill(hits, from, to, false);
+            return;
+        }
+        KERNEL.intersectsAll(x, y, w, h, xs, ys, bw, bh, from, to, hits);
+    }
+
+    /**
+     * Returns the batched box test in use. The first call loads it, which for the Vector API kernel
+     * includes warming it up, so it can be made ahead of the first query.
+     *
+     * @return The kernel.
+     */
+    static BoxKernel kernel() {
+        return KERNEL;
+    }
+
+    /**
+     * Loads the Vector API kernel if the jdk.incubator.vector module is in the boot layer and the kernel
+     * was compiled, which it only can be apart from the game's sources.
+     *
+     * @return The Vector API kernel, or {@link #SCALAR} if it cannot be used.
+     */
+    private static BoxKernel loadKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return SCALAR;
+        }
+        try {
+            return (BoxKernel) Class.forName("VectorBoxKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.out.println("Using the scalar box test, the Vector API kernel cannot be loaded: "
+                + (e.getCause() != null ? e.getCause() : e));
+            return SCALAR;
+        }
+    }
+
+    /**
+     * Tests one box against a run of boxes like {@link #intersectsAll}, as a plain loop over the boxes
+     * that the JIT can unroll. The boxes are not empty.
+     *
+     * Every box gets the same straight-line work with no branches, so on processors with vector units
+     * the JIT may still test several boxes per instruction.
+     *
+     * @param x    The x-coordinate of the box.
+     * @param y    The y-coordinate of the box.
+     * @param w    The width of the box.
+     * @param h    The height of the box.
+     * @param xs   The x-coordinates of the boxes of the run.
+     * @param ys   The y-coordinates of the boxes of the run.
+     * @param bw   The width of every box of the run.
+     * @param bh   The height of every box of the run.
+     * @param from The index of the first box of the run.
+     * @param to   The index after the last box of the run.
+     * @param hits Receives at each index of the run whether that box intersects the box.
+     */
+    private static void intersectsAllScalar(int x, int y, int w, int h, int[] xs, int[] ys, int bw, int bh,
+            int from, int to, boolean[] hits) {
+        // The same edge comparisons as intersects, with the ones that only depend on the box hoisted.
+        int right = x + w;
+        int bottom = y + h;
+        boolean wrapsRight = right < x;
+        boolean wrapsBottom = bottom < y;
+        for (int k = from; k < to; k++) {
+            int bx = xs[k];
+            int by = ys[k];
+            int bRight = bx + bw;
+            int bBottom = by + bh;
+            hits[k] = (wrapsRight | right > bx) & (wrapsBottom | bottom > by)
+                & (bRight < bx | bRight > x) & (bBottom < by | bBottom > y);
+        }
+    }
+
+    /**
+     * Finds when two boxes moving in straight lines during a step first intersect, with the semantics of
+     * {@link #intersects}: boxes that only touch do not intersect.
+     *
+     * @param ax  The x-coordinate of the first box at the start of the step.
+     * @param ay  The y-coordinate of the first box at the start of the step.
+     * @param aw  The width of the first box.
+     * @param ah  The height of the first box.
+     * @param adx The distance the first box moves along x during the step.
+     * @param ady The distance the first box moves along y during the step.
+     * @param bx  The x-coordinate of the second box at the start of the step.
+     * @param by  The y-coordinate of the second box at the start of the step.
+     * @param bw  The width of the second box.
+     * @param bh  The height of the second box.
+     * @param bdx The distance the second box moves along x during the step.
+     * @param bdy The distance the second box moves along y during the step.
+     * @return The time of impact as a fraction of the step, from 0 if they intersect at its start to 1,
+     *         or {@link Double#POSITIVE_INFINITY} if they do not intersect during the step.
+     */
+    static double sweep(int ax, int ay, int aw, int ah, int adx, int ady,
+            int bx, int by, int bw, int bh, int bdx, int bdy) {
+        if (aw <= 0 || ah <= 0 || bw <= 0 || bh <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        // Move the first box relative to the second, which then stands still. On each axis the boxes
+        // overlap while the relative offset lies strictly between -aw and bw.
+        double enter = 0;
+        double exit = 1;
+        long v = (long) adx - bdx;
+        long low = (long) bx - ax - aw;
+        long high = (long) bx - ax + bw;
+        if (v == 0) {
+            if (low >= 0 || high <= 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+        } else {
+            double t0 = (double) (v > 0 ? low : high) / v;
+            double t1 = (double) (v > 0 ? high : low) / v;
+            enter = Math.max(enter, t0);
+            exit = Math.min(exit, t1);
+        }
+        v = (long) ady - bdy;
+        low = (long) by - ay - ah;
+        high = (long) by - ay + bh;
+        if (v == 0) {
+            if (low >= 0 || high <= 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+        } else {
+            double t0 = (double) (v > 0 ? low : high) / v;
+            double t1 = (double) (v > 0 ? high : low) / v;
+            enter = Math.max(enter, t0);
+            exit = Math.min(exit, t1);
+        }
+        // The overlap is open at both ends, so boxes that only touch during the step do not intersect.
+        return enter < exit ? enter : Double.POSITIVE_INFINITY;
+    }
+}
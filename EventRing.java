@@ -0,0 +1,292 @@
+/**
+ * Imports necessary for the EventRing class.
+ */
+import java.util.ArrayList;
+import java.util.List;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Carries {@link GameEvent}s from the simulation thread to subscribers that each run on a thread of
+ * their own, without locks and without allocating per event.
+ *
+ * Events are written into preallocated arrays used as a ring, by a single producer that numbers them
+ * with a sequence and publishes them by advancing its cursor. Every subscriber follows the cursor with
+ * a sequence of its own and is handed each event in order, with a flag marking the last event of the
+ * batch it found waiting. Subscribers are lossless or lossy. A lossless subscriber, such as the
+ * statistics that count every event, is handed every event: the producer never overwrites an event it has
+ * not handled yet and waits for it when the ring is full. Since the simulation publishes while it holds
+ * the world's lock, a lossless handler must be quick and must never wait for that lock. A lossy
+ * subscriber, such as the audio, never holds the producer back; when it falls a whole ring behind it
+ * skips the events that were overwritten and counts them as dropped. The producer claims each sequence
+ * before it overwrites the slot, and a subscriber checks the claim again after reading a slot, so an
+ * event overwritten while it was being read is dropped rather than handed on torn. The producer keeps the
+ * slowest lossless sequence it last saw, so as long as there is room it does not look at the
+ * subscribers at all. Subscribers with nothing to handle sleep briefly, so events reach them within
+ * about a millisecond.
+ */
+class EventRing {
+    /**
+     * Handles the events of one subscriber, on that subscriber's thread.
+     */
+    interface Handler {
+        /**
+         * Handles an event.
+         *
+         * @param type       The kind of event.
+         * @param tick       The tick the event happened on.
+         * @param player     The player the event concerns.
+         * @param value      The value of the event, whose meaning depends on the kind.
+         * @param endOfBatch Flag indicating if no further event was waiting when this batch was taken.
+         */
+        void onEvent(GameEvent type, long tick, int player, int value, boolean endOfBatch);
+    }
+
+    /**
+     * @param IDLE_NANOS Time a subscriber with nothing to handle sleeps before looking again.
+     * @param mask Mask turning a sequence into a slot of the ring.
+     * @param types Kind of the event in each slot.
+     * @param ticks Tick of the event in each slot.
+     * @param players Player of the event in each slot.
+     * @param values Value of the event in each slot.
+     * @param cursor Sequence of the newest published event, -1 before the first.
+     * @param claimed Sequence of the newest event the producer has started writing, one ahead of the
+     *     cursor while it writes.
+     * @param next Sequence the next event is published with, owned by the producer.
+     * @param gate Sequence of the slowest lossless subscriber when the producer last looked, owned by the
+     *     producer.
+     * @param subscribers Subscribers following the ring.
+     * @param running Flag telling the subscribers to keep waiting for events.
+     * @param stalls Number of events the producer had to wait for a lossless subscriber to make room for.
+     */
+    private static final long IDLE_NANOS = 1_000_000L;
+
+    private final int mask;
+    private final GameEvent[] types;
+    private final long[] ticks;
+    private final int[] players;
+    private final int[] values;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private long next;
+    private long gate = -1;
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private volatile boolean running;
+    volatile long stalls;
+
+    /**
+     * Constructs an empty ring with no subscribers.
+     *
+     * @param capacity The number of events the ring holds, a power of two.
+     * @throws IllegalArgumentException If the capacity is not a power of two.
+     */
+    EventRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        mask = capacity - 1;
+        types = new GameEvent[capacity];
+        ticks = new long[capacity];
+        players = new int[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * Adds a subscriber that is handed the events published from now on.
+     *
+     * @param name     The name of the subscriber, used to name its thread.
+     * @param handler  The handler of its events.
+     * @param lossless Flag indicating if the subscriber is handed every event, with the producer waiting
+     *                 for it when the ring is full, rather than skipping those it falls too far behind on.
+     * @throws IllegalStateException If the ring has already been started.
+     */
+    void subscribe(String name, Handler handler, boolean lossless) {
+        if (running) {
+            throw new IllegalStateException("Subscribers must be added before the ring is started");
+        }
+        subscribers.add(new Subscriber(name, handler, lossless, cursor.get()));
+    }
+
+    /**
+     * Starts the threads of the subscribers. They do not keep the application running on their own.
+     */
+    void start() {
+        running = true;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.thread.start();
+        }
+    }
+
+    /**
+     * Stops the subscribers once they have handled every event published so far, and waits for them.
+     */
+    void stop() {
+        running = false;
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of events published so far.
+     *
+     * @return The number of events.
+     */
+    long published() {
+        return cursor.get() + 1;
+    }
+
+    /**
+     * Returns the number of events the lossy subscribers skipped so far, summed over them.
+     *
+     * @return The number of events.
+     */
+    long dropped() {
+        long dropped = 0;
+        for (int i = 0; i < subscribers.size(); i++) {
+            dropped += subscribers.get(i).dropped;
+        }
+        return dropped;
+    }
+
+    /**
+     * Publishes an event. Only a single thread may call this. Waits only while the ring is full of
+     * events a lossless subscriber has not handled yet.
+     *
+     * @param type   The kind of event.
+     * @param tick   The tick the event happened on.
+     * @param player The player the event concerns.
+     * @param value  The value of the event.
+     */
+    void publish(GameEvent type, long tick, int player, int value) {
+        long sequence = next;
+        long wrap = sequence - types.length;
+        if (wrap > gate) {
+            gate = slowest(sequence - 1);
+            if (wrap > gate) {
+                stalls++;
+                while (wrap > gate) {
+                    Thread.onSpinWait();
+                    gate = slowest(sequence - 1);
+                }
+            }
+        }
+        int slot = (int) sequence & mask;
+        // Claim the sequence before overwriting its slot, so a lossy subscriber still reading the old event
+        // there notices.
+        claimed.lazySet(sequence);
+        VarHandle.storeStoreFence();
+        types[slot] = type;
+        ticks[slot] = tick;
+        players[slot] = player;
+        values[slot] = value;
+        next = sequence + 1;
+        // The release store makes the slot visible to a subscriber that reads the new cursor.
+        cursor.lazySet(sequence);
+    }
+
+    /**
+     * Finds the sequence of the lossless subscriber furthest behind.
+     *
+     * @param newest The sequence of the newest published event, returned when there is no lossless
+     *               subscriber.
+     * @return The lowest sequence a lossless subscriber has handled.
+     */
+    private long slowest(long newest) {
+        long lowest = newest;
+        for (int i = 0; i < subscribers.size(); i++) {
+            Subscriber subscriber = subscribers.get(i);
+            if (subscriber.lossless) {
+                lowest = Math.min(lowest, subscriber.sequence.get());
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * A subscriber's handler, thread and position in the ring.
+     */
+    private final class Subscriber implements Runnable {
+        /**
+         * @param handler Handler of the subscriber's events.
+         * @param lossless Flag indicating if the producer waits for the subscriber rather than overwrite
+         *     events it has not handled.
+         * @param sequence Sequence of the last event handled, read by the producer.
+         * @param thread Thread handing the events to the handler.
+         * @param dropped Number of events skipped because they were overwritten before they were handled.
+         */
+        private final Handler handler;
+        private final boolean lossless;
+        private final AtomicLong sequence;
+        private final Thread thread;
+        private volatile long dropped;
+
+        /**
+         * Constructs a subscriber whose thread is not started yet.
+         *
+         * @param name     The name of the subscriber.
+         * @param handler  The handler of its events.
+         * @param lossless Flag indicating if the producer waits for the subscriber.
+         * @param start    The sequence of the last event it is not handed.
+         */
+        Subscriber(String name, Handler handler, boolean lossless, long start) {
+            this.handler = handler;
+            this.lossless = lossless;
+            this.sequence = new AtomicLong(start);
+            this.thread = new Thread(this, "events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Hands every newly published event to the handler, in batches, until the ring is stopped and
+         * nothing is left. A lossy subscriber skips the events that were overwritten before it got to
+         * them.
+         */
+        @Override
+        public void run() {
+            long handled = sequence.get();
+            while (true) {
+                // Reading the flag first means an event published before the stop is never missed.
+                boolean stopping = !running;
+                long available = cursor.get();
+                if (available > handled) {
+                    if (available - handled > types.length) {
+                        // Only a lossy subscriber falls this far behind; the older events are gone.
+                        dropped += available - types.length - handled;
+                        handled = available - types.length;
+                    }
+                    for (long s = handled + 1; s <= available; s++) {
+                        int slot = (int) s & mask;
+                        GameEvent type = types[slot];
+                        long tick = ticks[slot];
+                        int player = players[slot];
+                        int value = values[slot];
+                        // An event overwritten while it was read, or before, had its slot claimed first.
+                        VarHandle.loadLoadFence();
+                        if (claimed.get() - types.length >= s) {
+                            dropped++;
+                            continue;
+                        }
+                        try {
+                            handler.onEvent(type, tick, player, value, s == available);
+                        } catch (RuntimeException e) {
+                            System.err.println("Event handler " + thread.getName() + " failed: " + e);
+                        }
+                    }
+                    handled = available;
+                    sequence.lazySet(handled);
+                } else if (stopping) {
+                    return;
+                } else {
+                    LockSupport.parkNanos(IDLE_NANOS);
+                }
+            }
+        }
+    }
+}
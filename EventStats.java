@@ -0,0 +1,72 @@
+/**
+ * Imports necessary for the EventStats class.
+ */
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the {@link GameEvent}s of each kind handed to it by an {@link EventRing}, for the profiler
+ * overlay.
+ *
+ * Only the subscriber's thread writes the counts, and any thread can read them.
+ */
+class EventStats implements EventRing.Handler {
+    /**
+     * @param counts Number of events of each kind, indexed by ordinal.
+     * @param batches Number of batches the events were handed over in.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(GameEvent.values().length);
+    private final AtomicLong batches = new AtomicLong();
+
+    /**
+     * Counts an event.
+     *
+     * @param type       The kind of event.
+     * @param tick       The tick the event happened on.
+     * @param player     The player the event concerns.
+     * @param value      The value of the event.
+     * @param endOfBatch Flag indicating if no further event was waiting when this batch was taken.
+     */
+    @Override
+    public void onEvent(GameEvent type, long tick, int player, int value, boolean endOfBatch) {
+        int i = type.ordinal();
+        counts.lazySet(i, counts.get(i) + 1);
+        if (endOfBatch) {
+            batches.lazySet(batches.get() + 1);
+        }
+    }
+
+    /**
+     * Returns the number of events of a kind counted so far.
+     *
+     * @param type The kind of event.
+     * @return The number of events.
+     */
+    long count(GameEvent type) {
+        return counts.get(type.ordinal());
+    }
+
+    /**
+     * Returns the number of events of every kind counted so far.
+     *
+     * @return The number of events.
+     */
+    long total() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Describes the counts, for the profiler overlay.
+     *
+     * @return One line of text.
+     */
+    String status() {
+        return String.format("events: %d shots, %d destroyed, %d damage, %d power-ups, %d shields in %d batches",
+            count(GameEvent.SHOT_FIRED), count(GameEvent.OBSTACLE_DESTROYED), count(GameEvent.PLAYER_DAMAGED),
+            count(GameEvent.POWER_UP_COLLECTED), count(GameEvent.SHIELD_ACTIVATED), batches.get());
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Imports necessary for the FrameEvent class.
+ */
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event for one drawn frame, with the time spent drawing the HUD and the game.
+ */
+@Name("spacegame.Frame")
+@Label("Frame")
+@Category("Space Game")
+@Description("One frame drawn by the game")
+class FrameEvent extends Event {
+    @Label("HUD")
+    @Timespan(Timespan.NANOSECONDS)
+    long hudNanos;
+
+    @Label("Render")
+    @Timespan(Timespan.NANOSECONDS)
+    long renderNanos;
+
+    @Label("Since Previous Frame")
+    @Timespan(Timespan.NANOSECONDS)
+    long intervalNanos;
+}
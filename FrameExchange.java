@@ -0,0 +1,87 @@
+/**
+ * Imports necessary for the FrameExchange class.
+ */
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands frames from the simulation thread to the rendering thread without locks, through three
+ * buffers, each holding a pair of {@link FrameState}s.
+ *
+ * The simulation captures each tick into its back buffer and publishes it by swapping it with the
+ * middle buffer in one atomic step; the renderer takes the newest frame by swapping the middle buffer
+ * with its front buffer, but only when something new was published since. Neither side ever waits for
+ * the other or sees a frame while it is being written: the simulation can publish many frames between
+ * two drawn frames, of which the renderer only takes the newest, and the renderer can draw the same
+ * frame many times between two ticks.
+ *
+ * To blend from one tick to the next, every frame is published together with the frame of the tick
+ * before it, even when the renderer never took that one. The simulation keeps a copy of the frame it
+ * published last and hands it over with the next one, so a buffer's earlier frame moves between the
+ * simulation and the buffers by reference and only one frame is copied per tick.
+ */
+class FrameExchange {
+    /**
+     * @param INDEX Bits of the middle word holding the index of the middle buffer.
+     * @param FRESH Bit of the middle word set while the middle buffer holds a frame the renderer has not taken.
+     * @param frames Frame of each of the three buffers.
+     * @param earlier Frame of the tick before, in each of the three buffers.
+     * @param middle Index of the middle buffer and the FRESH bit, swapped by both threads.
+     * @param back Index of the buffer the simulation writes, owned by the simulation thread.
+     * @param front Index of the buffer the renderer reads, owned by the rendering thread.
+     * @param last Copy of the frame published last, owned by the simulation thread.
+     */
+    private static final int INDEX = 3;
+    private static final int FRESH = 4;
+
+    private final FrameState[] frames = {new FrameState(), new FrameState(), new FrameState()};
+    private final FrameState[] earlier = {new FrameState(), new FrameState(), new FrameState()};
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+    private FrameState last = new FrameState();
+
+    /**
+     * Returns the buffer to capture the next frame into. Only the simulation thread may call this.
+     *
+     * @return The back buffer.
+     */
+    FrameState back() {
+        return frames[back];
+    }
+
+    /**
+     * Publishes the frame captured into the back buffer, together with the frame published before it,
+     * and takes a new back buffer. Only the simulation thread may call this.
+     */
+    void publish() {
+        // The buffer's old earlier frame is stale and becomes the copy of this one.
+        FrameState stale = earlier[back];
+        earlier[back] = last;
+        last = stale;
+        last.copyFrom(frames[back]);
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Returns the newest published frame. Only the rendering thread may call this; the frame stays
+     * valid until its next call.
+     *
+     * @return The newest frame, or an empty frame before the first one is published.
+     */
+    FrameState latest() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX;
+        }
+        return frames[front];
+    }
+
+    /**
+     * Returns the frame of the tick before the newest frame, whether or not it was taken. Only the
+     * rendering thread may call this; the frame stays valid until the next call of {@link #latest()}.
+     *
+     * @return The earlier frame, or an empty frame before the second one is published.
+     */
+    FrameState previous() {
+        return earlier[front];
+    }
+}
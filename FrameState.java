@@ -0,0 +1,343 @@
+/**
+ * Imports necessary for the FrameState class.
+ */
+import java.util.Arrays;
+
+/**
+ * What one frame draws of a world, captured by the simulation thread at the end of a tick.
+ *
+ * A frame holds the screen, the player and its peers, the visible obstacles ordered by their
+ * {@link ObstaclePool#id}, the projectiles, the stars and the values of the HUD, all copied out of the
+ * world so the renderer never reads the world while the simulation changes it. Frames are handed over
+ * through a {@link FrameExchange}.
+ *
+ * The renderer does not draw a frame directly: {@link #present(FrameState, double, GameWorld)} fills a
+ * world of its own with it, blending the positions from the frame before, and a {@link GameRenderer}
+ * draws that world as usual. Like {@link GameClient#present(GameWorld, double)}, obstacles are matched
+ * between the two frames by number.
+ */
+class FrameState {
+    /**
+     * @param LEVEL_SELECTED Flag bit set once a level is being played.
+     * @param GAME_OVER Flag bit set when the game is over.
+     * @param HEALTH_BUFF Flag bit set while the health power-up is showing.
+     * @param TIME_BUFF Flag bit set while the time power-up is showing.
+     * @param SHIELD_ACTIVE Flag bit set while the player's shield is up.
+     * @param tick Tick of the world the frame was captured on.
+     * @param publishedNanos System.nanoTime() at which the frame was captured.
+     * @param flags Flag bits of the game.
+     * @param health Health of the player.
+     * @param score Score of the player.
+     * @param remainingTime Remaining time in the game, in seconds.
+     * @param playerX X-coordinate of the player.
+     * @param playerY Y-coordinate of the player.
+     * @param cameraX X-coordinate of the top-left corner of the screen in the world.
+     * @param cameraY Y-coordinate of the top-left corner of the screen in the world.
+     * @param powerUpX X-coordinate of the power-up.
+     * @param powerUpY Y-coordinate of the power-up.
+     * @param peerCount Number of peers.
+     * @param peerX X-coordinates of the peers, in slot order.
+     * @param peerHealth Health of the peers.
+     * @param obstacleCount Number of visible obstacles.
+     * @param obstacleId Numbers of the visible obstacles, ascending.
+     * @param obstacleX X-coordinates of the visible obstacles.
+     * @param obstacleY Y-coordinates of the visible obstacles.
+     * @param obstacleSprite Sprite indices of the visible obstacles.
+     * @param projectileCount Number of projectiles.
+     * @param projectileX X-coordinates of the projectiles.
+     * @param projectileY Y-coordinates of the projectiles.
+     * @param projectileDx Distance each projectile moves per tick along x.
+     * @param projectileDy Distance each projectile moves per tick along y.
+     * @param starCount Number of stars.
+     * @param firstStar Sequence number of the oldest star in the world's ring, kept when presented.
+     * @param starX X-coordinates of the stars, oldest first.
+     * @param starY Y-coordinates of the stars.
+     * @param starColor Palette indices of the stars.
+     * @param slots Pool slots of the visible obstacles while capturing.
+     * @param sortKeys Obstacle numbers and pool slots packed into longs, for sorting the obstacles.
+     */
+    static final int LEVEL_SELECTED = 1;
+    static final int GAME_OVER = 1 << 1;
+    static final int HEALTH_BUFF = 1 << 2;
+    static final int TIME_BUFF = 1 << 3;
+    static final int SHIELD_ACTIVE = 1 << 4;
+
+    long tick;
+    long publishedNanos;
+    int flags;
+    int health;
+    int score;
+    int remainingTime;
+    int playerX;
+    int playerY;
+    int cameraX;
+    int cameraY;
+    int powerUpX;
+    int powerUpY;
+    int peerCount;
+    int[] peerX = new int[4];
+    int[] peerHealth = new int[4];
+    int obstacleCount;
+    int[] obstacleId = new int[64];
+    int[] obstacleX = new int[64];
+    int[] obstacleY = new int[64];
+    int[] obstacleSprite = new int[64];
+    int projectileCount;
+    int[] projectileX = new int[64];
+    int[] projectileY = new int[64];
+    int[] projectileDx = new int[64];
+    int[] projectileDy = new int[64];
+    int starCount;
+    long firstStar;
+    int[] starX = new int[64];
+    int[] starY = new int[64];
+    byte[] starColor = new byte[64];
+    private int[] slots = new int[64];
+    private long[] sortKeys = new long[64];
+
+    /**
+     * Captures what a frame draws of a world. Only the simulation thread may call this, between ticks.
+     *
+     * @param world The world.
+     * @param nanos The System.nanoTime() of the capture.
+     */
+    void capture(GameWorld world, long nanos) {
+        tick = world.tick;
+        publishedNanos = nanos;
+        flags = (world.levelSelected ? LEVEL_SELECTED : 0) | (world.isGameOver ? GAME_OVER : 0)
+            | (world.healthBuffActive ? HEALTH_BUFF : 0) | (world.timeBuffActive ? TIME_BUFF : 0)
+            | (world.isShieldActive ? SHIELD_ACTIVE : 0);
+        health = world.health;
+        score = world.score;
+        remainingTime = world.remainingTime;
+        playerX = world.playerX;
+        playerY = world.playerY;
+        cameraX = world.cameraX;
+        cameraY = world.cameraY;
+        powerUpX = world.powerUpPosition.x;
+        powerUpY = world.powerUpPosition.y;
+
+        PlayerPool peers = world.peers;
+        setPeerCount(peers.count);
+        System.arraycopy(peers.x, 0, peerX, 0, peers.count);
+        System.arraycopy(peers.health, 0, peerHealth, 0, peers.count);
+
+        ObstaclePool obstacles = world.obstacles;
+        if (slots.length < obstacles.count) {
+            slots = new int[obstacles.x.length];
+        }
+        int n = world.visibleObstacles(slots);
+        setObstacleCount(n);
+        if (sortKeys.length < n) {
+            sortKeys = new long[obstacleId.length];
+        }
+        for (int k = 0; k < n; k++) {
+            sortKeys[k] = (long) obstacles.id[slots[k]] << 32 | slots[k];
+        }
+        Arrays.sort(sortKeys, 0, n);
+        for (int k = 0; k < n; k++) {
+            int i = (int) sortKeys[k];
+            obstacleId[k] = obstacles.id[i];
+            obstacleX[k] = obstacles.x[i];
+            obstacleY[k] = obstacles.y[i];
+            obstacleSprite[k] = obstacles.spriteIndex[i];
+        }
+
+        ProjectilePool projectiles = world.projectiles;
+        setProjectileCount(projectiles.count);
+        System.arraycopy(projectiles.x, 0, projectileX, 0, projectiles.count);
+        System.arraycopy(projectiles.y, 0, projectileY, 0, projectiles.count);
+        System.arraycopy(projectiles.dx, 0, projectileDx, 0, projectiles.count);
+        System.arraycopy(projectiles.dy, 0, projectileDy, 0, projectiles.count);
+
+        ParticleSystem stars = world.stars;
+        setStarCount(stars.count());
+        firstStar = stars.head;
+        for (int k = 0; k < starCount; k++) {
+            int i = (int) (stars.head + k) & stars.mask;
+            starX[k] = stars.x[i];
+            starY[k] = stars.y[i];
+            starColor[k] = stars.color[i];
+        }
+    }
+
+    /**
+     * Copies another frame into this one.
+     *
+     * @param other The frame to copy.
+     */
+    void copyFrom(FrameState other) {
+        tick = other.tick;
+        publishedNanos = other.publishedNanos;
+        flags = other.flags;
+        health = other.health;
+        score = other.score;
+        remainingTime = other.remainingTime;
+        playerX = other.playerX;
+        playerY = other.playerY;
+        cameraX = other.cameraX;
+        cameraY = other.cameraY;
+        powerUpX = other.powerUpX;
+        powerUpY = other.powerUpY;
+        setPeerCount(other.peerCount);
+        System.arraycopy(other.peerX, 0, peerX, 0, peerCount);
+        System.arraycopy(other.peerHealth, 0, peerHealth, 0, peerCount);
+        setObstacleCount(other.obstacleCount);
+        System.arraycopy(other.obstacleId, 0, obstacleId, 0, obstacleCount);
+        System.arraycopy(other.obstacleX, 0, obstacleX, 0, obstacleCount);
+        System.arraycopy(other.obstacleY, 0, obstacleY, 0, obstacleCount);
+        System.arraycopy(other.obstacleSprite, 0, obstacleSprite, 0, obstacleCount);
+        setProjectileCount(other.projectileCount);
+        System.arraycopy(other.projectileX, 0, projectileX, 0, projectileCount);
+        System.arraycopy(other.projectileY, 0, projectileY, 0, projectileCount);
+        System.arraycopy(other.projectileDx, 0, projectileDx, 0, projectileCount);
+        System.arraycopy(other.projectileDy, 0, projectileDy, 0, projectileCount);
+        setStarCount(other.starCount);
+        firstStar = other.firstStar;
+        System.arraycopy(other.starX, 0, starX, 0, starCount);
+        System.arraycopy(other.starY, 0, starY, 0, starCount);
+        System.arraycopy(other.starColor, 0, starColor, 0, starCount);
+    }
+
+    /**
+     * Fills a world with this frame for drawing, blending from the frame before it.
+     *
+     * Positions are blended from the earlier frame to this one; a projectile is drawn back along its
+     * path by the part of a tick not yet reached. Nothing is blended across a restart, a rewind or a
+     * loaded game, where the earlier frame does not lead up to this one.
+     *
+     * @param from  The frame before this one.
+     * @param alpha How far to blend, from 0 for the earlier frame to 1 for this one.
+     * @param world The world to fill, the size of the simulated world; its simulation state is overwritten.
+     */
+    void present(FrameState from, double alpha, GameWorld world) {
+        if (from.tick >= tick || (from.flags & LEVEL_SELECTED) == 0) {
+            from = this;
+            alpha = 1;
+        }
+        world.tick = tick;
+        world.levelSelected = (flags & LEVEL_SELECTED) != 0;
+        world.isGameOver = (flags & GAME_OVER) != 0;
+        world.healthBuffActive = (flags & HEALTH_BUFF) != 0;
+        world.timeBuffActive = (flags & TIME_BUFF) != 0;
+        world.isShieldActive = (flags & SHIELD_ACTIVE) != 0;
+        world.health = health;
+        world.score = score;
+        world.remainingTime = remainingTime;
+        world.playerX = blend(from.playerX, playerX, alpha);
+        world.playerY = playerY;
+        world.cameraX = blend(from.cameraX, cameraX, alpha);
+        world.cameraY = blend(from.cameraY, cameraY, alpha);
+        world.powerUpPosition.setLocation(powerUpX, powerUpY);
+
+        world.peers.clear();
+        for (int p = 0; p < peerCount; p++) {
+            int x = p < from.peerCount ? blend(from.peerX[p], peerX[p], alpha) : peerX[p];
+            world.peers.join(x, peerHealth[p]);
+        }
+
+        ObstaclePool obstacles = world.obstacles;
+        obstacles.clear();
+        obstacles.clock = (int) tick;
+        int f = 0;
+        for (int k = 0; k < obstacleCount; k++) {
+            int id = obstacleId[k];
+            while (f < from.obstacleCount && from.obstacleId[f] < id) {
+                f++;
+            }
+            int y = obstacleY[k];
+            if (f < from.obstacleCount && from.obstacleId[f] == id) {
+                y = blend(from.obstacleY[f], y, alpha);
+            }
+            obstacles.add(obstacleX[k], y, obstacleSprite[k]);
+        }
+
+        ProjectilePool projectiles = world.projectiles;
+        projectiles.clear();
+        double behind = 1 - alpha;
+        for (int i = 0; i < projectileCount; i++) {
+            projectiles.add(projectileX[i] - (int) Math.round(projectileDx[i] * behind),
+                projectileY[i] - (int) Math.round(projectileDy[i] * behind), projectileDx[i], projectileDy[i], 0);
+        }
+
+        // The stars keep their sequence numbers, which is what the renderer thins them by.
+        ParticleSystem stars = world.stars;
+        stars.clear(firstStar);
+        for (int k = 0; k < starCount; k++) {
+            stars.spawn(starX[k], starY[k], starColor[k] & 0xFF, tick);
+        }
+        world.reindexObstacles();
+    }
+
+    /**
+     * Blends two coordinates.
+     *
+     * @param from  The coordinate in the earlier frame.
+     * @param to    The coordinate in this frame.
+     * @param alpha How far to blend, from 0 to 1.
+     * @return The blended coordinate.
+     */
+    private static int blend(int from, int to, double alpha) {
+        return from + (int) Math.round((to - from) * alpha);
+    }
+
+    /**
+     * Sets the number of peers, growing the peer arrays if needed.
+     *
+     * @param count The number of peers.
+     */
+    private void setPeerCount(int count) {
+        if (peerX.length < count) {
+            peerX = Arrays.copyOf(peerX, count);
+            peerHealth = Arrays.copyOf(peerHealth, count);
+        }
+        peerCount = count;
+    }
+
+    /**
+     * Sets the number of obstacles, growing the obstacle arrays if needed.
+     *
+     * @param count The number of obstacles.
+     */
+    private void setObstacleCount(int count) {
+        if (obstacleId.length < count) {
+            int size = Math.max(count, obstacleId.length * 2);
+            obstacleId = Arrays.copyOf(obstacleId, size);
+            obstacleX = Arrays.copyOf(obstacleX, size);
+            obstacleY = Arrays.copyOf(obstacleY, size);
+            obstacleSprite = Arrays.copyOf(obstacleSprite, size);
+        }
+        obstacleCount = count;
+    }
+
+    /**
+     * Sets the number of projectiles, growing the projectile arrays if needed.
+     *
+     * @param count The number of projectiles.
+     */
+    private void setProjectileCount(int count) {
+        if (projectileX.length < count) {
+            int size = Math.max(count, projectileX.length * 2);
+            projectileX = Arrays.copyOf(projectileX, size);
+            projectileY = Arrays.copyOf(projectileY, size);
+            projectileDx = Arrays.copyOf(projectileDx, size);
+            projectileDy = Arrays.copyOf(projectileDy, size);
+        }
+        projectileCount = count;
+    }
+
+    /**
+     * Sets the number of stars, growing the star arrays if needed.
+     *
+     * @param count The number of stars.
+     */
+    private void setStarCount(int count) {
+        if (starX.length < count) {
+            int size = Math.max(count, starX.length * 2);
+            starX = Arrays.copyOf(starX, size);
+            starY = Arrays.copyOf(starY, size);
+            starColor = Arrays.copyOf(starColor, size);
+        }
+        starCount = count;
+    }
+}
@@ -0,0 +1,753 @@
+/**
+ * Imports necessary for the GameBenchmark class.
+ */
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.awt.image.CropImageFilter;
+import java.awt.image.FilteredImageSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.BiConsumer;
+import bench.Scenarios;
+import javax.swing.ImageIcon;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+
+/**
+ * Micro-benchmarks for the simulation, collision and rendering code, run headless from the command line.
+ *
+ * Each benchmark is warmed up, then run in batches for a fixed amount of time while the allocated bytes
+ * of the benchmark thread are counted, and its average time and allocation per operation are printed.
+ * The benchmarks are grouped into tick, collision, stars, render, hud, world, snapshot, assets, frames,
+ * quality and events; pass group names to run only those.
+ * Usage: {@code java -Djava.awt.headless=true GameBenchmark [group...]}. The system property
+ * bench.seconds sets the measured time per benchmark (2 by default).
+ *
+ * The benchmarks are the game's {@link Scenarios}: each group hands its benchmarks to a measure
+ * callback, which is this class's timing loop when run from the command line. The same scenarios also
+ * run under JMH, with forks and confidence intervals, through {@code bench.GameScenarios} in the jmh
+ * source set of the Gradle build, which finds them as a service; this runner stays for quick checks where
+ * JMH is not available.
+ */
+public class GameBenchmark implements Scenarios {
+    /**
+     * @param OBSTACLE_COUNTS Obstacle counts the tick and collision benchmarks run at.
+     * @param STAR_DENSITIES Star densities the star benchmarks run at.
+     * @param WARMUP_NANOS Time each benchmark runs before measuring, to let the JIT compile the hot paths.
+     * @param MEASURED_NANOS Time each benchmark is measured for.
+     * @param THREADS Bean used to read the allocated bytes of the current thread.
+     * @param GROUPS Names of the benchmark groups, in the order they run.
+     * @param sink Receives each benchmark's name and operation to time it.
+     */
+    private static final int[] OBSTACLE_COUNTS = {10, 100, 1_000, 10_000};
+    private static final float[] STAR_DENSITIES = {0.1f, 10f, 100f};
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long MEASURED_NANOS = (long) (Double.parseDouble(System.getProperty("bench.seconds", "2")) * 1e9);
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final List<String> GROUPS = List.of("tick", "collision", "stars", "render", "hud", "world",
+        "snapshot", "assets", "frames", "quality", "events");
+
+    private final BiConsumer<String, Runnable> sink;
+
+    /**
+     * Constructs the scenarios timed by this class's own loop. This is the constructor the service
+     * loader calls.
+     */
+    public GameBenchmark() {
+        this(GameBenchmark::time);
+    }
+
+    /**
+     * Constructs the scenarios handed to a measure callback.
+     *
+     * @param sink Receives each benchmark's name and operation to time it.
+     */
+    private GameBenchmark(BiConsumer<String, Runnable> sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * The entry point for the benchmarks.
+     *
+     * @param args The benchmark groups to run; all groups when empty.
+     * @throws Exception If the game's assets cannot be loaded.
+     */
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        List<String> groups = Arrays.asList(args);
+        GameBenchmark benchmark = new GameBenchmark();
+        System.out.printf("%-55s %12s %12s%n", "benchmark", "time", "allocation");
+        for (String group : GROUPS) {
+            if (groups.isEmpty() || groups.contains(group)) {
+                benchmark.runGroup(group);
+            }
+        }
+    }
+
+    /**
+     * Returns the names of the benchmark groups, in the order they run.
+     *
+     * @return The group names.
+     */
+    @Override
+    public List<String> groups() {
+        return GROUPS;
+    }
+
+    /**
+     * Runs the benchmarks of one group, handing each to a measure callback instead of timing it here.
+     *
+     * @param group   The name of the group.
+     * @param measure Receives each benchmark's name and operation, and times the operation.
+     * @throws IllegalArgumentException If there is no such group.
+     * @throws Exception If the game's assets cannot be loaded.
+     */
+    @Override
+    public void run(String group, BiConsumer<String, Runnable> measure) throws Exception {
+        new GameBenchmark(measure).runGroup(group);
+    }
+
+    /**
+     * Runs the benchmarks of one group.
+     *
+     * @param group The name of the group.
+     * @throws IllegalArgumentException If there is no such group.
+     * @throws Exception If the game's assets cannot be loaded.
+     */
+    private void runGroup(String group) throws Exception {
+        switch (group) {
+            case "tick":
+                benchmarkTicks();
+                break;
+            case "collision":
+                benchmarkCollision();
+                break;
+            case "stars":
+                benchmarkStars();
+                break;
+            case "render":
+                benchmarkFrameDrawing();
+                break;
+            case "hud":
+                benchmarkHud();
+                break;
+            case "world":
+                benchmarkLargeWorld();
+                break;
+            case "snapshot":
+                benchmarkSnapshots();
+                break;
+            case "assets":
+                benchmarkAssetLoading();
+                break;
+            case "frames":
+                benchmarkFrameHandoff();
+                break;
+            case "quality":
+                benchmarkQualityTiers();
+                break;
+            case "events":
+                benchmarkEvents();
+                break;
+            default:
+                throw new IllegalArgumentException("No benchmark group " + group);
+        }
+    }
+
+    /**
+     * Measures whole simulation ticks with the obstacle count held steady: obstacles that leave the
+     * screen or are destroyed are replaced at the top, and the player fires every 25 ticks.
+     */
+    void benchmarkTicks() {
+        for (int n : OBSTACLE_COUNTS) {
+            GameWorld world = populatedWorld(n);
+            Random refill = new Random(3);
+            measure("tick, " + n + " obstacles", () -> {
+                world.step(world.tick % 25 == 0 ? GameWorld.INPUT_FIRE : 0);
+                while (world.obstacles.count < n) {
+                    world.obstacles.add(refill.nextInt(GameWorld.WIDTH - GameWorld.OBSTACLE_WIDTH),
+                        -GameWorld.OBSTACLE_HEIGHT, refill.nextInt(GameWorld.OBSTACLE_SPRITE_COUNT));
+                }
+            });
+        }
+    }
+
+    /**
+     * Measures finding the obstacles that touch the player: rebuilding the broadphase grid and querying
+     * it, against the original loop that builds a Rectangle for every obstacle. Testing the player
+     * against every obstacle one at a time is then compared with the batched test, as the scalar loop
+     * and, when the JVM was started with the jdk.incubator.vector module, as the Vector API kernel, and
+     * a query of the whole screen measured, as drawing a frame makes.
+     */
+    void benchmarkCollision() {
+        if (Collision.KERNEL == Collision.SCALAR) {
+            System.out.println("collision: the Vector API kernel is not loaded; compile incubator/ and run with"
+                + " --add-modules " + Collision.VECTOR_MODULE + " to compare it");
+        }
+        for (int n : OBSTACLE_COUNTS) {
+            ObstaclePool pool = populatedWorld(n).obstacles;
+            SpatialHash grid = new SpatialHash(0, -GameWorld.OBSTACLE_HEIGHT, GameWorld.WIDTH,
+                GameWorld.HEIGHT + GameWorld.OBSTACLE_HEIGHT, GameWorld.BROADPHASE_CELL_SIZE,
+                GameWorld.OBSTACLE_WIDTH, GameWorld.OBSTACLE_HEIGHT);
+            int[] hits = new int[pool.x.length];
+            int playerX = GameWorld.WIDTH / 2 - GameWorld.PLAYER_WIDTH / 2;
+            int playerY = GameWorld.HEIGHT - GameWorld.PLAYER_HEIGHT - 20;
+            int[] sink = new int[1];
+
+            measure("collision, Rectangle loop, " + n + " obstacles", () -> {
+                Rectangle playerRect = new Rectangle(playerX, playerY, GameWorld.PLAYER_WIDTH, GameWorld.PLAYER_HEIGHT);
+                int found = 0;
+                for (int i = 0; i < pool.count; i++) {
+                    if (playerRect.intersects(new Rectangle(pool.x[i], pool.y[i], GameWorld.OBSTACLE_WIDTH, GameWorld.OBSTACLE_HEIGHT))) {
+                        found++;
+                    }
+                }
+                sink[0] += found;
+            });
+            measure("collision, grid build + query, " + n + " obstacles", () -> {
+                grid.build(pool);
+                sink[0] += grid.query(pool, playerX, playerY, GameWorld.PLAYER_WIDTH, GameWorld.PLAYER_HEIGHT, hits);
+            });
+            measure("collision, scalar test loop, " + n + " obstacles", () -> {
+                int found = 0;
+                for (int i = 0; i < pool.count; i++) {
+                    if (Collision.intersects(playerX, playerY, GameWorld.PLAYER_WIDTH, GameWorld.PLAYER_HEIGHT,
+                            pool.x[i], pool.y[i], GameWorld.OBSTACLE_WIDTH, GameWorld.OBSTACLE_HEIGHT)) {
+                        found++;
+                    }
+                }
+                sink[0] += found;
+            });
+            boolean[] mask = new boolean[pool.x.length];
+            measure("collision, batched test, scalar loop, " + n + " obstacles", () -> {
+                Collision.SCALAR.intersectsAll(playerX, playerY, GameWorld.PLAYER_WIDTH, GameWorld.PLAYER_HEIGHT,
+                    pool.x, pool.y, GameWorld.OBSTACLE_WIDTH, GameWorld.OBSTACLE_HEIGHT, 0, pool.count, mask);
+                sink[0] += mask[0] ? 1 : 0;
+            });
+            if (Collision.KERNEL != Collision.SCALAR) {
+                measure("collision, batched test, Vector API, " + n + " obstacles", () -> {
+                    Collision.KERNEL.intersectsAll(playerX, playerY, GameWorld.PLAYER_WIDTH,
+                        GameWorld.PLAYER_HEIGHT, pool.x, pool.y, GameWorld.OBSTACLE_WIDTH, GameWorld.OBSTACLE_HEIGHT,
+                        0, pool.count, mask);
+                    sink[0] += mask[0] ? 1 : 0;
+                });
+            }
+            grid.build(pool);
+            measure("collision, grid query of the screen, " + n + " obstacles", () ->
+                sink[0] += grid.query(pool, 0, 0, GameWorld.WIDTH, GameWorld.HEIGHT, hits));
+        }
+    }
+
+    /**
+     * Measures one tick of star updates, aging and spawning, at increasing densities, and once more with
+     * a ring too small for the highest density, so every spawn takes the place of the oldest star.
+     */
+    void benchmarkStars() {
+        for (float density : STAR_DENSITIES) {
+            int live = (int) Math.ceil(density) * GameWorld.STAR_LIFETIME_TICKS;
+            measureStars("stars, density " + density + " per tick", density, live);
+        }
+        float highest = STAR_DENSITIES[STAR_DENSITIES.length - 1];
+        measureStars("stars, density " + highest + " per tick, full ring of 1024", highest, 1024);
+    }
+
+    /**
+     * Measures one tick of star updates into a ring of the given capacity.
+     *
+     * @param name     The name of the benchmark.
+     * @param density  The stars spawned per tick.
+     * @param capacity The capacity of the ring.
+     */
+    private void measureStars(String name, float density, int capacity) {
+        ParticleSystem stars = new ParticleSystem(capacity, GameWorld.STAR_LIFETIME_TICKS, 1);
+        Random random = new Random(4);
+        long[] tick = new long[1];
+        measure(name, () -> {
+            long t = ++tick[0];
+            stars.age(t);
+            int spawns = (int) density;
+            if (random.nextFloat() < density - spawns) {
+                spawns++;
+            }
+            for (int i = 0; i < spawns; i++) {
+                stars.spawn(random.nextInt(GameWorld.WIDTH), random.nextInt(GameWorld.HEIGHT),
+                    random.nextInt(ParticleSystem.PALETTE_SIZE), t);
+            }
+        });
+    }
+
+    /**
+     * Measures drawing one game frame into an offscreen image. The first two benchmarks compare the
+     * original sprites, which are scaled by drawImage on every frame, against the pre-scaled sprite atlas.
+     * The last ones draw the frame at the internal resolution and scale it to windows up to 4K.
+     *
+     * @throws Exception If the game's assets cannot be loaded.
+     */
+    void benchmarkFrameDrawing() throws Exception {
+        BufferedImage frame = new BufferedImage(GameWorld.WIDTH, GameWorld.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        SpriteAtlas atlas = SpriteAtlas.load(null);
+
+        GameWorld world = populatedWorld(200);
+        Image[] legacy = loadLegacySprites();
+        measure("render, scaled sprites, 200 obstacles", () -> drawLegacyFrame(g, world, legacy));
+        GameRenderer renderer = new GameRenderer(world, atlas);
+        measure("render, sprite atlas, 200 obstacles", () -> renderer.drawGame(g));
+
+        for (int n : new int[] {100, 1_000}) {
+            GameWorld busy = populatedWorld(0);
+            busy.starDensity = 10;
+            for (int t = 0; t < GameWorld.STAR_LIFETIME_TICKS; t++) {
+                busy.step(0);
+            }
+            busy.obstacles.clear();
+            addObstacles(busy, n);
+            GameRenderer busyRenderer = new GameRenderer(busy, atlas);
+            measure("render, " + busy.obstacles.count + " obstacles, " + busy.stars.count() + " stars",
+                () -> busyRenderer.drawGame(g));
+        }
+        g.dispose();
+
+        // Draw at the internal resolution and scale to a window of each size, as the game does.
+        for (int[] size : new int[][] {{500, 500}, {1920, 1080}, {3840, 2160}}) {
+            BufferedImage window = new BufferedImage(size[0], size[1], BufferedImage.TYPE_INT_RGB);
+            Graphics2D output = window.createGraphics();
+            for (String interpolation : new String[] {"nearest", "bilinear"}) {
+                ScaledFrame view = new ScaledFrame(GameWorld.WIDTH, GameWorld.HEIGHT, interpolation);
+                measure("render, 200 obstacles, " + interpolation + " to " + size[0] + "x" + size[1],
+                    () -> view.draw(output, size[0], size[1], null, renderer::drawGame));
+            }
+            output.dispose();
+        }
+    }
+
+    /**
+     * Measures the score, health and time display. The JLabel benchmarks do what the game did on every
+     * tick: set the three label texts, then lay out and paint the panel when a text changed. The status
+     * line is what active rendering drew on every frame. The HUD line is measured with values that do
+     * not change, as on most frames, and with the score changing on every frame. Copying a cached image of
+     * the line is measured against it, as the reason the HUD draws its text on every frame instead.
+     */
+    void benchmarkHud() {
+        BufferedImage frame = new BufferedImage(GameWorld.WIDTH, GameWorld.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        GameWorld world = populatedWorld(0);
+
+        JPanel panel = new JPanel();
+        JLabel scoreLabel = new JLabel("Score: 0");
+        scoreLabel.setForeground(Color.BLUE);
+        JLabel healthLabel = new JLabel("Health: 5");
+        healthLabel.setForeground(Color.ORANGE);
+        JLabel timeLabel = new JLabel("Time: 30s");
+        timeLabel.setForeground(Color.WHITE);
+        panel.add(scoreLabel);
+        panel.add(healthLabel);
+        panel.add(timeLabel);
+        panel.setSize(GameWorld.WIDTH, HudLayer.HEIGHT);
+        Runnable setLabels = () -> {
+            scoreLabel.setText("Score: " + world.score);
+            healthLabel.setText("Health: " + world.health);
+            timeLabel.setText("Time: " + world.remainingTime + "s");
+        };
+        measure("hud, JLabel setText, values unchanged", setLabels);
+        measure("hud, JLabel setText + layout + paint, score changing", () -> {
+            world.score += 10;
+            setLabels.run();
+            panel.validate();
+            panel.paint(g);
+        });
+        measure("hud, status line drawString", () -> {
+            g.setColor(Color.WHITE);
+            g.drawString("Health: " + world.health + "   Score: " + world.score + "   Time: " + world.remainingTime + "s",
+                GameWorld.WIDTH / 2 - 110, 20);
+        });
+
+        HudLayer hud = new HudLayer(world);
+        measure("hud, HUD line, values unchanged", () -> hud.draw(g));
+        measure("hud, HUD line, score changing", () -> {
+            world.score += 10;
+            hud.draw(g);
+        });
+
+        // The line as a cached HUD would keep it: drawn once into a translucent image, cut down to the
+        // bounds of the text, which is copied on every frame whose values did not change.
+        BufferedImage line = new BufferedImage(GameWorld.WIDTH, HudLayer.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D lineGraphics = line.createGraphics();
+        hud.draw(lineGraphics);
+        lineGraphics.dispose();
+        int left = line.getWidth();
+        int right = 0;
+        for (int x = 0; x < line.getWidth(); x++) {
+            for (int y = 0; y < line.getHeight(); y++) {
+                if (line.getRGB(x, y) >>> 24 != 0) {
+                    left = Math.min(left, x);
+                    right = x + 1;
+                }
+            }
+        }
+        BufferedImage cached = line.getSubimage(left, 0, right - left, line.getHeight());
+        int cachedX = left;
+        measure("hud, cached image of the HUD line, values unchanged", () -> g.drawImage(cached, cachedX, 0, null));
+        g.dispose();
+    }
+
+    /**
+     * Measures ticks and frames in worlds larger than the screen, growing with the obstacle count so
+     * there is one obstacle per 1000 square pixels in each. The world's own spawning holds the count
+     * steady. Frames draw only the visible obstacles, so their cost should not depend on the size of
+     * the world; ticks still visit every obstacle, but only move the far ones on one tick in
+     * {@link GameWorld#LOD_INTERVAL_TICKS}.
+     *
+     * @throws Exception If the game's assets cannot be loaded.
+     */
+    void benchmarkLargeWorld() throws Exception {
+        BufferedImage frame = new BufferedImage(GameWorld.WIDTH, GameWorld.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        SpriteAtlas atlas = SpriteAtlas.load(null);
+        int[][] sizes = {{2_000, 500}, {5_000, 2_000}, {20_000, 5_000}};
+        for (int[] size : sizes) {
+            int n = size[0] / 1000 * size[1];
+            GameWorld world = new GameWorld(1, size[0], size[1]);
+            world.selectLevel(3);
+            world.health = 100_000_000;
+            world.remainingTime = 100_000_000;
+            world.populate(n);
+            String name = "world " + size[0] + "x" + size[1] + ", ";
+            measure(name + "tick, " + n + " obstacles",
+                () -> world.step(world.tick % 25 == 0 ? GameWorld.INPUT_FIRE : 0));
+            GameRenderer renderer = new GameRenderer(world, atlas);
+            measure(name + "frame, " + n + " obstacles", () -> renderer.drawGame(g));
+        }
+        g.dispose();
+    }
+
+    /**
+     * Measures taking a snapshot of a running world into a direct buffer, restoring it, recording it into
+     * a rollback ring of 250 ticks with a keyframe every 25, and saving and loading it through a
+     * memory-mapped snapshot file. The record benchmark does not step the world, but takes a keyframe
+     * every 25 calls as if it did. A background save is measured as the time the saving thread spends;
+     * the file is written by the snapshot writer's thread meanwhile.
+     *
+     * @throws IOException If the snapshot file cannot be created.
+     */
+    void benchmarkSnapshots() throws IOException {
+        Path file = Files.createTempFile("benchmark", ".sgs");
+        SnapshotWriter writer = new SnapshotWriter();
+        try {
+            for (int n : OBSTACLE_COUNTS) {
+                GameWorld world = populatedWorld(n);
+                for (int i = 0; i < 50; i++) {
+                    world.step(GameWorld.INPUT_FIRE);
+                }
+                ByteBuffer buffer = ByteBuffer.allocateDirect(GameSnapshot.size(world) * 2);
+                String name = "snapshot, " + n + " obstacles (" + GameSnapshot.size(world) + " bytes), ";
+                measure(name + "write", () -> {
+                    buffer.clear();
+                    GameSnapshot.write(world, buffer);
+                });
+                GameWorld restored = new GameWorld(2);
+                measure(name + "restore", () -> {
+                    buffer.flip();
+                    try {
+                        GameSnapshot.read(buffer, restored);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                RollbackBuffer rollback = new RollbackBuffer(250, 25);
+                measure(name + "rollback keyframe", () -> rollback.start(world));
+                measure(name + "rollback record", () -> rollback.record(world, 0));
+                System.out.printf("%srollback of 250 ticks, %d KiB%n", name, rollback.bytes() / 1024);
+                measure(name + "save to file", () -> {
+                    try {
+                        GameSnapshot.save(world, file);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                measure(name + "background save, caller's part", () -> writer.save(world, file));
+                writer.flush();
+                measure(name + "load from file", () -> {
+                    try {
+                        GameSnapshot.load(file, restored);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Measures handing a frame from the simulation to the renderer: capturing and publishing it with the
+     * frame of the tick before on the simulation's side, once per tick, and taking it and filling the
+     * renderer's world with it, blended from the tick before, on the renderer's side, once per frame.
+     */
+    void benchmarkFrameHandoff() {
+        for (int n : new int[] {100, 1_000}) {
+            GameWorld world = populatedWorld(0);
+            world.starDensity = 10;
+            for (int t = 0; t < GameWorld.STAR_LIFETIME_TICKS; t++) {
+                world.step(0);
+            }
+            world.obstacles.clear();
+            addObstacles(world, n);
+            world.reindexObstacles();
+            FrameExchange frames = new FrameExchange();
+            GameWorld displayed = new GameWorld(2);
+            String name = "frames, " + n + " obstacles, " + world.stars.count() + " stars, ";
+            measure(name + "capture + publish", () -> {
+                frames.back().capture(world, System.nanoTime());
+                frames.publish();
+            });
+            measure(name + "take + present", () -> {
+                FrameState frame = frames.latest();
+                frame.present(frames.previous(), 0.5, displayed);
+            });
+        }
+    }
+
+    /**
+     * Measures a whole frame at each quality tier: a busy game with the HUD, its score changing on
+     * every frame, drawn at the internal resolution and scaled to a 1920x1080 window.
+     *
+     * @throws Exception If the game's assets cannot be loaded.
+     */
+    void benchmarkQualityTiers() throws Exception {
+        SpriteAtlas atlas = SpriteAtlas.load(null);
+        GameWorld world = populatedWorld(0);
+        world.starDensity = 10;
+        for (int t = 0; t < GameWorld.STAR_LIFETIME_TICKS; t++) {
+            world.step(0);
+        }
+        world.obstacles.clear();
+        addObstacles(world, 200);
+        GameRenderer renderer = new GameRenderer(world, atlas);
+        HudLayer hud = new HudLayer(world);
+        BufferedImage window = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB);
+        Graphics2D output = window.createGraphics();
+        ScaledFrame view = new ScaledFrame(GameWorld.WIDTH, GameWorld.HEIGHT, "bilinear");
+        for (QualityTier tier : QualityTier.values()) {
+            renderer.setQuality(tier);
+            hud.checkInterval = tier.hudInterval;
+            view.setInterpolation(tier.nearestScaling ? "nearest" : "bilinear");
+            measure("quality " + tier + ", " + world.stars.count() + " stars, to 1920x1080", () -> {
+                world.score += 10;
+                view.draw(output, 1920, 1080, null, g -> {
+                    renderer.drawGame(g);
+                    hud.draw(g);
+                });
+            });
+        }
+        output.dispose();
+    }
+
+    /**
+     * Measures publishing an event to the event ring with no subscriber and with one counting subscriber,
+     * against offering it to and taking it from a blocking queue on the same thread. When the ring fills
+     * up while a subscriber sleeps, the producer waits for a lossless subscriber and a lossy one skips
+     * the events it missed, and both are counted.
+     */
+    void benchmarkEvents() {
+        EventRing idle = new EventRing(1 << 16);
+        measure("events, ring publish, no subscribers", () -> idle.publish(GameEvent.SHOT_FIRED, 1, 0, 0));
+
+        EventRing counted = new EventRing(1 << 16);
+        counted.subscribe("stats", new EventStats(), true);
+        counted.start();
+        measure("events, ring publish, 1 lossless counting subscriber",
+            () -> counted.publish(GameEvent.SHOT_FIRED, 1, 0, 0));
+        counted.stop();
+        System.out.printf("events, ring publish, 1 lossless counting subscriber: waited for room %d times in %d "
+            + "events%n", counted.stalls, counted.published());
+
+        EventRing skipped = new EventRing(1 << 16);
+        skipped.subscribe("stats", new EventStats(), false);
+        skipped.start();
+        measure("events, ring publish, 1 lossy counting subscriber",
+            () -> skipped.publish(GameEvent.SHOT_FIRED, 1, 0, 0));
+        skipped.stop();
+        System.out.printf("events, ring publish, 1 lossy counting subscriber: %d of %d events dropped%n",
+            skipped.dropped(), skipped.published());
+
+        ArrayBlockingQueue<GameEvent> queue = new ArrayBlockingQueue<>(1 << 16);
+        measure("events, ArrayBlockingQueue offer + poll", () -> {
+            queue.offer(GameEvent.SHOT_FIRED);
+            queue.poll();
+        });
+    }
+
+    /**
+     * Measures loading every image and sound and packing the sprite atlas, from the separate files on one
+     * loader thread and on one per core, and from an asset bundle. The allocation shown is only that of
+     * the benchmark thread, not of the loader threads.
+     *
+     * @throws IOException If the asset bundle cannot be written.
+     */
+    void benchmarkAssetLoading() throws IOException {
+        Path file = Files.createTempFile("benchmark", ".sgab");
+        try {
+            AssetBundle.write(file, AssetManager.gameAssets());
+            AssetBundle bundle = AssetBundle.open(file);
+            int cores = Runtime.getRuntime().availableProcessors();
+            String threads = cores + (cores == 1 ? " loader thread" : " loader threads");
+            measure("assets, 1 loader thread", () -> loadAssets(null, 1));
+            if (cores > 1) {
+                measure("assets, " + threads, () -> loadAssets(null, cores));
+            }
+            measure("assets, " + threads + ", bundle", () -> loadAssets(bundle, cores));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Loads every image and sound and packs the sprite atlas, waiting until all of it is done.
+     *
+     * @param bundle  The bundle to read the assets from, or null for the separate files.
+     * @param threads The number of loader threads.
+     */
+    private static void loadAssets(AssetBundle bundle, int threads) {
+        try (AssetManager assets = new AssetManager(bundle, threads)) {
+            assets.preload();
+            SpriteAtlas.load(assets, null);
+            assets.allLoaded().join();
+        }
+    }
+
+    /**
+     * Hands a benchmark to the measure callback.
+     *
+     * @param name      The name of the benchmark.
+     * @param operation The operation to measure.
+     */
+    private void measure(String name, Runnable operation) {
+        sink.accept(name, operation);
+    }
+
+    /**
+     * Runs an operation for the warm-up time, then for the measured time, and prints its average cost
+     * and allocation. The operation runs in batches sized so a batch takes about a millisecond, which
+     * keeps the cost of reading the clock out of the result.
+     *
+     * @param name      The name printed for the benchmark.
+     * @param operation The operation to measure.
+     */
+    private static void time(String name, Runnable operation) {
+        int batch = 1;
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            long batchStart = System.nanoTime();
+            for (int i = 0; i < batch; i++) {
+                operation.run();
+            }
+            if (System.nanoTime() - batchStart < 1_000_000L && batch < (1 << 24)) {
+                batch *= 2;
+            }
+        }
+
+        long operations = 0;
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < batch; i++) {
+                operation.run();
+            }
+            operations += batch;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MEASURED_NANOS);
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        System.out.printf("%-55s %9.3f us/op %9.1f B/op%n", name,
+            elapsed / 1e3 / operations, (double) allocated / operations);
+    }
+
+    /**
+     * Creates a running world with obstacles spread over the playfield and a power-up showing. The
+     * player has enough health and time that the game does not end while it is benchmarked.
+     *
+     * @param obstacles The number of obstacles to place.
+     * @return The world.
+     */
+    static GameWorld populatedWorld(int obstacles) {
+        GameWorld world = new GameWorld(1);
+        world.selectLevel(3);
+        world.health = 100_000_000;
+        world.remainingTime = 100_000_000;
+        addObstacles(world, obstacles);
+        world.healthBuffActive = true;
+        return world;
+    }
+
+    /**
+     * Adds obstacles at random positions spread over the playfield.
+     *
+     * @param world     The world to add the obstacles to.
+     * @param obstacles The number of obstacles to add.
+     */
+    static void addObstacles(GameWorld world, int obstacles) {
+        Random random = new Random(2);
+        for (int i = 0; i < obstacles; i++) {
+            world.obstacles.add(random.nextInt(GameWorld.WIDTH - GameWorld.OBSTACLE_WIDTH),
+                random.nextInt(GameWorld.HEIGHT), random.nextInt(GameWorld.OBSTACLE_SPRITE_COUNT));
+        }
+        world.reindexObstacles();
+    }
+
+    /**
+     * Loads the sprites the way the game did before the atlas: Toolkit images cropped from the sprite
+     * sheet and scaled with getScaledInstance, waited on through ImageIcon.
+     *
+     * @return The player, health buff, time buff and obstacle images, in that order.
+     */
+    private static Image[] loadLegacySprites() {
+        Image[] images = new Image[3 + GameWorld.OBSTACLE_SPRITE_COUNT];
+        images[0] = new ImageIcon(GameBenchmark.class.getResource("rsH6n.png")).getImage();
+        images[1] = new ImageIcon(GameBenchmark.class.getResource("heartBuff.png")).getImage();
+        images[2] = new ImageIcon(GameBenchmark.class.getResource("timeBuff.png")).getImage();
+        Image spritesheet = new ImageIcon(GameBenchmark.class.getResource("spritesheet.png")).getImage();
+        for (int i = 0; i < GameWorld.OBSTACLE_SPRITE_COUNT; i++) {
+            Image sprite = Toolkit.getDefaultToolkit().createImage(
+                new FilteredImageSource(spritesheet.getSource(), new CropImageFilter(i * 280, 0, 230, 250)));
+            Image scaled = sprite.getScaledInstance(GameWorld.OBSTACLE_WIDTH, GameWorld.OBSTACLE_HEIGHT, Image.SCALE_SMOOTH);
+            images[3 + i] = new ImageIcon(scaled).getImage();
+        }
+        return images;
+    }
+
+    /**
+     * Draws the sprites of a game frame the way the game did before the atlas, scaling every image
+     * to its on-screen size on each call.
+     *
+     * @param g      The Graphics object to draw on.
+     * @param world  The world to draw.
+     * @param images The images from loadLegacySprites.
+     */
+    private static void drawLegacyFrame(Graphics2D g, GameWorld world, Image[] images) {
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, GameWorld.WIDTH, GameWorld.HEIGHT);
+        g.drawImage(images[0], world.playerX, world.playerY, GameWorld.PLAYER_WIDTH, GameWorld.PLAYER_HEIGHT, null);
+        ObstaclePool obstacles = world.obstacles;
+        for (int i = 0; i < obstacles.count; i++) {
+            g.drawImage(images[3 + obstacles.spriteIndex[i]], obstacles.x[i], obstacles.y[i],
+                GameWorld.OBSTACLE_WIDTH, GameWorld.OBSTACLE_HEIGHT, null);
+        }
+        g.drawImage(images[1], world.powerUpPosition.x, world.powerUpPosition.y,
+            GameWorld.PLAYER_WIDTH, GameWorld.PLAYER_HEIGHT, null);
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * Imports necessary for the GameClient class.
+ */
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * A player's connection to a {@link GameServer}.
+ *
+ * The client sends the input bits its player holds once per tick, together with the last state frame
+ * it received, which the server uses as the baseline of the next delta. Received states are decoded
+ * into a short history of their own, so any recent state the server picks as a baseline is at hand.
+ * States that arrive late, after a newer one, are dropped.
+ *
+ * The client never steps a world. {@link #present(GameWorld, double)} fills a world with the received
+ * state instead, blending the positions of the last two states so the motion between network updates
+ * stays smooth, and the world can then be drawn by a {@link GameRenderer} as usual: the client's own
+ * player becomes the world's player and the others its peers.
+ */
+class GameClient {
+    /**
+     * @param link Socket the client talks through.
+     * @param server Address of the server.
+     * @param states Received states, indexed by frame modulo {@link GameServer#HISTORY}.
+     * @param stateFrame Frame of each received state.
+     * @param latest Frame of the newest state, or -1 before the first one.
+     * @param previous Frame of the state before the newest, or -1.
+     * @param slot Slot of the client's player on the server.
+     * @param sequence Sequence number of the last input message sent.
+     * @param in Buffer datagrams are received into.
+     * @param out Buffer datagrams are written into.
+     * @param received Number of states received.
+     * @param receivedBytes Number of bytes of states received.
+     * @param missingBaselines Number of states dropped because their baseline was no longer kept.
+     */
+    private final SimulatedLink link;
+    private final SocketAddress server;
+    private final NetState[] states = new NetState[GameServer.HISTORY];
+    private final long[] stateFrame = new long[GameServer.HISTORY];
+    private long latest = -1;
+    private long previous = -1;
+    int slot = -1;
+    private long sequence;
+    private final ByteBuffer in = ByteBuffer.allocateDirect(SimulatedLink.MAX_DATAGRAM);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(64);
+    long received;
+    long receivedBytes;
+    long missingBaselines;
+
+    /**
+     * Constructs a client of a server. It joins with its first call to {@link #sendInputs(int, long)}.
+     *
+     * @param link   The socket to talk through.
+     * @param server The address of the server.
+     */
+    GameClient(SimulatedLink link, SocketAddress server) {
+        this.link = link;
+        this.server = server;
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new NetState();
+            stateFrame[i] = -1;
+        }
+    }
+
+    /**
+     * Returns the frame of the newest state received.
+     *
+     * @return The frame, or -1 before the first state.
+     */
+    long latestFrame() {
+        return latest;
+    }
+
+    /**
+     * Returns the newest state received.
+     *
+     * @return The state, or null before the first one.
+     */
+    NetState latestState() {
+        return latest < 0 ? null : states[(int) (latest % states.length)];
+    }
+
+    /**
+     * Sends the input bits the player holds, or asks to join until the first state has arrived.
+     *
+     * @param inputs The input bits.
+     * @param now    The current time in milliseconds.
+     * @throws IOException If the socket fails.
+     */
+    void sendInputs(int inputs, long now) throws IOException {
+        out.clear();
+        if (latest < 0) {
+            out.put((byte) GameServer.HELLO);
+        } else {
+            out.put((byte) GameServer.INPUT);
+            NetState.writeVarint(out, ++sequence);
+            NetState.writeVarint(out, latest + 1);
+            out.put((byte) inputs);
+        }
+        out.flip();
+        link.send(out, server, now);
+    }
+
+    /**
+     * Leaves the server.
+     *
+     * @param now The current time in milliseconds.
+     * @throws IOException If the socket fails.
+     */
+    void leave(long now) throws IOException {
+        out.clear();
+        out.put((byte) GameServer.BYE);
+        out.flip();
+        link.send(out, server, now);
+    }
+
+    /**
+     * Decodes every state that has arrived and sends the input messages that are due.
+     *
+     * @param now The current time in milliseconds.
+     * @throws IOException If the socket fails.
+     */
+    void poll(long now) throws IOException {
+        link.flush(now);
+        SocketAddress from;
+        while ((from = link.receive(in)) != null) {
+            if (!from.equals(server)) {
+                continue;
+            }
+            int size = in.remaining();
+            try {
+                if (in.get() == GameServer.STATE) {
+                    receiveState(size);
+                }
+            } catch (BufferUnderflowException e) {
+                // A datagram cut short is ignored.
+            }
+        }
+    }
+
+    /**
+     * Decodes a state message after its type byte.
+     *
+     * @param size The size of the message.
+     */
+    private void receiveState(int size) {
+        long frame = NetState.readVarint(in);
+        long back = NetState.readVarint(in);
+        int player = (int) NetState.readVarint(in);
+        if (frame <= latest) {
+            return;
+        }
+        NetState base = null;
+        if (back != 0) {
+            int b = (int) ((frame - back) % states.length);
+            if (back >= states.length || stateFrame[b] != frame - back) {
+                missingBaselines++;
+                return;
+            }
+            base = states[b];
+        }
+        int i = (int) (frame % states.length);
+        stateFrame[i] = -1;
+        states[i].decode(in, base);
+        stateFrame[i] = frame;
+        previous = latest;
+        latest = frame;
+        slot = player;
+        received++;
+        receivedBytes += size;
+    }
+
+    /**
+     * Fills a world with the received state for drawing, blending from the previous state to the newest.
+     *
+     * @param world The world to fill, the size of the screen; its simulation state is overwritten.
+     * @param alpha How far to blend, from 0 for the previous state to 1 for the newest.
+     */
+    void present(GameWorld world, double alpha) {
+        NetState to = latestState();
+        if (to == null) {
+            return;
+        }
+        NetState from = to;
+        if (previous >= 0 && stateFrame[(int) (previous % states.length)] == previous) {
+            from = states[(int) (previous % states.length)];
+            if (from.tick >= to.tick) {
+                // The round restarted in between, so there is nothing to blend from.
+                from = to;
+            }
+        }
+
+        world.levelSelected = true;
+        world.isGameOver = (to.flags & NetState.GAME_OVER) != 0;
+        world.healthBuffActive = (to.flags & NetState.HEALTH_BUFF) != 0;
+        world.timeBuffActive = (to.flags & NetState.TIME_BUFF) != 0;
+        world.remainingTime = to.remainingTime;
+        world.obstacleSpeed = to.obstacleSpeed;
+        world.tick = to.tick;
+
+        world.peers.clear();
+        world.health = 0;
+        for (int p = 0; p < to.playerCount; p++) {
+            int x = p < from.playerCount ? blend(from.playerX[p], to.playerX[p], alpha) : to.playerX[p];
+            Weapon weapon = Weapon.values()[to.playerStatus[p] & (NetState.SHIELD_ACTIVE - 1)];
+            boolean shield = (to.playerStatus[p] & NetState.SHIELD_ACTIVE) != 0;
+            if (p == slot) {
+                world.playerX = x;
+                world.health = to.playerHealth[p];
+                world.score = to.playerScore[p];
+                world.weapon = weapon;
+                world.isShieldActive = shield;
+            } else {
+                int peer = world.peers.join(x, to.playerHealth[p]);
+                world.peers.score[peer] = to.playerScore[p];
+                world.peers.weapon[peer] = weapon;
+                world.peers.shieldActive[peer] = shield;
+            }
+        }
+
+        // Obstacles in both states are blended; both lists are ordered by obstacle number.
+        ObstaclePool obstacles = world.obstacles;
+        obstacles.clear();
+        obstacles.clock = (int) to.tick;
+        int f = 0;
+        for (int k = 0; k < to.obstacleCount; k++) {
+            int id = to.obstacleId[k];
+            while (f < from.obstacleCount && from.obstacleId[f] < id) {
+                f++;
+            }
+            int y = to.obstacleY[k];
+            if (f < from.obstacleCount && from.obstacleId[f] == id) {
+                y = blend(from.obstacleY[f], y, alpha);
+            }
+            obstacles.add(to.obstacleX[k], y, to.obstacleSprite[k]);
+        }
+
+        ProjectilePool projectiles = world.projectiles;
+        projectiles.clear();
+        for (int i = 0; i < to.projectileCount; i++) {
+            projectiles.add(to.projectileX[i], to.projectileY[i], 0, -GameWorld.PROJECTILE_SPEED, 0);
+        }
+        world.reindexObstacles();
+    }
+
+    /**
+     * Blends two coordinates.
+     *
+     * @param from  The coordinate in the previous state.
+     * @param to    The coordinate in the newest state.
+     * @param alpha How far to blend, from 0 to 1.
+     * @return The blended coordinate.
+     */
+    private static int blend(int from, int to, double alpha) {
+        return from + (int) Math.round((to - from) * alpha);
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * The kinds of events the world publishes to its {@link EventRing} as they happen during a tick.
+ *
+ * Each event carries the tick it happened on, the player it concerns, 0 for the world's own player and
+ * one more than the slot for a peer, and a value whose meaning depends on the kind.
+ */
+enum GameEvent {
+    /**
+     * A player fired their weapon. The value is unused.
+     */
+    SHOT_FIRED,
+
+    /**
+     * A player's projectile destroyed an obstacle. The value is the player's score afterwards.
+     */
+    OBSTACLE_DESTROYED,
+
+    /**
+     * An obstacle hit a player. The value is the player's health afterwards.
+     */
+    PLAYER_DAMAGED,
+
+    /**
+     * A player collected the power-up. The value is 0 for the health power-up and 1 for the time one.
+     */
+    POWER_UP_COLLECTED,
+
+    /**
+     * A player raised their shield. The value is unused.
+     */
+    SHIELD_ACTIVATED,
+
+    /**
+     * The game ended, by running out of time or of players. The player is 0 and the value is the score.
+     */
+    GAME_OVER
+}
@@ -0,0 +1,286 @@
+/**
+ * Imports necessary for the GameProfiler class.
+ */
+import java.awt.Color;
+import java.awt.Graphics;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Low-overhead timing of the game loop.
+ *
+ * The simulation reports how long each tick spends spawning, moving and colliding, and how many bytes
+ * the tick allocated; the view reports HUD and render times, the interval between frames and how far
+ * the tick timer drifts from its 20 ms period; the input layer reports how long a key press waits for
+ * the tick that samples it. Every metric goes into a {@link LatencyHistogram}, and ticks and frames are
+ * also emitted as JDK Flight Recorder events. While the profiler is disabled each hook is a single
+ * field check, and the histograms are not even allocated.
+ *
+ * The simulation thread records the tick, timer and input metrics and the thread drawing records the
+ * frame metrics, so every histogram has a single writer and the hooks need no locking.
+ */
+class GameProfiler {
+    /**
+     * Metric indices. The per-tick phases come first so they can be summed per tick.
+     */
+    static final int SPAWN = 0;
+    static final int MOVE = 1;
+    static final int COLLIDE = 2;
+    static final int TICK = 3;
+    static final int ALLOCATION = 4;
+    static final int HUD = 5;
+    static final int RENDER = 6;
+    static final int FRAME_INTERVAL = 7;
+    static final int TIMER_DRIFT = 8;
+    static final int INPUT_LATENCY = 9;
+    static final int METRIC_COUNT = 10;
+
+    /**
+     * @param NAMES Display name of each metric.
+     * @param TICK_PHASES Number of metrics that are phases of a tick.
+     * @param THREADS Bean used to read the allocated bytes of the current thread.
+     * @param enabled Flag indicating if metrics are being recorded.
+     * @param overlayVisible Flag indicating if the overlay is drawn over the game.
+     * @param histograms Histogram of each metric, allocated when the profiler is first enabled.
+     * @param tickPhases Nanoseconds spent in each phase during the current tick.
+     * @param tickStart System.nanoTime() at the start of the current tick.
+     * @param tickAllocatedBytes Allocated bytes of the ticking thread at the start of the current tick.
+     * @param lastFrame System.nanoTime() at the end of the previous frame.
+     * @param lastTimerTick System.nanoTime() of the previous timer tick.
+     * @param frameHudNanos Nanoseconds spent on the HUD since the last frame.
+     */
+    private static final String[] NAMES = {
+        "spawn", "move", "collide", "tick", "alloc/tick", "hud", "render", "frame interval", "timer drift",
+        "input latency"
+    };
+    private static final int TICK_PHASES = 3;
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private volatile boolean enabled;
+    boolean overlayVisible;
+    private LatencyHistogram[] histograms;
+    private final long[] tickPhases = new long[TICK_PHASES];
+    private long tickStart;
+    private long tickAllocatedBytes;
+    private long lastFrame;
+    private long lastTimerTick;
+    private long frameHudNanos;
+
+    /**
+     * Determines whether metrics are being recorded.
+     *
+     * @return True if the profiler is enabled.
+     */
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops recording metrics.
+     *
+     * @param enabled True to record metrics.
+     */
+    void setEnabled(boolean enabled) {
+        if (enabled && histograms == null) {
+            histograms = new LatencyHistogram[METRIC_COUNT];
+            for (int i = 0; i < METRIC_COUNT; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+        lastFrame = 0;
+        lastTimerTick = 0;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the histogram of a metric.
+     *
+     * @param metric The metric index.
+     * @return The histogram, or null if the profiler was never enabled.
+     */
+    LatencyHistogram histogram(int metric) {
+        return histograms == null ? null : histograms[metric];
+    }
+
+    /**
+     * Returns a timestamp to measure a section from.
+     *
+     * @return System.nanoTime(), or 0 while disabled.
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Ends a section of the current tick and starts the next one.
+     *
+     * @param phase The tick phase the section belongs to: SPAWN, MOVE or COLLIDE.
+     * @param since The timestamp the section started at.
+     * @return The timestamp the next section starts at.
+     */
+    long lap(int phase, long since) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        tickPhases[phase] += now - since;
+        return now;
+    }
+
+    /**
+     * Records the time since a timestamp for a metric that is not a tick phase.
+     *
+     * @param metric The metric index.
+     * @param since  The timestamp returned by {@link #start()}.
+     */
+    void record(int metric, long since) {
+        if (!enabled) {
+            return;
+        }
+        long elapsed = System.nanoTime() - since;
+        histograms[metric].record(elapsed);
+        if (metric == HUD) {
+            frameHudNanos += elapsed;
+        }
+    }
+
+    /**
+     * Marks the start of a simulation tick.
+     */
+    void beginTick() {
+        if (!enabled) {
+            return;
+        }
+        tickPhases[SPAWN] = 0;
+        tickPhases[MOVE] = 0;
+        tickPhases[COLLIDE] = 0;
+        tickAllocatedBytes = THREADS.getCurrentThreadAllocatedBytes();
+        tickStart = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a simulation tick, recording its phases, total time and allocation.
+     *
+     * @param tick The number of the tick.
+     */
+    void endTick(long tick) {
+        if (!enabled) {
+            return;
+        }
+        long elapsed = System.nanoTime() - tickStart;
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - tickAllocatedBytes;
+        for (int phase = 0; phase < TICK_PHASES; phase++) {
+            histograms[phase].record(tickPhases[phase]);
+        }
+        histograms[TICK].record(elapsed);
+        histograms[ALLOCATION].record(allocated);
+
+        TickEvent event = new TickEvent();
+        if (event.isEnabled()) {
+            event.tick = tick;
+            event.spawnNanos = tickPhases[SPAWN];
+            event.moveNanos = tickPhases[MOVE];
+            event.collideNanos = tickPhases[COLLIDE];
+            event.allocatedBytes = allocated;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records how far the tick timer fired from its period, measured against the previous firing.
+     */
+    void timerFired() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (lastTimerTick != 0) {
+            histograms[TIMER_DRIFT].record(Math.abs(now - lastTimerTick - GameWorld.TICK_MILLIS * 1_000_000L));
+        }
+        lastTimerTick = now;
+    }
+
+    /**
+     * Marks the end of a drawn frame, recording its render time and the interval since the previous frame.
+     *
+     * @param renderStart The timestamp returned by {@link #start()} before the frame was drawn.
+     */
+    void endFrame(long renderStart) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        histograms[RENDER].record(now - renderStart);
+        long interval = lastFrame == 0 ? 0 : now - lastFrame;
+        if (lastFrame != 0) {
+            histograms[FRAME_INTERVAL].record(interval);
+        }
+        lastFrame = now;
+
+        FrameEvent event = new FrameEvent();
+        if (event.isEnabled()) {
+            event.hudNanos = frameHudNanos;
+            event.renderNanos = now - renderStart;
+            event.intervalNanos = interval;
+            event.commit();
+        }
+        frameHudNanos = 0;
+    }
+
+    /**
+     * Draws the percentiles of every metric in the top-left corner, if the overlay is visible.
+     *
+     * @param g The Graphics object to draw on.
+     */
+    void drawOverlay(Graphics g) {
+        if (!overlayVisible || histograms == null) {
+            return;
+        }
+        g.setColor(new Color(0, 0, 0, 160));
+        g.fillRect(0, 30, 330, 16 + 14 * METRIC_COUNT);
+        g.setColor(Color.YELLOW);
+        g.drawString("metric            p50      p99      max  (us, bytes)", 6, 44);
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            LatencyHistogram h = histograms[i];
+            double scale = i == ALLOCATION ? 1 : 1e-3;
+            g.drawString(String.format("%-15s %8.1f %8.1f %8.1f", NAMES[i], h.percentile(50) * scale,
+                h.percentile(99) * scale, h.max() * scale), 6, 58 + 14 * i);
+        }
+    }
+
+    /**
+     * Formats every metric as a table of counts, means and percentiles. Times are in microseconds and
+     * allocation in bytes.
+     *
+     * @return The report.
+     */
+    String report() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-15s %10s %10s %10s %10s %10s %10s %10s%n",
+            "metric", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        if (histograms == null) {
+            return out.toString();
+        }
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            LatencyHistogram h = histograms[i];
+            double scale = i == ALLOCATION ? 1 : 1e-3;
+            out.append(String.format("%-15s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", NAMES[i], h.count(),
+                h.mean() * scale, h.percentile(50) * scale, h.percentile(90) * scale, h.percentile(99) * scale,
+                h.percentile(99.9) * scale, h.max() * scale));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the report to a file.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    void dump(Path file) throws IOException {
+        Files.writeString(file, report());
+    }
+}
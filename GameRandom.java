@@ -0,0 +1,102 @@
+/**
+ * The seeded random number generator behind every random decision of the simulation.
+ *
+ * It is a SplitMix64 generator: its whole state is one long, which makes a world's randomness easy
+ * to reproduce from a seed and to save and restore. Not thread-safe; each world owns its own.
+ */
+class GameRandom {
+    /**
+     * @param GOLDEN_GAMMA Increment added to the state for every value drawn.
+     * @param state Current state of the generator.
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    /**
+     * Constructs a generator from a seed.
+     *
+     * @param seed The seed.
+     */
+    GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Returns the state of the generator.
+     *
+     * @return The state.
+     */
+    long getState() {
+        return state;
+    }
+
+    /**
+     * Restores a state returned by {@link #getState()}, or reseeds the generator.
+     *
+     * @param state The state.
+     */
+    void setState(long state) {
+        this.state = state;
+    }
+
+    /**
+     * Returns the next 64 random bits.
+     *
+     * @return A random long.
+     */
+    long nextLong() {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns a random int between 0 (inclusive) and bound (exclusive), without modulo bias.
+     *
+     * @param bound The upper bound, which must be positive.
+     * @return A random int in [0, bound).
+     */
+    int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        int r = (int) (nextLong() >>> 33);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return (int) ((bound * (long) r) >> 31);
+        }
+        for (int u = r; u - (r = u % bound) + m < 0; u = (int) (nextLong() >>> 33)) {
+            // Retry values from the incomplete last block of the range.
+        }
+        return r;
+    }
+
+    /**
+     * Returns a random boolean.
+     *
+     * @return A random boolean.
+     */
+    boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    /**
+     * Returns a random float between 0 (inclusive) and 1 (exclusive).
+     *
+     * @return A random float in [0, 1).
+     */
+    float nextFloat() {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * Returns a random double between 0 (inclusive) and 1 (exclusive).
+     *
+     * @return A random double in [0, 1).
+     */
+    double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+}
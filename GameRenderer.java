@@ -0,0 +1,260 @@
+/**
+ * Imports necessary for the GameRenderer class.
+ */
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws a {@link GameWorld} onto any Graphics object: a Swing panel, or an offscreen image when
+ * running headless.
+ *
+ * Everything in the world is drawn relative to the world's camera, and only the obstacles the
+ * broadphase grid reports as visible are drawn, so the cost of a frame does not grow with the size of
+ * the world. The stars are a backdrop in screen coordinates. Until the sprite atlas has loaded, sprites
+ * are drawn as plain rectangles of their size, so the game can be drawn, and played, from the first frame.
+ * How many stars are drawn, and as what, follows the {@link QualityTier} set by the game.
+ *
+ * Java2D builds a shape for every oval it draws, so the round stars and the shield ring are drawn once
+ * into small images and copied from those, which keeps drawing a frame free of allocation.
+ */
+class GameRenderer {
+    /**
+     * @param WIDTH Width of the drawn area.
+     * @param HEIGHT Height of the drawn area.
+     * @param TITLE_FONT Font of the level selection and game over screens.
+     * @param SHIELD_SPRITE Shield ring drawn around the player.
+     * @param world The world being drawn.
+     * @param atlas The sprites to draw with, or null while they are loading.
+     * @param visible Pool slots of the obstacles visible in the current frame.
+     * @param quality Tier the stars are drawn at.
+     * @param starPalette Palette the star sprites were drawn in, or null before the first stars.
+     * @param starSprites Round star in each color of starPalette.
+     */
+    private static final int WIDTH = GameWorld.WIDTH;
+    private static final int HEIGHT = GameWorld.HEIGHT;
+    private static final Font TITLE_FONT = new Font("Arial", Font.BOLD, 24);
+    private static final BufferedImage SHIELD_SPRITE = shieldSprite();
+
+    private final GameWorld world;
+    private volatile SpriteAtlas atlas;
+    private int[] visible = new int[64];
+    private QualityTier quality = QualityTier.HIGH;
+    private Color[] starPalette;
+    private BufferedImage[] starSprites;
+
+    /**
+     * Constructs a renderer for a world.
+     *
+     * @param world The world to draw.
+     * @param atlas The sprites to draw with, or null until {@link #setAtlas(SpriteAtlas)} is called.
+     */
+    GameRenderer(GameWorld world, SpriteAtlas atlas) {
+        this.world = world;
+        this.atlas = atlas;
+    }
+
+    /**
+     * Starts drawing with a sprite atlas that has finished loading.
+     *
+     * @param atlas The sprites to draw with.
+     */
+    void setAtlas(SpriteAtlas atlas) {
+        this.atlas = atlas;
+    }
+
+    /**
+     * Sets the quality tier the following frames are drawn at.
+     *
+     * @param quality The tier.
+     */
+    void setQuality(QualityTier quality) {
+        this.quality = quality;
+    }
+
+    /**
+     * Draws the screen for the world's current state.
+     *
+     * @param g Graphics object for rendering.
+     */
+    void render(Graphics g) {
+        // Draws different components based on game state.
+        if (!world.levelSelected) {
+            drawLevelSelection(g);
+        } else if (world.isGameOver) {
+            drawGameOver(g);
+        } else {
+            drawGame(g);
+        }
+    }
+
+    /**
+     * This method draws the level selection screen on the provided Graphics object.
+     *
+     * @param g The Graphics object on which the level selection screen is drawn.
+     */
+    void drawLevelSelection(Graphics g) {
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.setColor(Color.WHITE);
+        g.setFont(TITLE_FONT);
+        g.drawString("Select Level:", WIDTH / 2 - 100, HEIGHT / 2 - 30);
+        g.drawString("1 - Easy", WIDTH / 2 - 80, HEIGHT / 2);
+        g.drawString("2 - Hard", WIDTH / 2 - 80, HEIGHT / 2 + 30);
+        if (atlas == null) {
+            g.setColor(Color.GRAY);
+            g.drawString("Loading...", WIDTH / 2 - 80, HEIGHT / 2 + 90);
+        }
+    }
+
+    /**
+     * Draws the game over screen.
+     *
+     * @param g The Graphics object on which the game over screen is drawn.
+     */
+    void drawGameOver(Graphics g) {
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.setColor(Color.WHITE);
+        g.setFont(TITLE_FONT);
+        g.drawString("Game Over!", WIDTH / 2 - 100, HEIGHT / 2 - 20);
+        g.drawString("Press Enter to Play Again.", WIDTH / 2 - 180, HEIGHT / 2 + 20);
+    }
+
+    /**
+     * Draws the game components on the screen. Every sprite is an unscaled copy out of the atlas.
+     *
+     * @param g The Graphics object on which the game components are drawn.
+     */
+    void drawGame(Graphics g) {
+        SpriteAtlas atlas = this.atlas;
+
+        // Set the background to black.
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+
+        // Everything but the stars is drawn relative to the camera.
+        int offsetX = -world.cameraX;
+        int offsetY = -world.cameraY;
+
+        // Draw the player using the player sprite, and the other players sharing the world next to it.
+        if (world.health > 0) {
+            drawSprite(g, atlas, SpriteAtlas.PLAYER, world.playerX + offsetX, world.playerY + offsetY);
+        }
+        PlayerPool peers = world.peers;
+        for (int p = 0; p < peers.count; p++) {
+            if (peers.health[p] > 0) {
+                drawSprite(g, atlas, SpriteAtlas.PLAYER, peers.x[p] + offsetX, world.playerY + offsetY);
+            }
+        }
+
+        // Draw the projectiles using simple rectangles.
+        ProjectilePool projectiles = world.projectiles;
+        g.setColor(Color.GREEN);
+        for (int i = 0; i < projectiles.count; i++) {
+            g.fillRect(projectiles.x[i] + offsetX, projectiles.y[i] + offsetY, GameWorld.PROJECTILE_WIDTH,
+                GameWorld.PROJECTILE_HEIGHT);
+        }
+
+        // Draw each visible obstacle using its obstacle sprite.
+        ObstaclePool obstacles = world.obstacles;
+        if (visible.length < obstacles.count) {
+            visible = new int[obstacles.x.length];
+        }
+        int visibleCount = world.visibleObstacles(visible);
+        for (int k = 0; k < visibleCount; k++) {
+            int i = visible[k];
+            drawSprite(g, atlas, SpriteAtlas.OBSTACLE + obstacles.spriteIndex[i], obstacles.x[i] + offsetX, obstacles.y[i] + offsetY);
+        }
+
+        // Draw the shield if it is active.
+        if (world.isShieldActive) {
+            g.drawImage(SHIELD_SPRITE, world.playerX + offsetX - 5, world.playerY + offsetY - 5, null);
+        }
+
+        // Draw stars, oldest first. Stars only age in the simulation tick. When only every n-th star is
+        // drawn, it is picked by its sequence number, which a star keeps for its whole life and which
+        // FrameState carries over, so the same stars stay drawn from frame to frame as others age out.
+        ParticleSystem stars = world.stars;
+        int stride = quality.starStride;
+        if (stride > 0) {
+            BufferedImage[] sprites = quality.starOvals ? starSprites(stars.palette) : null;
+            for (long k = (stars.head + stride - 1) / stride * stride; k < stars.tail; k += stride) {
+                int i = (int) k & stars.mask;
+                int color = stars.color[i] & 0xFF;
+                if (sprites != null) {
+                    g.drawImage(sprites[color], stars.x[i], stars.y[i], null);
+                } else {
+                    g.setColor(stars.palette[color]);
+                    g.fillRect(stars.x[i], stars.y[i], 4, 4);
+                }
+            }
+        }
+
+        // Draw power-ups if active.
+        if (world.healthBuffActive) {
+            drawSprite(g, atlas, SpriteAtlas.HEALTH_BUFF, world.powerUpPosition.x + offsetX, world.powerUpPosition.y + offsetY);
+        } else if (world.timeBuffActive) {
+            drawSprite(g, atlas, SpriteAtlas.TIME_BUFF, world.powerUpPosition.x + offsetX, world.powerUpPosition.y + offsetY);
+        }
+    }
+
+    /**
+     * Returns a round star in each color of a palette, drawing them the first time the palette is seen.
+     *
+     * @param palette The palette of the stars.
+     * @return The star sprites, indexed by color.
+     */
+    private BufferedImage[] starSprites(Color[] palette) {
+        if (palette != starPalette) {
+            starSprites = new BufferedImage[palette.length];
+            for (int c = 0; c < palette.length; c++) {
+                starSprites[c] = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+                Graphics sg = starSprites[c].createGraphics();
+                sg.setColor(palette[c]);
+                sg.fillOval(0, 0, 4, 4);
+                sg.dispose();
+            }
+            starPalette = palette;
+        }
+        return starSprites;
+    }
+
+    /**
+     * Draws the shield ring, as wide as the player plus 5 pixels on each side.
+     *
+     * @return The shield sprite.
+     */
+    private static BufferedImage shieldSprite() {
+        BufferedImage image = new BufferedImage(GameWorld.PLAYER_WIDTH + 11, GameWorld.PLAYER_HEIGHT + 11,
+            BufferedImage.TYPE_INT_ARGB);
+        Graphics sg = image.createGraphics();
+        sg.setColor(Color.GREEN);
+        sg.drawOval(0, 0, GameWorld.PLAYER_WIDTH + 10, GameWorld.PLAYER_HEIGHT + 10);
+        sg.dispose();
+        return image;
+    }
+
+    /**
+     * Draws a sprite from the atlas, or a rectangle of its size while the atlas is loading.
+     *
+     * @param g      The Graphics object to draw on.
+     * @param atlas  The sprites to draw with, or null.
+     * @param sprite The index of the sprite.
+     * @param x      The x-coordinate to draw at.
+     * @param y      The y-coordinate to draw at.
+     */
+    private static void drawSprite(Graphics g, SpriteAtlas atlas, int sprite, int x, int y) {
+        if (atlas != null) {
+            atlas.draw(g, sprite, x, y);
+            return;
+        }
+        g.setColor(Color.DARK_GRAY);
+        if (sprite >= SpriteAtlas.OBSTACLE) {
+            g.fillRect(x, y, GameWorld.OBSTACLE_WIDTH, GameWorld.OBSTACLE_HEIGHT);
+        } else {
+            g.fillRect(x, y, GameWorld.PLAYER_WIDTH, GameWorld.PLAYER_HEIGHT);
+        }
+    }
+}
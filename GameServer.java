@@ -0,0 +1,267 @@
+/**
+ * Imports necessary for the GameServer class.
+ */
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The authoritative simulation of a world shared by several players over UDP.
+ *
+ * The server owns the only {@link GameWorld} that is stepped; each client that says hello becomes one
+ * of its {@link GameWorld#peers} and sends the input bits it holds, which the server applies on its
+ * next tick. After every tick the server captures a {@link NetState} into a short history and sends
+ * each client that state, delta-encoded against the last state the client acknowledged. A lost state
+ * costs nothing but a larger next delta, so states are never resent. When a round is over the next
+ * tick starts a new one for the clients still connected.
+ *
+ * Messages are one datagram each and start with a type byte:
+ * <ul>
+ * <li>{@link #HELLO} from a client asks to join.</li>
+ * <li>{@link #INPUT} from a client holds a sequence number, one more than the last state frame it
+ *     received, or 0, and its input bits.</li>
+ * <li>{@link #BYE} from a client leaves.</li>
+ * <li>{@link #STATE} to a client holds the frame number, how many frames back its baseline is, or 0
+ *     for none, the client's player slot and the encoded state.</li>
+ * </ul>
+ * The server never blocks: {@link #poll()} handles every datagram that has arrived and
+ * {@link #tick(long)} steps and sends, both called from the caller's loop.
+ */
+class GameServer {
+    /**
+     * @param HELLO Type of a client's request to join.
+     * @param INPUT Type of a client's inputs and acknowledgement.
+     * @param BYE Type of a client's notice that it leaves.
+     * @param STATE Type of a state sent to a client.
+     * @param HISTORY Number of past states kept as baselines; older acknowledgements get a full state.
+     * @param TIMEOUT_FRAMES Frames without a message from a client after which it is dropped.
+     * @param link Socket the server talks through.
+     * @param world The shared world.
+     * @param obstacleSpeed Obstacle speed of every round.
+     * @param random Random number generator seeding each round.
+     * @param clients Connected clients, in the order they joined.
+     * @param byAddress Connected clients by their address.
+     * @param history Past states, indexed by frame modulo HISTORY.
+     * @param historyFrame Frame of each past state.
+     * @param frame Number of the last tick stepped, counting across rounds.
+     * @param roundStart First frame of the current round.
+     * @param in Buffer datagrams are received into.
+     * @param out Buffer datagrams are written into.
+     * @param ticks Number of ticks stepped.
+     * @param tickNanos Time spent in {@link #tick(long)}.
+     */
+    static final int HELLO = 1;
+    static final int INPUT = 2;
+    static final int BYE = 3;
+    static final int STATE = 4;
+    static final int HISTORY = 64;
+    private static final int TIMEOUT_FRAMES = 5 * GameWorld.TICKS_PER_SECOND;
+
+    private final SimulatedLink link;
+    final GameWorld world;
+    private final int obstacleSpeed;
+    private final GameRandom random;
+    private final List<Client> clients = new ArrayList<>();
+    private final Map<SocketAddress, Client> byAddress = new HashMap<>();
+    private final NetState[] history = new NetState[HISTORY];
+    private final long[] historyFrame = new long[HISTORY];
+    private long frame;
+    private long roundStart;
+    private final ByteBuffer in = ByteBuffer.allocateDirect(SimulatedLink.MAX_DATAGRAM);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(SimulatedLink.MAX_DATAGRAM);
+    long ticks;
+    long tickNanos;
+
+    /**
+     * A connected client.
+     */
+    private static final class Client {
+        /**
+         * @param address Address the client sends from.
+         * @param slot Slot of the client's player in the world's peers.
+         * @param acked Last frame the client acknowledged, or -1.
+         * @param sequence Sequence number of the last input message applied.
+         * @param inputs Input bits to apply on the next tick.
+         * @param heard Frame the client was last heard from on.
+         */
+        final SocketAddress address;
+        int slot;
+        long acked = -1;
+        long sequence = -1;
+        int inputs;
+        long heard;
+
+        /**
+         * Constructs a client.
+         *
+         * @param address The address the client sends from.
+         */
+        Client(SocketAddress address) {
+            this.address = address;
+        }
+    }
+
+    /**
+     * Constructs a server and starts its first round.
+     *
+     * @param link          The socket to talk through.
+     * @param seed          The seed of the rounds.
+     * @param obstacleSpeed The obstacle speed of every round.
+     */
+    GameServer(SimulatedLink link, long seed, int obstacleSpeed) {
+        this.link = link;
+        this.obstacleSpeed = obstacleSpeed;
+        this.random = new GameRandom(seed);
+        world = new GameWorld(seed);
+        for (int i = 0; i < HISTORY; i++) {
+            history[i] = new NetState();
+            historyFrame[i] = -1;
+        }
+        startRound();
+    }
+
+    /**
+     * Returns the number of connected clients.
+     *
+     * @return The number of clients.
+     */
+    int clientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Returns a state sent in the last {@link #HISTORY} frames.
+     *
+     * @param stateFrame The frame of the state.
+     * @return The state, or null if it is no longer kept.
+     */
+    NetState stateAt(long stateFrame) {
+        if (stateFrame < 0) {
+            return null;
+        }
+        int i = (int) (stateFrame % HISTORY);
+        return historyFrame[i] == stateFrame ? history[i] : null;
+    }
+
+    /**
+     * Handles every datagram that has arrived. Datagrams that are cut short are ignored.
+     *
+     * @throws IOException If the socket fails.
+     */
+    void poll() throws IOException {
+        SocketAddress from;
+        while ((from = link.receive(in)) != null) {
+            try {
+                handle(from);
+            } catch (BufferUnderflowException e) {
+                // A datagram cut short is ignored.
+            }
+        }
+    }
+
+    /**
+     * Handles a datagram from a client.
+     *
+     * @param from The address of the client.
+     */
+    private void handle(SocketAddress from) {
+        int type = in.get();
+        Client client = byAddress.get(from);
+        if (type == HELLO && client == null) {
+            client = new Client(from);
+            client.slot = world.addPeer();
+            client.heard = frame;
+            clients.add(client);
+            byAddress.put(from, client);
+        } else if (type == INPUT && client != null) {
+            long sequence = NetState.readVarint(in);
+            long acked = NetState.readVarint(in) - 1;
+            int inputs = in.get();
+            client.heard = frame;
+            if (sequence > client.sequence) {
+                client.sequence = sequence;
+                client.acked = Math.max(client.acked, acked);
+                // Weapon switches are presses, so one that arrives is kept until a tick applies it.
+                client.inputs = inputs | (client.inputs & GameWorld.INPUT_SWITCH_WEAPON);
+            }
+        } else if (type == BYE && client != null) {
+            disconnect(client);
+        }
+    }
+
+    /**
+     * Steps the world one tick with the clients' inputs and sends every client the new state.
+     *
+     * @param now The current time in milliseconds.
+     * @throws IOException If the socket fails.
+     */
+    void tick(long now) throws IOException {
+        long start = System.nanoTime();
+        if (world.isGameOver) {
+            startRound();
+        }
+        for (int c = clients.size() - 1; c >= 0; c--) {
+            Client client = clients.get(c);
+            if (frame - client.heard > TIMEOUT_FRAMES) {
+                disconnect(client);
+                continue;
+            }
+            world.peers.inputs[client.slot] = client.inputs;
+            client.inputs &= ~GameWorld.INPUT_SWITCH_WEAPON;
+        }
+        world.step(0);
+        frame++;
+        int index = (int) (frame % HISTORY);
+        NetState state = history[index];
+        state.capture(world);
+        historyFrame[index] = frame;
+
+        for (Client client : clients) {
+            NetState base = client.acked >= roundStart && frame - client.acked < HISTORY ? stateAt(client.acked) : null;
+            out.clear();
+            out.put((byte) STATE);
+            NetState.writeVarint(out, frame);
+            NetState.writeVarint(out, base == null ? 0 : frame - client.acked);
+            NetState.writeVarint(out, client.slot);
+            state.encode(base, out);
+            out.flip();
+            link.send(out, client.address, now);
+        }
+        link.flush(now);
+        ticks++;
+        tickNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Starts a new round, giving every connected client a player in it.
+     */
+    private void startRound() {
+        world.reset();
+        world.reseed(random.nextLong());
+        world.removePlayer();
+        world.selectLevel(obstacleSpeed);
+        for (Client client : clients) {
+            client.slot = world.addPeer();
+            client.acked = -1;
+            client.inputs = 0;
+        }
+        // States of earlier rounds number their obstacles differently, so they are no use as baselines.
+        roundStart = frame + 1;
+    }
+
+    /**
+     * Drops a client and takes its player out of the game.
+     *
+     * @param client The client.
+     */
+    private void disconnect(Client client) {
+        world.removePeer(client.slot);
+        clients.remove(client);
+        byAddress.remove(client.address);
+    }
+}
@@ -0,0 +1,433 @@
+/**
+ * Imports necessary for the GameSnapshot class.
+ */
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Writes the complete state of a {@link GameWorld} into a compact binary snapshot and restores it.
+ *
+ * A snapshot holds everything the simulation reads on later ticks: the score, health, time and flags,
+ * the random number generator, the player and its peers, every projectile, obstacle and star, and the
+ * pending timers. A world restored from it plays on exactly as the world it was taken from, given the same
+ * inputs. The fields are written one by one with fixed widths, in little-endian order, and the pool
+ * arrays are copied in bulk, so taking or restoring a snapshot of a normal game takes a few
+ * microseconds and writing into a buffer that is large enough does not allocate.
+ *
+ * The layout is the {@link #MAGIC} number, the {@link #VERSION} byte and the size of the world,
+ * followed by the state. A snapshot can only be restored into a world of the same size. Snapshot
+ * files add a CRC32 of the snapshot at the end, are written through a memory-mapped temporary file
+ * and then moved over the old file, so a crash while saving leaves the previous save intact.
+ */
+final class GameSnapshot {
+    /**
+     * @param MAGIC First four bytes of every snapshot.
+     * @param VERSION Version of the snapshot format. Version 1 snapshots had no peers, obstacle numbers or
+     *                projectile owners.
+     * @param HEADER_BYTES Size of the magic number, version and world size.
+     * @param FIXED_BYTES Size of the scalar state and the element counts after the header.
+     * @param PROJECTILE_BYTES Size of one projectile.
+     * @param OBSTACLE_BYTES Size of one obstacle.
+     * @param STAR_BYTES Size of one star.
+     * @param PEER_BYTES Size of one peer.
+     */
+    static final int MAGIC = 0x53475353;
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 13;
+    private static final int FIXED_BYTES = 86;
+    private static final int PROJECTILE_BYTES = 20;
+    private static final int OBSTACLE_BYTES = 17;
+    private static final int STAR_BYTES = 13;
+    private static final int PEER_BYTES = 18;
+
+    /**
+     * Bits of the flags byte.
+     */
+    private static final int LEVEL_SELECTED = 1;
+    private static final int GAME_OVER = 1 << 1;
+    private static final int HEALTH_BUFF = 1 << 2;
+    private static final int TIME_BUFF = 1 << 3;
+    private static final int SHIELD_USED = 1 << 4;
+    private static final int SHIELD_ACTIVE = 1 << 5;
+    private static final int FIRE_READY = 1 << 6;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private GameSnapshot() {
+    }
+
+    /**
+     * Returns the size of a snapshot of the world as it is now.
+     *
+     * @param world The world.
+     * @return The size in bytes.
+     */
+    static int size(GameWorld world) {
+        return HEADER_BYTES + FIXED_BYTES + world.projectiles.count * PROJECTILE_BYTES
+            + world.obstacles.count * OBSTACLE_BYTES + world.stars.count() * STAR_BYTES + world.peers.count * PEER_BYTES
+            + world.timers.stateSize();
+    }
+
+    /**
+     * Writes a snapshot of the world at the buffer's position, advancing it past the snapshot.
+     *
+     * @param world The world.
+     * @param out   The buffer to write to, with at least {@link #size(GameWorld)} bytes remaining.
+     */
+    static void write(GameWorld world, ByteBuffer out) {
+        ByteOrder order = out.order();
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC);
+        out.put((byte) VERSION);
+        out.putInt(world.width);
+        out.putInt(world.height);
+
+        out.putLong(world.random.getState());
+        out.putLong(world.tick);
+        out.putInt(world.score);
+        out.putInt(world.health);
+        out.putInt(world.remainingTime);
+        out.putInt(world.obstacleSpeed);
+        out.putDouble(world.obstacleSpawnChance);
+        out.putInt(world.powerUpDelayTicks);
+        out.putFloat(world.starDensity);
+        out.putInt(world.playerX);
+        out.putInt(world.playerY);
+        out.put((byte) world.weapon.ordinal());
+        out.put((byte) flags(world));
+        out.putInt(world.events);
+
+        ProjectilePool projectiles = world.projectiles;
+        int n = projectiles.count;
+        out.putInt(n);
+        putInts(out, projectiles.x, n);
+        putInts(out, projectiles.y, n);
+        putInts(out, projectiles.dx, n);
+        putInts(out, projectiles.dy, n);
+        putInts(out, projectiles.owner, n);
+
+        ObstaclePool obstacles = world.obstacles;
+        n = obstacles.count;
+        out.putInt(n);
+        out.putInt(obstacles.clock);
+        out.putInt(obstacles.nextId);
+        putInts(out, obstacles.x, n);
+        putInts(out, obstacles.y, n);
+        putInts(out, obstacles.moved, n);
+        putInts(out, obstacles.id, n);
+        for (int i = 0; i < n; i++) {
+            out.put((byte) obstacles.spriteIndex[i]);
+        }
+
+        // Stars are written oldest first, with their age instead of the tick they were born on.
+        ParticleSystem stars = world.stars;
+        out.putInt(stars.count());
+        for (long s = stars.head; s < stars.tail; s++) {
+            int i = (int) s & stars.mask;
+            out.putInt(stars.x[i]);
+            out.putInt(stars.y[i]);
+            out.put(stars.color[i]);
+            out.putInt((int) (world.tick - stars.born[i]));
+        }
+
+        PlayerPool peers = world.peers;
+        n = peers.count;
+        out.putInt(n);
+        putInts(out, peers.x, n);
+        putInts(out, peers.health, n);
+        putInts(out, peers.score, n);
+        putInts(out, peers.inputs, n);
+        for (int i = 0; i < n; i++) {
+            out.put((byte) peers.weapon[i].ordinal());
+            out.put((byte) ((peers.fireReady[i] ? FIRE_READY : 0) | (peers.shieldActive[i] ? SHIELD_ACTIVE : 0)
+                | (peers.shieldUsed[i] ? SHIELD_USED : 0)));
+        }
+
+        world.timers.write(out);
+        out.order(order);
+    }
+
+    /**
+     * Restores the world from a snapshot at the buffer's position, advancing it past the snapshot. The
+     * header is checked before the world is touched; a snapshot that is damaged past its header can
+     * leave the world half restored, which {@link #load(Path, GameWorld)} prevents with its checksum.
+     *
+     * @param in    The buffer to read from.
+     * @param world The world to restore, of the same size as the one the snapshot was taken from.
+     * @throws IOException If the buffer does not hold a snapshot of this version and world size.
+     */
+    static void read(ByteBuffer in, GameWorld world) throws IOException {
+        ByteOrder order = in.order();
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot");
+            }
+            int version = in.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            int width = in.getInt();
+            int height = in.getInt();
+            if (width != world.width || height != world.height) {
+                throw new IOException("Snapshot of a " + width + "x" + height + " world cannot be restored into a "
+                    + world.width + "x" + world.height + " world");
+            }
+            readState(in, world);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Damaged snapshot", e);
+        } finally {
+            in.order(order);
+        }
+    }
+
+    /**
+     * Restores the state that follows the header.
+     *
+     * @param in    The buffer to read from, in little-endian order.
+     * @param world The world to restore.
+     */
+    private static void readState(ByteBuffer in, GameWorld world) {
+        world.random.setState(in.getLong());
+        world.tick = in.getLong();
+        world.score = in.getInt();
+        world.health = in.getInt();
+        world.remainingTime = in.getInt();
+        world.obstacleSpeed = in.getInt();
+        world.obstacleSpawnChance = in.getDouble();
+        world.powerUpDelayTicks = in.getInt();
+        world.starDensity = in.getFloat();
+        world.playerX = in.getInt();
+        world.playerY = in.getInt();
+        world.weapon = Weapon.values()[in.get()];
+        int flags = in.get();
+        world.levelSelected = (flags & LEVEL_SELECTED) != 0;
+        world.isGameOver = (flags & GAME_OVER) != 0;
+        world.healthBuffActive = (flags & HEALTH_BUFF) != 0;
+        world.timeBuffActive = (flags & TIME_BUFF) != 0;
+        world.shieldUsed = (flags & SHIELD_USED) != 0;
+        world.isShieldActive = (flags & SHIELD_ACTIVE) != 0;
+        world.fireReady = (flags & FIRE_READY) != 0;
+        world.events = in.getInt();
+
+        ProjectilePool projectiles = world.projectiles;
+        int n = count(in, projectiles.x.length, PROJECTILE_BYTES);
+        getInts(in, projectiles.x, n);
+        getInts(in, projectiles.y, n);
+        getInts(in, projectiles.dx, n);
+        getInts(in, projectiles.dy, n);
+        getInts(in, projectiles.owner, n);
+        projectiles.count = n;
+
+        ObstaclePool obstacles = world.obstacles;
+        n = count(in, Integer.MAX_VALUE, OBSTACLE_BYTES);
+        obstacles.clock = in.getInt();
+        obstacles.nextId = in.getInt();
+        obstacles.reserve(n);
+        getInts(in, obstacles.x, n);
+        getInts(in, obstacles.y, n);
+        getInts(in, obstacles.moved, n);
+        getInts(in, obstacles.id, n);
+        for (int i = 0; i < n; i++) {
+            obstacles.spriteIndex[i] = in.get();
+        }
+        obstacles.count = n;
+
+        ParticleSystem stars = world.stars;
+        n = count(in, Integer.MAX_VALUE, STAR_BYTES);
+        stars.clear(0);
+        for (int i = 0; i < n; i++) {
+            int x = in.getInt();
+            int y = in.getInt();
+            int color = in.get() & 0xFF;
+            stars.spawn(x, y, color, world.tick - in.getInt());
+        }
+
+        PlayerPool peers = world.peers;
+        n = count(in, Integer.MAX_VALUE, PEER_BYTES);
+        peers.reserve(n);
+        getInts(in, peers.x, n);
+        getInts(in, peers.health, n);
+        getInts(in, peers.score, n);
+        getInts(in, peers.inputs, n);
+        for (int i = 0; i < n; i++) {
+            peers.weapon[i] = Weapon.values()[in.get()];
+            int peerFlags = in.get();
+            peers.fireReady[i] = (peerFlags & FIRE_READY) != 0;
+            peers.shieldActive[i] = (peerFlags & SHIELD_ACTIVE) != 0;
+            peers.shieldUsed[i] = (peerFlags & SHIELD_USED) != 0;
+        }
+        peers.count = n;
+
+        world.timers.read(in);
+        world.afterRestore();
+    }
+
+    /**
+     * Writes a snapshot of the world to a file, replacing it only once the new snapshot is complete.
+     *
+     * @param world The world.
+     * @param file  The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    static void save(GameWorld world, Path file) throws IOException {
+        int size = size(world);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size + 4);
+            write(world, map);
+            seal(map, size);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes a snapshot taken earlier to a file, replacing it only once the new snapshot is complete, so
+     * the file can be written without holding on to the world.
+     *
+     * @param snapshot The snapshot, from its position to its limit, as written by
+     *                 {@link #write(GameWorld, ByteBuffer)}; its position is left unchanged.
+     * @param file     The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    static void save(ByteBuffer snapshot, Path file) throws IOException {
+        int size = snapshot.remaining();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size + 4);
+            map.put(snapshot.duplicate());
+            seal(map, size);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Appends the CRC32 of the snapshot in a mapped file and forces the file to disk.
+     *
+     * @param map  The mapped file, positioned after the snapshot.
+     * @param size The size of the snapshot.
+     */
+    private static void seal(MappedByteBuffer map, int size) {
+        CRC32 crc = new CRC32();
+        map.flip();
+        crc.update(map);
+        map.limit(size + 4);
+        map.order(ByteOrder.LITTLE_ENDIAN).putInt((int) crc.getValue());
+        map.force();
+    }
+
+    /**
+     * Restores the world from a file written by {@link #save(GameWorld, Path)}. The world is only
+     * touched once the file's checksum has been verified.
+     *
+     * @param file  The file to read.
+     * @param world The world to restore, of the same size as the one the snapshot was taken from.
+     * @throws IOException If the file cannot be read or does not hold an intact snapshot for this world.
+     */
+    static void load(Path file, GameWorld world) throws IOException {
+        read(load(file), world);
+    }
+
+    /**
+     * Reads the snapshot in a file written by {@link #save(GameWorld, Path)} and verifies its checksum,
+     * without touching any world, so the file can be read while the game plays on. The snapshot is then
+     * restored with {@link #read(ByteBuffer, GameWorld)}.
+     *
+     * @param file The file to read.
+     * @return A buffer holding the snapshot, from its position to its limit.
+     * @throws IOException If the file cannot be read or does not hold an intact snapshot.
+     */
+    static ByteBuffer load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES + 4 || length > Integer.MAX_VALUE) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            int size = (int) length - 4;
+            map.limit(size);
+            CRC32 crc = new CRC32();
+            crc.update(map);
+            map.limit(size + 4);
+            if (map.order(ByteOrder.LITTLE_ENDIAN).getInt() != (int) crc.getValue()) {
+                throw new IOException("Snapshot file is damaged: " + file);
+            }
+            map.position(0);
+            map.limit(size);
+            // Copy the snapshot out of the mapping, so the file is not held open by the buffer.
+            ByteBuffer snapshot = ByteBuffer.allocate(size);
+            snapshot.put(map).flip();
+            return snapshot;
+        }
+    }
+
+    /**
+     * Packs the world's flags into one byte.
+     *
+     * @param world The world.
+     * @return The flag bits.
+     */
+    private static int flags(GameWorld world) {
+        int flags = 0;
+        flags |= world.levelSelected ? LEVEL_SELECTED : 0;
+        flags |= world.isGameOver ? GAME_OVER : 0;
+        flags |= world.healthBuffActive ? HEALTH_BUFF : 0;
+        flags |= world.timeBuffActive ? TIME_BUFF : 0;
+        flags |= world.shieldUsed ? SHIELD_USED : 0;
+        flags |= world.isShieldActive ? SHIELD_ACTIVE : 0;
+        flags |= world.fireReady ? FIRE_READY : 0;
+        return flags;
+    }
+
+    /**
+     * Reads an element count and checks it against a limit and the bytes left in the buffer.
+     *
+     * @param in          The buffer to read from.
+     * @param limit       The largest count allowed.
+     * @param elementSize The size of one element in bytes.
+     * @return The count.
+     */
+    private static int count(ByteBuffer in, int limit, int elementSize) {
+        int n = in.getInt();
+        if (n < 0 || n > limit || (long) n * elementSize > in.remaining()) {
+            throw new IllegalArgumentException("Element count out of range: " + n);
+        }
+        return n;
+    }
+
+    /**
+     * Copies the start of an int array into the buffer in one bulk transfer.
+     *
+     * @param out    The buffer to write to.
+     * @param values The array.
+     * @param n      The number of ints to copy.
+     */
+    private static void putInts(ByteBuffer out, int[] values, int n) {
+        out.asIntBuffer().put(values, 0, n);
+        out.position(out.position() + n * 4);
+    }
+
+    /**
+     * Copies ints from the buffer into the start of an array in one bulk transfer.
+     *
+     * @param in     The buffer to read from.
+     * @param values The array.
+     * @param n      The number of ints to copy.
+     */
+    private static void getInts(ByteBuffer in, int[] values, int n) {
+        in.asIntBuffer().get(values, 0, n);
+        in.position(in.position() + n * 4);
+    }
+}
@@ -0,0 +1,882 @@
+/**
+ * Imports necessary for the GameWorld class.
+ */
+import java.awt.Point;
+
+/**
+ * The headless game simulation.
+ *
+ * Holds the complete state of a session and advances it one fixed 20 millisecond tick per call to
+ * {@link #step(int)}. Nothing in here touches Swing, so a world can be driven by the SpaceGame frame
+ * or by a plain loop with java.awt.headless=true.
+ *
+ * The world can be larger than the screen. The camera then follows the player along the bottom of the
+ * world, and obstacles far from the camera are only moved every {@link #LOD_INTERVAL_TICKS} ticks,
+ * catching up on the distance they missed when they are. Only obstacles near the camera are filed in
+ * the broadphase grid, so collisions and drawing cost the same however large the world is. A world
+ * the size of the screen always has every obstacle near the camera and plays exactly as before.
+ *
+ * Other players can share the world as {@link #peers}, which is how a {@link GameServer} runs one
+ * obstacle field for all its clients. Peers play by the same rules as the world's own player and share
+ * its countdown and power-ups; the game is over once the time runs out or no player has health left.
+ * Peers are only supported in worlds the size of the screen, where every player is near the camera.
+ *
+ * Collisions are swept: a projectile or player hits an obstacle if their boxes meet at any time during
+ * the tick, not only where they end up, so nothing passes through an obstacle however far it moves in
+ * one tick. That lets headless runs set {@link #stepTicks} to advance several ticks per step, moving
+ * everything that much further at once, at a fraction of the cost.
+ */
+class GameWorld {
+    /**
+     * @param WIDTH Width of the playfield.
+     * @param HEIGHT Height of the playfield.
+     * @param PLAYER_WIDTH Width of the player character.
+     * @param PLAYER_HEIGHT Height of the player character.
+     * @param OBSTACLE_WIDTH Width of obstacles.
+     * @param OBSTACLE_HEIGHT Height of obstacles.
+     * @param PROJECTILE_WIDTH Width of projectiles.
+     * @param PROJECTILE_HEIGHT Height of projectiles.
+     * @param PLAYER_SPEED Speed of the player character.
+     * @param PROJECTILE_SPEED Speed of the projectile.
+     * @param OBSTACLE_SPRITE_COUNT Number of obstacle sprites on the sprite sheet.
+     * @param TICK_MILLIS Length of one simulation tick in milliseconds.
+     * @param TICKS_PER_SECOND Number of simulation ticks per second of game time.
+     * @param POWER_UP_DELAY_TICKS Ticks from the start of a level until a power-up appears.
+     * @param SHIELD_DURATION_TICKS Ticks the shield stays up once activated.
+     * @param BROADPHASE_CELL_SIZE Width and height of a cell in the collision grid.
+     * @param MAX_PROJECTILES Capacity of the projectile pool.
+     * @param SPREAD_STEP Extra horizontal speed of each fan level of the spread weapon.
+     * @param STAR_LIFETIME_TICKS Ticks a star stays on screen.
+     * @param DEFAULT_STAR_DENSITY Stars spawned per tick by default, one every ten ticks on average.
+     * @param MAX_STARS Capacity of the star ring, enough for a density of 40 stars per tick; beyond it the
+     *     oldest stars make room for new ones.
+     * @param OBSTACLE_SPAWN_CHANCE Chance of a new obstacle appearing on each tick by default.
+     * @param LOD_MARGIN Distance around the camera within which obstacles are moved on every tick.
+     * @param LOD_INTERVAL_TICKS Ticks between two moves of an obstacle far from the camera, a power of two.
+     * @param START_HEALTH Health each player starts a level with.
+     */
+    static final int WIDTH = 500;
+    static final int HEIGHT = 500;
+    static final int PLAYER_WIDTH = 50;
+    static final int PLAYER_HEIGHT = 50;
+    static final int OBSTACLE_WIDTH = 40;
+    static final int OBSTACLE_HEIGHT = 40;
+    static final int PROJECTILE_WIDTH = 5;
+    static final int PROJECTILE_HEIGHT = 15;
+    static final int PLAYER_SPEED = 10;
+    static final int PROJECTILE_SPEED = 10;
+    static final int OBSTACLE_SPRITE_COUNT = 4;
+    static final int TICK_MILLIS = 20;
+    static final int TICKS_PER_SECOND = 1000 / TICK_MILLIS;
+    static final int POWER_UP_DELAY_TICKS = 15000 / TICK_MILLIS;
+    static final int SHIELD_DURATION_TICKS = 5000 / TICK_MILLIS;
+    static final int BROADPHASE_CELL_SIZE = 64;
+    static final int MAX_PROJECTILES = 512;
+    static final int SPREAD_STEP = 2;
+    static final int STAR_LIFETIME_TICKS = 100;
+    static final float DEFAULT_STAR_DENSITY = 0.1f;
+    static final int MAX_STARS = 4096;
+    static final double OBSTACLE_SPAWN_CHANCE = 0.02;
+    static final int LOD_MARGIN = BROADPHASE_CELL_SIZE;
+    static final int LOD_INTERVAL_TICKS = 16;
+    static final int START_HEALTH = 5;
+
+    /**
+     * Input bits accepted by {@link #step(int)}, one per key action.
+     */
+    static final int INPUT_LEFT = 1;
+    static final int INPUT_RIGHT = 1 << 1;
+    static final int INPUT_FIRE = 1 << 2;
+    static final int INPUT_SHIELD = 1 << 3;
+    static final int INPUT_SWITCH_WEAPON = 1 << 4;
+
+    /**
+     * Event bits reported in {@link #events} for the tick that was just simulated.
+     */
+    static final int EVENT_SHOT_FIRED = 1;
+    static final int EVENT_PLAYER_HIT = 1 << 1;
+    static final int EVENT_GAME_OVER = 1 << 2;
+
+    /**
+     * Event codes of the timers scheduled on {@link #timers}. The shield and fire timers of a peer add
+     * {@link #TIMER_KINDS} times one more than the peer's slot to the code.
+     */
+    static final int TIMER_COUNTDOWN = 0;
+    static final int TIMER_POWER_UP = 1;
+    static final int TIMER_SHIELD_EXPIRED = 2;
+    static final int TIMER_FIRE_READY = 3;
+    static final int TIMER_KINDS = 4;
+
+    /**
+     * @param width Width of the world.
+     * @param height Height of the world.
+     * @param random The single seeded random number generator behind every random decision.
+     * @param stars Particle system holding the stars in the game.
+     * @param starDensity Average number of stars spawned per tick.
+     * @param obstacles Pool of obstacles in the game.
+     * @param obstacleSpeed Speed of obstacles for the selected level.
+     * @param obstacleSpawnChance Average number of new obstacles appearing on each tick.
+     * @param powerUpDelayTicks Ticks from the start of a level until a power-up appears.
+     * @param score Current score in the game.
+     * @param health Current health of the player character.
+     * @param remainingTime Remaining time in the game, in seconds.
+     * @param levelSelected Flag indicating if a game level is selected.
+     * @param isGameOver Flag indicating if the game is over.
+     * @param healthBuffActive Flag indicating if the health power-up is active.
+     * @param timeBuffActive Flag indicating if the time power-up is active.
+     * @param shieldUsed Flag indicating if the shield power-up is used.
+     * @param isShieldActive Flag indicating if the shield power-up is active.
+     * @param playerX X-coordinate of the player character.
+     * @param playerY Y-coordinate of the player character.
+     * @param projectiles Pool of live projectiles.
+     * @param weapon Weapon the player fires.
+     * @param fireReady Flag indicating if the weapon's cooldown has run out.
+     * @param powerUpPosition Position of power-ups in the game.
+     * @param cameraX X-coordinate of the left edge of the area shown on screen.
+     * @param cameraY Y-coordinate of the top edge of the area shown on screen.
+     * @param tick Number of ticks simulated since the level was selected.
+     * @param events Event bits raised during the last tick.
+     * @param timers Timer wheel driving the countdown, power-up, shield and weapon cooldown timers.
+     * @param profiler Profiler timing the phases of each tick, disabled unless the view enables it.
+     * @param peers Other players sharing the world.
+     * @param stepTicks Number of ticks each call to {@link #step(int)} advances the world by, 1 unless a
+     *     headless run trades the timing of inputs for speed. Snapshots and replays do not record it.
+     * @param eventRing Ring the world publishes its events to as they happen, or null when nobody listens.
+     *     Snapshots and replays do not record it.
+     */
+    final int width;
+    final int height;
+    final GameRandom random;
+    final ParticleSystem stars = new ParticleSystem(MAX_STARS, STAR_LIFETIME_TICKS, 0x5743L);
+    float starDensity = DEFAULT_STAR_DENSITY;
+    final ObstaclePool obstacles = new ObstaclePool(64);
+    int obstacleSpeed = 3;
+    double obstacleSpawnChance = OBSTACLE_SPAWN_CHANCE;
+    int powerUpDelayTicks = POWER_UP_DELAY_TICKS;
+    int score;
+    int health;
+    int remainingTime;
+    boolean levelSelected;
+    boolean isGameOver;
+    boolean healthBuffActive;
+    boolean timeBuffActive;
+    boolean shieldUsed;
+    boolean isShieldActive;
+    int playerX, playerY;
+    final ProjectilePool projectiles = new ProjectilePool(MAX_PROJECTILES);
+    Weapon weapon = Weapon.SINGLE;
+    boolean fireReady = true;
+    final Point powerUpPosition;
+    int cameraX, cameraY;
+    long tick;
+    int events;
+    final TimerWheel timers = new TimerWheel(16);
+    final GameProfiler profiler = new GameProfiler();
+    final PlayerPool peers = new PlayerPool(0);
+    int stepTicks = 1;
+    EventRing eventRing;
+
+    private final SpatialHash broadphase = new SpatialHash(0, 0, WIDTH + 2 * LOD_MARGIN, HEIGHT + 2 * LOD_MARGIN,
+        BROADPHASE_CELL_SIZE, OBSTACLE_WIDTH, OBSTACLE_HEIGHT);
+    private boolean broadphaseStale;
+    private int[] queryResults = new int[64];
+    private double[] hitTimes = new double[64];
+    private int playerStartX;
+    private int[] peerStartX = new int[4];
+    private int[] hitStamps = new int[64];
+    private int hitStamp;
+
+    /**
+     * Constructs a new world seeded from the clock.
+     */
+    GameWorld() {
+        this(System.nanoTime());
+    }
+
+    /**
+     * Constructs a new world whose random values all derive from the given seed. Two worlds with the
+     * same seed, the same level and the same input on every tick play out identically.
+     *
+     * @param seed The seed of the world's random number generator.
+     */
+    GameWorld(long seed) {
+        this(seed, WIDTH, HEIGHT);
+    }
+
+    /**
+     * Constructs a new seeded world of the given size, at least as large as the screen.
+     *
+     * @param seed   The seed of the world's random number generator.
+     * @param width  The width of the world.
+     * @param height The height of the world.
+     */
+    GameWorld(long seed, int width, int height) {
+        if (width < WIDTH || height < HEIGHT) {
+            throw new IllegalArgumentException("The world must be at least as large as the screen");
+        }
+        this.width = width;
+        this.height = height;
+        this.random = new GameRandom(seed);
+        powerUpPosition = new Point(width / 2 - PLAYER_WIDTH / 2, height - PLAYER_HEIGHT - 20);
+        reset();
+    }
+
+    /**
+     * Reseeds the world's random number generator, for example before selecting a level that is
+     * being recorded.
+     *
+     * @param seed The new seed.
+     */
+    void reseed(long seed) {
+        random.setState(seed);
+    }
+
+    /**
+     * Selects a level and starts the simulation.
+     *
+     * @param obstacleSpeed The obstacle speed of the level, 3 for easy and 6 for hard.
+     */
+    void selectLevel(int obstacleSpeed) {
+        this.obstacleSpeed = obstacleSpeed;
+        levelSelected = true;
+        tick = 0;
+        timers.clear(0);
+        timers.schedule(TICKS_PER_SECOND, TIMER_COUNTDOWN);
+        timers.schedule(powerUpDelayTicks, TIMER_POWER_UP);
+    }
+
+    /**
+     * Scatters obstacles over the world above the camera, and raises the spawn rate so the number of
+     * obstacles stays about the same as they fall out of the bottom. Call after selecting a level.
+     *
+     * @param count The number of obstacles to add.
+     */
+    void populate(int count) {
+        obstacles.clock = (int) tick;
+        for (int i = 0; i < count; i++) {
+            obstacles.add(random.nextInt(width - OBSTACLE_WIDTH), random.nextInt(height - HEIGHT + 1) - OBSTACLE_HEIGHT,
+                random.nextInt(OBSTACLE_SPRITE_COUNT));
+        }
+        obstacleSpawnChance = Math.max(obstacleSpawnChance, (double) count * obstacleSpeed / (height + OBSTACLE_HEIGHT));
+        reindexObstacles();
+    }
+
+    /**
+     * Adds a player sharing the world, in the middle of the bottom row with full health.
+     *
+     * @return The slot of the player in {@link #peers}.
+     */
+    int addPeer() {
+        if (width != WIDTH || height != HEIGHT) {
+            throw new IllegalStateException("Peers need a world the size of the screen");
+        }
+        return peers.join(width / 2 - PLAYER_WIDTH / 2, START_HEALTH);
+    }
+
+    /**
+     * Takes a peer out of the game, ending it if no other player has health left.
+     *
+     * @param slot The slot of the peer.
+     */
+    void removePeer(int slot) {
+        peers.leave(slot);
+        if (levelSelected && !isGameOver) {
+            checkPlayersLeft();
+        }
+    }
+
+    /**
+     * Takes the world's own player out of the game, for a server on which every player is a peer.
+     */
+    void removePlayer() {
+        health = 0;
+    }
+
+    /**
+     * Resets all game state variables and returns to the level selection screen.
+     */
+    void reset() {
+        score = 0;
+        health = START_HEALTH;
+        remainingTime = 30;
+        playerX = width / 2 - PLAYER_WIDTH / 2;
+        playerY = height - PLAYER_HEIGHT - 20;
+        moveCamera();
+        projectiles.clear();
+        isGameOver = false;
+        levelSelected = false;
+        shieldUsed = false;
+        isShieldActive = false;
+        weapon = Weapon.SINGLE;
+        fireReady = true;
+        timers.clear(0);
+        healthBuffActive = false;
+        timeBuffActive = false;
+        obstacles.clear();
+        obstacles.clock = 0;
+        reindexObstacles();
+        peers.clear();
+        stars.clear();
+        tick = 0;
+        events = 0;
+    }
+
+    /**
+     * Advances the simulation by one tick.
+     *
+     * The inputs are applied first, then the game state is updated and the per-second and power-up
+     * timers advance. Movement and fire act on every tick their bit is set, so holding a key gives
+     * continuous movement and repeated fire at the weapon's cooldown. With {@link #stepTicks} above 1
+     * the world advances that many ticks at once, with the inputs held throughout and fire acting once.
+     *
+     * @param inputs The input bits held or pressed since the previous tick.
+     */
+    void step(int inputs) {
+        events = 0;
+        if (!levelSelected || isGameOver) {
+            return;
+        }
+        profiler.beginTick();
+        tick += stepTicks;
+        applyInputs(inputs);
+        update();
+        advanceTimers();
+        if ((events & EVENT_GAME_OVER) != 0) {
+            // Published last, so it carries the score the tick ended with.
+            publish(GameEvent.GAME_OVER, 0, score);
+        }
+        profiler.endTick(tick);
+    }
+
+    /**
+     * Applies the players' actions for this tick. Holding fire shoots again as soon as the weapon's
+     * cooldown has run out. Players without health left no longer act.
+     *
+     * @param inputs The input bits held or pressed since the previous tick.
+     */
+    private void applyInputs(int inputs) {
+        playerStartX = playerX;
+        if (peerStartX.length < peers.count) {
+            peerStartX = new int[peers.x.length];
+        }
+        System.arraycopy(peers.x, 0, peerStartX, 0, peers.count);
+        if (health > 0) {
+            playerX = move(playerX, inputs);
+            if ((inputs & INPUT_FIRE) != 0 && fireReady) {
+                fire(playerX, weapon, 0);
+                fireReady = false;
+                timers.schedule(weapon.cooldownTicks, TIMER_FIRE_READY);
+            }
+            if ((inputs & INPUT_SHIELD) != 0 && !isShieldActive && !shieldUsed) {
+                isShieldActive = true;
+                shieldUsed = true;
+                timers.schedule(SHIELD_DURATION_TICKS, TIMER_SHIELD_EXPIRED);
+                publish(GameEvent.SHIELD_ACTIVATED, 0, 0);
+            }
+            if ((inputs & INPUT_SWITCH_WEAPON) != 0) {
+                weapon = weapon.next();
+            }
+        }
+        moveCamera();
+        for (int p = 0; p < peers.count; p++) {
+            if (peers.health[p] > 0) {
+                applyPeerInputs(p);
+            }
+        }
+    }
+
+    /**
+     * Applies a peer's actions for this tick, from the input bits in {@link PlayerPool#inputs}.
+     *
+     * @param p The slot of the peer.
+     */
+    private void applyPeerInputs(int p) {
+        int inputs = peers.inputs[p];
+        int timerBase = TIMER_KINDS * (p + 1);
+        peers.x[p] = move(peers.x[p], inputs);
+        if ((inputs & INPUT_FIRE) != 0 && peers.fireReady[p]) {
+            fire(peers.x[p], peers.weapon[p], p + 1);
+            peers.fireReady[p] = false;
+            timers.schedule(peers.weapon[p].cooldownTicks, timerBase + TIMER_FIRE_READY);
+        }
+        if ((inputs & INPUT_SHIELD) != 0 && !peers.shieldActive[p] && !peers.shieldUsed[p]) {
+            peers.shieldActive[p] = true;
+            peers.shieldUsed[p] = true;
+            timers.schedule(SHIELD_DURATION_TICKS, timerBase + TIMER_SHIELD_EXPIRED);
+            publish(GameEvent.SHIELD_ACTIVATED, p + 1, 0);
+        }
+        if ((inputs & INPUT_SWITCH_WEAPON) != 0) {
+            peers.weapon[p] = peers.weapon[p].next();
+        }
+    }
+
+    /**
+     * Moves a player sideways by the held direction keys, one tick at a time for each tick of the step.
+     *
+     * @param x      The x-coordinate of the player.
+     * @param inputs The input bits of the player.
+     * @return The new x-coordinate.
+     */
+    private int move(int x, int inputs) {
+        for (int t = 0; t < stepTicks; t++) {
+            if ((inputs & INPUT_LEFT) != 0 && x > 0) {
+                x -= PLAYER_SPEED;
+            }
+            if ((inputs & INPUT_RIGHT) != 0 && x < width - PLAYER_WIDTH) {
+                x += PLAYER_SPEED;
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Fires a player's weapon from the middle of the player.
+     *
+     * The single-shot weapon reuses its one projectile, moving it back to the player if it is still in
+     * flight. The other weapons add a new projectile per barrel, fanned out sideways for the spread weapon.
+     *
+     * @param x      The x-coordinate of the player.
+     * @param weapon The player's weapon.
+     * @param owner  The player, 0 for the world's own player and one more than the slot for a peer.
+     */
+    private void fire(int x, Weapon weapon, int owner) {
+        int startX = x + PLAYER_WIDTH / 2 - PROJECTILE_WIDTH / 2;
+        if (weapon == Weapon.SINGLE) {
+            projectiles.removeOwnedBy(owner);
+        }
+        for (int level = -weapon.spreadLevels; level <= weapon.spreadLevels; level++) {
+            projectiles.add(startX, playerY, level * SPREAD_STEP, -PROJECTILE_SPEED, owner);
+        }
+        events |= EVENT_SHOT_FIRED;
+        publish(GameEvent.SHOT_FIRED, owner, 0);
+    }
+
+    /**
+     * Updates the game state for one tick.
+     */
+    private void update() {
+        long mark = profiler.start();
+
+        // Star Updater.
+        stars.age(tick);
+        for (int t = 0; t < stepTicks; t++) {
+            int newStars = (int) starDensity;
+            if (random.nextFloat() < starDensity - newStars) {
+                newStars++;
+            }
+            for (int i = 0; i < newStars; i++) {
+                stars.spawn(random.nextInt(WIDTH), random.nextInt(HEIGHT), random.nextInt(ParticleSystem.PALETTE_SIZE), tick);
+            }
+        }
+        mark = profiler.lap(GameProfiler.SPAWN, mark);
+
+        // Move obstacles, back to front so a removal only swaps in an obstacle that has already moved.
+        // Obstacles far from the camera are moved by a different 1/LOD_INTERVAL_TICKS of them per tick,
+        // those whose turn came on any of the ticks of the step. An obstacle that left the world is only
+        // dropped now if it was already below the players at the start of the step; one that passed them
+        // during a long step is kept until the players and projectiles have been swept against it.
+        int clock = (int) tick;
+        obstacles.clock = clock;
+        int leaving = 0;
+        for (int i = obstacles.count - 1; i >= 0; i--) {
+            int y = obstacles.y[i] + obstacleSpeed * (clock - obstacles.moved[i]);
+            if (((i + clock) & (LOD_INTERVAL_TICKS - 1)) >= stepTicks && isFarFromCamera(obstacles.x[i], y)) {
+                continue;
+            }
+            obstacles.y[i] = y;
+            obstacles.moved[i] = clock;
+            if (y > height) {
+                if (y - obstacleSpeed * stepTicks >= playerY + PLAYER_HEIGHT) {
+                    obstacles.remove(i);
+                } else {
+                    leaving++;
+                }
+            }
+        }
+        mark = profiler.lap(GameProfiler.MOVE, mark);
+
+        // Generate new obstacles.
+        for (int t = 0; t < stepTicks; t++) {
+            int newObstacles = (int) obstacleSpawnChance;
+            if (random.nextDouble() < obstacleSpawnChance - newObstacles) {
+                newObstacles++;
+            }
+            for (int i = 0; i < newObstacles; i++) {
+                createObstacle();
+            }
+        }
+        mark = profiler.lap(GameProfiler.SPAWN, mark);
+
+        // Move projectiles. The ones that left the screen are dropped once they had their chance to hit.
+        for (int i = projectiles.count - 1; i >= 0; i--) {
+            projectiles.x[i] += projectiles.dx[i] * stepTicks;
+            projectiles.y[i] += projectiles.dy[i] * stepTicks;
+        }
+        mark = profiler.lap(GameProfiler.MOVE, mark);
+
+        // Check collision with player.
+        if (healthBuffActive && health > 0 && reachesPowerUp(playerStartX, playerX)) {
+            health *= 2;
+            healthBuffActive = false;
+            publish(GameEvent.POWER_UP_COLLECTED, 0, 0);
+        }
+        if (timeBuffActive && health > 0 && reachesPowerUp(playerStartX, playerX)) {
+            remainingTime *= 2;
+            timeBuffActive = false;
+            publish(GameEvent.POWER_UP_COLLECTED, 0, 1);
+        }
+        for (int p = 0; p < peers.count && (healthBuffActive || timeBuffActive); p++) {
+            if (peers.health[p] > 0 && reachesPowerUp(peerStartX[p], peers.x[p])) {
+                if (healthBuffActive) {
+                    peers.health[p] *= 2;
+                    healthBuffActive = false;
+                    publish(GameEvent.POWER_UP_COLLECTED, p + 1, 0);
+                } else {
+                    remainingTime *= 2;
+                    timeBuffActive = false;
+                    publish(GameEvent.POWER_UP_COLLECTED, p + 1, 1);
+                }
+            }
+        }
+
+        reindexObstacles();
+        if (health > 0 && !isShieldActive) {
+            int hits = sweepObstacles(playerStartX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT, playerX - playerStartX, 0);
+            int removed = 0;
+            while (removed < hits) {
+                health -= 1;
+                events |= EVENT_PLAYER_HIT;
+                publish(GameEvent.PLAYER_DAMAGED, 0, health);
+                removed++;
+                if (health <= 0) {
+                    checkPlayersLeft();
+                    break;
+                }
+            }
+            removeHitObstacles(removed);
+        }
+        for (int p = 0; p < peers.count; p++) {
+            if (peers.health[p] <= 0 || peers.shieldActive[p]) {
+                continue;
+            }
+            int hits = sweepObstacles(peerStartX[p], playerY, PLAYER_WIDTH, PLAYER_HEIGHT, peers.x[p] - peerStartX[p], 0);
+            int removed = 0;
+            while (removed < hits) {
+                peers.health[p] -= 1;
+                events |= EVENT_PLAYER_HIT;
+                publish(GameEvent.PLAYER_DAMAGED, p + 1, peers.health[p]);
+                removed++;
+                if (peers.health[p] <= 0) {
+                    checkPlayersLeft();
+                    break;
+                }
+            }
+            removeHitObstacles(removed);
+        }
+
+        // Check collision with obstacle.
+        resolveProjectileHits();
+        for (int i = projectiles.count - 1; i >= 0; i--) {
+            if (projectiles.y[i] < cameraY || projectiles.x[i] < cameraX - PROJECTILE_WIDTH
+                    || projectiles.x[i] > cameraX + WIDTH) {
+                projectiles.remove(i);
+            }
+        }
+        if (leaving > 0) {
+            // Drop the obstacles that left the world now that they had their chance to hit.
+            for (int i = obstacles.count - 1; i >= 0; i--) {
+                if (obstacles.y[i] > height) {
+                    obstacles.remove(i);
+                }
+            }
+            broadphaseStale = true;
+        }
+        profiler.lap(GameProfiler.COLLIDE, mark);
+    }
+
+    /**
+     * Determines whether a player moving along the bottom row reaches the power-up during the tick.
+     *
+     * @param startX The x-coordinate of the player at the start of the tick.
+     * @param endX   The x-coordinate of the player at the end of the tick.
+     * @return True if the player's box meets the power-up's.
+     */
+    private boolean reachesPowerUp(int startX, int endX) {
+        return Collision.sweep(startX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT, endX - startX, 0,
+            powerUpPosition.x, powerUpPosition.y, PLAYER_WIDTH, PLAYER_HEIGHT, 0, 0) <= 1;
+    }
+
+    /**
+     * Removes the obstacles that collided with a player, the first hits of the last query. They are
+     * removed highest slot first so swap-remove never moves one of the remaining hits.
+     *
+     * @param removed The number of hits to remove.
+     */
+    private void removeHitObstacles(int removed) {
+        for (int k = removed - 1; k >= 0; k--) {
+            obstacles.remove(queryResults[k]);
+        }
+        if (removed > 0) {
+            reindexObstacles();
+        }
+    }
+
+    /**
+     * Resolves every projectile against the obstacles in one batch.
+     *
+     * Each projectile destroys the first obstacle it meets during the tick that no earlier projectile
+     * destroyed this tick, and is used up by it. Obstacles are only marked during the pass and removed
+     * afterwards, so pool slots stay stable while the broadphase is queried. The cost is one grid query
+     * per projectile rather than a scan of every obstacle.
+     */
+    private void resolveProjectileHits() {
+        if (projectiles.count == 0) {
+            return;
+        }
+        if (hitStamps.length < obstacles.x.length) {
+            hitStamps = new int[obstacles.x.length];
+        }
+        int stamp = ++hitStamp;
+        int destroyed = 0;
+        for (int p = projectiles.count - 1; p >= 0; p--) {
+            int dx = projectiles.dx[p] * stepTicks;
+            int dy = projectiles.dy[p] * stepTicks;
+            int hits = sweepObstacles(projectiles.x[p] - dx, projectiles.y[p] - dy, PROJECTILE_WIDTH,
+                PROJECTILE_HEIGHT, dx, dy);
+            // The earliest impact wins; of impacts at the same time, the lowest pool slot.
+            int first = -1;
+            double firstTime = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < hits; k++) {
+                if (hitStamps[queryResults[k]] != stamp && hitTimes[k] < firstTime) {
+                    first = queryResults[k];
+                    firstTime = hitTimes[k];
+                }
+            }
+            if (first >= 0) {
+                hitStamps[first] = stamp;
+                destroyed++;
+                int owner = projectiles.owner[p];
+                if (owner == 0) {
+                    score += 10;
+                    publish(GameEvent.OBSTACLE_DESTROYED, owner, score);
+                } else {
+                    peers.score[owner - 1] += 10;
+                    publish(GameEvent.OBSTACLE_DESTROYED, owner, peers.score[owner - 1]);
+                }
+                projectiles.remove(p);
+            }
+        }
+        if (destroyed == 0) {
+            return;
+        }
+
+        // Remove the destroyed obstacles back to front, so the obstacle swapped into a freed slot has
+        // already been checked and the stale stamp left behind in that slot is never looked at again.
+        for (int i = obstacles.count - 1; i >= 0 && destroyed > 0; i--) {
+            if (hitStamps[i] == stamp) {
+                obstacles.remove(i);
+                destroyed--;
+            }
+        }
+        // The grid is only needed again for drawing, so it is rebuilt when the frame asks for it.
+        broadphaseStale = true;
+    }
+
+    /**
+     * Finds the obstacles that can be seen on screen, in pool order.
+     *
+     * @param out Receives the pool slots of the visible obstacles; must be at least as long as the
+     *            obstacle count.
+     * @return The number of slots written to out.
+     */
+    int visibleObstacles(int[] out) {
+        if (broadphaseStale) {
+            reindexObstacles();
+        }
+        return broadphase.query(obstacles, cameraX, cameraY, WIDTH, HEIGHT, out);
+    }
+
+    /**
+     * Files the obstacles near the camera in the broadphase grid. The world does this whenever it
+     * changes the obstacle pool; code that edits the pool directly must call it before drawing.
+     */
+    void reindexObstacles() {
+        broadphase.build(obstacles, cameraX - LOD_MARGIN, cameraY - LOD_MARGIN);
+        broadphaseStale = false;
+    }
+
+    /**
+     * Brings the state derived from the rest of the world, the camera and the broadphase grid, back in
+     * line after {@link GameSnapshot} has restored the world.
+     */
+    void afterRestore() {
+        moveCamera();
+        reindexObstacles();
+    }
+
+    /**
+     * Centers the camera on the player, keeping it inside the world and on the bottom edge.
+     */
+    private void moveCamera() {
+        cameraX = Math.max(0, Math.min(width - WIDTH, playerX + PLAYER_WIDTH / 2 - WIDTH / 2));
+        cameraY = height - HEIGHT;
+    }
+
+    /**
+     * Determines whether an obstacle is outside the camera's view by more than {@link #LOD_MARGIN}:
+     * above it, or to either side. Obstacles below the camera have left the world.
+     *
+     * @param x The x-coordinate of the obstacle.
+     * @param y The y-coordinate of the obstacle.
+     * @return True if the obstacle is far from the camera.
+     */
+    private boolean isFarFromCamera(int x, int y) {
+        return y + OBSTACLE_HEIGHT < cameraY - LOD_MARGIN || x + OBSTACLE_WIDTH < cameraX - LOD_MARGIN
+            || x > cameraX + WIDTH + LOD_MARGIN;
+    }
+
+    /**
+     * Finds the obstacles that intersect a box through the broadphase grid.
+     *
+     * @param x The x-coordinate of the box.
+     * @param y The y-coordinate of the box.
+     * @param w The width of the box.
+     * @param h The height of the box.
+     * @return The number of hits, whose pool slots are in ascending order at the start of queryResults.
+     */
+    private int queryObstacles(int x, int y, int w, int h) {
+        if (queryResults.length < obstacles.count) {
+            queryResults = new int[obstacles.x.length];
+        }
+        return broadphase.query(obstacles, x, y, w, h, queryResults);
+    }
+
+    /**
+     * Finds the obstacles that a box moving in a straight line meets during the tick, while they fall.
+     *
+     * The broadphase is queried for the whole area the box and the obstacles sweep, and each candidate
+     * is then swept against the box from where it was at the start of the tick.
+     *
+     * @param x  The x-coordinate of the box at the start of the tick.
+     * @param y  The y-coordinate of the box at the start of the tick.
+     * @param w  The width of the box.
+     * @param h  The height of the box.
+     * @param dx The distance the box moved along x during the tick.
+     * @param dy The distance the box moved along y during the tick.
+     * @return The number of hits, whose pool slots are in ascending order at the start of queryResults
+     *         and whose times of impact are at the same positions in hitTimes.
+     */
+    private int sweepObstacles(int x, int y, int w, int h, int dx, int dy) {
+        int fall = obstacleSpeed * stepTicks;
+        int candidates = queryObstacles(Math.min(x, x + dx), Math.min(y, y + dy), w + Math.abs(dx),
+            h + Math.abs(dy) + fall);
+        if (hitTimes.length < candidates) {
+            hitTimes = new double[queryResults.length];
+        }
+        int hits = 0;
+        for (int k = 0; k < candidates; k++) {
+            int i = queryResults[k];
+            double time = Collision.sweep(x, y, w, h, dx, dy,
+                obstacles.x[i], obstacles.y[i] - fall, OBSTACLE_WIDTH, OBSTACLE_HEIGHT, 0, fall);
+            if (time <= 1) {
+                queryResults[hits] = i;
+                hitTimes[hits] = time;
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Advances the timer wheel to this tick, one tick at a time, and handles the timers that are due.
+     *
+     * The countdown loses a second every {@link #TICKS_PER_SECOND} ticks, a random power-up appears once
+     * {@link #powerUpDelayTicks} ticks into the level, the shield drops after
+     * {@link #SHIELD_DURATION_TICKS} ticks and the weapon can fire again once its cooldown has run out.
+     * Timers scheduled during a tick count their delay from the end of the previous tick, so a delay
+     * of n expires at the end of the n-th tick from the current one.
+     */
+    private void advanceTimers() {
+        for (int t = 0; t < stepTicks; t++) {
+            timers.advance();
+            for (int timer = timers.poll(); timer >= 0; timer = timers.poll()) {
+                int peer = timer / TIMER_KINDS - 1;
+                switch (timer % TIMER_KINDS) {
+                    case TIMER_COUNTDOWN:
+                        if (!isGameOver) {
+                            remainingTime--;
+                            if (remainingTime <= 0) {
+                                endGame();
+                            }
+                            timers.schedule(TICKS_PER_SECOND, TIMER_COUNTDOWN);
+                        }
+                        break;
+                    case TIMER_POWER_UP:
+                        if (!isGameOver) {
+                            if (random.nextBoolean()) {
+                                healthBuffActive = true;
+                            } else {
+                                timeBuffActive = true;
+                            }
+                        }
+                        break;
+                    case TIMER_SHIELD_EXPIRED:
+                        if (peer < 0) {
+                            isShieldActive = false;
+                        } else {
+                            peers.shieldActive[peer] = false;
+                        }
+                        break;
+                    case TIMER_FIRE_READY:
+                        if (peer < 0) {
+                            fireReady = true;
+                        } else {
+                            peers.fireReady[peer] = true;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a new obstacle and adds it to the obstacle pool.
+     */
+    private void createObstacle() {
+        int obstacleX = random.nextInt(width - OBSTACLE_WIDTH);
+        int spriteIndex = random.nextInt(OBSTACLE_SPRITE_COUNT);
+        obstacles.add(obstacleX, -OBSTACLE_HEIGHT, spriteIndex);
+    }
+
+    /**
+     * Ends the game once neither the world's own player nor any peer has health left.
+     */
+    private void checkPlayersLeft() {
+        if (health <= 0 && !peers.anyAlive()) {
+            endGame();
+        }
+    }
+
+    /**
+     * Ends the game by setting the game over flag and raising the game over event.
+     */
+    private void endGame() {
+        isGameOver = true;
+        events |= EVENT_GAME_OVER;
+    }
+
+    /**
+     * Publishes an event of this tick to the event ring, if there is one.
+     *
+     * @param type   The kind of event.
+     * @param player The player the event concerns.
+     * @param value  The value of the event.
+     */
+    private void publish(GameEvent type, int player, int value) {
+        if (eventRing != null) {
+            eventRing.publish(type, tick, player, value);
+        }
+    }
+}
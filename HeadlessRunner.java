@@ -0,0 +1,1408 @@
+/**
+ * Imports necessary for the HeadlessRunner class.
+ */
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs games back to back without a window, for soak tests and tuning runs.
+ *
+ * Each game is driven by random inputs until it ends. The runner reports how many games and ticks
+ * were simulated and the resulting tick rate.
+ * Usage: {@code java -Djava.awt.headless=true HeadlessRunner [games] [level]}.
+ * With {@code --check-alloc} it instead verifies that playing and drawing do not allocate once warmed up,
+ * and with {@code --check-broadphase} that grid queries and the batched box test find exactly what a
+ * brute-force {@link java.awt.Rectangle#intersects} loop finds. {@code --check-audio} plays bursts of sounds through
+ * the silent audio backend and checks that the mixer never exceeds its voice cap. {@code --check-replay}
+ * records random games and checks that replaying them reproduces each result, {@code --check-timers}
+ * checks the timer wheel against a plain list of deadlines, {@code --check-snapshot} checks that
+ * games restored from snapshots, snapshot files and the rollback ring play on exactly as the original,
+ * {@code --check-netcode} plays a lossy loopback match and checks that every client decodes
+ * exactly the states the server sent, {@code --check-sweep} checks swept collisions against fine
+ * sampling and that no hit is lost when the world advances many ticks per step,
+ * {@code --check-frames} checks that frames handed between threads always arrive whole and in order,
+ * {@code --check-quality} drives the quality governor with made-up costs and checks its steps, and
+ * {@code --check-events} checks that lossless subscribers of the event ring see every event in order
+ * and that lossy ones account for every event they drop, {@code --check-batch} checks that a batch
+ * of games gives the same totals however many threads play it, {@code --check-profiler} checks that
+ * the profiler records every tick and frame while enabled and nothing while disabled, and
+ * {@code --check-scaling} checks where and how frames are scaled into windows of many sizes.
+ */
+public class HeadlessRunner {
+    /**
+     * The entry point for the headless runner.
+     *
+     * @param args Optional number of games to play and level to select (1 - Easy, 2 - Hard).
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length > 0 && args[0].equals("--check-alloc")) {
+            System.exit(checkAllocation() ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--check-broadphase")) {
+            System.exit(checkBroadphase() ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--check-audio")) {
+            System.exit(checkAudio() ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--check-replay")) {
+            System.exit(checkReplay() ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--check-timers")) {
+            System.exit(checkTimers() ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--check-snapshot")) {
+            System.exit(checkSnapshot() ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--check-netcode")) {
+            System.exit(checkNetcode() ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--check-sweep")) {
+            System.exit(checkSweep() ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--check-frames")) {
+            System.exit(checkFrames() ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--check-quality")) {
+            System.exit(checkQuality() ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--check-events")) {
+            System.exit(checkEvents() ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--check-batch")) {
+            System.exit(checkBatch() ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--check-profiler")) {
+            System.exit(checkProfiler() ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--check-scaling")) {
+            System.exit(checkScaling() ? 0 : 1);
+        }
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int obstacleSpeed = args.length > 1 && args[1].equals("2") ? 6 : 3;
+
+        Random inputRandom = new Random();
+        long ticks = 0;
+        long totalScore = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            GameWorld world = new GameWorld();
+            world.selectLevel(obstacleSpeed);
+            while (!world.isGameOver) {
+                world.step(randomInputs(inputRandom));
+                ticks++;
+            }
+            totalScore += world.score;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("games=%d ticks=%d avgScore=%.1f time=%.2fs ticksPerSecond=%.0f%n",
+            games, ticks, (double) totalScore / games, seconds, ticks / seconds);
+    }
+
+    /**
+     * Produces the inputs of a player mashing keys at random.
+     *
+     * @param random The random number generator for the inputs.
+     * @return The input bits for one tick.
+     */
+    private static int randomInputs(Random random) {
+        int inputs = 0;
+        if (random.nextInt(4) == 0) {
+            inputs |= random.nextBoolean() ? GameWorld.INPUT_LEFT : GameWorld.INPUT_RIGHT;
+        }
+        if (random.nextInt(25) == 0) {
+            inputs |= GameWorld.INPUT_FIRE;
+        }
+        if (random.nextInt(500) == 0) {
+            inputs |= GameWorld.INPUT_SHIELD;
+        }
+        return inputs;
+    }
+
+    /**
+     * Checks that playing and drawing a busy game allocates nothing in steady state.
+     *
+     * A world with a steady stream of obstacles, stars, shots and hits is stepped through whole ticks
+     * and drawn into an offscreen image at every quality tier, first until every pool and cache has
+     * reached its final size, then for many more ticks and frames while the thread's allocated bytes are
+     * measured. Anything beyond a few bytes of measurement noise per tick or frame means the simulation
+     * or the renderer allocates on its hot path.
+     *
+     * @return True if the allocation stayed flat.
+     * @throws IOException If the sprites cannot be loaded.
+     */
+    static boolean checkAllocation() throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        GameWorld world = new GameWorld(42);
+        world.selectLevel(3);
+        world.health = 100_000_000;
+        world.remainingTime = 100_000_000;
+        world.obstacleSpawnChance = 2;
+        world.populate(200);
+        BufferedImage frame = new BufferedImage(GameWorld.WIDTH, GameWorld.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        GameRenderer renderer = new GameRenderer(world, SpriteAtlas.load(null));
+        playAndDraw(world, null, null, 100_000);
+        playAndDraw(world, renderer, g, 2_000);
+
+        int ticks = 200_000;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        playAndDraw(world, null, null, ticks);
+        long stepped = threads.getCurrentThreadAllocatedBytes() - before;
+        int frames = 5_000;
+        before = threads.getCurrentThreadAllocatedBytes();
+        playAndDraw(world, renderer, g, frames);
+        long drawn = threads.getCurrentThreadAllocatedBytes() - before;
+        g.dispose();
+
+        double perTick = (double) stepped / ticks;
+        double perFrame = (double) drawn / frames;
+        System.out.printf("alloc: %d bytes over %d ticks (%.4f bytes/tick), %d bytes over %d frames "
+            + "(%.4f bytes/frame), %d obstacles and %d stars live%n", stepped, ticks, perTick, drawn, frames,
+            perFrame, world.obstacles.count, world.stars.count());
+        return perTick < 0.01 && perFrame < 0.1;
+    }
+
+    /**
+     * Steps a world through ticks with a player who moves back and forth, fires and raises the shield,
+     * and draws each tick when given a renderer, cycling through the quality tiers.
+     *
+     * @param world    The world to step.
+     * @param renderer The renderer of the world, or null to only step it.
+     * @param g        The graphics to draw on, or null to only step the world.
+     * @param ticks    The number of ticks.
+     */
+    private static void playAndDraw(GameWorld world, GameRenderer renderer, Graphics2D g, int ticks) {
+        QualityTier[] tiers = QualityTier.values();
+        for (int t = 0; t < ticks; t++) {
+            int inputs = (world.tick / 100) % 2 == 0 ? GameWorld.INPUT_LEFT : GameWorld.INPUT_RIGHT;
+            if (world.tick % 10 == 0) {
+                inputs |= GameWorld.INPUT_FIRE;
+            }
+            if (world.tick % 1000 == 0) {
+                // The shield can only be raised once per game, so it is handed back for the next time.
+                world.shieldUsed = false;
+                inputs |= GameWorld.INPUT_SHIELD;
+            }
+            world.step(inputs);
+            if (renderer != null) {
+                renderer.setQuality(tiers[t / 100 % tiers.length]);
+                renderer.render(g);
+            }
+        }
+    }
+
+    /**
+     * Checks the broadphase grid and the batched box test against brute-force Rectangle tests.
+     *
+     * Obstacles and query boxes are placed partly outside the playfield as well, to cover the clamped
+     * border cells, and some query boxes cover most of the playfield, to cover the pass over the whole
+     * pool. The batched test is then run on random boxes of any size and position, including empty
+     * boxes and boxes whose edges overflow.
+     *
+     * @return True if every query returned exactly the brute-force hits in the same order.
+     */
+    static boolean checkBroadphase() {
+        Random random = new Random(7);
+        ObstaclePool pool = new ObstaclePool(16);
+        SpatialHash grid = new SpatialHash(0, -GameWorld.OBSTACLE_HEIGHT, GameWorld.WIDTH,
+            GameWorld.HEIGHT + GameWorld.OBSTACLE_HEIGHT, GameWorld.BROADPHASE_CELL_SIZE,
+            GameWorld.OBSTACLE_WIDTH, GameWorld.OBSTACLE_HEIGHT);
+        int[] found = new int[4096];
+        int[] expected = new int[4096];
+        for (int round = 0; round < 2000; round++) {
+            pool.clear();
+            int obstacles = random.nextInt(found.length);
+            for (int i = 0; i < obstacles; i++) {
+                pool.add(random.nextInt(700) - 100, random.nextInt(700) - 100, 0);
+            }
+            grid.build(pool);
+            for (int q = 0; q < 20; q++) {
+                int size = q % 5 == 0 ? 800 : 60;
+                Rectangle box = new Rectangle(random.nextInt(700) - 100, random.nextInt(700) - 100,
+                    random.nextInt(size), random.nextInt(size));
+                int n = 0;
+                for (int i = 0; i < pool.count; i++) {
+                    if (box.intersects(new Rectangle(pool.x[i], pool.y[i], GameWorld.OBSTACLE_WIDTH, GameWorld.OBSTACLE_HEIGHT))) {
+                        expected[n++] = i;
+                    }
+                }
+                int m = grid.query(pool, box.x, box.y, box.width, box.height, found);
+                if (m != n || !Arrays.equals(found, 0, m, expected, 0, n)) {
+                    System.out.println("broadphase mismatch for " + box + " with " + pool.count + " obstacles");
+                    return false;
+                }
+            }
+        }
+
+        int[] xs = new int[64];
+        int[] ys = new int[64];
+        boolean[] hits = new boolean[64];
+        boolean[] scalarHits = new boolean[64];
+        for (int round = 0; round < 200_000; round++) {
+            Rectangle box = randomBox(random);
+            int bw = randomExtent(random);
+            int bh = randomExtent(random);
+            int from = random.nextInt(xs.length);
+            int to = from + random.nextInt(xs.length - from + 1);
+            for (int k = from; k < to; k++) {
+                Rectangle other = randomBox(random);
+                xs[k] = other.x;
+                ys[k] = other.y;
+            }
+            Collision.intersectsAll(box.x, box.y, box.width, box.height, xs, ys, bw, bh, from, to, hits);
+            // Test the scalar loop too when the Vector API kernel is in use, and both only get non-empty boxes.
+            boolean scalar = Collision.KERNEL != Collision.SCALAR && !box.isEmpty() && bw > 0 && bh > 0;
+            if (scalar) {
+                Collision.SCALAR.intersectsAll(box.x, box.y, box.width, box.height, xs, ys, bw, bh, from, to,
+                    scalarHits);
+            }
+            for (int k = from; k < to; k++) {
+                boolean expectedHit = box.intersects(new Rectangle(xs[k], ys[k], bw, bh));
+                if (hits[k] != expectedHit || scalar && scalarHits[k] != expectedHit) {
+                    System.out.println("batched test mismatch for " + box + " against "
+                        + new Rectangle(xs[k], ys[k], bw, bh));
+                    return false;
+                }
+            }
+        }
+        System.out.println("broadphase: all queries and batched tests match, batched with the "
+            + (Collision.KERNEL == Collision.SCALAR ? "scalar loop" : "Vector API kernel and the scalar loop"));
+        return true;
+    }
+
+    /**
+     * Creates a random box, mostly near the playfield but now and then at the far ends of the int range.
+     *
+     * @param random The random number generator.
+     * @return The box.
+     */
+    private static Rectangle randomBox(Random random) {
+        if (random.nextInt(8) == 0) {
+            return new Rectangle(random.nextInt(), random.nextInt(), randomExtent(random), randomExtent(random));
+        }
+        return new Rectangle(random.nextInt(200) - 100, random.nextInt(200) - 100, randomExtent(random),
+            randomExtent(random));
+    }
+
+    /**
+     * Creates a random width or height, mostly small but now and then empty, negative or huge.
+     *
+     * @param random The random number generator.
+     * @return The extent.
+     */
+    private static int randomExtent(Random random) {
+        switch (random.nextInt(10)) {
+            case 0:
+                return -random.nextInt(5);
+            case 1:
+                return Integer.MAX_VALUE - random.nextInt(5);
+            default:
+                return random.nextInt(80);
+        }
+    }
+
+    /**
+     * Checks the mixer against the silent backend: a burst of requests far above the voice cap must
+     * all be started, by stealing voices, while no more than the cap ever play at once.
+     *
+     * @return True if the mixer respected its voice cap.
+     * @throws InterruptedException If interrupted while waiting for the playback thread.
+     */
+    static boolean checkAudio() throws InterruptedException {
+        AudioMixer mixer = new AudioMixer(new NullAudioBackend(), 3, 2);
+        for (int i = 0; i < 40; i++) {
+            mixer.play(i % 2 == 0 ? Sound.SHOOT : Sound.DEAD);
+            Thread.sleep(1);
+        }
+        Thread.sleep(50);
+        boolean ok = mixer.playedCount() == 40 && mixer.stolenCount() > 0 && mixer.activeVoices() <= 3;
+        System.out.println("audio: " + mixer.stats());
+        mixer.close();
+        return ok;
+    }
+
+    /**
+     * Records games played with random inputs on random seeds and replays each log, checking that the
+     * replay ends on the same tick with the same score, health and time.
+     *
+     * @return True if every replay matched its recording.
+     * @throws IOException If a log cannot be parsed.
+     */
+    static boolean checkReplay() throws IOException {
+        Random random = new Random(11);
+        long bytes = 0;
+        long ticks = 0;
+        for (int game = 0; game < 200; game++) {
+            long seed = random.nextLong();
+            int obstacleSpeed = game % 2 == 0 ? 3 : 6;
+            // Every fourth game is played in a world larger than the screen.
+            boolean large = game % 4 == 3;
+            int width = large ? 4 * GameWorld.WIDTH : GameWorld.WIDTH;
+            int height = large ? 2 * GameWorld.HEIGHT : GameWorld.HEIGHT;
+            int obstacles = large ? 200 : 0;
+            GameWorld world = new GameWorld(seed, width, height);
+            ReplayRecorder recorder = new ReplayRecorder(seed, obstacleSpeed, world.starDensity, width, height, obstacles);
+            world.selectLevel(obstacleSpeed);
+            if (obstacles > 0) {
+                world.populate(obstacles);
+            }
+            while (!world.isGameOver) {
+                int inputs = randomInputs(random);
+                recorder.record(world.tick + 1, inputs);
+                world.step(inputs);
+            }
+            byte[] log = recorder.finish(world);
+            bytes += log.length;
+            ticks += world.tick;
+
+            ReplayPlayer replay = ReplayPlayer.play(log);
+            if (!replay.matches) {
+                System.out.println("replay diverged for seed " + seed + ": recorded " + replay.expected
+                    + ", replayed " + ReplayPlayer.describe(replay.world));
+                return false;
+            }
+        }
+        System.out.printf("replay: 200 games match, %.2f log bytes per tick%n", (double) bytes / ticks);
+        return true;
+    }
+
+    /**
+     * Schedules and cancels thousands of timers with delays reaching every level of the timer wheel,
+     * and checks that each tick hands out exactly the timers a plain list of deadlines says are due.
+     *
+     * @return True if every timer expired on its tick.
+     */
+    static boolean checkTimers() {
+        Random random = new Random(13);
+        TimerWheel wheel = new TimerWheel(16);
+        int[] handles = new int[5_000];
+        long[] deadlines = new long[handles.length];
+        int live = 0;
+        long expired = 0;
+        int mostPending = 0;
+        long[] due = new long[handles.length];
+        for (int tick = 0; tick < 200_000; tick++) {
+            for (int n = random.nextInt(6); n > 0 && live < handles.length; n--) {
+                long delay = 1 + (random.nextBoolean() ? random.nextInt(200) : random.nextInt(1 << (6 * (1 + random.nextInt(3)))));
+                handles[live] = wheel.schedule(delay, live);
+                deadlines[live] = wheel.now + delay;
+                live++;
+            }
+            if (live > 0 && random.nextInt(4) == 0) {
+                int victim = random.nextInt(live);
+                wheel.cancel(handles[victim]);
+                live = removeTimer(handles, deadlines, victim, live, wheel);
+            }
+
+            wheel.advance();
+            int n = 0;
+            for (int event = wheel.poll(); event >= 0; event = wheel.poll()) {
+                due[n++] = deadlines[event];
+            }
+            for (int i = 0; i < n; i++) {
+                if (due[i] != wheel.now) {
+                    System.out.println("timer due on tick " + due[i] + " expired on tick " + wheel.now);
+                    return false;
+                }
+            }
+            int expected = 0;
+            for (int i = live - 1; i >= 0; i--) {
+                if (deadlines[i] == wheel.now) {
+                    expected++;
+                    live = removeTimer(handles, deadlines, i, live, wheel);
+                }
+            }
+            if (n != expected || wheel.pending() != live) {
+                System.out.println("tick " + wheel.now + ": " + n + " timers expired, " + expected + " expected");
+                return false;
+            }
+            expired += n;
+            mostPending = Math.max(mostPending, live);
+        }
+        System.out.println("timers: " + expired + " expired on time, up to " + mostPending + " pending at once");
+        return true;
+    }
+
+    /**
+     * Plays games with random inputs, snapshotting each at a random tick and rewinding it through a
+     * rollback ring every 100 ticks, by up to its full capacity and across several of its keyframes.
+     * The snapshot is restored into a fresh world, through a snapshot file as well for every other
+     * game, written directly or by a {@link SnapshotWriter} in place of a stale save, and played on
+     * with the same inputs; it must end in exactly the state the original game ended in, as must the
+     * game after every rewind once it has replayed the rewound ticks. A snapshot file with one damaged
+     * byte must be rejected, and a deletion queued after a save must leave no file behind.
+     *
+     * @return True if every restored game played on exactly as the original.
+     * @throws IOException If a snapshot file cannot be written or read.
+     */
+    static boolean checkSnapshot() throws IOException {
+        Random random = new Random(17);
+        Path file = Files.createTempFile("snapshot", ".sgs");
+        RollbackBuffer rollback = new RollbackBuffer(64, 16);
+        SnapshotWriter writer = new SnapshotWriter();
+        int[] inputs = new int[4096];
+        long rewinds = 0;
+        try {
+            for (int game = 0; game < 100; game++) {
+                long seed = random.nextLong();
+                boolean large = game % 4 == 3;
+                int width = large ? 4 * GameWorld.WIDTH : GameWorld.WIDTH;
+                int height = large ? 2 * GameWorld.HEIGHT : GameWorld.HEIGHT;
+                GameWorld world = new GameWorld(seed, width, height);
+                world.selectLevel(game % 2 == 0 ? 3 : 6);
+                if (large) {
+                    world.populate(200);
+                }
+                rollback.start(world);
+                int snapshotTick = 1 + random.nextInt(500);
+                byte[] snapshot = null;
+                while (!world.isGameOver) {
+                    int t = (int) world.tick;
+                    if (t == inputs.length) {
+                        inputs = Arrays.copyOf(inputs, t * 2);
+                    }
+                    inputs[t] = randomInputs(random);
+                    world.step(inputs[t]);
+                    rollback.record(world, inputs[t]);
+                    if (world.tick == snapshotTick) {
+                        snapshot = snapshotBytes(world);
+                    }
+                    if (world.tick % 100 == 0 && !world.isGameOver) {
+                        // Rewinding and replaying the same inputs must arrive at the same state again.
+                        byte[] before = snapshotBytes(world);
+                        int wanted = 1 + random.nextInt(80);
+                        int back = rollback.rewind(world, wanted);
+                        if (back != Math.min(wanted, 64)) {
+                            System.out.println("seed " + seed + ": rewinding " + wanted + " ticks from tick "
+                                + (world.tick + back) + " went back " + back);
+                            return false;
+                        }
+                        for (int k = 0; k < back; k++) {
+                            int replayed = inputs[(int) world.tick];
+                            world.step(replayed);
+                            rollback.record(world, replayed);
+                        }
+                        if (!Arrays.equals(before, snapshotBytes(world))) {
+                            System.out.println("seed " + seed + ": rewinding " + back + " ticks from tick "
+                                + world.tick + " changed the game");
+                            return false;
+                        }
+                        rewinds++;
+                    }
+                }
+                if (snapshot == null) {
+                    continue;
+                }
+
+                GameWorld restored = new GameWorld(~seed, width, height);
+                if (game % 2 == 0) {
+                    GameSnapshot.read(ByteBuffer.wrap(snapshot), restored);
+                } else {
+                    GameWorld copy = new GameWorld(~seed, width, height);
+                    GameSnapshot.read(ByteBuffer.wrap(snapshot), copy);
+                    if (game % 4 == 1) {
+                        GameSnapshot.save(copy, file);
+                    } else {
+                        // Queue a stale save first; the newer one must take its place.
+                        writer.save(new GameWorld(seed, width, height), file);
+                        writer.save(copy, file);
+                        writer.flush();
+                    }
+                    GameSnapshot.load(file, restored);
+                }
+                while (!restored.isGameOver) {
+                    restored.step(inputs[(int) restored.tick]);
+                }
+                if (!Arrays.equals(snapshotBytes(world), snapshotBytes(restored))) {
+                    System.out.println("seed " + seed + ": game restored on tick " + snapshotTick + " ended with "
+                        + ReplayPlayer.describe(restored) + ", the original with " + ReplayPlayer.describe(world));
+                    return false;
+                }
+            }
+
+            // Damage one byte of a snapshot file; loading it must fail without touching the world.
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(file, bytes);
+            GameWorld world = new GameWorld(1);
+            try {
+                GameSnapshot.load(file, world);
+                System.out.println("a damaged snapshot file was loaded");
+                return false;
+            } catch (IOException expected) {
+                // The checksum caught it.
+            }
+
+            // A deletion queued after a save must not be undone by it.
+            writer.save(world, file);
+            writer.delete(file);
+            writer.flush();
+            if (Files.exists(file) || writer.failed() != 0) {
+                System.out.println("snapshot: the writer left a deleted file behind or failed "
+                    + writer.failed() + " times");
+                return false;
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.println("snapshot: 100 games restored and " + rewinds + " rewinds replayed exactly");
+        return true;
+    }
+
+    /**
+     * Plays loopback matches of eight clients over links that drop a tenth of the datagrams. Every state
+     * a client decodes must equal the state the server captured for that frame, and every client must
+     * keep receiving states. The server's shared world, peers included, must also survive a snapshot.
+     *
+     * @return True if no client ever decoded a state that differs from the server's.
+     * @throws IOException If a socket cannot be opened.
+     */
+    static boolean checkNetcode() throws IOException {
+        LoopbackMatch match = LoopbackMatch.play(8, 3000, 60, 0.1);
+        if (match.mismatches != 0) {
+            System.out.println("netcode: " + match.mismatches + " states decoded differently from the server's");
+            return false;
+        }
+        if (match.statesReceived < 8 * 3000 * 3 / 4) {
+            System.out.println("netcode: only " + match.statesReceived + " states arrived");
+            return false;
+        }
+
+        // A world with peers must come back from a snapshot byte for byte.
+        GameWorld world = new GameWorld(5);
+        world.selectLevel(3);
+        Random random = new Random(5);
+        for (int p = 0; p < 4; p++) {
+            world.addPeer();
+        }
+        for (int t = 0; t < 400 && !world.isGameOver; t++) {
+            for (int p = 0; p < world.peers.count; p++) {
+                world.peers.inputs[p] = randomInputs(random);
+            }
+            world.step(randomInputs(random));
+        }
+        GameWorld restored = new GameWorld(6);
+        GameSnapshot.read(ByteBuffer.wrap(snapshotBytes(world)), restored);
+        if (!Arrays.equals(snapshotBytes(world), snapshotBytes(restored))) {
+            System.out.println("netcode: a world with peers changed through a snapshot");
+            return false;
+        }
+        System.out.printf("netcode: %d states decoded exactly, %.0f bytes per client per second%n",
+            match.statesReceived, match.bytesPerClientSecond);
+        return true;
+    }
+
+    /**
+     * Checks swept collisions.
+     *
+     * Random pairs of moving boxes are swept against each other and sampled at 257 points in time: the
+     * time of impact must come no later than the first sample at which the boxes overlap, and the boxes
+     * must overlap just after it. Then a projectile is fired at an obstacle straight above it, and an
+     * obstacle is dropped onto a standing player from heights of up to 300 px above it down to already
+     * touching it, at the speeds of both levels, with the world advancing 1 to 32 ticks per step; at
+     * 32 ticks the projectile moves several times its own length in a step, and the obstacle several
+     * times its height, far enough to pass the player and leave the world within one step, so any hit
+     * found only by where things end up, or after the obstacle was dropped, would be missed.
+     *
+     * @return True if every sweep and every hit was found.
+     */
+    static boolean checkSweep() {
+        Random random = new Random(21);
+        for (int round = 0; round < 200_000; round++) {
+            int[] a = {random.nextInt(200), random.nextInt(200), 1 + random.nextInt(50), 1 + random.nextInt(50),
+                random.nextInt(201) - 100, random.nextInt(201) - 100};
+            int[] b = {random.nextInt(200), random.nextInt(200), 1 + random.nextInt(50), 1 + random.nextInt(50),
+                random.nextInt(201) - 100, random.nextInt(201) - 100};
+            double time = Collision.sweep(a[0], a[1], a[2], a[3], a[4], a[5], b[0], b[1], b[2], b[3], b[4], b[5]);
+            for (int i = 0; i <= 256; i++) {
+                if (overlapAt(a, b, i / 256.0) && !(time <= i / 256.0)) {
+                    System.out.printf("sweep: %s and %s overlap at %.4f but the sweep found %f%n",
+                        Arrays.toString(a), Arrays.toString(b), i / 256.0, time);
+                    return false;
+                }
+            }
+            if (time <= 1 && !overlapAt(a, b, time + 1e-7)) {
+                System.out.printf("sweep: %s and %s do not overlap after %f%n", Arrays.toString(a), Arrays.toString(b), time);
+                return false;
+            }
+        }
+
+        for (int stepTicks = 1; stepTicks <= 32; stepTicks *= 2) {
+            GameWorld world = quietWorld(stepTicks);
+            world.obstacles.add(world.playerX + GameWorld.PLAYER_WIDTH / 2 - GameWorld.OBSTACLE_WIDTH / 2, 100, 0);
+            world.step(GameWorld.INPUT_FIRE);
+            for (int t = stepTicks; t < 200; t += stepTicks) {
+                world.step(0);
+            }
+            if (world.score != 10 || world.obstacles.count != 0) {
+                System.out.println("sweep: a projectile missed the obstacle above it at " + stepTicks + " ticks per step");
+                return false;
+            }
+
+            for (int speed : new int[] {3, 6}) {
+                for (int above = 300; above > -GameWorld.PLAYER_HEIGHT; above -= 5) {
+                    world = quietWorld(stepTicks);
+                    world.selectLevel(speed);
+                    int health = world.health;
+                    world.obstacles.add(world.playerX, world.playerY - above, 0);
+                    for (int t = 0; t < 400; t += stepTicks) {
+                        world.step(0);
+                    }
+                    if (world.health != health - 1) {
+                        System.out.println("sweep: the player lost " + (health - world.health) + " health to one "
+                            + "obstacle " + above + " px above it at speed " + speed + " and " + stepTicks
+                            + " ticks per step");
+                        return false;
+                    }
+                }
+            }
+        }
+        System.out.println("sweep: all sweeps match sampling, no hits lost at up to 32 ticks per step on either level");
+        return true;
+    }
+
+    /**
+     * Determines whether two moving boxes overlap at a point in time.
+     *
+     * @param a    The first box as x, y, width, height and the distance moved along x and y.
+     * @param b    The second box, likewise.
+     * @param time The point in time, from 0 to 1.
+     * @return True if the boxes overlap at that time.
+     */
+    private static boolean overlapAt(int[] a, int[] b, double time) {
+        double ax = a[0] + a[4] * time;
+        double ay = a[1] + a[5] * time;
+        double bx = b[0] + b[4] * time;
+        double by = b[1] + b[5] * time;
+        return ax < bx + b[2] && bx < ax + a[2] && ay < by + b[3] && by < ay + a[3];
+    }
+
+    /**
+     * Creates a world on the easy level with no obstacles, stars or new obstacles, for placing
+     * obstacles by hand.
+     *
+     * @param stepTicks The number of ticks each step advances the world by.
+     * @return The world.
+     */
+    private static GameWorld quietWorld(int stepTicks) {
+        GameWorld world = new GameWorld(1);
+        world.selectLevel(3);
+        world.stepTicks = stepTicks;
+        world.obstacleSpawnChance = 0;
+        world.starDensity = 0;
+        world.obstacles.clear();
+        return world;
+    }
+
+    /**
+     * Checks the frame handoff between a simulation thread and a rendering thread.
+     *
+     * One thread plays random games as fast as it can, publishing a frame after every tick and noting
+     * the checksum of each. The other takes the newest frame in a loop, as a renderer would, and
+     * presents it. Every frame taken must have the checksum it was published with, so no frame was
+     * seen half written, and frames must be taken in the order they were published. The earlier frame
+     * handed over with each must be the one published right before it, even when that was never taken.
+     *
+     * @return True if every frame arrived whole and in order.
+     * @throws InterruptedException If interrupted while waiting for the simulation thread.
+     */
+    static boolean checkFrames() throws InterruptedException {
+        FrameExchange frames = new FrameExchange();
+        Map<Long, Long> published = new ConcurrentHashMap<>();
+        int ticks = 200_000;
+        Thread simulation = new Thread(() -> {
+            GameWorld world = new GameWorld(9);
+            Random random = new Random(9);
+            long sequence = 0;
+            for (int t = 0; t < ticks; t++) {
+                if (!world.levelSelected || world.isGameOver) {
+                    world.reset();
+                    world.selectLevel(3 + 3 * random.nextInt(2));
+                }
+                world.step(randomInputs(random));
+                // Each frame is stamped with its sequence number in place of the time it was published.
+                FrameState frame = frames.back();
+                frame.capture(world, ++sequence);
+                published.put(sequence, frameChecksum(frame));
+                frames.publish();
+                if (t % 8 == 0) {
+                    // Let the renderer in between ticks too, not only when it preempts a capture.
+                    Thread.yield();
+                }
+            }
+        }, "simulation");
+        simulation.start();
+
+        GameWorld displayed = new GameWorld(10);
+        long last = 0;
+        long taken = 0;
+        boolean ok = true;
+        while (simulation.isAlive() || last < ticks) {
+            FrameState frame = frames.latest();
+            if (frame.publishedNanos == last) {
+                Thread.yield();
+                continue;
+            }
+            if (frame.publishedNanos < last) {
+                System.out.println("frames: frame " + frame.publishedNanos + " taken after frame " + last);
+                ok = false;
+                break;
+            }
+            Long checksum = published.get(frame.publishedNanos);
+            if (checksum == null || checksum != frameChecksum(frame)) {
+                System.out.println("frames: frame " + frame.publishedNanos + " was taken half written");
+                ok = false;
+                break;
+            }
+            FrameState previous = frames.previous();
+            Long previousChecksum = published.get(frame.publishedNanos - 1);
+            if (frame.publishedNanos > 1 && (previous.publishedNanos != frame.publishedNanos - 1
+                    || previousChecksum == null || previousChecksum != frameChecksum(previous))) {
+                System.out.println("frames: frame " + frame.publishedNanos + " came with frame "
+                    + previous.publishedNanos + " as the one before it");
+                ok = false;
+                break;
+            }
+            frame.present(previous, 0.5, displayed);
+            last = frame.publishedNanos;
+            taken++;
+        }
+        simulation.join();
+        if (ok) {
+            System.out.println("frames: " + taken + " of " + ticks + " frames taken whole and in order, each with the tick before it");
+        }
+        return ok;
+    }
+
+    /**
+     * Computes a checksum over everything a frame draws.
+     *
+     * @param frame The frame.
+     * @return The checksum.
+     */
+    private static long frameChecksum(FrameState frame) {
+        long sum = frame.tick * 31 + frame.flags;
+        sum = sum * 31 + frame.health * 7 + frame.score * 11 + frame.remainingTime * 13 + frame.playerX;
+        sum = sum * 31 + frame.cameraX * 17 + frame.cameraY;
+        for (int p = 0; p < frame.peerCount; p++) {
+            sum = sum * 31 + frame.peerX[p] * 7 + frame.peerHealth[p];
+        }
+        for (int k = 0; k < frame.obstacleCount; k++) {
+            sum = sum * 31 + frame.obstacleId[k] * 7 + frame.obstacleX[k] * 11 + frame.obstacleY[k] * 13
+                + frame.obstacleSprite[k];
+        }
+        for (int i = 0; i < frame.projectileCount; i++) {
+            sum = sum * 31 + frame.projectileX[i] * 7 + frame.projectileY[i];
+        }
+        for (int k = 0; k < frame.starCount; k++) {
+            sum = sum * 31 + frame.starX[k] * 7 + frame.starY[k] * 11 + frame.starColor[k];
+        }
+        return sum;
+    }
+
+    /**
+     * Checks the quality governor against made-up frame and tick costs at 60 frames per second.
+     *
+     * Frames far over budget must lower the quality step by step to the cheapest tier, and cheap frames
+     * must then restore it to the best. Costs that wander between the two thresholds, and costs that
+     * fall just inside them once quality has dropped a tier, must not change the tier at all. When the
+     * best tier is too slow but the next one leaves plenty of headroom, quality may be restored and
+     * lowered again, but less and less often. Slow ticks must not lower the quality while frames are cheap,
+     * since no tier makes a tick any cheaper. Finally, a tier that draws only some of the stars must keep
+     * drawing the same ones from one frame to the next.
+     *
+     * @return True if the governor stepped as expected.
+     */
+    static boolean checkQuality() {
+        long budget = 1_000_000_000L / 60;
+        QualityGovernor governor = new QualityGovernor(60, null);
+        feedFrames(governor, 200, budget * 2, 0);
+        if (governor.tier() != QualityTier.MINIMAL || governor.changes != 3) {
+            System.out.println("quality: overloaded frames left the governor at " + governor.status());
+            return false;
+        }
+        feedFrames(governor, 600, budget / 8, 0);
+        if (governor.tier() != QualityTier.HIGH || governor.changes != 6) {
+            System.out.println("quality: cheap frames left the governor at " + governor.status());
+            return false;
+        }
+
+        governor = new QualityGovernor(60, null);
+        Random random = new Random(23);
+        for (int f = 0; f < 20_000; f++) {
+            governor.frameCost((long) (budget * (0.55 + 0.3 * random.nextDouble())));
+        }
+        if (governor.changes != 0) {
+            System.out.println("quality: costs between the thresholds changed the tier: " + governor.status());
+            return false;
+        }
+
+        // Each tier costs a fixed fraction of the budget: 1.2, 0.84, 0.48 and 0.24 of it.
+        double[] settled = {1.2, 0.84, 0.48, 0.24};
+        governor = new QualityGovernor(60, null);
+        for (int f = 0; f < 20_000; f++) {
+            governor.frameCost((long) (budget * settled[governor.tier().ordinal()]));
+        }
+        if (governor.tier() != QualityTier.MEDIUM || governor.changes != 1) {
+            System.out.println("quality: a tier that fits the budget did not hold: " + governor.status());
+            return false;
+        }
+
+        // The best tier is over budget and the next far under it, which invites flipping between them.
+        double[] flipping = {1.2, 0.3, 0.2, 0.1};
+        governor = new QualityGovernor(60, null);
+        int frames = 40_000;
+        for (int f = 0; f < frames; f++) {
+            governor.frameCost((long) (budget * flipping[governor.tier().ordinal()]));
+        }
+        int allowed = 2 * (5 + frames / QualityGovernor.MAX_RESTORE_FRAMES);
+        if (governor.changes > allowed) {
+            System.out.println("quality: flipped " + governor.changes + " times in " + frames + " frames, more than "
+                + allowed);
+            return false;
+        }
+        int flips = governor.changes;
+
+        governor = new QualityGovernor(60, null);
+        feedFrames(governor, 1_000, budget / 8, GameWorld.TICK_MILLIS * 1_000_000L * 2);
+        if (governor.changes != 0) {
+            System.out.println("quality: slow ticks changed the tier: " + governor.status());
+            return false;
+        }
+        for (QualityTier tier : QualityTier.values()) {
+            if (tier.starStride > 1 && !checkStableStars(tier)) {
+                return false;
+            }
+        }
+        System.out.println("quality: steps down and up as expected, " + flips + " changes in " + frames
+            + " frames where tiers invite flipping");
+        return true;
+    }
+
+    /**
+     * Checks that a tier drawing only some of the stars keeps drawing the same ones from frame to frame.
+     *
+     * Consecutive frames of a world with stars and nothing else are captured, presented to a second world
+     * and drawn, as the game does. Every star alive in two consecutive frames must be drawn in both or in
+     * neither. A star is drawn if its top left pixel has its color; stars that another star overlaps are
+     * left out, since their pixels do not tell.
+     *
+     * @param tier The tier to draw at.
+     * @return True if no star was drawn in one frame and left out of the next.
+     */
+    private static boolean checkStableStars(QualityTier tier) {
+        GameWorld world = new GameWorld(11);
+        world.selectLevel(3);
+        world.obstacleSpawnChance = 0;
+        world.starDensity = 0.5f;
+        GameWorld displayed = new GameWorld(0, world.width, world.height);
+        GameRenderer renderer = new GameRenderer(displayed, null);
+        renderer.setQuality(tier);
+        BufferedImage image = new BufferedImage(GameWorld.WIDTH, GameWorld.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        FrameState frame = new FrameState();
+        Map<Long, Boolean> before = new HashMap<>();
+        Map<Long, Boolean> after = new HashMap<>();
+        int compared = 0;
+        int shown = 0;
+        int flipped = 0;
+        // Stop short of the power-up, which is drawn over the stars.
+        int frames = GameWorld.POWER_UP_DELAY_TICKS - 1;
+        for (int f = 0; f < frames; f++) {
+            world.step(0);
+            frame.capture(world, f);
+            frame.present(frame, 1, displayed);
+            renderer.drawGame(g);
+            after.clear();
+            for (int k = 0; k < frame.starCount; k++) {
+                if (!overlapped(frame, k)) {
+                    int color = displayed.stars.palette[frame.starColor[k] & 0xFF].getRGB();
+                    after.put(frame.firstStar + k, image.getRGB(frame.starX[k], frame.starY[k]) == color);
+                }
+            }
+            for (Map.Entry<Long, Boolean> star : after.entrySet()) {
+                Boolean drawn = before.get(star.getKey());
+                if (drawn != null) {
+                    compared++;
+                    shown += drawn ? 1 : 0;
+                    flipped += drawn.equals(star.getValue()) ? 0 : 1;
+                }
+            }
+            Map<Long, Boolean> swap = before;
+            before = after;
+            after = swap;
+        }
+        g.dispose();
+        if (flipped > 0 || shown == 0 || shown == compared) {
+            System.out.printf("quality: at %s, %d of %d stars seen in two frames in a row were drawn in only one, "
+                + "%d drawn in the first%n", tier, flipped, compared, shown);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether another star of a frame overlaps a star's square.
+     *
+     * @param frame The frame.
+     * @param k     The index of the star in the frame.
+     * @return True if another star covers part of its square.
+     */
+    private static boolean overlapped(FrameState frame, int k) {
+        for (int j = 0; j < frame.starCount; j++) {
+            if (j != k && Math.abs(frame.starX[j] - frame.starX[k]) < 4
+                    && Math.abs(frame.starY[j] - frame.starY[k]) < 4) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reports frames of the same cost to a governor, with a tick of the given cost before each.
+     *
+     * @param governor  The governor.
+     * @param frames    The number of frames.
+     * @param frameCost The cost of each frame, in nanoseconds.
+     * @param tickCost  The cost of each tick, in nanoseconds.
+     */
+    private static void feedFrames(QualityGovernor governor, int frames, long frameCost, long tickCost) {
+        for (int f = 0; f < frames; f++) {
+            governor.tickCost(tickCost);
+            governor.frameCost(frameCost);
+        }
+    }
+
+    /**
+     * Checks the event ring between one producer and several subscribers on their own threads.
+     *
+     * The producer publishes numbered events through a small ring to a lossless subscriber that keeps
+     * up, a lossless one that stops for a while every so often, so the producer has to wait for it, and
+     * a lossy one that stops more often, so it falls a whole ring behind. Both lossless subscribers must
+     * be handed every event exactly once and in order, the lossy one every event it did not drop, and
+     * once warmed up the producer must not allocate while publishing. Then random games publish their
+     * events through a small ring to a counting subscriber that is lossless but slow and to a lossy
+     * subscriber that is slower still, as the sounds are: the counts must add up to the scores the games
+     * ended with, and the lossy subscriber must account for every event it was not handed.
+     *
+     * @return True if every subscriber saw its events in order and the counts match the games.
+     */
+    static boolean checkEvents() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        EventRing ring = new EventRing(1024);
+        long[] fast = {0, 0, -1};
+        long[] slow = {0, 0, -1};
+        long[] lossy = {0, 0, -1};
+        ring.subscribe("fast", orderChecker(fast, 0), true);
+        ring.subscribe("slow", orderChecker(slow, 4096), true);
+        ring.subscribe("lossy", orderChecker(lossy, 1024), false);
+        ring.start();
+        int warmup = 50_000;
+        int windows = 5;
+        int events = 100_000;
+        publishNumbered(ring, 0, warmup);
+        // The allocation meter occasionally counts a few kilobytes the producer did not allocate itself,
+        // so the producer is measured over several windows and judged by the quietest one; allocating
+        // while publishing would show in every window.
+        long allocated = Long.MAX_VALUE;
+        for (int w = 0; w < windows; w++) {
+            int first = warmup + w * events;
+            long before = threads.getCurrentThreadAllocatedBytes();
+            publishNumbered(ring, first, first + events);
+            allocated = Math.min(allocated, threads.getCurrentThreadAllocatedBytes() - before);
+        }
+        ring.stop();
+        int total = warmup + windows * events;
+        if (fast[0] != total || fast[1] != 0 || slow[0] != total || slow[1] != 0 || lossy[1] != 0
+                || lossy[0] + ring.dropped() != total || ring.published() != total) {
+            System.out.printf("events: of %d events, fast subscriber saw %d with %d out of order, slow subscriber "
+                + "saw %d with %d out of order, lossy subscriber saw %d with %d out of order and dropped %d%n",
+                total, fast[0], fast[1], slow[0], slow[1], lossy[0], lossy[1], ring.dropped());
+            return false;
+        }
+        if (ring.stalls == 0 || ring.dropped() == 0) {
+            System.out.printf("events: the ring never filled up, %d waits and %d dropped%n", ring.stalls,
+                ring.dropped());
+            return false;
+        }
+        double perEvent = (double) allocated / events;
+        if (perEvent >= 0.01) {
+            System.out.printf("events: publishing allocated at least %d bytes over %d events%n", allocated, events);
+            return false;
+        }
+
+        EventRing gameRing = new EventRing(64);
+        EventStats stats = new EventStats();
+        long[] gameOverScores = new long[1];
+        long[] sounds = new long[1];
+        gameRing.subscribe("stats", (type, tick, player, value, endOfBatch) -> {
+            stats.onEvent(type, tick, player, value, endOfBatch);
+            if (stats.total() % 64 == 0) {
+                LockSupport.parkNanos(1_000_000L);
+            }
+        }, true);
+        gameRing.subscribe("scores", (type, tick, player, value, endOfBatch) -> {
+            if (type == GameEvent.GAME_OVER) {
+                gameOverScores[0] += value;
+            }
+        }, true);
+        gameRing.subscribe("sounds", (type, tick, player, value, endOfBatch) -> {
+            sounds[0]++;
+            LockSupport.parkNanos(1_000_000L);
+        }, false);
+        gameRing.start();
+        Random random = new Random(24);
+        int games = 50;
+        long totalScore = 0;
+        for (int g = 0; g < games; g++) {
+            GameWorld world = new GameWorld(g);
+            world.eventRing = gameRing;
+            world.selectLevel(3 + 3 * random.nextInt(2));
+            while (!world.isGameOver) {
+                world.step(randomInputs(random));
+            }
+            totalScore += world.score;
+        }
+        gameRing.stop();
+        if (stats.count(GameEvent.GAME_OVER) != games || gameOverScores[0] != totalScore
+                || stats.count(GameEvent.OBSTACLE_DESTROYED) * 10 != totalScore
+                || stats.total() != gameRing.published() || sounds[0] + gameRing.dropped() != gameRing.published()) {
+            System.out.printf("events: %d games scoring %d published %d events, counted %d with %d game overs "
+                + "scoring %d and %d kills; %d sounds played and %d dropped%n", games, totalScore,
+                gameRing.published(), stats.total(), stats.count(GameEvent.GAME_OVER), gameOverScores[0],
+                stats.count(GameEvent.OBSTACLE_DESTROYED), sounds[0], gameRing.dropped());
+            return false;
+        }
+        System.out.printf("events: %d events seen in order by both lossless subscribers after %d waits, %d "
+            + "dropped by the lossy one, %.4f bytes/event; %d games published %d events, all counted, %d sounds "
+            + "dropped%n", total, ring.stalls, ring.dropped(), perEvent, games, gameRing.published(),
+            gameRing.dropped());
+        return true;
+    }
+
+    /**
+     * Publishes numbered events, whose kind, tick and player all follow from the number, in bursts with
+     * a short pause after each, as ticks publish them.
+     *
+     * @param ring The ring to publish to.
+     * @param from The number of the first event.
+     * @param to   The number after the last event.
+     */
+    private static void publishNumbered(EventRing ring, int from, int to) {
+        GameEvent[] types = GameEvent.values();
+        for (int n = from; n < to; n++) {
+            ring.publish(types[n % types.length], 3L * n, n & 7, n);
+            if (n % 32 == 31) {
+                LockSupport.parkNanos(20_000L);
+            }
+        }
+    }
+
+    /**
+     * Creates a subscriber that checks it is handed the numbered events in order, each at most once.
+     *
+     * @param seen       Receives the number of events seen, the number seen out of order or twice, and
+     *                   the number of the last event seen, which must start at -1.
+     * @param pauseEvery Every how many events the subscriber stops for five milliseconds, or 0 for never.
+     * @return The subscriber's handler.
+     */
+    private static EventRing.Handler orderChecker(long[] seen, int pauseEvery) {
+        GameEvent[] types = GameEvent.values();
+        return (type, tick, player, value, endOfBatch) -> {
+            if (value <= seen[2] || type != types[value % types.length] || tick != 3L * value
+                    || player != (value & 7)) {
+                seen[1]++;
+            }
+            seen[0]++;
+            seen[2] = value;
+            if (pauseEvery > 0 && seen[0] % pauseEvery == 0) {
+                LockSupport.parkNanos(5_000_000L);
+            }
+        };
+    }
+
+    /**
+     * Checks that the batch runner's totals depend only on the seeds and the level parameters.
+     *
+     * Small batches with fixed seeds, for both input policies and with one and several ticks per step,
+     * are played on one thread, on several threads and again on one thread, and each time must give
+     * exactly the totals of the same games played one after the other and folded in by hand.
+     *
+     * @return True if every batch gave the same totals every time.
+     * @throws InterruptedException If interrupted while waiting for a batch.
+     */
+    static boolean checkBatch() throws InterruptedException {
+        int games = 300;
+        int batches = 0;
+        for (boolean dodging : new boolean[] {false, true}) {
+            for (int stepTicks : new int[] {1, 4}) {
+                BatchRunner runner = new BatchRunner(dodging ? 6 : 3, GameWorld.OBSTACLE_SPAWN_CHANCE,
+                    GameWorld.POWER_UP_DELAY_TICKS, dodging ? seed -> InputPolicy.dodging() : InputPolicy::random);
+                runner.stepTicks = stepTicks;
+                long baseSeed = 1_000 + stepTicks;
+                BatchStats expected = new BatchStats();
+                for (int i = 0; i < games; i++) {
+                    expected.add(runner.play(baseSeed + i));
+                }
+                for (int threads : new int[] {1, 4, 1}) {
+                    BatchStats stats = runner.run(baseSeed, games, threads);
+                    if (stats.games != games || stats.deaths != expected.deaths || stats.ticks != expected.ticks
+                            || stats.scoreSum != expected.scoreSum || stats.scoreSquares != expected.scoreSquares
+                            || !stats.toString().equals(expected.toString())) {
+                        System.out.printf("batch: %s policy at %d ticks per step on %d threads gave%n  %s%n"
+                            + "instead of%n  %s%n", dodging ? "dodging" : "random", stepTicks, threads, stats,
+                            expected);
+                        return false;
+                    }
+                    batches++;
+                }
+                if (expected.ticks == 0 || expected.scores.max() == 0 && expected.deaths == 0) {
+                    System.out.println("batch: the games did not play: " + expected);
+                    return false;
+                }
+            }
+        }
+        System.out.printf("batch: %d batches of %d games gave the same totals on 1 and 4 threads%n", batches, games);
+        return true;
+    }
+
+    /**
+     * Checks the profiler's bookkeeping over played ticks and simulated frames.
+     *
+     * Ticks played before the profiler is enabled must not allocate its histograms. Once it is enabled,
+     * every tick must be recorded once in each tick metric, with its phases adding up to no more than
+     * the whole tick, and every frame once in the render and HUD metrics, with the frame interval and
+     * timer drift starting from the second frame. While disabled again nothing may be recorded, and
+     * enabling it again must not count the pause as a frame interval. The report must list every metric.
+     *
+     * @return True if every metric counted what it was handed.
+     */
+    static boolean checkProfiler() {
+        GameWorld world = new GameWorld(5);
+        GameProfiler profiler = world.profiler;
+        Random random = new Random(11);
+        playTicks(world, random, 500);
+        if (profiler.histogram(GameProfiler.TICK) != null) {
+            System.out.println("profiler: the disabled profiler allocated its histograms");
+            return false;
+        }
+
+        profiler.setEnabled(true);
+        int ticks = playTicks(world, random, 5_000);
+        int frames = 100;
+        for (int f = 0; f < frames; f++) {
+            simulateFrame(profiler);
+        }
+        double phases = 0;
+        for (int metric : new int[] {GameProfiler.SPAWN, GameProfiler.MOVE, GameProfiler.COLLIDE}) {
+            phases += profiler.histogram(metric).mean();
+        }
+        double tick = profiler.histogram(GameProfiler.TICK).mean();
+        String counts = counts(profiler);
+        String expected = String.format("%d %d %d %d %d %d %d %d %d 0", ticks, ticks, ticks, ticks, ticks, frames,
+            frames, frames - 1, frames - 1);
+        if (!counts.equals(expected) || phases > tick
+                || profiler.histogram(GameProfiler.FRAME_INTERVAL).mean() < 1_000_000) {
+            System.out.printf("profiler: counted %s for %d ticks and %d frames, expected %s; phases took %.0f of "
+                + "%.0f ns per tick, frame interval %.0f ns%n", counts, ticks, frames, expected, phases, tick,
+                profiler.histogram(GameProfiler.FRAME_INTERVAL).mean());
+            return false;
+        }
+
+        profiler.setEnabled(false);
+        playTicks(world, random, 500);
+        simulateFrame(profiler);
+        if (!counts(profiler).equals(expected) || profiler.start() != 0) {
+            System.out.printf("profiler: counted %s while disabled, had %s%n", counts(profiler), expected);
+            return false;
+        }
+        profiler.setEnabled(true);
+        simulateFrame(profiler);
+        String resumed = String.format("%d %d %d %d %d %d %d %d %d 0", ticks, ticks, ticks, ticks, ticks, frames + 1,
+            frames + 1, frames - 1, frames - 1);
+        if (!counts(profiler).equals(resumed)) {
+            System.out.printf("profiler: counted %s after enabling it again, expected %s%n", counts(profiler),
+                resumed);
+            return false;
+        }
+        String report = profiler.report();
+        if (report.split("\n").length != GameProfiler.METRIC_COUNT + 1 || !report.contains(" " + ticks + " ")) {
+            System.out.println("profiler: report does not list every metric:\n" + report);
+            return false;
+        }
+        System.out.printf("profiler: %d ticks and %d frames recorded, phases took %.1f of %.1f us per tick, nothing "
+            + "while disabled%n", ticks, frames + 1, phases / 1e3, tick / 1e3);
+        return true;
+    }
+
+    /**
+     * Steps a world with random inputs, starting a new game whenever one ends.
+     *
+     * @param world  The world.
+     * @param random The random number generator for the inputs.
+     * @param ticks  The number of ticks to play.
+     * @return The number of ticks played.
+     */
+    private static int playTicks(GameWorld world, Random random, int ticks) {
+        for (int t = 0; t < ticks; t++) {
+            if (!world.levelSelected || world.isGameOver) {
+                world.reset();
+                world.selectLevel(3 + 3 * random.nextInt(2));
+            }
+            world.step(randomInputs(random));
+        }
+        return ticks;
+    }
+
+    /**
+     * Reports one frame to the profiler as the view does: the HUD, then the frame, then a timer tick, a
+     * millisecond after the previous frame.
+     *
+     * @param profiler The profiler.
+     */
+    private static void simulateFrame(GameProfiler profiler) {
+        LockSupport.parkNanos(1_000_000L);
+        long start = profiler.start();
+        profiler.record(GameProfiler.HUD, profiler.start());
+        profiler.endFrame(start);
+        profiler.timerFired();
+    }
+
+    /**
+     * Lists the number of values recorded in each of the profiler's metrics.
+     *
+     * @param profiler The profiler, enabled at least once.
+     * @return The counts, in metric order, separated by spaces.
+     */
+    private static String counts(GameProfiler profiler) {
+        StringBuilder counts = new StringBuilder();
+        for (int metric = 0; metric < GameProfiler.METRIC_COUNT; metric++) {
+            counts.append(metric == 0 ? "" : " ").append(profiler.histogram(metric).count());
+        }
+        return counts.toString();
+    }
+
+    /**
+     * Checks how the scaled frame places and scales frames into outputs of different sizes.
+     *
+     * One frame is drawn into outputs of several sizes and aspect ratios in turn, with each of the
+     * interpolations and coming back to earlier sizes, so its placement must follow every change of size
+     * and interpolation. Each time the frame must fill exactly the largest centered region of its aspect
+     * ratio, whole multiples of its size only for nearest-neighbour enlargement, with black everywhere
+     * else. Enlarged by a whole factor with nearest-neighbour scaling, every internal pixel must become a
+     * square of its own color.
+     *
+     * @return True if every frame was placed and scaled as expected.
+     */
+    static boolean checkScaling() {
+        int width = GameWorld.WIDTH;
+        int height = GameWorld.HEIGHT;
+        BufferedImage pattern = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pattern.setRGB(x, y, (x << 10 | y) + 1);
+            }
+        }
+        int[][] sizes = {{500, 500}, {1000, 1000}, {1920, 1080}, {1280, 720}, {250, 400}, {1500, 1501}, {1920, 1080}};
+        ScaledFrame frame = new ScaledFrame(width, height, "nearest");
+        int frames = 0;
+        for (String interpolation : new String[] {"nearest", "bilinear", "bicubic", "nearest"}) {
+            frame.setInterpolation(interpolation);
+            for (int[] size : sizes) {
+                double scale = Math.min((double) size[0] / width, (double) size[1] / height);
+                boolean whole = interpolation.equals("nearest") && scale >= 1;
+                if (whole) {
+                    scale = Math.floor(scale);
+                }
+                Rectangle target = new Rectangle(0, 0, (int) (width * scale), (int) (height * scale));
+                target.x = (size[0] - target.width) / 2;
+                target.y = (size[1] - target.height) / 2;
+                BufferedImage output = new BufferedImage(size[0], size[1], BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = output.createGraphics();
+                // Anything the frame does not paint over stays magenta.
+                g.setColor(java.awt.Color.MAGENTA);
+                g.fillRect(0, 0, size[0], size[1]);
+                frame.draw(g, size[0], size[1], null, content -> {
+                    if (whole) {
+                        content.drawImage(pattern, 0, 0, null);
+                    } else {
+                        content.setColor(java.awt.Color.GRAY);
+                        content.fillRect(0, 0, width, height);
+                    }
+                });
+                g.dispose();
+                int[] pixels = output.getRGB(0, 0, size[0], size[1], null, 0, size[0]);
+                int k = (int) scale;
+                for (int y = 0; y < size[1]; y++) {
+                    for (int x = 0; x < size[0]; x++) {
+                        int expected;
+                        if (!target.contains(x, y)) {
+                            expected = 0;
+                        } else if (whole) {
+                            expected = pattern.getRGB((x - target.x) / k, (y - target.y) / k) & 0xFFFFFF;
+                        } else {
+                            expected = java.awt.Color.GRAY.getRGB() & 0xFFFFFF;
+                        }
+                        int actual = pixels[y * size[0] + x] & 0xFFFFFF;
+                        if (actual != expected) {
+                            System.out.printf("scaling: %s frame in %dx%d, expected %s, has %06x at %d,%d instead "
+                                + "of %06x%n", interpolation, size[0], size[1], target, actual, x, y, expected);
+                            return false;
+                        }
+                    }
+                }
+                frames++;
+            }
+        }
+        System.out.printf("scaling: %d frames placed and scaled exactly into %d output sizes%n", frames,
+            sizes.length - 1);
+        return true;
+    }
+
+    /**
+     * Takes a snapshot of a world into a byte array.
+     *
+     * @param world The world.
+     * @return The snapshot.
+     */
+    private static byte[] snapshotBytes(GameWorld world) {
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshot.size(world));
+        GameSnapshot.write(world, buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Drops a timer from the check's list by moving the last timer into its place. The moved timer's
+     * event code is its index in the list, so it is rescheduled under its new index.
+     *
+     * @param handles   The wheel handles of the listed timers.
+     * @param deadlines The deadlines of the listed timers.
+     * @param i         The index of the timer to drop.
+     * @param live      The number of listed timers.
+     * @param wheel     The wheel the timers are scheduled on.
+     * @return The new number of listed timers.
+     */
+    private static int removeTimer(int[] handles, long[] deadlines, int i, int live, TimerWheel wheel) {
+        int last = live - 1;
+        if (i != last) {
+            wheel.cancel(handles[last]);
+            handles[i] = wheel.schedule(deadlines[last] - wheel.now, i);
+            deadlines[i] = deadlines[last];
+        }
+        return last;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Imports necessary for the HudLayer class.
+ */
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the score, health and time line at the top of the game screen.
+ *
+ * The texts of the line are only rebuilt and measured when one of the three values changes, so on
+ * most frames the HUD is three drawString calls with the same strings, which allocate nothing. The
+ * line is laid out like the labels it replaces, centered with the same gaps and in the same colors.
+ * The text is drawn straight to the frame: Java2D caches the rendered glyphs, and copying a cached
+ * translucent image of the line costs more than drawing it. To save more, the values can be checked
+ * only every few frames, so a fast-changing score rebuilds the texts less often.
+ */
+class HudLayer {
+    /**
+     * @param HEIGHT Height of the HUD line.
+     * @param GAP Horizontal gap between two fields, and the top margin of the line.
+     * @param FONT Font of the HUD, the default font of a Swing label.
+     * @param LABELS Text in front of each field's value.
+     * @param COLORS Color of each field.
+     * @param SCORE Index of the score field.
+     * @param HEALTH Index of the health field.
+     * @param TIME Index of the time field, which is followed by an "s".
+     * @param world The world whose values are shown.
+     * @param metrics Metrics of the font, for laying out the line.
+     * @param texts Text of each field, label and value.
+     * @param widths Width of each field's text.
+     * @param shown Values in the texts, one per field.
+     * @param textLeft X-coordinate of the start of the line.
+     * @param redraws Number of times the texts were rebuilt.
+     * @param checkInterval Number of frames between two checks of the values.
+     * @param sinceCheck Number of frames drawn since the values were last checked.
+     */
+    static final int HEIGHT = 25;
+    private static final int GAP = 5;
+    private static final Font FONT = new Font(Font.DIALOG, Font.PLAIN, 12);
+    private static final String[] LABELS = {"Score: ", "Health: ", "Time: "};
+    private static final Color[] COLORS = {Color.BLUE, Color.ORANGE, Color.WHITE};
+    private static final int SCORE = 0;
+    private static final int HEALTH = 1;
+    private static final int TIME = 2;
+
+    private final GameWorld world;
+    private final FontMetrics metrics;
+    private final String[] texts = new String[LABELS.length];
+    private final int[] widths = new int[LABELS.length];
+    private final int[] shown = {Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+    private int textLeft;
+    long redraws;
+    int checkInterval = 1;
+    private int sinceCheck;
+
+    /**
+     * Constructs the HUD for a world.
+     *
+     * @param world The world whose values are shown.
+     */
+    HudLayer(GameWorld world) {
+        this.world = world;
+        Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+        metrics = g.getFontMetrics(FONT);
+        g.dispose();
+    }
+
+    /**
+     * Draws the HUD line at the top of the screen, rebuilding its texts first if a value changed and
+     * the values are due to be checked.
+     *
+     * @param g The Graphics object to draw on.
+     */
+    void draw(Graphics g) {
+        if (++sinceCheck >= checkInterval) {
+            sinceCheck = 0;
+            if (world.score != shown[SCORE] || world.health != shown[HEALTH] || world.remainingTime != shown[TIME]) {
+                shown[SCORE] = world.score;
+                shown[HEALTH] = world.health;
+                shown[TIME] = world.remainingTime;
+                rebuild();
+            }
+        }
+        g.setFont(FONT);
+        int x = textLeft;
+        int baseline = GAP + metrics.getAscent();
+        for (int f = 0; f < LABELS.length; f++) {
+            g.setColor(COLORS[f]);
+            g.drawString(texts[f], x, baseline);
+            x += widths[f] + GAP;
+        }
+    }
+
+    /**
+     * Rebuilds and measures the texts from the shown values, and centers the line.
+     */
+    private void rebuild() {
+        redraws++;
+        int total = GAP * (LABELS.length - 1);
+        for (int f = 0; f < LABELS.length; f++) {
+            texts[f] = f == TIME ? LABELS[f] + shown[f] + "s" : LABELS[f] + shown[f];
+            widths[f] = metrics.stringWidth(texts[f]);
+            total += widths[f];
+        }
+        textLeft = Math.max(0, (GameWorld.WIDTH - total) / 2);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Decides what a headless player presses on each tick.
+ *
+ * A policy is asked once per tick, before the world is stepped, and may look at the world to decide.
+ * Policies can keep state between ticks, so every game gets its own instance.
+ */
+interface InputPolicy {
+    /**
+     * Returns the input bits for the next tick.
+     *
+     * @param world The world about to be stepped.
+     * @return The input bits, as accepted by {@link GameWorld#step(int)}.
+     */
+    int nextInputs(GameWorld world);
+
+    /**
+     * Creates a policy that mashes keys at random: it moves on a quarter of the ticks, fires on one in
+     * 25 and raises the shield on one in 500.
+     *
+     * @param seed The seed of the policy's own random number generator.
+     * @return The policy.
+     */
+    static InputPolicy random(long seed) {
+        GameRandom random = new GameRandom(seed);
+        return world -> {
+            int inputs = 0;
+            if (random.nextInt(4) == 0) {
+                inputs |= random.nextBoolean() ? GameWorld.INPUT_LEFT : GameWorld.INPUT_RIGHT;
+            }
+            if (random.nextInt(25) == 0) {
+                inputs |= GameWorld.INPUT_FIRE;
+            }
+            if (random.nextInt(500) == 0) {
+                inputs |= GameWorld.INPUT_SHIELD;
+            }
+            return inputs;
+        };
+    }
+
+    /**
+     * Creates a scripted policy that plays like a careful player: it steps away from the lowest obstacle
+     * falling towards it, holds fire whenever an obstacle is above it, and raises the shield when a hit can no
+     * longer be dodged.
+     *
+     * @return The policy.
+     */
+    static InputPolicy dodging() {
+        int lookAhead = 4 * GameWorld.OBSTACLE_HEIGHT;
+        return world -> {
+            ObstaclePool obstacles = world.obstacles;
+            int left = world.playerX - GameWorld.OBSTACLE_WIDTH;
+            int right = world.playerX + GameWorld.PLAYER_WIDTH;
+            int threat = -1;
+            boolean targetAbove = false;
+            for (int i = 0; i < obstacles.count; i++) {
+                if (obstacles.x[i] <= left || obstacles.x[i] >= right) {
+                    continue;
+                }
+                targetAbove = true;
+                int gap = world.playerY - (obstacles.y[i] + GameWorld.OBSTACLE_HEIGHT);
+                if (gap < lookAhead && (threat < 0 || obstacles.y[i] > obstacles.y[threat])) {
+                    threat = i;
+                }
+            }
+
+            int inputs = targetAbove ? GameWorld.INPUT_FIRE : 0;
+            if (threat < 0) {
+                return inputs;
+            }
+            int obstacleCenter = obstacles.x[threat] + GameWorld.OBSTACLE_WIDTH / 2;
+            int playerCenter = world.playerX + GameWorld.PLAYER_WIDTH / 2;
+            boolean goLeft = obstacleCenter > playerCenter ? world.playerX > 0
+                : world.playerX >= world.width - GameWorld.PLAYER_WIDTH;
+            inputs |= goLeft ? GameWorld.INPUT_LEFT : GameWorld.INPUT_RIGHT;
+            int gap = world.playerY - (obstacles.y[threat] + GameWorld.OBSTACLE_HEIGHT);
+            if (gap < 2 * world.obstacleSpeed) {
+                inputs |= GameWorld.INPUT_SHIELD;
+            }
+            return inputs;
+        };
+    }
+}
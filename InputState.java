@@ -0,0 +1,136 @@
+/**
+ * The keys the player holds, sampled once per simulation tick.
+ *
+ * Key events only record state: a press sets its input bit and a release clears it, and repeated
+ * presses from keyboard auto-repeat change nothing. Each tick takes a {@link #sample()} of the bits,
+ * so movement and fire depend only on how long a key is held, not on the desktop's repeat rate. A key
+ * that is pressed and released between two ticks still counts for one tick. Weapon switching only acts
+ * on the tick after each press rather than for as long as the key is held.
+ *
+ * With repeat moves on, movement instead follows the key events as the original game did, where each
+ * press of a direction key, auto-repeats included, moved the player one step. Every press is queued
+ * and each tick takes at most one queued step per direction, so the player moves once per key event;
+ * presses that arrive faster than the tick rate are carried over to the following ticks rather than
+ * lost. Fire, shield and weapon switching behave the same in both modes.
+ *
+ * The time from the first new press to the tick that samples it is recorded as the input latency of
+ * the {@link GameProfiler}.
+ */
+class InputState {
+    /**
+     * @param HELD_BITS Input bits that stay set for as long as their key is held.
+     * @param MOVE_BITS Input bits of the direction keys.
+     * @param profiler Profiler the input latency is recorded into.
+     * @param repeatMoves Flag indicating if movement follows key events rather than held keys.
+     * @param queuedLeft Presses of the left key not yet turned into a step, with repeat moves on.
+     * @param queuedRight Presses of the right key not yet turned into a step, with repeat moves on.
+     * @param held Input bits of the keys currently held.
+     * @param pressed Input bits pressed since the last sample.
+     * @param firstPressNanos System.nanoTime() of the first press since the last sample, or 0 if none.
+     */
+    private static final int HELD_BITS = GameWorld.INPUT_LEFT | GameWorld.INPUT_RIGHT | GameWorld.INPUT_FIRE
+        | GameWorld.INPUT_SHIELD;
+    private static final int MOVE_BITS = GameWorld.INPUT_LEFT | GameWorld.INPUT_RIGHT;
+
+    private final GameProfiler profiler;
+    private final boolean repeatMoves;
+    private int queuedLeft;
+    private int queuedRight;
+    private int held;
+    private int pressed;
+    private long firstPressNanos;
+
+    /**
+     * Constructs an input state with no keys held, where movement follows the held keys.
+     *
+     * @param profiler The profiler the input latency is recorded into.
+     */
+    InputState(GameProfiler profiler) {
+        this(profiler, false);
+    }
+
+    /**
+     * Constructs an input state with no keys held.
+     *
+     * @param profiler    The profiler the input latency is recorded into.
+     * @param repeatMoves True to move one step per key event, auto-repeats included, as the original
+     *                    game did, rather than for as long as a direction key is held.
+     */
+    InputState(GameProfiler profiler, boolean repeatMoves) {
+        this.profiler = profiler;
+        this.repeatMoves = repeatMoves;
+    }
+
+    /**
+     * Records that the key of an input bit went down. Does nothing if the key is already held, except
+     * queue another step for a direction key when moves follow key events.
+     *
+     * @param bit The input bit of the key, or 0 for a key that is not a game control.
+     */
+    synchronized void press(int bit) {
+        if (repeatMoves && (bit & MOVE_BITS) != 0) {
+            if (bit == GameWorld.INPUT_LEFT) {
+                queuedLeft++;
+            } else {
+                queuedRight++;
+            }
+            if (firstPressNanos == 0) {
+                firstPressNanos = profiler.start();
+            }
+            return;
+        }
+        if (bit == 0 || (held & bit) != 0) {
+            return;
+        }
+        held |= bit;
+        pressed |= bit;
+        if (firstPressNanos == 0) {
+            firstPressNanos = profiler.start();
+        }
+    }
+
+    /**
+     * Records that the key of an input bit went up.
+     *
+     * @param bit The input bit of the key.
+     */
+    synchronized void release(int bit) {
+        held &= ~bit;
+    }
+
+    /**
+     * Returns the input bits for the next tick: the held keys, plus every key pressed since the last
+     * sample even if it was released again. With repeat moves on, a direction bit is set instead when a
+     * step of that direction is queued, and that step is used up.
+     *
+     * @return The input bits, as accepted by {@link GameWorld#step(int)}.
+     */
+    synchronized int sample() {
+        int inputs = (held & HELD_BITS) | pressed;
+        pressed = 0;
+        if (queuedLeft > 0) {
+            inputs |= GameWorld.INPUT_LEFT;
+            queuedLeft--;
+        }
+        if (queuedRight > 0) {
+            inputs |= GameWorld.INPUT_RIGHT;
+            queuedRight--;
+        }
+        if (firstPressNanos != 0) {
+            profiler.record(GameProfiler.INPUT_LATENCY, firstPressNanos);
+            firstPressNanos = 0;
+        }
+        return inputs;
+    }
+
+    /**
+     * Forgets all held and pressed keys.
+     */
+    synchronized void clear() {
+        held = 0;
+        pressed = 0;
+        queuedLeft = 0;
+        queuedRight = 0;
+        firstPressNanos = 0;
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Imports necessary for the JavaSoundBackend class.
+ */
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+
+/**
+ * Plays voices through Java Sound, one preopened {@link Clip} per voice.
+ */
+class JavaSoundBackend implements AudioBackend {
+    /**
+     * Opens a clip holding the given PCM data.
+     *
+     * @param format The format of the data.
+     * @param data   The decoded PCM data.
+     * @return The opened voice.
+     * @throws Exception If no clip is available.
+     */
+    @Override
+    public Voice openVoice(AudioFormat format, byte[] data) throws Exception {
+        Clip clip = AudioSystem.getClip();
+        clip.open(format, data, 0, data.length);
+        return new Voice() {
+            @Override
+            public void restart() {
+                clip.stop();
+                clip.setFramePosition(0);
+                clip.start();
+            }
+
+            @Override
+            public void stop() {
+                clip.stop();
+            }
+
+            @Override
+            public boolean isActive() {
+                return clip.isActive();
+            }
+
+            @Override
+            public void close() {
+                clip.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Imports necessary for the LatencyHistogram class.
+ */
+import java.util.Arrays;
+
+/**
+ * A fixed-size histogram of non-negative values, such as durations in nanoseconds.
+ *
+ * Values are counted in log-linear buckets: every power of two is split into {@link #SUB_BUCKETS}
+ * equal parts, so any recorded value is known to within about 6%. Recording is a couple of bit
+ * operations and an array increment, and never allocates.
+ */
+class LatencyHistogram {
+    /**
+     * @param SUB_BUCKET_BITS Number of bits of precision kept below the highest set bit.
+     * @param SUB_BUCKETS Number of buckets each power of two is split into.
+     * @param counts Number of values recorded in each bucket.
+     * @param count Number of values recorded.
+     * @param sum Sum of the values recorded.
+     * @param max Largest value recorded.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value The value to record.
+     */
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return The number of values.
+     */
+    long count() {
+        return count;
+    }
+
+    /**
+     * Returns the mean of the values recorded.
+     *
+     * @return The mean, or 0 if nothing was recorded.
+     */
+    double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @return The maximum.
+     */
+    long max() {
+        return max;
+    }
+
+    /**
+     * Returns an upper bound of the value below which the given fraction of the values fall.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The highest value of the bucket holding the percentile, capped at the maximum.
+     */
+    long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int b = 0; b < counts.length; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return Math.min(max, bucketMax(b));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Adds the values of another histogram to this one.
+     *
+     * @param other The histogram to add.
+     */
+    void add(LatencyHistogram other) {
+        for (int b = 0; b < counts.length; b++) {
+            counts[b] += other.counts[b];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Clears the histogram.
+     */
+    void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * Returns the bucket a value falls in. Values below SUB_BUCKETS get a bucket each; above that,
+     * the bucket is given by the position of the highest set bit and the next SUB_BUCKET_BITS bits.
+     *
+     * @param value The non-negative value.
+     * @return The bucket index.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int mantissa = (int) (value >>> exponent) & (SUB_BUCKETS - 1);
+        return (exponent + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    /**
+     * Returns the highest value that falls in a bucket.
+     *
+     * @param bucket The bucket index.
+     * @return The highest value of the bucket.
+     */
+    private static long bucketMax(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << exponent) - 1;
+    }
+}
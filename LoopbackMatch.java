@@ -0,0 +1,167 @@
+/**
+ * Imports necessary for the LoopbackMatch class.
+ */
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * Plays a {@link GameServer} against bot clients on localhost, on simulated time, and reports what the
+ * server costs as the number of players grows.
+ *
+ * Server and clients run in one thread and talk over real UDP sockets through {@link SimulatedLink}s
+ * that add the given latency and loss in both directions. Each client presents what it receives into a
+ * world of its own and steers its player with the dodging {@link InputPolicy} from there, like a player
+ * would from the screen. Every state a client decodes is compared with the state the server sent, so
+ * the match also checks that the delta encoding never loses anything.
+ *
+ * Usage: {@code java -Djava.awt.headless=true LoopbackMatch [ticks] [latencyMillis] [lossRate] [players...]}.
+ * By default it plays 1500 ticks with 50 ms latency and 5% loss, at 1, 2, 4, 8, 16, 32 and 64 players.
+ * The exit code is 1 if a client ever decoded a state that differs from the server's.
+ */
+public class LoopbackMatch {
+    /**
+     * @param players Number of players in the match.
+     * @param ticks Number of ticks the server stepped.
+     * @param serverMicros Average time the server spent per tick, in microseconds.
+     * @param bytesPerClientSecond Average state bytes the server sent each client per second of game time.
+     * @param bytesPerState Average size of a state datagram.
+     * @param statesReceived Number of states the clients decoded.
+     * @param statesLost Number of states dropped by the simulated loss.
+     * @param mismatches Number of decoded states that differ from the server's.
+     */
+    final int players;
+    final long ticks;
+    final double serverMicros;
+    final double bytesPerClientSecond;
+    final double bytesPerState;
+    final long statesReceived;
+    final long statesLost;
+    final long mismatches;
+
+    /**
+     * Constructs the outcome of a match.
+     *
+     * @param players              The number of players.
+     * @param ticks                The number of ticks stepped.
+     * @param serverMicros         The average server time per tick.
+     * @param bytesPerClientSecond The average state bytes per client per second.
+     * @param bytesPerState        The average size of a state datagram.
+     * @param statesReceived       The number of states decoded.
+     * @param statesLost           The number of states dropped.
+     * @param mismatches           The number of decoded states that differ from the server's.
+     */
+    private LoopbackMatch(int players, long ticks, double serverMicros, double bytesPerClientSecond,
+            double bytesPerState, long statesReceived, long statesLost, long mismatches) {
+        this.players = players;
+        this.ticks = ticks;
+        this.serverMicros = serverMicros;
+        this.bytesPerClientSecond = bytesPerClientSecond;
+        this.bytesPerState = bytesPerState;
+        this.statesReceived = statesReceived;
+        this.statesLost = statesLost;
+        this.mismatches = mismatches;
+    }
+
+    /**
+     * The entry point for the loopback match.
+     *
+     * @param args Optional tick count, latency in milliseconds, loss rate and player counts.
+     * @throws IOException If a socket cannot be opened.
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 1500;
+        int latency = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        double loss = args.length > 2 ? Double.parseDouble(args[2]) : 0.05;
+        int[] counts = {1, 2, 4, 8, 16, 32, 64};
+        if (args.length > 3) {
+            counts = new int[args.length - 3];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = Integer.parseInt(args[i + 3]);
+            }
+        }
+
+        // Warm up the server and client code before measuring.
+        play(Math.max(8, counts[counts.length - 1]), 1500, latency, loss);
+        System.out.printf("%d ticks, %d ms latency, %.0f%% loss%n", ticks, latency, loss * 100);
+        System.out.printf("%8s %12s %16s %12s %12s %10s%n", "players", "server us/t", "bytes/client/s", "bytes/state",
+            "states", "mismatch");
+        boolean ok = true;
+        for (int players : counts) {
+            LoopbackMatch match = play(players, ticks, latency, loss);
+            System.out.printf("%8d %12.1f %16.0f %12.1f %12d %10d%n", players, match.serverMicros,
+                match.bytesPerClientSecond, match.bytesPerState, match.statesReceived, match.mismatches);
+            ok &= match.mismatches == 0;
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Plays one match.
+     *
+     * @param players       The number of bot clients.
+     * @param ticks         The number of ticks to step the server.
+     * @param latencyMillis The latency each way.
+     * @param lossRate      The chance of each datagram being dropped.
+     * @return The outcome.
+     * @throws IOException If a socket cannot be opened.
+     */
+    static LoopbackMatch play(int players, int ticks, int latencyMillis, double lossRate) throws IOException {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        SimulatedLink serverLink = new SimulatedLink(loopback, latencyMillis, lossRate, 1);
+        SimulatedLink[] links = new SimulatedLink[players];
+        GameClient[] clients = new GameClient[players];
+        GameWorld[] views = new GameWorld[players];
+        InputPolicy policy = InputPolicy.dodging();
+        long mismatches = 0;
+        try {
+            GameServer server = new GameServer(serverLink, 7, 3);
+            for (int i = 0; i < players; i++) {
+                links[i] = new SimulatedLink(loopback, latencyMillis, lossRate, 100 + i);
+                clients[i] = new GameClient(links[i], serverLink.localAddress());
+                views[i] = new GameWorld(i);
+            }
+            long[] checked = new long[players];
+            for (int t = 0; t < ticks; t++) {
+                long now = (long) t * GameWorld.TICK_MILLIS;
+                for (int i = 0; i < players; i++) {
+                    GameClient client = clients[i];
+                    client.poll(now);
+                    long frame = client.latestFrame();
+                    if (frame > checked[i]) {
+                        checked[i] = frame;
+                        NetState sent = server.stateAt(frame);
+                        if (sent != null && !sent.sameAs(client.latestState())) {
+                            mismatches++;
+                        }
+                    }
+                    client.present(views[i], 1);
+                    client.sendInputs(views[i].health > 0 ? policy.nextInputs(views[i]) : 0, now);
+                }
+                server.poll();
+                server.tick(now);
+            }
+
+            long received = 0;
+            long receivedBytes = 0;
+            for (GameClient client : clients) {
+                received += client.received;
+                receivedBytes += client.receivedBytes;
+            }
+            double seconds = (double) ticks / GameWorld.TICKS_PER_SECOND;
+            return new LoopbackMatch(players, server.ticks, server.tickNanos / 1e3 / server.ticks,
+                serverLink.sentBytes / seconds / players, (double) receivedBytes / Math.max(1, received), received,
+                serverLink.droppedDatagrams, mismatches);
+        } finally {
+            serverLink.close();
+            for (SimulatedLink link : links) {
+                if (link != null) {
+                    link.close();
+                }
+            }
+        }
+    }
+}
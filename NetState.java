@@ -0,0 +1,381 @@
+/**
+ * Imports necessary for the NetState class.
+ */
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The part of a shared world's state a {@link GameServer} sends to its clients, and its wire encoding.
+ *
+ * A state holds what a client needs to draw one tick: the countdown and power-up flags, every player,
+ * the obstacles ordered by their {@link ObstaclePool#id} and the projectiles. Stars are left out, as
+ * they do not affect play. Every value is an integer number of pixels, ticks or points, so nothing is
+ * lost by quantizing; the encoding makes the numbers small instead.
+ *
+ * A state is encoded against a baseline, the last state the client acknowledged, as zigzag varints:
+ * <ul>
+ * <li>A player is a mask of the fields that changed followed by the differences.</li>
+ * <li>An obstacle is the gap to the previous obstacle's number. An obstacle also in the baseline is
+ *     predicted to have fallen at the level's speed since, and is one byte unless it is somewhere else;
+ *     a new one adds its position and sprite. Obstacles in the baseline that are not listed are gone.</li>
+ * <li>Projectiles are few and short-lived and are sent in full.</li>
+ * </ul>
+ * Without a baseline, after joining or once the client's acknowledgement is too old, every field is
+ * encoded against zero.
+ */
+class NetState {
+    /**
+     * @param GAME_OVER Flag bit set when the game is over.
+     * @param HEALTH_BUFF Flag bit set while the health power-up is showing.
+     * @param TIME_BUFF Flag bit set while the time power-up is showing.
+     * @param PLAYER_X Bit of a changed x-coordinate in a player's mask.
+     * @param PLAYER_HEALTH Bit of a changed health in a player's mask.
+     * @param PLAYER_SCORE Bit of a changed score in a player's mask.
+     * @param PLAYER_STATUS Bit of a changed weapon or shield in a player's mask.
+     * @param SHIELD_ACTIVE Bit of a raised shield in a player's status, above the weapon ordinal.
+     * @param tick Tick of the world the state was captured on.
+     * @param remainingTime Remaining time in the game, in seconds.
+     * @param flags Flag bits of the game.
+     * @param obstacleSpeed Speed of obstacles, which obstacles are predicted to fall at.
+     * @param playerCount Number of players.
+     * @param playerX X-coordinates of the players, in slot order.
+     * @param playerHealth Health of the players.
+     * @param playerScore Scores of the players.
+     * @param playerStatus Weapon ordinal and shield bit of the players.
+     * @param obstacleCount Number of obstacles.
+     * @param obstacleId Numbers of the obstacles, ascending.
+     * @param obstacleX X-coordinates of the obstacles.
+     * @param obstacleY Y-coordinates of the obstacles.
+     * @param obstacleSprite Sprite indices of the obstacles.
+     * @param projectileCount Number of projectiles.
+     * @param projectileX X-coordinates of the projectiles.
+     * @param projectileY Y-coordinates of the projectiles.
+     * @param sortKeys Obstacle numbers and pool slots packed into longs, for sorting the obstacles.
+     */
+    static final int GAME_OVER = 1;
+    static final int HEALTH_BUFF = 1 << 1;
+    static final int TIME_BUFF = 1 << 2;
+    private static final int PLAYER_X = 1;
+    private static final int PLAYER_HEALTH = 1 << 1;
+    private static final int PLAYER_SCORE = 1 << 2;
+    private static final int PLAYER_STATUS = 1 << 3;
+    static final int SHIELD_ACTIVE = 1 << 2;
+
+    long tick;
+    int remainingTime;
+    int flags;
+    int obstacleSpeed;
+    int playerCount;
+    int[] playerX = new int[4];
+    int[] playerHealth = new int[4];
+    int[] playerScore = new int[4];
+    int[] playerStatus = new int[4];
+    int obstacleCount;
+    int[] obstacleId = new int[64];
+    int[] obstacleX = new int[64];
+    int[] obstacleY = new int[64];
+    int[] obstacleSprite = new int[64];
+    int projectileCount;
+    int[] projectileX = new int[64];
+    int[] projectileY = new int[64];
+    private long[] sortKeys = new long[64];
+
+    /**
+     * Captures the state of a world whose players are all peers.
+     *
+     * @param world The world.
+     */
+    void capture(GameWorld world) {
+        tick = world.tick;
+        remainingTime = world.remainingTime;
+        flags = (world.isGameOver ? GAME_OVER : 0) | (world.healthBuffActive ? HEALTH_BUFF : 0)
+            | (world.timeBuffActive ? TIME_BUFF : 0);
+        obstacleSpeed = world.obstacleSpeed;
+
+        PlayerPool peers = world.peers;
+        setPlayerCount(peers.count);
+        for (int i = 0; i < peers.count; i++) {
+            playerX[i] = peers.x[i];
+            playerHealth[i] = peers.health[i];
+            playerScore[i] = peers.score[i];
+            playerStatus[i] = peers.weapon[i].ordinal() | (peers.shieldActive[i] ? SHIELD_ACTIVE : 0);
+        }
+
+        ObstaclePool obstacles = world.obstacles;
+        int n = obstacles.count;
+        setObstacleCount(n);
+        if (sortKeys.length < n) {
+            sortKeys = new long[obstacleId.length];
+        }
+        for (int i = 0; i < n; i++) {
+            sortKeys[i] = (long) obstacles.id[i] << 32 | i;
+        }
+        Arrays.sort(sortKeys, 0, n);
+        for (int k = 0; k < n; k++) {
+            int i = (int) sortKeys[k];
+            obstacleId[k] = obstacles.id[i];
+            obstacleX[k] = obstacles.x[i];
+            obstacleY[k] = obstacles.y[i];
+            obstacleSprite[k] = obstacles.spriteIndex[i];
+        }
+
+        ProjectilePool projectiles = world.projectiles;
+        setProjectileCount(projectiles.count);
+        System.arraycopy(projectiles.x, 0, projectileX, 0, projectiles.count);
+        System.arraycopy(projectiles.y, 0, projectileY, 0, projectiles.count);
+    }
+
+    /**
+     * Encodes this state against a baseline.
+     *
+     * @param base The baseline the receiver holds, or null to encode the whole state.
+     * @param out  The buffer to write to.
+     */
+    void encode(NetState base, ByteBuffer out) {
+        writeVarint(out, tick - (base == null ? 0 : base.tick));
+        writeVarint(out, zigzag(remainingTime - (base == null ? 0 : base.remainingTime)));
+        out.put((byte) flags);
+        writeVarint(out, obstacleSpeed);
+
+        writeVarint(out, playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            boolean known = base != null && i < base.playerCount;
+            int dx = playerX[i] - (known ? base.playerX[i] : 0);
+            int dHealth = playerHealth[i] - (known ? base.playerHealth[i] : 0);
+            int dScore = playerScore[i] - (known ? base.playerScore[i] : 0);
+            int status = playerStatus[i];
+            int mask = (dx != 0 ? PLAYER_X : 0) | (dHealth != 0 ? PLAYER_HEALTH : 0) | (dScore != 0 ? PLAYER_SCORE : 0)
+                | (!known || status != base.playerStatus[i] ? PLAYER_STATUS : 0);
+            out.put((byte) mask);
+            if (dx != 0) {
+                writeVarint(out, zigzag(dx));
+            }
+            if (dHealth != 0) {
+                writeVarint(out, zigzag(dHealth));
+            }
+            if (dScore != 0) {
+                writeVarint(out, zigzag(dScore));
+            }
+            if ((mask & PLAYER_STATUS) != 0) {
+                out.put((byte) status);
+            }
+        }
+
+        writeVarint(out, obstacleCount);
+        long fall = base == null ? 0 : (tick - base.tick) * obstacleSpeed;
+        int b = 0;
+        int previous = -1;
+        for (int k = 0; k < obstacleCount; k++) {
+            int id = obstacleId[k];
+            while (base != null && b < base.obstacleCount && base.obstacleId[b] < id) {
+                b++;
+            }
+            long gap = (long) id - previous;
+            previous = id;
+            if (base != null && b < base.obstacleCount && base.obstacleId[b] == id) {
+                int dx = obstacleX[k] - base.obstacleX[b];
+                int dy = (int) (obstacleY[k] - base.obstacleY[b] - fall);
+                if (dx == 0 && dy == 0) {
+                    writeVarint(out, gap << 1);
+                } else {
+                    writeVarint(out, gap << 1 | 1);
+                    writeVarint(out, zigzag(dx));
+                    writeVarint(out, zigzag(dy));
+                }
+            } else {
+                writeVarint(out, gap << 1);
+                writeVarint(out, zigzag(obstacleX[k]));
+                writeVarint(out, zigzag(obstacleY[k]));
+                out.put((byte) obstacleSprite[k]);
+            }
+        }
+
+        writeVarint(out, projectileCount);
+        for (int i = 0; i < projectileCount; i++) {
+            writeVarint(out, zigzag(projectileX[i]));
+            writeVarint(out, zigzag(projectileY[i]));
+        }
+    }
+
+    /**
+     * Decodes a state encoded against a baseline into this state.
+     *
+     * @param in   The buffer to read from.
+     * @param base The baseline the state was encoded against, or null if it was encoded whole; must not
+     *             be this state.
+     */
+    void decode(ByteBuffer in, NetState base) {
+        tick = readVarint(in) + (base == null ? 0 : base.tick);
+        remainingTime = unzigzag(readVarint(in)) + (base == null ? 0 : base.remainingTime);
+        flags = in.get();
+        obstacleSpeed = (int) readVarint(in);
+
+        setPlayerCount((int) readVarint(in));
+        for (int i = 0; i < playerCount; i++) {
+            boolean known = base != null && i < base.playerCount;
+            int mask = in.get();
+            playerX[i] = (known ? base.playerX[i] : 0) + ((mask & PLAYER_X) != 0 ? unzigzag(readVarint(in)) : 0);
+            playerHealth[i] = (known ? base.playerHealth[i] : 0)
+                + ((mask & PLAYER_HEALTH) != 0 ? unzigzag(readVarint(in)) : 0);
+            playerScore[i] = (known ? base.playerScore[i] : 0)
+                + ((mask & PLAYER_SCORE) != 0 ? unzigzag(readVarint(in)) : 0);
+            playerStatus[i] = (mask & PLAYER_STATUS) != 0 ? in.get() : base.playerStatus[i];
+        }
+
+        setObstacleCount((int) readVarint(in));
+        long fall = base == null ? 0 : (tick - base.tick) * obstacleSpeed;
+        int b = 0;
+        int previous = -1;
+        for (int k = 0; k < obstacleCount; k++) {
+            long header = readVarint(in);
+            int id = (int) (previous + (header >>> 1));
+            previous = id;
+            obstacleId[k] = id;
+            while (base != null && b < base.obstacleCount && base.obstacleId[b] < id) {
+                b++;
+            }
+            if (base != null && b < base.obstacleCount && base.obstacleId[b] == id) {
+                obstacleX[k] = base.obstacleX[b];
+                obstacleY[k] = (int) (base.obstacleY[b] + fall);
+                obstacleSprite[k] = base.obstacleSprite[b];
+                if ((header & 1) != 0) {
+                    obstacleX[k] += unzigzag(readVarint(in));
+                    obstacleY[k] += unzigzag(readVarint(in));
+                }
+            } else {
+                obstacleX[k] = unzigzag(readVarint(in));
+                obstacleY[k] = unzigzag(readVarint(in));
+                obstacleSprite[k] = in.get();
+            }
+        }
+
+        setProjectileCount((int) readVarint(in));
+        for (int i = 0; i < projectileCount; i++) {
+            projectileX[i] = unzigzag(readVarint(in));
+            projectileY[i] = unzigzag(readVarint(in));
+        }
+    }
+
+    /**
+     * Determines whether this state holds the same values as another.
+     *
+     * @param other The other state.
+     * @return True if every value is the same.
+     */
+    boolean sameAs(NetState other) {
+        return tick == other.tick && remainingTime == other.remainingTime && flags == other.flags
+            && obstacleSpeed == other.obstacleSpeed && playerCount == other.playerCount
+            && Arrays.equals(playerX, 0, playerCount, other.playerX, 0, playerCount)
+            && Arrays.equals(playerHealth, 0, playerCount, other.playerHealth, 0, playerCount)
+            && Arrays.equals(playerScore, 0, playerCount, other.playerScore, 0, playerCount)
+            && Arrays.equals(playerStatus, 0, playerCount, other.playerStatus, 0, playerCount)
+            && obstacleCount == other.obstacleCount
+            && Arrays.equals(obstacleId, 0, obstacleCount, other.obstacleId, 0, obstacleCount)
+            && Arrays.equals(obstacleX, 0, obstacleCount, other.obstacleX, 0, obstacleCount)
+            && Arrays.equals(obstacleY, 0, obstacleCount, other.obstacleY, 0, obstacleCount)
+            && Arrays.equals(obstacleSprite, 0, obstacleCount, other.obstacleSprite, 0, obstacleCount)
+            && projectileCount == other.projectileCount
+            && Arrays.equals(projectileX, 0, projectileCount, other.projectileX, 0, projectileCount)
+            && Arrays.equals(projectileY, 0, projectileCount, other.projectileY, 0, projectileCount);
+    }
+
+    /**
+     * Sets the number of players, growing the player arrays if needed.
+     *
+     * @param n The number of players.
+     */
+    private void setPlayerCount(int n) {
+        if (playerX.length < n) {
+            int capacity = Math.max(n, playerX.length * 2);
+            playerX = Arrays.copyOf(playerX, capacity);
+            playerHealth = Arrays.copyOf(playerHealth, capacity);
+            playerScore = Arrays.copyOf(playerScore, capacity);
+            playerStatus = Arrays.copyOf(playerStatus, capacity);
+        }
+        playerCount = n;
+    }
+
+    /**
+     * Sets the number of obstacles, growing the obstacle arrays if needed.
+     *
+     * @param n The number of obstacles.
+     */
+    private void setObstacleCount(int n) {
+        if (obstacleId.length < n) {
+            int capacity = Math.max(n, obstacleId.length * 2);
+            obstacleId = Arrays.copyOf(obstacleId, capacity);
+            obstacleX = Arrays.copyOf(obstacleX, capacity);
+            obstacleY = Arrays.copyOf(obstacleY, capacity);
+            obstacleSprite = Arrays.copyOf(obstacleSprite, capacity);
+        }
+        obstacleCount = n;
+    }
+
+    /**
+     * Sets the number of projectiles, growing the projectile arrays if needed.
+     *
+     * @param n The number of projectiles.
+     */
+    private void setProjectileCount(int n) {
+        if (projectileX.length < n) {
+            int capacity = Math.max(n, projectileX.length * 2);
+            projectileX = Arrays.copyOf(projectileX, capacity);
+            projectileY = Arrays.copyOf(projectileY, capacity);
+        }
+        projectileCount = n;
+    }
+
+    /**
+     * Writes an unsigned value in 7-bit groups, lowest group first, with the high bit set on all but the
+     * last byte.
+     *
+     * @param out   The buffer to write to.
+     * @param value The value.
+     */
+    static void writeVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Reads a value written by {@link #writeVarint(ByteBuffer, long)}.
+     *
+     * @param in The buffer to read from.
+     * @return The value.
+     */
+    static long readVarint(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Maps a signed value to an unsigned one with small magnitudes staying small.
+     *
+     * @param value The signed value.
+     * @return The zigzag-encoded value.
+     */
+    private static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Reverses {@link #zigzag(int)}.
+     *
+     * @param value The zigzag-encoded value.
+     * @return The signed value.
+     */
+    private static int unzigzag(long value) {
+        int v = (int) value;
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Imports necessary for the NullAudioBackend class.
+ */
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * A backend that makes no sound, for headless runs and machines without an audio device.
+ *
+ * Its voices still report themselves active for as long as the real sound would have played, so the
+ * mixer's voice limit and voice stealing behave the same as with a real device.
+ */
+class NullAudioBackend implements AudioBackend {
+    /**
+     * Opens a silent voice that lasts as long as the given PCM data.
+     *
+     * @param format The format of the data.
+     * @param data   The decoded PCM data.
+     * @return The silent voice.
+     */
+    @Override
+    public Voice openVoice(AudioFormat format, byte[] data) {
+        double bytesPerSecond = format.getFrameSize() * (double) format.getFrameRate();
+        long durationNanos = bytesPerSecond > 0 ? (long) (data.length / bytesPerSecond * 1e9) : 0;
+        return new Voice() {
+            private long endNanos;
+            private boolean playing;
+
+            @Override
+            public void restart() {
+                playing = true;
+                endNanos = System.nanoTime() + durationNanos;
+            }
+
+            @Override
+            public void stop() {
+                playing = false;
+            }
+
+            @Override
+            public boolean isActive() {
+                return playing && System.nanoTime() < endNanos;
+            }
+
+            @Override
+            public void close() {
+                playing = false;
+            }
+        };
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Imports necessary for the ObstaclePool class.
+ */
+import java.util.Arrays;
+
+/**
+ * Stores the live obstacles as parallel primitive arrays.
+ *
+ * Obstacle i is described by {@code x[i]}, {@code y[i]} and {@code spriteIndex[i]} for every i below
+ * {@link #count}. {@code id[i]} numbers the obstacles in the order they were added, so an obstacle can
+ * be told apart from the others wherever it is in the pool. {@code moved[i]} is the tick its position
+ * was last brought up to date on, which lets obstacles far from the player be moved less often and
+ * catch up later. Removing an obstacle moves the last one into its slot, so removal is O(1) and the
+ * order of obstacles is not preserved. The arrays only grow, which means a game in steady state adds,
+ * moves and removes obstacles without allocating.
+ */
+class ObstaclePool {
+    /**
+     * @param x X-coordinates of the obstacles.
+     * @param y Y-coordinates of the obstacles.
+     * @param spriteIndex Sprite indices of the obstacles.
+     * @param moved Tick each obstacle's position is current to.
+     * @param id Number of each obstacle, unique among the obstacles added since the pool was cleared.
+     * @param count Number of live obstacles.
+     * @param clock Tick newly added obstacles are current to.
+     * @param nextId Number the next obstacle added gets.
+     */
+    int[] x;
+    int[] y;
+    int[] spriteIndex;
+    int[] moved;
+    int[] id;
+    int count;
+    int clock;
+    int nextId;
+
+    /**
+     * Constructs an empty pool.
+     *
+     * @param capacity The number of obstacles the pool can hold before it has to grow.
+     */
+    ObstaclePool(int capacity) {
+        x = new int[capacity];
+        y = new int[capacity];
+        spriteIndex = new int[capacity];
+        moved = new int[capacity];
+        id = new int[capacity];
+    }
+
+    /**
+     * Adds an obstacle to the end of the pool.
+     *
+     * @param obstacleX   The x-coordinate of the obstacle.
+     * @param obstacleY   The y-coordinate of the obstacle.
+     * @param sprite      The index of the obstacle sprite.
+     * @return The slot the obstacle was stored in.
+     */
+    int add(int obstacleX, int obstacleY, int sprite) {
+        if (count == x.length) {
+            grow();
+        }
+        x[count] = obstacleX;
+        y[count] = obstacleY;
+        spriteIndex[count] = sprite;
+        moved[count] = clock;
+        id[count] = nextId++;
+        return count++;
+    }
+
+    /**
+     * Removes the obstacle in the given slot by moving the last obstacle into it.
+     *
+     * @param i The slot of the obstacle to remove.
+     */
+    void remove(int i) {
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        spriteIndex[i] = spriteIndex[last];
+        moved[i] = moved[last];
+        id[i] = id[last];
+    }
+
+    /**
+     * Removes all obstacles, keeping the allocated arrays.
+     */
+    void clear() {
+        count = 0;
+        nextId = 0;
+    }
+
+    /**
+     * Grows the pool if needed so it holds at least the given number of obstacles without growing again.
+     *
+     * @param capacity The number of obstacles.
+     */
+    void reserve(int capacity) {
+        while (x.length < capacity) {
+            grow();
+        }
+    }
+
+    /**
+     * Doubles the capacity of the pool.
+     */
+    private void grow() {
+        int capacity = Math.max(16, x.length * 2);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        spriteIndex = Arrays.copyOf(spriteIndex, capacity);
+        moved = Arrays.copyOf(moved, capacity);
+        id = Arrays.copyOf(id, capacity);
+    }
+}
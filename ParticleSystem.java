@@ -0,0 +1,121 @@
+/**
+ * Imports necessary for the ParticleSystem class.
+ */
+import java.awt.Color;
+import java.util.Random;
+
+/**
+ * Short-lived particles, such as the background stars, kept in a ring buffer of primitive arrays.
+ *
+ * Every particle lives for the same number of ticks, so particles expire in the order they were
+ * spawned: aging only has to advance the head of the ring past the expired ones, without touching
+ * the rest. Colors are indices into a palette built once up front. The ring has a fixed capacity:
+ * a particle spawned while it is full takes the place of the oldest one, which is counted, so no
+ * spawn rate can make it allocate.
+ */
+class ParticleSystem {
+    /**
+     * @param PALETTE_SIZE Number of colors in the palette.
+     * @param palette Colors the particles are drawn in.
+     * @param lifetime Ticks each particle stays alive.
+     * @param x X-coordinates of the particles, indexed by ring position.
+     * @param y Y-coordinates of the particles, indexed by ring position.
+     * @param color Palette index of each particle, indexed by ring position.
+     * @param born Tick each particle was spawned on, indexed by ring position.
+     * @param mask Ring capacity minus one; the capacity is always a power of two.
+     * @param head Sequence number of the oldest live particle.
+     * @param tail Sequence number the next particle is spawned with.
+     * @param overwritten Number of particles removed before their lifetime ran out to make room.
+     */
+    static final int PALETTE_SIZE = 256;
+
+    final Color[] palette = new Color[PALETTE_SIZE];
+    final int lifetime;
+    final int[] x;
+    final int[] y;
+    final byte[] color;
+    final long[] born;
+    final int mask;
+    long head;
+    long tail;
+    long overwritten;
+
+    /**
+     * Constructs an empty particle system.
+     *
+     * @param capacity     The most particles alive at once, rounded up to a power of two.
+     * @param lifetime     The number of ticks each particle stays alive.
+     * @param paletteSeed  The seed the random palette colors are drawn from.
+     */
+    ParticleSystem(int capacity, int lifetime, long paletteSeed) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        x = new int[size];
+        y = new int[size];
+        color = new byte[size];
+        born = new long[size];
+        mask = size - 1;
+        this.lifetime = lifetime;
+        Random random = new Random(paletteSeed);
+        for (int i = 0; i < PALETTE_SIZE; i++) {
+            palette[i] = new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+        }
+    }
+
+    /**
+     * Returns the number of live particles.
+     *
+     * @return The number of live particles.
+     */
+    int count() {
+        return (int) (tail - head);
+    }
+
+    /**
+     * Spawns a particle, in place of the oldest one if the ring is full.
+     *
+     * @param particleX  The x-coordinate of the particle.
+     * @param particleY  The y-coordinate of the particle.
+     * @param colorIndex The palette index of the particle's color.
+     * @param tick       The current tick.
+     */
+    void spawn(int particleX, int particleY, int colorIndex, long tick) {
+        if (tail - head > mask) {
+            head++;
+            overwritten++;
+        }
+        int i = (int) tail & mask;
+        x[i] = particleX;
+        y[i] = particleY;
+        color[i] = (byte) colorIndex;
+        born[i] = tick;
+        tail++;
+    }
+
+    /**
+     * Removes the particles whose lifetime has run out by the given tick.
+     *
+     * @param tick The current tick.
+     */
+    void age(long tick) {
+        while (head < tail && tick - born[(int) head & mask] >= lifetime) {
+            head++;
+        }
+    }
+
+    /**
+     * Removes all particles.
+     */
+    void clear() {
+        head = tail;
+    }
+
+    /**
+     * Removes all particles, and numbers the next one spawned with the given sequence number.
+     *
+     * @param sequence The sequence number of the next particle.
+     */
+    void clear(long sequence) {
+        head = sequence;
+        tail = sequence;
+    }
+}
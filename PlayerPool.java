@@ -0,0 +1,131 @@
+/**
+ * Imports necessary for the PlayerPool class.
+ */
+import java.util.Arrays;
+
+/**
+ * Stores the players sharing a world with its own player, such as the clients of a {@link GameServer}.
+ *
+ * Player i is described by {@code x[i]}, {@code health[i]}, {@code score[i]} and the rest of the arrays
+ * for every i below {@link #count}; all players fly along the same row as the world's own player.
+ * Unlike the other pools a player keeps its slot for the whole game, because the slot identifies the
+ * player in its timers and on the network. A player that leaves is marked dead and its slot is not
+ * handed out again until the world is reset.
+ */
+class PlayerPool {
+    /**
+     * @param x X-coordinates of the players.
+     * @param health Health of the players; a player with no health left is out of the game.
+     * @param score Scores of the players.
+     * @param inputs Input bits each player holds for the next tick.
+     * @param weapon Weapons the players fire.
+     * @param fireReady Flags indicating if each player's weapon cooldown has run out.
+     * @param shieldActive Flags indicating if each player's shield is up.
+     * @param shieldUsed Flags indicating if each player has used their shield.
+     * @param count Number of slots handed out.
+     */
+    int[] x;
+    int[] health;
+    int[] score;
+    int[] inputs;
+    Weapon[] weapon;
+    boolean[] fireReady;
+    boolean[] shieldActive;
+    boolean[] shieldUsed;
+    int count;
+
+    /**
+     * Constructs an empty pool.
+     *
+     * @param capacity The number of players the pool can hold before it has to grow.
+     */
+    PlayerPool(int capacity) {
+        x = new int[capacity];
+        health = new int[capacity];
+        score = new int[capacity];
+        inputs = new int[capacity];
+        weapon = new Weapon[capacity];
+        fireReady = new boolean[capacity];
+        shieldActive = new boolean[capacity];
+        shieldUsed = new boolean[capacity];
+    }
+
+    /**
+     * Adds a player with full health and no score.
+     *
+     * @param playerX     The x-coordinate of the player.
+     * @param startHealth The health the player starts with.
+     * @return The slot of the player.
+     */
+    int join(int playerX, int startHealth) {
+        if (count == x.length) {
+            grow();
+        }
+        x[count] = playerX;
+        health[count] = startHealth;
+        score[count] = 0;
+        inputs[count] = 0;
+        weapon[count] = Weapon.SINGLE;
+        fireReady[count] = true;
+        shieldActive[count] = false;
+        shieldUsed[count] = false;
+        return count++;
+    }
+
+    /**
+     * Takes a player out of the game, keeping their slot and score.
+     *
+     * @param i The slot of the player.
+     */
+    void leave(int i) {
+        health[i] = 0;
+        inputs[i] = 0;
+    }
+
+    /**
+     * Determines whether any player in the pool is still in the game.
+     *
+     * @return True if a player has health left.
+     */
+    boolean anyAlive() {
+        for (int i = 0; i < count; i++) {
+            if (health[i] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all players, keeping the allocated arrays.
+     */
+    void clear() {
+        count = 0;
+    }
+
+    /**
+     * Grows the pool if needed so it holds at least the given number of players without growing again.
+     *
+     * @param capacity The number of players.
+     */
+    void reserve(int capacity) {
+        while (x.length < capacity) {
+            grow();
+        }
+    }
+
+    /**
+     * Doubles the capacity of the pool.
+     */
+    private void grow() {
+        int capacity = Math.max(4, x.length * 2);
+        x = Arrays.copyOf(x, capacity);
+        health = Arrays.copyOf(health, capacity);
+        score = Arrays.copyOf(score, capacity);
+        inputs = Arrays.copyOf(inputs, capacity);
+        weapon = Arrays.copyOf(weapon, capacity);
+        fireReady = Arrays.copyOf(fireReady, capacity);
+        shieldActive = Arrays.copyOf(shieldActive, capacity);
+        shieldUsed = Arrays.copyOf(shieldUsed, capacity);
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Stores the live projectiles as parallel primitive arrays of a fixed capacity.
+ *
+ * Projectile i is at {@code x[i]}, {@code y[i]} and moves by {@code dx[i]}, {@code dy[i]} per tick, for
+ * every i below {@link #count}. {@code owner[i]} is the player who fired it: 0 for the world's own
+ * player and one more than the slot for a player in {@link GameWorld#peers}. Like the obstacle pool it
+ * removes by swapping the last projectile into the freed slot. The capacity is fixed up front, so
+ * firing never allocates; shots fired while the pool is full are dropped.
+ */
+class ProjectilePool {
+    /**
+     * @param x X-coordinates of the projectiles.
+     * @param y Y-coordinates of the projectiles.
+     * @param dx Horizontal movement of the projectiles per tick.
+     * @param dy Vertical movement of the projectiles per tick, negative when moving up.
+     * @param owner Player who fired each projectile.
+     * @param count Number of live projectiles.
+     */
+    final int[] x;
+    final int[] y;
+    final int[] dx;
+    final int[] dy;
+    final int[] owner;
+    int count;
+
+    /**
+     * Constructs an empty pool.
+     *
+     * @param capacity The maximum number of projectiles alive at once.
+     */
+    ProjectilePool(int capacity) {
+        x = new int[capacity];
+        y = new int[capacity];
+        dx = new int[capacity];
+        dy = new int[capacity];
+        owner = new int[capacity];
+    }
+
+    /**
+     * Adds a projectile if there is room for it.
+     *
+     * @param projectileX The x-coordinate of the projectile.
+     * @param projectileY The y-coordinate of the projectile.
+     * @param moveX       The horizontal movement per tick.
+     * @param moveY       The vertical movement per tick.
+     * @param firedBy     The player who fired the projectile.
+     * @return The slot the projectile was stored in, or -1 if the pool is full.
+     */
+    int add(int projectileX, int projectileY, int moveX, int moveY, int firedBy) {
+        if (count == x.length) {
+            return -1;
+        }
+        x[count] = projectileX;
+        y[count] = projectileY;
+        dx[count] = moveX;
+        dy[count] = moveY;
+        owner[count] = firedBy;
+        return count++;
+    }
+
+    /**
+     * Removes the projectile in the given slot by moving the last projectile into it.
+     *
+     * @param i The slot of the projectile to remove.
+     */
+    void remove(int i) {
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        dx[i] = dx[last];
+        dy[i] = dy[last];
+        owner[i] = owner[last];
+    }
+
+    /**
+     * Removes every projectile fired by one player.
+     *
+     * @param firedBy The player.
+     */
+    void removeOwnedBy(int firedBy) {
+        for (int i = count - 1; i >= 0; i--) {
+            if (owner[i] == firedBy) {
+                remove(i);
+            }
+        }
+    }
+
+    /**
+     * Removes all projectiles.
+     */
+    void clear() {
+        count = 0;
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Lowers the drawing quality in steps while frames run over their time budget, and raises it again
+ * once there is headroom.
+ *
+ * The drawing thread reports the cost of each frame, kept as a moving average relative to the frame
+ * period, which is the load. Quality drops one {@link QualityTier} once the load has stayed above
+ * {@link #DEGRADE_LOAD} for {@link #DEGRADE_FRAMES} frames in a row, and rises one tier once it has
+ * stayed below {@link #RESTORE_LOAD} for a while longer. The gap between the two thresholds and the
+ * longer wait to restore keep the quality from flipping back and forth, and each time quality has to
+ * drop again soon after it was restored, the wait before the next restore doubles.
+ *
+ * The simulation thread reports the cost of each tick as well, but only for the profiler overlay: the
+ * tiers change how frames are drawn and never the simulation, so lowering one cannot make a slow tick
+ * any faster.
+ */
+class QualityGovernor {
+    /**
+     * @param DEGRADE_LOAD Load above which quality is lowered.
+     * @param RESTORE_LOAD Load below which quality is raised.
+     * @param DEGRADE_FRAMES Frames in a row over DEGRADE_LOAD before quality is lowered.
+     * @param RESTORE_FRAMES Frames in a row under RESTORE_LOAD before quality is first raised.
+     * @param MAX_RESTORE_FRAMES Longest wait before quality is raised, once restores keep failing.
+     * @param SMOOTHING Weight of the newest cost in the moving averages.
+     * @param frameBudgetNanos Time a frame may take.
+     * @param tickBudgetNanos Time a tick may take.
+     * @param adaptive Flag indicating if the tier follows the load, rather than being fixed.
+     * @param tier Tier frames are drawn at.
+     * @param tickLoad Moving average of the tick cost relative to its budget, written by the simulation thread
+     *     and only shown in the overlay.
+     * @param frameLoad Moving average of the frame cost relative to its budget.
+     * @param overFrames Frames in a row the load was over DEGRADE_LOAD.
+     * @param underFrames Frames in a row the load was under RESTORE_LOAD.
+     * @param restoreFrames Frames in a row under RESTORE_LOAD needed before quality is raised.
+     * @param frames Number of frames reported.
+     * @param restoredAt Frame at which quality was last raised.
+     * @param changes Number of times the tier changed.
+     */
+    static final double DEGRADE_LOAD = 0.9;
+    static final double RESTORE_LOAD = 0.5;
+    static final int DEGRADE_FRAMES = 30;
+    static final int RESTORE_FRAMES = 120;
+    static final int MAX_RESTORE_FRAMES = 16 * RESTORE_FRAMES;
+    private static final double SMOOTHING = 0.1;
+
+    private final long frameBudgetNanos;
+    private final long tickBudgetNanos;
+    private final boolean adaptive;
+    private volatile QualityTier tier;
+    private volatile double tickLoad;
+    private double frameLoad;
+    private int overFrames;
+    private int underFrames;
+    private int restoreFrames = RESTORE_FRAMES;
+    private long frames;
+    private long restoredAt = -MAX_RESTORE_FRAMES;
+    int changes;
+
+    /**
+     * Constructs a governor.
+     *
+     * @param targetFps The frame rate frames are drawn at, or 0 for uncapped, which is budgeted as 60.
+     * @param fixed     The tier to always draw at, or null to follow the load starting from the best.
+     */
+    QualityGovernor(int targetFps, QualityTier fixed) {
+        frameBudgetNanos = 1_000_000_000L / (targetFps > 0 ? targetFps : 60);
+        tickBudgetNanos = GameWorld.TICK_MILLIS * 1_000_000L;
+        adaptive = fixed == null;
+        tier = adaptive ? QualityTier.HIGH : fixed;
+    }
+
+    /**
+     * Parses the name of a tier, as given to -Dspacegame.quality.
+     *
+     * @param name A tier name in any case, or "auto".
+     * @return The tier, or null for "auto".
+     * @throws IllegalArgumentException If the name is neither.
+     */
+    static QualityTier parseTier(String name) {
+        return name.equalsIgnoreCase("auto") ? null : QualityTier.valueOf(name.toUpperCase());
+    }
+
+    /**
+     * Returns the tier frames are drawn at.
+     *
+     * @return The tier.
+     */
+    QualityTier tier() {
+        return tier;
+    }
+
+    /**
+     * Reports the cost of a tick, for the overlay; it does not change the tier. Only the simulation
+     * thread may call this.
+     *
+     * @param nanos The time the tick took.
+     */
+    void tickCost(long nanos) {
+        tickLoad += ((double) nanos / tickBudgetNanos - tickLoad) * SMOOTHING;
+    }
+
+    /**
+     * Reports the cost of a frame and decides the tier of the next one. Only the drawing thread may
+     * call this.
+     *
+     * @param nanos The time the frame took.
+     * @return The tier to draw the next frame at.
+     */
+    QualityTier frameCost(long nanos) {
+        frames++;
+        frameLoad += ((double) nanos / frameBudgetNanos - frameLoad) * SMOOTHING;
+        if (!adaptive) {
+            return tier;
+        }
+        if (frameLoad > DEGRADE_LOAD) {
+            underFrames = 0;
+            if (++overFrames >= DEGRADE_FRAMES && tier != QualityTier.MINIMAL) {
+                // A restore that did not last makes the next one wait longer.
+                restoreFrames = frames - restoredAt < restoreFrames
+                    ? Math.min(2 * restoreFrames, MAX_RESTORE_FRAMES) : RESTORE_FRAMES;
+                change(tier.lower());
+            }
+        } else if (frameLoad < RESTORE_LOAD) {
+            overFrames = 0;
+            if (++underFrames >= restoreFrames && tier != QualityTier.HIGH) {
+                restoredAt = frames;
+                change(tier.higher());
+            }
+        } else {
+            overFrames = 0;
+            underFrames = 0;
+        }
+        return tier;
+    }
+
+    /**
+     * Switches to another tier and starts counting frames afresh.
+     *
+     * @param next The new tier.
+     */
+    private void change(QualityTier next) {
+        tier = next;
+        overFrames = 0;
+        underFrames = 0;
+        changes++;
+    }
+
+    /**
+     * Describes the active tier and the load, for the profiler overlay.
+     *
+     * @return One line of text.
+     */
+    String status() {
+        return String.format("quality %s%s, frame %.0f%%, tick %.0f%% of budget, %d changes", tier,
+            adaptive ? "" : " (fixed)", frameLoad * 100, tickLoad * 100, changes);
+    }
+}
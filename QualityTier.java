@@ -0,0 +1,60 @@
+/**
+ * The levels of drawing quality the {@link QualityGovernor} steps between, from best to cheapest.
+ *
+ * Every tier only changes how frames are drawn, never the simulation, so games play out the same at
+ * any tier and replays, snapshots and network states are unaffected. A tier thins out the stars that
+ * are drawn, keeping the same ones from frame to frame, draws them as rectangles instead of ovals,
+ * scales the frame to the window with nearest-neighbour instead of the configured interpolation, and
+ * checks the HUD values for changes less often.
+ */
+enum QualityTier {
+    HIGH(1, true, false, 1),
+    MEDIUM(2, false, false, 1),
+    LOW(4, false, true, 4),
+    MINIMAL(0, false, true, 8);
+
+    /**
+     * @param starStride Every how many stars one is drawn, or 0 for none.
+     * @param starOvals Flag indicating if stars are drawn as ovals rather than rectangles.
+     * @param nearestScaling Flag indicating if the frame is scaled with nearest-neighbour interpolation.
+     * @param hudInterval Number of frames between two checks of the HUD values.
+     */
+    final int starStride;
+    final boolean starOvals;
+    final boolean nearestScaling;
+    final int hudInterval;
+
+    /**
+     * Constructs a tier.
+     *
+     * @param starStride     Every how many stars one is drawn, or 0 for none.
+     * @param starOvals      Flag indicating if stars are drawn as ovals rather than rectangles.
+     * @param nearestScaling Flag indicating if the frame is scaled with nearest-neighbour interpolation.
+     * @param hudInterval    Number of frames between two checks of the HUD values.
+     */
+    QualityTier(int starStride, boolean starOvals, boolean nearestScaling, int hudInterval) {
+        this.starStride = starStride;
+        this.starOvals = starOvals;
+        this.nearestScaling = nearestScaling;
+        this.hudInterval = hudInterval;
+    }
+
+    /**
+     * Returns the next cheaper tier.
+     *
+     * @return The tier below this one, or this one if it is the cheapest.
+     */
+    QualityTier lower() {
+        QualityTier[] all = values();
+        return all[Math.min(ordinal() + 1, all.length - 1)];
+    }
+
+    /**
+     * Returns the next better tier.
+     *
+     * @return The tier above this one, or this one if it is the best.
+     */
+    QualityTier higher() {
+        return values()[Math.max(ordinal() - 1, 0)];
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Imports necessary for the ReplayPlayer class.
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Plays back logs written by {@link ReplayRecorder} headless, as fast as the simulation runs, and
+ * checks that every replayed game ends with the recorded result.
+ *
+ * Usage: {@code java -Djava.awt.headless=true ReplayPlayer replay.sgr...}. The exit code is 1 if any
+ * replay diverged.
+ */
+public class ReplayPlayer {
+    /**
+     * @param world The world after the replay.
+     * @param matches Flag indicating if the replay ended with the recorded tick count, score, health and time.
+     * @param expected The recorded result, formatted for display.
+     */
+    final GameWorld world;
+    final boolean matches;
+    final String expected;
+
+    /**
+     * Constructs the outcome of a replay.
+     *
+     * @param world    The world after the replay.
+     * @param matches  Flag indicating if the replay matched the recorded result.
+     * @param expected The recorded result, formatted for display.
+     */
+    private ReplayPlayer(GameWorld world, boolean matches, String expected) {
+        this.world = world;
+        this.matches = matches;
+        this.expected = expected;
+    }
+
+    /**
+     * The entry point for the replay player.
+     *
+     * @param args The replay files to play.
+     * @throws IOException If a replay file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        boolean allMatch = true;
+        for (String file : args) {
+            long start = System.nanoTime();
+            ReplayPlayer replay = play(Files.readAllBytes(Paths.get(file)));
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%s: %s, %d ticks in %.3fs (%.0f ticks/s), recorded %s, replayed %s%n",
+                file, replay.matches ? "OK" : "DIVERGED", replay.world.tick, seconds, replay.world.tick / seconds,
+                replay.expected, describe(replay.world));
+            allMatch &= replay.matches;
+        }
+        if (!allMatch) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Replays a log.
+     *
+     * @param log The log written by a ReplayRecorder.
+     * @return The outcome of the replay.
+     * @throws IOException If the log is not a replay log of a supported version.
+     */
+    static ReplayPlayer play(byte[] log) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(log);
+        if (in.getInt() != ReplayRecorder.MAGIC) {
+            throw new IOException("Not a replay log");
+        }
+        int version = in.get();
+        if (version != ReplayRecorder.VERSION) {
+            throw new IOException("Unsupported replay version " + version);
+        }
+        long seed = in.getLong();
+        int obstacleSpeed = (int) readVarint(in);
+        float starDensity = Float.intBitsToFloat(in.getInt());
+        int width = (int) readVarint(in);
+        int height = (int) readVarint(in);
+        int obstacles = (int) readVarint(in);
+
+        GameWorld world = new GameWorld(seed, width, height);
+        world.starDensity = starDensity;
+        world.selectLevel(obstacleSpeed);
+        if (obstacles > 0) {
+            world.populate(obstacles);
+        }
+
+        // Step through the input changes, holding each input until the next change.
+        int inputs = 0;
+        long delta;
+        while ((delta = readVarint(in)) != 0) {
+            long changeTick = world.tick + delta;
+            while (world.tick + 1 < changeTick && !world.isGameOver) {
+                world.step(inputs);
+            }
+            inputs = (int) readVarint(in);
+            world.step(inputs);
+        }
+
+        long ticks = readVarint(in);
+        while (world.tick < ticks && !world.isGameOver) {
+            world.step(inputs);
+        }
+        int score = unzigzag(readVarint(in));
+        int health = unzigzag(readVarint(in));
+        int remainingTime = unzigzag(readVarint(in));
+        boolean matches = world.tick == ticks && world.score == score && world.health == health
+            && world.remainingTime == remainingTime;
+        return new ReplayPlayer(world, matches,
+            "ticks=" + ticks + " score=" + score + " health=" + health + " time=" + remainingTime);
+    }
+
+    /**
+     * Formats the result of a world for display.
+     *
+     * @param world The world.
+     * @return The tick count, score, health and remaining time.
+     */
+    static String describe(GameWorld world) {
+        return "ticks=" + world.tick + " score=" + world.score + " health=" + world.health + " time=" + world.remainingTime;
+    }
+
+    /**
+     * Reads a varint written by ReplayRecorder.
+     *
+     * @param in The buffer to read from.
+     * @return The value.
+     */
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Reverses ReplayRecorder.zigzag.
+     *
+     * @param value The zigzag-encoded value.
+     * @return The signed value.
+     */
+    private static int unzigzag(long value) {
+        int v = (int) value;
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
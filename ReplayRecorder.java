@@ -0,0 +1,144 @@
+/**
+ * Imports necessary for the ReplayRecorder class.
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Records a game as its seed plus the inputs of every tick, in a compact binary log.
+ *
+ * Because the world is deterministic, this is enough to replay the whole game. The log starts with a
+ * header: the magic bytes "SGRP", a version byte, the world seed, the obstacle speed, the star density,
+ * the world's width and height and the number of obstacles it was populated with. Then it holds one
+ * entry per tick on which the inputs differed from the previous tick. An entry is the number of ticks
+ * since the previous entry as a varint, followed by the new input bits as a varint. A zero tick delta
+ * ends the entries. The footer holds the tick count, score, health and remaining time of the finished
+ * game, so a replay can check that it arrived at the same result.
+ */
+class ReplayRecorder {
+    /**
+     * @param MAGIC First four bytes of every replay log.
+     * @param VERSION Version of the log format. Version 2 logs were recorded with the fire cooldown
+     *                counted in ticks by the world, so version 1 logs no longer replay the same. Version 3
+     *                added the world size and initial obstacles. Version 4 logs were recorded with swept
+     *                collisions, which find hits that version 3 missed.
+     * @param out Buffer the log is written into.
+     * @param lastTick Tick of the previous entry.
+     * @param lastInputs Input bits of the previous tick.
+     */
+    static final int MAGIC = 0x53475250;
+    static final int VERSION = 4;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+    private long lastTick;
+    private int lastInputs;
+
+    /**
+     * Starts a log for a game about to be played.
+     *
+     * @param seed          The seed the world was reseeded with before the level was selected.
+     * @param obstacleSpeed The obstacle speed of the selected level.
+     * @param starDensity   The star density of the world.
+     * @param width         The width of the world.
+     * @param height        The height of the world.
+     * @param obstacles     The number of obstacles the world is populated with after selecting the level.
+     */
+    ReplayRecorder(long seed, int obstacleSpeed, float starDensity, int width, int height, int obstacles) {
+        writeInt(MAGIC);
+        out.write(VERSION);
+        writeLong(seed);
+        writeVarint(obstacleSpeed);
+        writeInt(Float.floatToIntBits(starDensity));
+        writeVarint(width);
+        writeVarint(height);
+        writeVarint(obstacles);
+    }
+
+    /**
+     * Records the inputs of a tick. Must be called for every tick, in order, before it is stepped.
+     *
+     * @param tick   The number of the tick about to be stepped, starting at 1.
+     * @param inputs The inputs the tick is stepped with.
+     */
+    void record(long tick, int inputs) {
+        if (inputs != lastInputs) {
+            writeVarint(tick - lastTick);
+            writeVarint(inputs);
+            lastTick = tick;
+            lastInputs = inputs;
+        }
+    }
+
+    /**
+     * Ends the log with the result of the finished game.
+     *
+     * @param world The world the game was played in.
+     * @return The complete log.
+     */
+    byte[] finish(GameWorld world) {
+        writeVarint(0);
+        writeVarint(world.tick);
+        writeVarint(zigzag(world.score));
+        writeVarint(zigzag(world.health));
+        writeVarint(zigzag(world.remainingTime));
+        return out.toByteArray();
+    }
+
+    /**
+     * Ends the log and writes it to a file.
+     *
+     * @param world The world the game was played in.
+     * @param file  The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    void finish(GameWorld world, Path file) throws IOException {
+        Files.write(file, finish(world));
+    }
+
+    /**
+     * Maps a signed int onto an unsigned one so that small negative values stay short as varints.
+     *
+     * @param value The signed value.
+     * @return The zigzag-encoded value.
+     */
+    static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Writes an unsigned value in 7-bit groups, low group first, with the high bit marking continuation.
+     *
+     * @param value The value, treated as unsigned.
+     */
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Writes a big-endian int.
+     *
+     * @param value The value.
+     */
+    private void writeInt(int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * Writes a big-endian long.
+     *
+     * @param value The value.
+     */
+    private void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+}
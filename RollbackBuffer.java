@@ -0,0 +1,193 @@
+/**
+ * Imports necessary for the RollbackBuffer class.
+ */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A record of the last few seconds of a world's play, for rewinding it.
+ *
+ * A full snapshot of a large world runs to megabytes, so the ring does not keep one per step. It keeps
+ * the inputs of every step, and a snapshot, a keyframe, only every few steps. Rewinding restores the
+ * newest keyframe at or before the step to go back to and steps the world forward from there with the
+ * recorded inputs, which arrives at exactly the state the world had, since the world is deterministic.
+ * It then drops the steps after it, so the game goes on from there and can be rewound further back.
+ *
+ * Each keyframe is a direct buffer that is kept and reused once the ring has wrapped around, so
+ * recording only allocates when the world's state outgrows a keyframe's buffer. The ring holds about
+ * one keyframe per keyframe interval of the steps it can rewind, instead of one per step.
+ */
+class RollbackBuffer {
+    /**
+     * @param capacity Number of steps that can be rewound.
+     * @param keyframeSteps Steps between two keyframes.
+     * @param keyframes Snapshot buffers, indexed by ring position.
+     * @param keyframeStep Step each keyframe was taken at, indexed by ring position.
+     * @param nextKeyframe Ring position the next keyframe is taken into.
+     * @param keyframeCount Number of keyframes held.
+     * @param inputs Inputs of each step, indexed by step number masked with inputMask.
+     * @param inputMask Size of the input ring minus one; the size is a power of two.
+     * @param latest Number of the latest step, counted from the keyframe the ring was started with.
+     */
+    private final int capacity;
+    private final int keyframeSteps;
+    private final ByteBuffer[] keyframes;
+    private final long[] keyframeStep;
+    private int nextKeyframe;
+    private int keyframeCount;
+    private final int[] inputs;
+    private final int inputMask;
+    private long latest;
+
+    /**
+     * Constructs an empty ring.
+     *
+     * @param capacity      The number of steps that can be rewound.
+     * @param keyframeSteps The number of steps between two keyframes.
+     */
+    RollbackBuffer(int capacity, int keyframeSteps) {
+        this.capacity = capacity;
+        this.keyframeSteps = keyframeSteps;
+        // One keyframe more than the capacity spans, so the oldest step can be reached from one.
+        keyframes = new ByteBuffer[capacity / keyframeSteps + 2];
+        keyframeStep = new long[keyframes.length];
+        int size = Integer.highestOneBit(Math.max(2, capacity + keyframeSteps - 1)) << 1;
+        inputs = new int[size];
+        inputMask = size - 1;
+    }
+
+    /**
+     * Returns the number of steps held, including the latest one.
+     *
+     * @return The number of steps, 0 if the ring is empty.
+     */
+    int size() {
+        return keyframeCount == 0 ? 0 : (int) Math.min(latest - oldestKeyframe(), capacity) + 1;
+    }
+
+    /**
+     * Returns the memory the keyframes take.
+     *
+     * @return The total capacity of the keyframe buffers in bytes.
+     */
+    long bytes() {
+        long total = 0;
+        for (ByteBuffer keyframe : keyframes) {
+            total += keyframe != null ? keyframe.capacity() : 0;
+        }
+        return total;
+    }
+
+    /**
+     * Drops every step and starts again from the world's current state, taken as a keyframe.
+     *
+     * @param world The world.
+     */
+    void start(GameWorld world) {
+        clear();
+        keyframe(world);
+    }
+
+    /**
+     * Records a step the world has just taken, taking a keyframe once enough steps have passed since
+     * the last one. The ring must have been started.
+     *
+     * @param world  The world after the step.
+     * @param inputs The inputs the world was stepped with.
+     */
+    void record(GameWorld world, int inputs) {
+        latest++;
+        this.inputs[(int) latest & inputMask] = inputs;
+        if (latest - newestKeyframe() >= keyframeSteps) {
+            keyframe(world);
+        }
+    }
+
+    /**
+     * Restores the world to an earlier step and drops the steps after it. Events the world publishes
+     * while it steps forward to that step are not published again.
+     *
+     * @param world The world to restore.
+     * @param count The number of steps to go back from the latest one; fewer if the ring holds fewer.
+     * @return The number of steps actually gone back, 0 if the ring is empty.
+     */
+    int rewind(GameWorld world, int count) {
+        if (keyframeCount == 0) {
+            return 0;
+        }
+        int back = Math.min(count, size() - 1);
+        long target = latest - back;
+        // Drop the keyframes after the target, then restore the newest one left.
+        while (keyframeStep[Math.floorMod(nextKeyframe - 1, keyframes.length)] > target) {
+            nextKeyframe = Math.floorMod(nextKeyframe - 1, keyframes.length);
+            keyframeCount--;
+        }
+        int index = Math.floorMod(nextKeyframe - 1, keyframes.length);
+        ByteBuffer keyframe = keyframes[index];
+        keyframe.rewind();
+        try {
+            GameSnapshot.read(keyframe, world);
+        } catch (IOException e) {
+            // The keyframes were written by this ring, so they cannot be damaged.
+            throw new UncheckedIOException(e);
+        }
+        EventRing eventRing = world.eventRing;
+        world.eventRing = null;
+        for (long s = keyframeStep[index] + 1; s <= target; s++) {
+            world.step(inputs[(int) s & inputMask]);
+        }
+        world.eventRing = eventRing;
+        latest = target;
+        return back;
+    }
+
+    /**
+     * Drops every step, keeping the buffers.
+     */
+    void clear() {
+        nextKeyframe = 0;
+        keyframeCount = 0;
+        latest = 0;
+    }
+
+    /**
+     * Takes a snapshot of the world as the keyframe of the latest step, replacing the oldest keyframe
+     * when the ring is full.
+     *
+     * @param world The world.
+     */
+    private void keyframe(GameWorld world) {
+        int needed = GameSnapshot.size(world);
+        ByteBuffer keyframe = keyframes[nextKeyframe];
+        if (keyframe == null || keyframe.capacity() < needed) {
+            // Leave room for the world to grow a little before the buffer has to be replaced.
+            keyframe = ByteBuffer.allocateDirect(needed + needed / 2);
+            keyframes[nextKeyframe] = keyframe;
+        }
+        keyframe.clear();
+        GameSnapshot.write(world, keyframe);
+        keyframe.flip();
+        keyframeStep[nextKeyframe] = latest;
+        nextKeyframe = (nextKeyframe + 1) % keyframes.length;
+        keyframeCount = Math.min(keyframeCount + 1, keyframes.length);
+    }
+
+    /**
+     * Returns the step of the newest keyframe.
+     *
+     * @return The step number.
+     */
+    private long newestKeyframe() {
+        return keyframeStep[Math.floorMod(nextKeyframe - 1, keyframes.length)];
+    }
+
+    /**
+     * Returns the step of the oldest keyframe.
+     *
+     * @return The step number.
+     */
+    private long oldestKeyframe() {
+        return keyframeStep[Math.floorMod(nextKeyframe - keyframeCount, keyframes.length)];
+    }
+}
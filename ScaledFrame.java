@@ -0,0 +1,182 @@
+/**
+ * Imports necessary for the ScaledFrame class.
+ */
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.function.Consumer;
+
+/**
+ * Draws frames at the game's fixed internal resolution and scales them to the size of the window in
+ * one pass.
+ *
+ * Everything the game draws goes into one offscreen image of the internal size, kept in video memory
+ * when the screen allows, so drawing a frame costs the same however large the window is. Each frame
+ * is then copied to the window with a single scaled drawImage, keeping its aspect ratio and filling
+ * the bars on either side with black. The placement of the frame in the window is only recomputed
+ * when the window changes size. With nearest-neighbour scaling the frame is enlarged by whole factors
+ * only, so every internal pixel becomes a square of the same size.
+ */
+class ScaledFrame {
+    /**
+     * @param width Width of the internal resolution.
+     * @param height Height of the internal resolution.
+     * @param interpolation Interpolation hint the frame is scaled with.
+     * @param buffer Offscreen image in video memory the frame is drawn into, or null.
+     * @param software Offscreen image the frame is drawn into when there is no screen to match.
+     * @param outputWidth Width of the output the placement was computed for, or -1.
+     * @param outputHeight Height of the output the placement was computed for, or -1.
+     * @param target Region of the output the frame is scaled into.
+     */
+    private final int width;
+    private final int height;
+    private Object interpolation;
+    private VolatileImage buffer;
+    private BufferedImage software;
+    private int outputWidth = -1;
+    private int outputHeight = -1;
+    private final Rectangle target = new Rectangle();
+
+    /**
+     * Constructs a frame of the given internal resolution.
+     *
+     * @param width         The internal width.
+     * @param height        The internal height.
+     * @param interpolation The interpolation to scale with: "nearest", "bilinear" or "bicubic".
+     */
+    ScaledFrame(int width, int height, String interpolation) {
+        this.width = width;
+        this.height = height;
+        this.interpolation = interpolationHint(interpolation);
+    }
+
+    /**
+     * Changes the interpolation the following frames are scaled with.
+     *
+     * @param interpolation "nearest", "bilinear" or "bicubic".
+     */
+    void setInterpolation(String interpolation) {
+        Object hint = interpolationHint(interpolation);
+        if (hint != this.interpolation) {
+            this.interpolation = hint;
+            // Nearest-neighbour scaling places the frame differently.
+            outputWidth = -1;
+        }
+    }
+
+    /**
+     * Draws a frame at the internal resolution and scales it onto the output, redrawing it if the
+     * offscreen image lost its contents in between.
+     *
+     * @param g            The Graphics object of the output.
+     * @param outputWidth  The width of the output.
+     * @param outputHeight The height of the output.
+     * @param config       The configuration of the output's screen, or null when headless.
+     * @param content      Draws the frame, given a Graphics object of the internal size.
+     */
+    void draw(Graphics g, int outputWidth, int outputHeight, GraphicsConfiguration config, Consumer<Graphics> content) {
+        if (outputWidth != this.outputWidth || outputHeight != this.outputHeight) {
+            layout(outputWidth, outputHeight);
+        }
+        Image frame;
+        if (config == null) {
+            if (software == null) {
+                software = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            }
+            drawContent(software.createGraphics(), content);
+            frame = software;
+        } else {
+            do {
+                if (buffer == null || buffer.validate(config) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                    buffer = config.createCompatibleVolatileImage(width, height);
+                }
+                drawContent(buffer.createGraphics(), content);
+            } while (buffer.contentsLost());
+            frame = buffer;
+        }
+        present(g, frame);
+    }
+
+    /**
+     * Draws the content into the offscreen image.
+     *
+     * @param g       The Graphics object of the offscreen image; it is disposed of.
+     * @param content Draws the frame.
+     */
+    private static void drawContent(Graphics2D g, Consumer<Graphics> content) {
+        try {
+            content.accept(g);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Scales the frame into its region of the output and fills the bars around it.
+     *
+     * @param g     The Graphics object of the output.
+     * @param frame The frame.
+     */
+    private void present(Graphics g, Image frame) {
+        g.setColor(Color.BLACK);
+        // The bar after the frame is a pixel wider than the one before it when the space left is odd, so
+        // a single spare pixel leaves a bar on one side only.
+        if (target.width < outputWidth) {
+            g.fillRect(0, 0, target.x, outputHeight);
+            g.fillRect(target.x + target.width, 0, outputWidth - target.x - target.width, outputHeight);
+        }
+        if (target.height < outputHeight) {
+            g.fillRect(target.x, 0, target.width, target.y);
+            g.fillRect(target.x, target.y + target.height, target.width, outputHeight - target.y - target.height);
+        }
+        if (g instanceof Graphics2D) {
+            ((Graphics2D) g).setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        }
+        g.drawImage(frame, target.x, target.y, target.x + target.width, target.y + target.height, 0, 0, width, height, null);
+    }
+
+    /**
+     * Computes the largest region of the output that has the frame's aspect ratio, centered.
+     *
+     * @param outputWidth  The width of the output.
+     * @param outputHeight The height of the output.
+     */
+    private void layout(int outputWidth, int outputHeight) {
+        this.outputWidth = outputWidth;
+        this.outputHeight = outputHeight;
+        double scale = Math.min((double) outputWidth / width, (double) outputHeight / height);
+        if (interpolation == RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR && scale >= 1) {
+            scale = Math.floor(scale);
+        }
+        target.width = Math.max(1, (int) (width * scale));
+        target.height = Math.max(1, (int) (height * scale));
+        target.x = (outputWidth - target.width) / 2;
+        target.y = (outputHeight - target.height) / 2;
+    }
+
+    /**
+     * Maps an interpolation name to its rendering hint.
+     *
+     * @param name "nearest", "bilinear" or "bicubic".
+     * @return The hint.
+     * @throws IllegalArgumentException If the name is none of these.
+     */
+    private static Object interpolationHint(String name) {
+        switch (name) {
+            case "nearest":
+                return RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR;
+            case "bilinear":
+                return RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+            case "bicubic":
+                return RenderingHints.VALUE_INTERPOLATION_BICUBIC;
+            default:
+                throw new IllegalArgumentException("Unknown interpolation: " + name);
+        }
+    }
+}
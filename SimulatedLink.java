@@ -0,0 +1,160 @@
+/**
+ * Imports necessary for the SimulatedLink class.
+ */
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayDeque;
+
+/**
+ * A non-blocking UDP socket that can delay and drop the datagrams it sends, to try the network code on
+ * localhost under the latency and loss of a real network.
+ *
+ * Every datagram sent is dropped with the configured chance, or else held back for the configured
+ * latency and sent by the first {@link #flush(long)} after that. Time is passed in by the caller, so a
+ * loopback test can run on simulated time as fast as the code allows. Held datagrams are copied into
+ * buffers that are reused once sent.
+ */
+class SimulatedLink implements AutoCloseable {
+    /**
+     * @param MAX_DATAGRAM Largest datagram the link sends or receives.
+     * @param channel Socket the datagrams go through.
+     * @param latencyMillis Time each datagram is held back for.
+     * @param lossRate Chance of a datagram being dropped.
+     * @param random Random number generator deciding which datagrams are dropped.
+     * @param queue Datagrams held back, in the order they are due.
+     * @param spare Buffers of datagrams already sent, for reuse.
+     * @param sentBytes Number of bytes sent, not counting dropped datagrams.
+     * @param sentDatagrams Number of datagrams sent.
+     * @param droppedDatagrams Number of datagrams dropped.
+     */
+    static final int MAX_DATAGRAM = 65_507;
+
+    final DatagramChannel channel;
+    private final int latencyMillis;
+    private final double lossRate;
+    private final GameRandom random;
+    private final ArrayDeque<Datagram> queue = new ArrayDeque<>();
+    private final ArrayDeque<Datagram> spare = new ArrayDeque<>();
+    long sentBytes;
+    long sentDatagrams;
+    long droppedDatagrams;
+
+    /**
+     * A datagram held back until it is due.
+     */
+    private static final class Datagram {
+        /**
+         * @param due Time the datagram is sent at, in milliseconds.
+         * @param target Address the datagram is sent to.
+         * @param data Contents of the datagram.
+         */
+        long due;
+        SocketAddress target;
+        ByteBuffer data = ByteBuffer.allocateDirect(1024);
+    }
+
+    /**
+     * Opens a non-blocking socket bound to an address.
+     *
+     * @param bind          The address to bind to; port 0 picks a free port.
+     * @param latencyMillis The time each datagram is held back for.
+     * @param lossRate      The chance of a datagram being dropped, between 0 and 1.
+     * @param seed          The seed deciding which datagrams are dropped.
+     * @throws IOException If the socket cannot be opened.
+     */
+    SimulatedLink(InetSocketAddress bind, int latencyMillis, double lossRate, long seed) throws IOException {
+        channel = DatagramChannel.open(StandardProtocolFamily.INET);
+        channel.configureBlocking(false);
+        // Room for a burst of states to every client of a busy server between two receives.
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, 1 << 20);
+        channel.bind(bind);
+        this.latencyMillis = latencyMillis;
+        this.lossRate = lossRate;
+        this.random = new GameRandom(seed);
+    }
+
+    /**
+     * Returns the address the socket is bound to.
+     *
+     * @return The local address.
+     * @throws IOException If the socket is closed.
+     */
+    InetSocketAddress localAddress() throws IOException {
+        return (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    /**
+     * Sends a datagram, subject to the simulated loss and latency.
+     *
+     * @param data   The datagram, from its position to its limit; the buffer is left as it is.
+     * @param target The address to send it to.
+     * @param now    The current time in milliseconds.
+     * @throws IOException If the datagram cannot be sent.
+     */
+    void send(ByteBuffer data, SocketAddress target, long now) throws IOException {
+        if (lossRate > 0 && random.nextDouble() < lossRate) {
+            droppedDatagrams++;
+            return;
+        }
+        Datagram datagram = spare.isEmpty() ? new Datagram() : spare.poll();
+        datagram.due = now + latencyMillis;
+        datagram.target = target;
+        if (datagram.data.capacity() < data.remaining()) {
+            datagram.data = ByteBuffer.allocateDirect(Math.max(data.remaining(), datagram.data.capacity() * 2));
+        }
+        int position = data.position();
+        datagram.data.clear();
+        datagram.data.put(data);
+        datagram.data.flip();
+        data.position(position);
+        queue.add(datagram);
+        flush(now);
+    }
+
+    /**
+     * Sends the held datagrams that are due.
+     *
+     * @param now The current time in milliseconds.
+     * @throws IOException If a datagram cannot be sent.
+     */
+    void flush(long now) throws IOException {
+        while (!queue.isEmpty() && queue.peek().due <= now) {
+            Datagram datagram = queue.poll();
+            sentBytes += datagram.data.remaining();
+            sentDatagrams++;
+            channel.send(datagram.data, datagram.target);
+            datagram.target = null;
+            spare.add(datagram);
+        }
+    }
+
+    /**
+     * Receives the next datagram that has arrived, if any.
+     *
+     * @param into The buffer to receive into; it is cleared first and flipped for reading after.
+     * @return The address the datagram came from, or null if none has arrived.
+     * @throws IOException If the socket fails.
+     */
+    SocketAddress receive(ByteBuffer into) throws IOException {
+        into.clear();
+        SocketAddress from = channel.receive(into);
+        into.flip();
+        return from;
+    }
+
+    /**
+     * Closes the socket, dropping the datagrams still held back.
+     *
+     * @throws IOException If the socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        queue.clear();
+        channel.close();
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Imports necessary for the SimulationThread class.
+ */
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Steps the simulation on a thread of its own at the fixed tick rate, whatever the frame rate.
+ *
+ * Each tick is run while holding a lock, which only the key handler contends for when it changes the
+ * world, such as when a level starts; the renderer takes what the tick published through a
+ * {@link FrameExchange} instead and never waits for the simulation. Ticks are scheduled against a fixed
+ * timeline, so they do not drift, and a simulation that falls more than a few ticks behind starts
+ * again from the current time instead of catching up in a burst.
+ */
+class SimulationThread implements Runnable {
+    /**
+     * @param MAX_BEHIND_TICKS Number of ticks the simulation may fall behind before dropping time.
+     * @param lock Lock held while the simulation steps.
+     * @param tick Steps the simulation by one tick and publishes its frame.
+     * @param thread Thread running the simulation.
+     * @param running Flag telling the simulation to keep going.
+     */
+    private static final int MAX_BEHIND_TICKS = 5;
+
+    private final Object lock;
+    private final Runnable tick;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Constructs a simulation thread. Nothing runs until {@link #start()} is called.
+     *
+     * @param lock The lock held while the simulation steps.
+     * @param tick Steps the simulation by one tick and publishes its frame.
+     */
+    SimulationThread(Object lock, Runnable tick) {
+        this.lock = lock;
+        this.tick = tick;
+    }
+
+    /**
+     * Starts the simulation thread. It does not keep the application running on its own.
+     */
+    void start() {
+        running = true;
+        thread = new Thread(this, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the simulation thread and waits for it to finish.
+     */
+    void stop() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Runs the simulation: step a tick, then wait for the time of the next one.
+     */
+    @Override
+    public void run() {
+        long tickNanos = GameWorld.TICK_MILLIS * 1_000_000L;
+        long nextTick = System.nanoTime();
+        while (running) {
+            synchronized (lock) {
+                tick.run();
+            }
+            nextTick += tickNanos;
+            long now = System.nanoTime();
+            if (now - nextTick > MAX_BEHIND_TICKS * tickNanos) {
+                nextTick = now;
+            }
+            long remaining;
+            while ((remaining = nextTick - System.nanoTime()) > 0 && running) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+}
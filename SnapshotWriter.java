@@ -0,0 +1,160 @@
+/**
+ * Imports necessary for the SnapshotWriter class.
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes snapshot files on a thread of its own, so the thread that saves a game never waits on the disk.
+ *
+ * {@link #save(GameWorld, Path)} only takes the snapshot into a buffer, which the caller does while it
+ * holds the world's lock and which takes microseconds. A daemon thread then writes the buffer to its
+ * file with {@link GameSnapshot#save(ByteBuffer, Path)}, which maps, syncs and moves the file. While a
+ * file's request waits its turn, a newer request for the same file takes its place, so a slow disk
+ * never lets the requests pile up, and a deletion queued after a save is never undone by that save.
+ * Buffers are reused once written, so saving a game regularly only allocates while the world grows.
+ */
+class SnapshotWriter {
+    /**
+     * @param DELETE Marker for a request that deletes the file instead of writing it.
+     * @param pending Newest request of each file not yet started, in the order the files were requested.
+     * @param spare Buffers whose snapshots have been written or replaced, to be reused.
+     * @param thread Thread writing the files.
+     * @param busy Flag indicating if the thread is writing a file.
+     * @param failed Number of requests that failed.
+     */
+    private static final ByteBuffer DELETE = ByteBuffer.allocate(0);
+
+    private final Map<Path, ByteBuffer> pending = new LinkedHashMap<>();
+    private final ArrayDeque<ByteBuffer> spare = new ArrayDeque<>();
+    private final Thread thread;
+    private boolean busy;
+    private long failed;
+
+    /**
+     * Constructs a writer and starts its thread, which does not keep the application running on its own.
+     */
+    SnapshotWriter() {
+        thread = new Thread(this::run, "snapshot-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Takes a snapshot of the world and queues it to be written to a file.
+     *
+     * @param world The world, which must not change while this runs.
+     * @param file  The file to write.
+     */
+    void save(GameWorld world, Path file) {
+        int size = GameSnapshot.size(world);
+        ByteBuffer buffer;
+        synchronized (this) {
+            buffer = spare.poll();
+        }
+        if (buffer == null || buffer.capacity() < size) {
+            // Leave room for the world to grow a little before the buffer has to be replaced.
+            buffer = ByteBuffer.allocate(size + size / 2);
+        }
+        buffer.clear();
+        GameSnapshot.write(world, buffer);
+        buffer.flip();
+        submit(file, buffer);
+    }
+
+    /**
+     * Queues a file to be deleted, after any save of it queued before.
+     *
+     * @param file The file to delete.
+     */
+    void delete(Path file) {
+        submit(file, DELETE);
+    }
+
+    /**
+     * Waits until every request queued so far has been carried out.
+     */
+    synchronized void flush() {
+        try {
+            while (busy || !pending.isEmpty()) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of requests that failed so far.
+     *
+     * @return The number of failed requests.
+     */
+    synchronized long failed() {
+        return failed;
+    }
+
+    /**
+     * Queues a request, in place of a request for the same file that has not started yet.
+     *
+     * @param file     The file.
+     * @param snapshot The snapshot to write, or {@link #DELETE}.
+     */
+    private synchronized void submit(Path file, ByteBuffer snapshot) {
+        ByteBuffer replaced = pending.remove(file);
+        if (replaced != null && replaced != DELETE) {
+            spare.push(replaced);
+        }
+        pending.put(file, snapshot);
+        notifyAll();
+    }
+
+    /**
+     * Carries out the queued requests one by one, oldest file first, until the thread is interrupted.
+     */
+    private void run() {
+        while (true) {
+            Path file;
+            ByteBuffer snapshot;
+            synchronized (this) {
+                try {
+                    while (pending.isEmpty()) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Iterator<Map.Entry<Path, ByteBuffer>> oldest = pending.entrySet().iterator();
+                Map.Entry<Path, ByteBuffer> request = oldest.next();
+                oldest.remove();
+                file = request.getKey();
+                snapshot = request.getValue();
+                busy = true;
+            }
+            boolean ok = true;
+            try {
+                if (snapshot == DELETE) {
+                    Files.deleteIfExists(file);
+                } else {
+                    GameSnapshot.save(snapshot, file);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                ok = false;
+            }
+            synchronized (this) {
+                if (snapshot != DELETE) {
+                    spare.push(snapshot);
+                }
+                failed += ok ? 0 : 1;
+                busy = false;
+                notifyAll();
+            }
+        }
+    }
+}
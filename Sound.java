@@ -0,0 +1,21 @@
+/**
+ * The sound effects of the game, each decoded once from its WAV file.
+ */
+enum Sound {
+    SHOOT("shoot.wav"),
+    DEAD("dead.wav");
+
+    /**
+     * @param fileName Name of the WAV file holding the sound.
+     */
+    final String fileName;
+
+    /**
+     * Constructs a sound.
+     *
+     * @param fileName Name of the WAV file holding the sound.
+     */
+    Sound(String fileName) {
+        this.fileName = fileName;
+    }
+}
@@ -13,620 +13,587 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.awt.image.CropImageFilter;
-import java.awt.image.FilteredImageSource;
-import java.util.Iterator;
-import java.util.Random;
-import java.util.List;
-import java.util.ArrayList;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import java.io.File;
-
-/**
- * Represents an audio player capable of playing audio files.
- */
-class AudioPlayer {
-    /**
-     * Plays audio from a specified file path.
-     *
-     * @param filePath The path of the audio file to be played.
-     */
-    public static void play(String filePath) {
-        try {
-            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(new File(filePath).getAbsoluteFile());
-            Clip clip = AudioSystem.getClip();
-            clip.open(audioInputStream);
-            clip.start();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-}
-
-/**
- * Represents a star in the game.
- */
-class Star {
-    int x, y;
-    Color color;
-    int lifetime;
-
-    /**
-     * Constructs a new Star object with the specified properties.
-     *
-     * @param x        The x-coordinate of the star.
-     * @param y        The y-coordinate of the star.
-     * @param color    The color of the star.
-     * @param lifetime The remaining lifetime of the star.
-     */
-    Star(int x, int y, Color color, int lifetime) {
-        this.x = x;
-        this.y = y;
-        this.color = color;
-        this.lifetime = lifetime;
-    }
-}
-
-/**
- * Represents an obstacle in the game.
- */
-class Obstacle {
-    Point position;
-    int spriteIndex;
-
-    /**
-     * Constructs a new Obstacle object with the specified properties.
-     *
-     * @param x           The x-coordinate of the obstacle.
-     * @param y           The y-coordinate of the obstacle.
-     * @param spriteIndex The index of the obstacle sprite.
-     */
-    public Obstacle(int x, int y, int spriteIndex) {
-        this.position = new Point(x, y);
-        this.spriteIndex = spriteIndex;
-    }
-}
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * The Main SpaceGame Class.
+ *
+ * The frame is a view over a {@link GameWorld}: it turns key presses into input bits, steps the world
+ * on a {@link SimulationThread} of its own, and draws the frames the simulation publishes through a
+ * {@link FrameExchange}, blended between the last two ticks so motion stays smooth at any frame rate.
+ * The panel is repainted by a Swing timer at the frame rate given by -Dspacegame.fps (60 by default).
+ * With -Dspacegame.render=active it instead draws into a Canvas from an {@link ActiveRenderLoop}, at
+ * the same frame rate, or uncapped with 0. -Dspacegame.starDensity sets the average number of
+ * background stars spawned per tick (0.1 by default). -Dspacegame.record=DIR saves a replay of every game
+ * into DIR, to be checked with {@link ReplayPlayer}. -Dspacegame.world=WIDTHxHEIGHT plays in a world larger
+ * than the window, which scrolls with the player, and -Dspacegame.obstacles=N fills it with N obstacles
+ * at the start of each level. F3 shows the {@link GameProfiler} overlay, and
+ * -Dspacegame.profile=FILE profiles the whole session and writes the percentiles into FILE on exit.
+ * The player moves for as long as a direction key is held; -Dspacegame.input=repeat moves it one step
+ * per key event instead, auto-repeats included, as the original game did.
+ * F5 saves a {@link GameSnapshot} of the game into -Dspacegame.save (quicksave.sgs by default) and F9
+ * loads it back. Backspace rewinds the last two seconds of play from a {@link RollbackBuffer}.
+ * -Dspacegame.autosave=FILE snapshots the game into FILE every second and resumes from it on the next
+ * start, so a game survives a crash. Saves are written by a {@link SnapshotWriter} on a thread of its
+ * own, so neither the simulation nor the key handling waits on the disk.
+ *
+ * The window shows before any asset has loaded: the images and sounds are decoded in parallel by an
+ * {@link AssetManager} while the level selection screen is up, and until they are ready the game draws
+ * plain rectangles and stays silent. -Dspacegame.assets=FILE reads them from an {@link AssetBundle}
+ * instead of the separate files, and -Dspacegame.startupReport=true prints the time to the first frame
+ * and the time each asset took once everything has loaded.
+ *
+ * The window can be resized freely. Frames are always drawn at the 500x500 internal resolution and
+ * scaled to the window in one pass by a {@link ScaledFrame}, with the interpolation set by
+ * -Dspacegame.scaling (nearest, bilinear or bicubic; bilinear by default), so a large window costs no
+ * more to draw than a small one. -Dspacegame.fullscreen=true opens the window maximized and undecorated.
+ *
+ * When frames run over their time budget, a {@link QualityGovernor} draws fewer and cheaper
+ * stars, scales with nearest-neighbour and checks the HUD less often, and restores the quality once
+ * there is headroom again. -Dspacegame.quality=high, medium, low or minimal fixes the
+ * {@link QualityTier} instead (auto by default). The profiler overlay shows the active tier and load.
  */
 public class SpaceGame extends JFrame implements KeyListener {
     /**
-     * @param random Random number generator for generating random values.
-     * @param stars List of stars in the game.
      * @param WIDTH Width of the game window.
      * @param HEIGHT Height of the game window.
-     * @param PLAYER_WIDTH Width of the player character.
-     * @param PLAYER_HEIGHT Height of the player character.
-     * @param OBSTACLE_WIDTH Width of obstacles.
-     * @param OBSTACLE_HEIGHT Height of obstacles.
-     * @param PROJECTILE_WIDTH Width of projectiles.
-     * @param PROJECTILE_HEIGHT Height of projectiles.
-     * @param PLAYER_SPEED Speed of the player character.
-     * @param OBSTACLE_SPEED Speed of obstacles.
-     * @param score Current score in the game.
-     * @param health Current health of the player character.
-     * @param remainingTime Remaining time in the game.
-     * @param levelSelected Flag indicating if a game level is selected.
+     * @param ROLLBACK_TICKS Number of ticks of play kept for rewinding.
+     * @param ROLLBACK_KEYFRAME_TICKS Ticks between two snapshots of the rollback ring.
+     * @param REWIND_TICKS Number of ticks one press of backspace rewinds.
+     * @param LAUNCH_NANOS System.nanoTime() at which the game's class was loaded, the start of startup.
+     * @param assets Loader of the game's images and sounds.
+     * @param scaling Interpolation the frame is scaled with at the tiers that do not lower it.
+     * @param view Internal-resolution frame the game is drawn into and scaled to the window from.
+     * @param drawContent Draws the game into the internal-resolution frame.
+     * @param world The simulation being displayed, stepped by the simulation thread.
+     * @param displayed World the renderer draws, filled from the newest frame for each frame drawn.
+     * @param frames Frames handed from the simulation thread to the thread drawing.
+     * @param initialObstacles Number of obstacles the world is populated with when a level starts.
+     * @param input Keys held by the player, sampled once per simulation tick.
+     * @param audio Mixer playing the sound effects, from the events of the world.
+     * @param events Ring the world publishes its events to, followed by the audio and statistics subscribers.
+     * @param eventStats Counts of the events the world published, shown on the profiler overlay.
      * @param gamePanel Panel for rendering the game graphics.
-     * @param scoreLabel Label for displaying the current score.
-     * @param healthLabel Label for displaying the current health.
-     * @param timeLabel Label for displaying the remaining time.
-     * @param timer Timer for updating the game state.
-     * @param endGameTimer Timer for ending the game.
-     * @param shieldTimer Timer for the player's shield power-up.
-     * @param powerUpTimer Timer for activating power-ups.
-     * @param healthBuffActive Flag indicating if the health power-up is active.
-     * @param timeBuffActive Flag indicating if the time power-up is active.
-     * @param isGameOver Flag indicating if the game is over.
-     * @param shieldUsed Flag indicating if the shield power-up is used.
-     * @param playerX X-coordinate of the player character.
-     * @param playerY Y-coordinate of the player character.
-     * @param projectileX X-coordinate of the projectile.
-     * @param projectileY Y-coordinate of the projectile.
-     * @param isProjectileVisible Flag indicating if the projectile is visible.
-     * @param isFiring Flag indicating if the player character is firing.
-     * @param isShieldActive Flag indicating if the shield power-up is active.
-     * @param obstacles List of obstacles in the game.
-     * @param playerImage Image of the player character.
-     * @param obstacleImages Array of obstacle images.
-     * @param healthBuff Image of the health power-up.
-     * @param timeBuff Image of the time power-up.
-     * @param powerUpPosition Position of power-ups in the game.
+     * @param simulation Thread stepping the simulation.
+     * @param frameTimer Timer repainting the game panel at the frame rate.
+     * @param targetFps Frame rate the game is drawn at, or 0 for uncapped in active rendering mode.
+     * @param governor Chooses the quality tier frames are drawn at from the tick and frame costs.
+     * @param quality Quality tier the renderer, HUD and view are set to, or null before the first.
+     * @param renderer Renderer drawing the displayed world.
+     * @param hud Line showing the score, health and remaining time.
+     * @param replayDirectory Directory replays are saved into, or null when not recording.
+     * @param recorder Recorder of the game in progress, or null when not recording.
+     * @param activeRendering Flag indicating if frames are drawn by the active render loop.
+     * @param canvas Canvas drawn into by the active render loop.
+     * @param renderLoop Loop drawing the game in active rendering mode.
+     * @param profiler Profiler of the world, also timing the HUD and frames of this view.
+     * @param quickSaveFile File F5 saves the game into and F9 loads it from.
+     * @param autosaveFile File the game is saved into every second, or null when not autosaving.
+     * @param snapshots Writes the quick-saves and autosaves to disk off the simulation and event threads.
+     * @param rollback Inputs and snapshots of the last ticks of play.
+     * @param firstFrameNanos System.nanoTime() at which the first frame was drawn, or 0 before it.
      */
-
-    private Random random = new Random();
-    private List<Star> stars = new ArrayList<>();
-
-    private static final int WIDTH = 500;
-    private static final int HEIGHT = 500;
-    private static final int PLAYER_WIDTH = 50;
-    private static final int PLAYER_HEIGHT = 50;
-    private static final int OBSTACLE_WIDTH = 40;
-    private static final int OBSTACLE_HEIGHT = 40;
-    private static final int PROJECTILE_WIDTH = 5;
-    private static final int PROJECTILE_HEIGHT = 15;
-    private static final int PLAYER_SPEED = 10;
-    private int OBSTACLE_SPEED = 3;
-    private static final int PROJECTILE_SPEED = 10;
-    private int score = 0;
-    private int health = 5;
-    private int remainingTime = 30;
-    private boolean levelSelected = false;
+    private static final int WIDTH = GameWorld.WIDTH;
+    private static final int HEIGHT = GameWorld.HEIGHT;
+    private static final int ROLLBACK_TICKS = 5 * GameWorld.TICKS_PER_SECOND;
+    private static final int ROLLBACK_KEYFRAME_TICKS = GameWorld.TICKS_PER_SECOND / 2;
+    private static final int REWIND_TICKS = 2 * GameWorld.TICKS_PER_SECOND;
+    private static final long LAUNCH_NANOS = System.nanoTime();
+
+    private final AssetManager assets = AssetManager.createDefault(System.getProperty("spacegame.assets"));
+    private final String scaling = System.getProperty("spacegame.scaling", "bilinear");
+    private final ScaledFrame view = new ScaledFrame(WIDTH, HEIGHT, scaling);
+    private final Consumer<Graphics> drawContent = this::drawContent;
+    private final GameWorld world = createWorld(System.getProperty("spacegame.world"));
+    private final GameWorld displayed = new GameWorld(0, world.width, world.height);
+    private final FrameExchange frames = new FrameExchange();
+    private final int initialObstacles = Integer.getInteger("spacegame.obstacles", 0);
+    private final AudioMixer audio = AudioMixer.createDefault(assets);
+    private final EventRing events = new EventRing(1024);
+    private final EventStats eventStats = new EventStats();
 
     private JPanel gamePanel;
-    private JLabel scoreLabel;
-    private JLabel healthLabel;
-    private JLabel timeLabel;
-    private Timer timer;
-    private Timer endGameTimer;
-    private Timer shieldTimer;
-    private Timer powerUpTimer;
-    private boolean healthBuffActive = false;
-    private boolean timeBuffActive = false;
-    private boolean isGameOver;
-    private boolean shieldUsed = false;
-    private int playerX, playerY;
-    private int projectileX, projectileY;
-    private boolean isProjectileVisible;
-    private boolean isFiring;
-    private boolean isShieldActive = false;
-    private List<Obstacle> obstacles = new ArrayList<>();
-    private Image playerImage = new ImageIcon(getClass().getResource("rsH6n.png")).getImage();
-    private Image[] obstacleImages = new Image[4];
-    private Image healthBuff;
-    private Image timeBuff;
-    private Point powerUpPosition;
+    private final SimulationThread simulation = new SimulationThread(world, this::simulationTick);
+    private Timer frameTimer;
+    private final int targetFps = Integer.getInteger("spacegame.fps", 60);
+    private final QualityGovernor governor = new QualityGovernor(targetFps,
+        QualityGovernor.parseTier(System.getProperty("spacegame.quality", "auto")));
+    private QualityTier quality;
+    private GameRenderer renderer;
+    private HudLayer hud;
+    private final String replayDirectory = System.getProperty("spacegame.record");
+    private ReplayRecorder recorder;
+    private final boolean activeRendering = "active".equals(System.getProperty("spacegame.render"));
+    private Canvas canvas;
+    private ActiveRenderLoop renderLoop;
+    private final GameProfiler profiler = world.profiler;
+    private final InputState input = new InputState(profiler,
+        "repeat".equals(System.getProperty("spacegame.input")));
+    private final Path quickSaveFile = Paths.get(System.getProperty("spacegame.save", "quicksave.sgs"));
+    private final Path autosaveFile = autosavePath(System.getProperty("spacegame.autosave"));
+    private final SnapshotWriter snapshots = new SnapshotWriter();
+    private final RollbackBuffer rollback = new RollbackBuffer(ROLLBACK_TICKS, ROLLBACK_KEYFRAME_TICKS);
+    private long firstFrameNanos;
 
     /**
-     * This constructor initializes the game window, sets up the user interface, and initializes
-     * game-related variables such as player position, projectile position, and game state.
+     * This constructor initializes the game window, sets up the user interface, and starts loading the
+     * sprite atlas used to draw the game.
      */
     public SpaceGame() {
         setTitle("Space Game");
-        setSize(WIDTH, HEIGHT);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setResizable(false);
-        loadObstacleSprites();
+        if (Boolean.getBoolean("spacegame.fullscreen")) {
+            setUndecorated(true);
+            setExtendedState(JFrame.MAXIMIZED_BOTH);
+        }
+        world.starDensity = Float.parseFloat(System.getProperty("spacegame.starDensity",
+            String.valueOf(GameWorld.DEFAULT_STAR_DENSITY)));
+        events.subscribe("audio", this::playSound, false);
+        events.subscribe("stats", eventStats, true);
+        world.eventRing = events;
+        renderer = new GameRenderer(displayed, null);
+        assets.preload();
+        // The Vector API collision kernel warms itself up as it loads, which is done beside the assets
+        // rather than on the first frame.
+        CompletableFuture.runAsync(Collision::kernel);
+        SpriteAtlas.load(assets, getGraphicsConfiguration()).whenComplete((atlas, e) -> {
+            if (e != null) {
+                // The game stays playable with the rectangles drawn in place of the sprites.
+                e.printStackTrace();
+                return;
+            }
+            renderer.setAtlas(atlas);
+        });
+        hud = new HudLayer(displayed);
+        applyQuality(governor.tier());
+        // A quick-save made just before the window closes still reaches the disk.
+        Runtime.getRuntime().addShutdownHook(new Thread(snapshots::flush));
+        String profileFile = System.getProperty("spacegame.profile");
+        if (profileFile != null) {
+            profiler.setEnabled(true);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    profiler.dump(Paths.get(profileFile));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }));
+        }
+        if (activeRendering) {
+            // The render loop draws everything itself.
+            setIgnoreRepaint(true);
+            canvas = new Canvas();
+            canvas.setIgnoreRepaint(true);
+            canvas.setFocusable(true);
+            canvas.addKeyListener(this);
+            canvas.setPreferredSize(new Dimension(WIDTH, HEIGHT));
+            add(canvas);
+            pack();
+            return;
+        }
         gamePanel = new JPanel() {
             /**
-             * Overrides the paintComponent method to provide custom rendering of game graphics.
+             * Overrides the paintComponent method to provide custom rendering of game graphics. The
+             * frame covers the whole panel, bars included, so the background is not cleared first.
              *
              * @param g Graphics object for rendering.
              */
             @Override
             protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                // Draws different components based on game state.
-                if (!levelSelected) {
-                    drawLevelSelection(g);
-                } else if (isGameOver) {
-                    drawGameOver(g);
-                } else {
-                    drawGame(g);
-                }
+                drawFrame(g, getWidth(), getHeight(), getGraphicsConfiguration());
             }
         };
 
-        // Initializes and adds score label to the game panel.
-        scoreLabel = new JLabel("Score: 0");
-        scoreLabel.setBounds(10, 10, 100, 20);
-        scoreLabel.setForeground(Color.BLUE);
-        gamePanel.add(scoreLabel);
-
-        // Initializes and adds health label to the game panel.
-        healthLabel = new JLabel("Health: 5");
-        healthLabel.setBounds(10, 0, 100, 20);
-        healthLabel.setForeground(Color.ORANGE);
-        gamePanel.add(healthLabel);
-
-        // Initializes and adds time label to the game panel.
-        timeLabel = new JLabel("Time: " + remainingTime + "s");
-        timeLabel.setBounds(10, 50, 100, 20);
-        timeLabel.setForeground(Color.WHITE);
-        gamePanel.add(timeLabel);
-
+        gamePanel.setPreferredSize(new Dimension(WIDTH, HEIGHT));
         add(gamePanel);
+        pack();
         gamePanel.setFocusable(true);
         gamePanel.addKeyListener(this);
+    }
 
-        // Initializes player position.
-        playerX = WIDTH / 2 - PLAYER_WIDTH / 2;
-        playerY = HEIGHT - PLAYER_HEIGHT - 20;
-
-        // Initializes projectile position.
-        projectileX = playerX + PLAYER_WIDTH / 2 - PROJECTILE_WIDTH / 2;
-        projectileY = playerY;
-
-        // Initializes game state variables.
-        isProjectileVisible = false;
-        isGameOver = false;
-        isFiring = false;
-        obstacles = new ArrayList<>();
-
-        // Loads power-up images.
-        healthBuff = new ImageIcon(getClass().getResource("heartBuff.png")).getImage();
-        timeBuff = new ImageIcon(getClass().getResource("timeBuff.png")).getImage();
-        powerUpPosition = new Point(WIDTH / 2 - PLAYER_WIDTH / 2, HEIGHT - PLAYER_HEIGHT - 20);
+    /**
+     * Creates the world, as large as the window unless a larger size is given.
+     *
+     * @param size The size as WIDTHxHEIGHT, or null for the size of the window.
+     * @return The world.
+     */
+    private static GameWorld createWorld(String size) {
+        if (size == null) {
+            return new GameWorld();
+        }
+        String[] parts = size.split("x");
+        return new GameWorld(System.nanoTime(), Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
     }
 
     /**
-     * Starts the game timers responsible for updating game state and managing game events.
+     * Returns the autosave file.
      *
-     * This method initializes and starts three timers:
-     * - The main game timer, which updates the game state and repaints the game panel every 20 milliseconds.
-     * - The end game timer, which decrements the remaining time and ends the game when the time runs out.
-     * - The power-up timer, which randomly activates health or time buffs every 15 seconds.
+     * @param file The file name, or null when not autosaving.
+     * @return The file, or null.
      */
-    private void startGameTimers() {
-        // Main game timer.
-        timer = new Timer(20, e -> {
-            if (!isGameOver) {
-                update();
-                gamePanel.repaint();
-            }
-        });
-        timer.start();
-
-        // End game timer.
-        endGameTimer = new Timer(1000, e -> {
-            remainingTime--;
-            timeLabel.setText("Time: " + remainingTime + "s");
-            if (remainingTime <= 0) {
-                endGame();
-            }
-        });
-        endGameTimer.start();
-
-        // Power-up timer.
-        powerUpTimer = new Timer(15000, e -> {
-            if (new Random().nextBoolean()) {
-                healthBuffActive = true;
-            } else {
-                timeBuffActive = true;
-            }
-            gamePanel.repaint();
-        });
-        powerUpTimer.setRepeats(false);
-        powerUpTimer.start();
+    private static Path autosavePath(String file) {
+        return file == null ? null : Paths.get(file);
     }
 
     /**
-     * Stops all active game timers.
+     * Resumes the autosaved game, if there is one, and starts the simulation and the drawing of frames
+     * once the window is showing.
      */
-    private void stopGameTimers() {
-        // Stops the main game timer if it is active.
-        if (timer != null) {
-            timer.stop();
-        }
-        // Stops the end game timer if it is active.
-        if (endGameTimer != null) {
-            endGameTimer.stop();
+    private void startRendering() {
+        if (autosaveFile != null && Files.exists(autosaveFile)) {
+            loadSnapshot(autosaveFile);
         }
-        // Stops the power-up timer if it is active.
-        if (powerUpTimer != null) {
-            powerUpTimer.stop();
+        events.start();
+        simulation.start();
+        if (!activeRendering) {
+            frameTimer = new Timer(1000 / Math.max(1, targetFps), e -> gamePanel.repaint());
+            frameTimer.start();
+            return;
         }
+        renderLoop = new ActiveRenderLoop(canvas, targetFps, this::drawActiveFrame,
+            pacing -> EventQueue.invokeLater(() -> setTitle("Space Game - " + pacing)));
+        renderLoop.start();
+        canvas.requestFocus();
     }
 
     /**
-     * Starts the shield timer to deactivate the shield after a specified duration.
+     * Draws one frame in active rendering mode, the same as the game panel draws it.
      *
-     * This method initializes and starts a timer to deactivate the shield after 5 seconds.
+     * @param g Graphics object for rendering.
      */
-    private void startShieldTimer() {
-        shieldTimer = new Timer(5000, new ActionListener() {
-            /**
-             * Defines the action to be performed by the shield timer.
-             *
-             * @param e ActionEvent representing the action performed by the timer.
-             */
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                isShieldActive = false;
-                shieldTimer.stop();
-            }
-        });
-        shieldTimer.setRepeats(false);
-        shieldTimer.start();
+    private void drawActiveFrame(Graphics g) {
+        drawFrame(g, canvas.getWidth(), canvas.getHeight(), canvas.getGraphicsConfiguration());
     }
 
     /**
-     * Loads obstacle sprites from a sprite sheet image.
+     * Draws one frame at the internal resolution and scales it to the window.
      *
-     * This method loads obstacle sprites from a sprite sheet image named "spritesheet.png".
-     * It extracts each sprite from the sprite sheet and scales it to the specified obstacle width and height.
-     * The loaded sprites are stored in the obstacleImages array.
+     * @param g      Graphics object of the window's drawing area.
+     * @param width  The width of the drawing area.
+     * @param height The height of the drawing area.
+     * @param config The configuration of the drawing area's screen.
      */
-    private void loadObstacleSprites() {
-        int spriteWidth = 250;
-        int spriteHeight = 250;
-
-        Image spritesheet = new ImageIcon(getClass().getResource("spritesheet.png")).getImage();
-
-        // Iterate over each sprite in the sprite sheet.
-        for (int i = 0; i < 4; i++) {
-            // Calculate x-offset for current sprite.
-            int xOffset = i * (spriteWidth + 30);
-
-            // Create a filtered image source for the current sprite.
-            Image sprite = Toolkit.getDefaultToolkit().createImage(
-                new FilteredImageSource(spritesheet.getSource(),
-                new CropImageFilter(xOffset, 0, spriteWidth - 20, spriteHeight)));
+    private void drawFrame(Graphics g, int width, int height, GraphicsConfiguration config) {
+        long start = profiler.start();
+        long drawStart = System.nanoTime();
+        view.draw(g, width, height, config, drawContent);
+        applyQuality(governor.frameCost(System.nanoTime() - drawStart));
+        profiler.endFrame(start);
+        frameShown();
+    }
 
-            // Scale the sprite to the specified obstacle width and height.
-            obstacleImages[i] = sprite.getScaledInstance(OBSTACLE_WIDTH, OBSTACLE_HEIGHT, Image.SCALE_SMOOTH);
+    /**
+     * Sets the renderer, the HUD and the view to a quality tier, if they are not at it already.
+     *
+     * @param tier The tier.
+     */
+    private void applyQuality(QualityTier tier) {
+        if (tier == quality) {
+            return;
         }
+        quality = tier;
+        renderer.setQuality(tier);
+        hud.checkInterval = tier.hudInterval;
+        view.setInterpolation(tier.nearestScaling ? "nearest" : scaling);
     }
 
     /**
-     * This method draws the level selection screen on the provided Graphics object.
+     * Draws the game, the HUD and the profiler overlay at the internal resolution, from the newest
+     * frame the simulation published, blended from the tick before it by the time since it was published.
      *
-     * @param g The Graphics object on which the level selection screen is drawn.
+     * @param g Graphics object of the internal-resolution frame.
      */
-    private void drawLevelSelection(Graphics g) {
-        g.setColor(Color.BLACK);
-        g.fillRect(0, 0, WIDTH, HEIGHT);
-        g.setColor(Color.WHITE);
-        g.setFont(new Font("Arial", Font.BOLD, 24));
-        g.drawString("Select Level:", WIDTH / 2 - 100, HEIGHT / 2 - 30);
-        g.drawString("1 - Easy", WIDTH / 2 - 80, HEIGHT / 2);
-        g.drawString("2 - Hard", WIDTH / 2 - 80, HEIGHT / 2 + 30);
+    private void drawContent(Graphics g) {
+        FrameState frame = frames.latest();
+        double alpha = (System.nanoTime() - frame.publishedNanos) / (GameWorld.TICK_MILLIS * 1e6);
+        frame.present(frames.previous(), Math.min(1, alpha), displayed);
+        renderer.render(g);
+        drawHud(g);
+        profiler.drawOverlay(g);
+        if (profiler.overlayVisible) {
+            g.setColor(Color.YELLOW);
+            g.drawString(governor.status(), 6, 200);
+            g.drawString(eventStats.status() + ", " + events.dropped() + " sounds dropped", 6, 215);
+        }
     }
 
     /**
-     * Draws the game over screen.
-     *
-     * @param g The Graphics object on which the game over screen is drawn.
+     * Notes the time of the first frame and, when a startup report is wanted, prints it once every
+     * asset has loaded.
      */
-    private void drawGameOver(Graphics g) {
-        g.setColor(Color.BLACK);
-        g.fillRect(0, 0, WIDTH, HEIGHT);
-        g.setColor(Color.WHITE);
-        g.setFont(new Font("Arial", Font.BOLD, 24));
-        g.drawString("Game Over!", WIDTH / 2 - 100, HEIGHT / 2 - 20);
-        g.drawString("Press Enter to Play Again.", WIDTH / 2 - 180, HEIGHT / 2 + 20);
+    private void frameShown() {
+        if (firstFrameNanos != 0) {
+            return;
+        }
+        firstFrameNanos = System.nanoTime();
+        if (Boolean.getBoolean("spacegame.startupReport")) {
+            assets.allLoaded().whenComplete((loaded, e) -> System.out.printf("First frame %.1f ms after start%n%s%n",
+                (firstFrameNanos - LAUNCH_NANOS) / 1e6, assets.report(LAUNCH_NANOS)));
+        }
     }
 
     /**
-     * Draws the game components on the screen.
+     * Draws the score, health and time line while a game is running.
      *
-     * @param g The Graphics object on which the game components are drawn.
+     * @param g Graphics object for rendering.
      */
-    private void drawGame(Graphics g) {
-        // Set the background to black.
-        g.setColor(Color.BLACK);
-        g.fillRect(0, 0, WIDTH, HEIGHT);
-
-        // Draw the player using the player image.
-        g.drawImage(playerImage, playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT, this);
-
-        // Draw the projectile if it is visible, using a simple rectangle.
-        if (isProjectileVisible) {
-            g.setColor(Color.GREEN);
-            g.fillRect(projectileX, projectileY, PROJECTILE_WIDTH, PROJECTILE_HEIGHT);
+    private void drawHud(Graphics g) {
+        if (displayed.levelSelected && !displayed.isGameOver) {
+            long start = profiler.start();
+            hud.draw(g);
+            profiler.record(GameProfiler.HUD, start);
         }
+    }
 
-        // Draw each obstacle using the obstacle image.
-        for (Obstacle obstacle : obstacles) {
-            g.drawImage(obstacleImages[obstacle.spriteIndex], obstacle.position.x, obstacle.position.y, OBSTACLE_WIDTH, OBSTACLE_HEIGHT, this);
-        }
+    /**
+     * Runs one tick of the simulation thread: steps the world, then publishes the frame to draw, also
+     * while no game is running so the screen follows the level selection and game over.
+     *
+     * The countdown, power-up and shield timers are counted in simulation ticks by the world itself.
+     */
+    private void simulationTick() {
+        profiler.timerFired();
+        long start = System.nanoTime();
+        tick();
+        long end = System.nanoTime();
+        frames.back().capture(world, end);
+        frames.publish();
+        governor.tickCost(System.nanoTime() - start);
+    }
 
-        // Draw the shield if it is active.
-        if (isShieldActive) {
-            g.setColor(Color.GREEN);
-            g.drawOval(playerX - 5, playerY - 5, PLAYER_WIDTH + 10, PLAYER_HEIGHT + 10);
+    /**
+     * Steps the world once with the keys sampled for this tick, and saves the replay and drops the
+     * autosave once the game is over. The sounds follow the events the world publishes instead.
+     */
+    private void tick() {
+        if (world.isGameOver) {
+            return;
         }
-
-        // Draw stars.
-        Iterator<Star> it = stars.iterator();
-        while (it.hasNext()) {
-            Star star = it.next();
-            g.setColor(star.color);
-            g.fillOval(star.x, star.y, 4, 4);
-            if (--star.lifetime <= 0) {
-                it.remove();
+        int inputs = input.sample();
+        if (recorder != null && world.levelSelected) {
+            recorder.record(world.tick + 1, inputs);
+        }
+        world.step(inputs);
+        if (world.levelSelected) {
+            rollback.record(world, inputs);
+            if (autosaveFile != null && world.tick % GameWorld.TICKS_PER_SECOND == 0 && !world.isGameOver) {
+                saveSnapshot(autosaveFile);
             }
         }
 
-        // Draw power-ups if active.
-        if (healthBuffActive) {
-            g.drawImage(healthBuff, powerUpPosition.x, powerUpPosition.y, PLAYER_WIDTH, PLAYER_HEIGHT, this);
-        } else if (timeBuffActive) {
-            g.drawImage(timeBuff, powerUpPosition.x, powerUpPosition.y, PLAYER_WIDTH, PLAYER_HEIGHT, this);
+        if ((world.events & GameWorld.EVENT_GAME_OVER) != 0) {
+            saveReplay();
+            deleteAutosave();
         }
     }
 
     /**
-     * Updates the game state for each frame.
+     * Plays the sound of an event, on the audio subscriber's thread.
+     *
+     * @param type       The kind of event.
+     * @param tick       The tick the event happened on.
+     * @param player     The player the event concerns.
+     * @param value      The value of the event.
+     * @param endOfBatch Flag indicating if no further event was waiting when this batch was taken.
      */
-    private void update() {
-        if (levelSelected && !isGameOver) {
-            // Star Updater.
-            if (random.nextInt(10) < 1) {
-                int x = random.nextInt(WIDTH);
-                int y = random.nextInt(HEIGHT);
-                Color color = new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256));
-                stars.add(new Star(x, y, color, 100));
-            }
-
-            // Move obstacles.
-            Iterator<Obstacle> iterator = obstacles.iterator();
-            while (iterator.hasNext()) {
-                Obstacle obstacle = iterator.next();
-                obstacle.position.y += OBSTACLE_SPEED;
-                if (obstacle.position.y > HEIGHT) {
-                    iterator.remove();
-                }
-            }
-
-            // Generate new obstacles.
-            if (Math.random() < 0.02) {
-                createObstacle();
-            }
-
-            // Move projectile.
-            if (isProjectileVisible) {
-                projectileY -= PROJECTILE_SPEED;
-                if (projectileY < 0) {
-                    isProjectileVisible = false;
-                }
-            }
+    private void playSound(GameEvent type, long tick, int player, int value, boolean endOfBatch) {
+        if (type == GameEvent.SHOT_FIRED) {
+            audio.play(Sound.SHOOT);
+        } else if (type == GameEvent.PLAYER_DAMAGED) {
+            audio.play(Sound.DEAD);
+        }
+    }
 
-            // Check collision with player.
-            Rectangle playerRect = new Rectangle(playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT);
-            Rectangle powerUpRect = new Rectangle(powerUpPosition.x, powerUpPosition.y, PLAYER_WIDTH, PLAYER_HEIGHT);
+    /**
+     * Starts a level, reseeding the world and starting a replay recording when replays are being saved.
+     *
+     * @param obstacleSpeed The obstacle speed of the level.
+     */
+    private void startLevel(int obstacleSpeed) {
+        if (replayDirectory != null) {
+            long seed = System.nanoTime();
+            world.reseed(seed);
+            recorder = new ReplayRecorder(seed, obstacleSpeed, world.starDensity, world.width, world.height,
+                initialObstacles);
+        }
+        world.selectLevel(obstacleSpeed);
+        if (initialObstacles > 0) {
+            world.populate(initialObstacles);
+        }
+        rollback.start(world);
+    }
 
-            if (healthBuffActive && playerRect.intersects(powerUpRect)) {
-                health *= 2;
-                healthBuffActive = false;
-            }
-            if (timeBuffActive && playerRect.intersects(powerUpRect)) {
-                remainingTime *= 2;
-                timeBuffActive = false;
-            }
+    /**
+     * Saves a snapshot of the game into a file. Only the snapshot is taken here; the file is written by
+     * the snapshot writer's thread, which reports a failure on the console.
+     *
+     * @param file The file.
+     */
+    private void saveSnapshot(Path file) {
+        snapshots.save(world, file);
+    }
 
-            iterator = obstacles.iterator();
-            while (iterator.hasNext()) {
-                Obstacle obstacle = iterator.next();
-                Rectangle obstacleRect = new Rectangle(obstacle.position.x, obstacle.position.y, OBSTACLE_WIDTH, OBSTACLE_HEIGHT);
-                if (playerRect.intersects(obstacleRect) && !isShieldActive) {
-                    health -= 1;
-                    AudioPlayer.play("dead.wav");
-                    iterator.remove(); // Remove the obstacle that collided with the player.
-                    if (health <= 0) {
-                        isGameOver = true;
-                        stopGameTimers();
-                        break; // Exit loop to avoid concurrent modification exception.
-                    }
-                }
+    /**
+     * Loads a snapshot of a game from a file and carries on from it. A file that cannot be loaded
+     * leaves the game as it is. The file is read and checked without holding the world's lock, so the
+     * simulation only waits while the snapshot is applied; call this without holding it.
+     *
+     * @param file The file.
+     */
+    private void loadSnapshot(Path file) {
+        ByteBuffer snapshot;
+        try {
+            // A save of the file may still be on its way to the disk.
+            snapshots.flush();
+            snapshot = GameSnapshot.load(file);
+        } catch (IOException e) {
+            System.out.println("Cannot load " + file + ": " + e.getMessage());
+            return;
+        }
+        synchronized (world) {
+            try {
+                GameSnapshot.read(snapshot, world);
+            } catch (IOException e) {
+                System.out.println("Cannot load " + file + ": " + e.getMessage());
+                return;
             }
+            rollback.start(world);
+            resumeRestoredGame();
+        }
+    }
 
-            // Check collision with obstacle.
-            Rectangle projectileRect = new Rectangle(projectileX, projectileY, PROJECTILE_WIDTH, PROJECTILE_HEIGHT);
-            Iterator<Obstacle> obstacleIterator  = obstacles.iterator();
-            while (obstacleIterator .hasNext()) {
-                Obstacle obstacle = obstacleIterator .next();
-                Rectangle obstacleRect = new Rectangle(obstacle.position.x, obstacle.position.y, OBSTACLE_WIDTH, OBSTACLE_HEIGHT);
-                if (projectileRect.intersects(obstacleRect)) {
-                    obstacleIterator .remove();
-                    score += 10;
-                    isProjectileVisible = false;
-                    break;
-                }
-            }
+    /**
+     * Rewinds the game by the rollback ring's last few seconds and carries on from there.
+     */
+    private void rewind() {
+        if (rollback.rewind(world, REWIND_TICKS) > 0) {
+            resumeRestoredGame();
+        }
+    }
 
-            scoreLabel.setText("Score: " + score);
-            healthLabel.setText("Health: " + health);
+    /**
+     * Carries on with a game restored from a snapshot. The replay being recorded no longer matches the
+     * game, so it is dropped.
+     */
+    private void resumeRestoredGame() {
+        if (recorder != null) {
+            System.out.println("Stopped recording the replay of a game that was restored from a snapshot");
+            recorder = null;
         }
+        input.clear();
     }
 
     /**
-     * Creates a new obstacle and adds it to the list of obstacles.
+     * Deletes the autosave of a game that has ended, so the next start does not resume it. The file is
+     * deleted by the snapshot writer's thread, after any autosave still waiting to be written.
      */
-    private void createObstacle() {
-        int obstacleX = random.nextInt(WIDTH - OBSTACLE_WIDTH);
-        int spriteIndex = random.nextInt(obstacleImages.length);
-        obstacles.add(new Obstacle(obstacleX, -OBSTACLE_HEIGHT, spriteIndex));
+    private void deleteAutosave() {
+        if (autosaveFile != null) {
+            snapshots.delete(autosaveFile);
+        }
     }
 
     /**
-     * Ends the game by setting the game over flag, stopping all game timers, and triggering a repaint of the game panel.
+     * Writes the replay of the game that just ended, if one is being recorded.
      */
-    private void endGame() {
-        isGameOver = true;
-        stopGameTimers();
-        gamePanel.repaint();
+    private void saveReplay() {
+        if (recorder == null) {
+            return;
+        }
+        Path file = Paths.get(replayDirectory, "replay-" + System.currentTimeMillis() + ".sgr");
+        try {
+            Files.createDirectories(file.getParent());
+            recorder.finish(world, file);
+            System.out.println("Saved replay " + file + " (" + ReplayPlayer.describe(world) + ")");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        recorder = null;
     }
 
     /**
-     * Restarts the game by resetting all game state variables, starting game timers, and updating the player's position.
+     * Restarts the game by resetting the world and returning to the level selection screen.
      */
     private void restartGame() {
-        // Reset all game state variables
-        score = 0;
-        health = 5;
-        remainingTime = 30;
-        startGameTimers();
-        playerX = WIDTH / 2 - PLAYER_WIDTH / 2;
-        playerY = HEIGHT - PLAYER_HEIGHT - 20;
-        projectileX = playerX + PLAYER_WIDTH / 2 - PROJECTILE_WIDTH / 2;
-        projectileY = playerY;
-        isProjectileVisible = false;
-        isGameOver = false;
-        shieldUsed = false;
-        healthBuffActive = false;
-        timeBuffActive = false;
-        obstacles.clear();
-        gamePanel.repaint();
+        world.reset();
+        input.clear();
+        rollback.clear();
     }
 
     /**
      * This method overrides the keyPressed method in the KeyListener interface. It listens for key events and
      * performs corresponding actions based on the keys pressed. If no level has been selected, it allows the
-     * player to choose between two difficulty levels. Once a level is selected, it enables game controls such as
-     * moving the player left or right, firing projectiles, and activating the shield. It also allows the player
-     * to restart the game after it's over by pressing the Enter key.
+     * player to choose between two difficulty levels. Once a level is selected, it records the game controls
+     * the player holds, such as moving left or right, firing projectiles, switching weapons with W, and
+     * activating the shield, for the simulation to sample on its next tick. It also allows the player to
+     * restart the game after it's over by pressing the Enter key, toggles the profiler overlay with F3,
+     * quick-saves with F5, quick-loads with F9 and rewinds with backspace.
      *
      * @param e The KeyEvent representing the key press event.
      */
     @Override
     public void keyPressed(KeyEvent e) {
-        int keyCode = e.getKeyCode();
+        // Quick-load reads its file before it takes the lock itself.
+        if (e.getKeyCode() == KeyEvent.VK_F9) {
+            loadSnapshot(quickSaveFile);
+            return;
+        }
+        // The simulation thread steps the world while holding this lock.
+        synchronized (world) {
+            handleKey(e.getKeyCode());
+        }
+    }
+
+    /**
+     * Performs the action of a pressed key.
+     *
+     * @param keyCode The key code of the pressed key.
+     */
+    private void handleKey(int keyCode) {
+
+        // Toggle the profiler overlay, starting the profiler the first time it is shown.
+        if (keyCode == KeyEvent.VK_F3) {
+            profiler.overlayVisible = !profiler.overlayVisible;
+            if (profiler.overlayVisible && !profiler.isEnabled()) {
+                profiler.setEnabled(true);
+            }
+            return;
+        }
+
+        // Quick-save and rewind; quick-load is handled before the lock is taken.
+        if (keyCode == KeyEvent.VK_F5 && world.levelSelected) {
+            saveSnapshot(quickSaveFile);
+            return;
+        }
+        if (keyCode == KeyEvent.VK_BACK_SPACE && world.levelSelected) {
+            rewind();
+            return;
+        }
 
         // Handle level selection if no level has been selected
-        if (!levelSelected) {
+        if (!world.levelSelected) {
             if (keyCode == KeyEvent.VK_1) {
-                levelSelected = true;
-                OBSTACLE_SPEED = 3;
-                startGameTimers();
+                startLevel(3);
             } else if (keyCode == KeyEvent.VK_2) {
-                levelSelected = true;
-                OBSTACLE_SPEED = 6;
-                startGameTimers();
+                startLevel(6);
             }
-            gamePanel.repaint();
             return;
         }
 
-        // Game controls
-        if (!isGameOver) {
-            if (keyCode == KeyEvent.VK_LEFT && playerX > 0) {
-                playerX -= PLAYER_SPEED;
-            } else if (keyCode == KeyEvent.VK_RIGHT && playerX < WIDTH - PLAYER_WIDTH) {
-                playerX += PLAYER_SPEED;
-            } else if (keyCode == KeyEvent.VK_SPACE && !isFiring) {
-                isFiring = true;
-                AudioPlayer.play("shoot.wav");
-                projectileX = playerX + PLAYER_WIDTH / 2 - PROJECTILE_WIDTH / 2;
-                projectileY = playerY;
-                isProjectileVisible = true;
-                new Thread(new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            Thread.sleep(500);
-                            isFiring = false;
-                        } catch (InterruptedException ex) {
-                            ex.printStackTrace();
-                        }
-                    }
-                }).start();
-            } else if (keyCode == KeyEvent.VK_S && !isShieldActive && !shieldUsed) {
-                isShieldActive = true;
-                shieldUsed = true;
-                startShieldTimer();
-            }
+        // Game controls, held until the key is released. The fire cooldown is counted by the world.
+        if (!world.isGameOver) {
+            input.press(inputBit(keyCode));
         }
 
         // Restart game if game over and enter is pressed
-        if (keyCode == KeyEvent.VK_ENTER && isGameOver) {
+        if (keyCode == KeyEvent.VK_ENTER && world.isGameOver) {
             restartGame();
-            levelSelected = false;
-            stopGameTimers();
-            gamePanel.repaint();
         }
     }
 
@@ -639,12 +606,38 @@ public class SpaceGame extends JFrame implements KeyListener {
     public void keyTyped(KeyEvent e) {}
 
     /**
-     * Unused method required by the KeyListener interface.
+     * This method overrides the keyReleased method in the KeyListener interface. It releases the game
+     * control of the key, if it has one.
      *
      * @param e The KeyEvent representing the key released event.
      */
     @Override
-    public void keyReleased(KeyEvent e) {}
+    public void keyReleased(KeyEvent e) {
+        input.release(inputBit(e.getKeyCode()));
+    }
+
+    /**
+     * Maps a key to the input bit of its game control.
+     *
+     * @param keyCode The key code of the key.
+     * @return The input bit, or 0 if the key is not a game control.
+     */
+    private static int inputBit(int keyCode) {
+        switch (keyCode) {
+            case KeyEvent.VK_LEFT:
+                return GameWorld.INPUT_LEFT;
+            case KeyEvent.VK_RIGHT:
+                return GameWorld.INPUT_RIGHT;
+            case KeyEvent.VK_SPACE:
+                return GameWorld.INPUT_FIRE;
+            case KeyEvent.VK_S:
+                return GameWorld.INPUT_SHIELD;
+            case KeyEvent.VK_W:
+                return GameWorld.INPUT_SWITCH_WEAPON;
+            default:
+                return 0;
+        }
+    }
 
     /**
      * The entry point for the SpaceGame application.
@@ -655,7 +648,9 @@ public class SpaceGame extends JFrame implements KeyListener {
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
-                new SpaceGame().setVisible(true);
+                SpaceGame game = new SpaceGame();
+                game.setVisible(true);
+                game.startRendering();
             }
         });
     }
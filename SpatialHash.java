@@ -0,0 +1,265 @@
+/**
+ * Imports necessary for the SpatialHash class.
+ */
+import java.util.Arrays;
+
+/**
+ * A uniform-grid broadphase over the obstacle pool.
+ *
+ * Every obstacle is filed under the grid cell that holds its top-left corner. Because obstacles are
+ * never larger than a cell, a query only has to widen its box by one obstacle size up and to the left
+ * to find every obstacle that might overlap it. The grid is rebuilt from the pool with a counting sort,
+ * so a rebuild is O(obstacles + cells) and never allocates once its arrays are big enough. Positions
+ * outside the grid are clamped into the border cells, which keeps queries exact for any coordinate.
+ *
+ * The grid keeps a copy of each filed item's position next to its slot, so the cells of one row of a
+ * query hold their items' positions one after the other, and a query tests each row's candidates in
+ * one batch with {@link Collision#intersectsAll} once there are enough of them to pay for the call.
+ * A query that covers so much of the grid that most items are candidates instead tests every filed
+ * item in one pass over the pool's coordinate arrays, which also finds them in slot order, so nothing
+ * has to be sorted. Either way a query sees the items where they were when the grid was last built.
+ *
+ * For a world larger than the grid, {@link #build(ObstaclePool, int, int)} moves the grid over the area
+ * of interest and files only the items that overlap it or lie below it; queries are then exact inside
+ * that area and below it.
+ */
+class SpatialHash {
+    /**
+     * @param SCAN_FRACTION Fraction of the filed items, as its inverse, above which a query's candidates
+     *     are tested with one pass over the whole pool instead.
+     * @param BATCH_LENGTH Fewest candidates in a row for which the batched box test beats testing them one
+     *     at a time.
+     * @param minX The x-coordinate of the left edge of the grid.
+     * @param minY The y-coordinate of the top edge of the grid.
+     * @param cellSize Width and height of one cell.
+     * @param columns Number of cell columns.
+     * @param rows Number of cell rows.
+     * @param itemWidth Width of every item in the grid.
+     * @param itemHeight Height of every item in the grid.
+     * @param cellStart Offset into cellItems of each cell's items; cell c holds cellStart[c] up to cellStart[c + 1].
+     * @param cellItems Pool slots of the items, grouped by cell.
+     * @param cellX X-coordinate of each item in cellItems, at the same index.
+     * @param cellY Y-coordinate of each item in cellItems, at the same index.
+     * @param itemCell Cell of each pool slot, or -1 for an item left out, kept from the last rebuild.
+     * @param filed Number of pool slots the grid was last built from.
+     * @param hits Hit flags written by a query's batched tests: of each index into cellItems, or of each
+     *     pool slot in the pass over the pool of a large query.
+     */
+    private static final int SCAN_FRACTION = 8;
+    private static final int BATCH_LENGTH = 16;
+
+    private int minX;
+    private int minY;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final int itemWidth;
+    private final int itemHeight;
+    private final int[] cellStart;
+    private int[] cellItems = new int[64];
+    private int[] cellX = new int[64];
+    private int[] cellY = new int[64];
+    private int[] itemCell = new int[64];
+    private int filed;
+    private boolean[] hits = new boolean[64];
+
+    /**
+     * Constructs an empty grid covering the given area.
+     *
+     * @param minX       The x-coordinate of the left edge of the area.
+     * @param minY       The y-coordinate of the top edge of the area.
+     * @param width      The width of the area.
+     * @param height     The height of the area.
+     * @param cellSize   The width and height of one cell, at least as large as the items.
+     * @param itemWidth  The width of every item in the grid.
+     * @param itemHeight The height of every item in the grid.
+     */
+    SpatialHash(int minX, int minY, int width, int height, int cellSize, int itemWidth, int itemHeight) {
+        if (itemWidth > cellSize || itemHeight > cellSize) {
+            throw new IllegalArgumentException("Items must fit in one cell");
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (width + cellSize - 1) / cellSize);
+        this.rows = Math.max(1, (height + cellSize - 1) / cellSize);
+        this.itemWidth = itemWidth;
+        this.itemHeight = itemHeight;
+        this.cellStart = new int[columns * rows + 1];
+    }
+
+    /**
+     * Rebuilds the grid from the current obstacle positions.
+     *
+     * @param pool The obstacles to file.
+     */
+    void build(ObstaclePool pool) {
+        build(pool, false);
+    }
+
+    /**
+     * Moves the grid so its top-left corner is at the given position and rebuilds it from the obstacles
+     * that overlap its new area. Obstacles above the area or beside it are left out; obstacles below it
+     * are filed in its bottom row, since they are still falling out of the world and a query reaching
+     * past the bottom edge must find them.
+     *
+     * @param pool The obstacles to file.
+     * @param x    The new x-coordinate of the left edge of the grid.
+     * @param y    The new y-coordinate of the top edge of the grid.
+     */
+    void build(ObstaclePool pool, int x, int y) {
+        minX = x;
+        minY = y;
+        build(pool, true);
+    }
+
+    /**
+     * Rebuilds the grid from the current obstacle positions.
+     *
+     * @param pool The obstacles to file.
+     * @param clip True to leave out the obstacles above the grid's area or beside it.
+     */
+    private void build(ObstaclePool pool, boolean clip) {
+        int count = pool.count;
+        filed = count;
+        if (cellItems.length < count) {
+            cellItems = new int[pool.x.length];
+            cellX = new int[pool.x.length];
+            cellY = new int[pool.x.length];
+            itemCell = new int[pool.x.length];
+            hits = new boolean[pool.x.length];
+        }
+        Arrays.fill(cellStart, 0);
+        int maxX = minX + columns * cellSize;
+
+        // Count the items per cell, shifted by one so the prefix sum yields start offsets.
+        for (int i = 0; i < count; i++) {
+            int x = pool.x[i];
+            int y = pool.y[i];
+            if (clip && (x + itemWidth <= minX || x >= maxX || y + itemHeight <= minY)) {
+                itemCell[i] = -1;
+                continue;
+            }
+            int cell = column(x) + row(y) * columns;
+            itemCell[i] = cell;
+            cellStart[cell + 1]++;
+        }
+        for (int c = 1; c < cellStart.length; c++) {
+            cellStart[c] += cellStart[c - 1];
+        }
+
+        // Scatter the items, using the start offsets as write cursors and restoring them afterwards.
+        for (int i = 0; i < count; i++) {
+            if (itemCell[i] >= 0) {
+                int k = cellStart[itemCell[i]]++;
+                cellItems[k] = i;
+                cellX[k] = pool.x[i];
+                cellY[k] = pool.y[i];
+            }
+        }
+        for (int c = cellStart.length - 1; c > 0; c--) {
+            cellStart[c] = cellStart[c - 1];
+        }
+        cellStart[0] = 0;
+    }
+
+    /**
+     * Collects the pool slots of every item that intersects a box, in ascending slot order, which is the
+     * order a plain loop over the pool would have found them in.
+     *
+     * @param pool The obstacles the grid was built from.
+     * @param x    The x-coordinate of the box.
+     * @param y    The y-coordinate of the box.
+     * @param w    The width of the box.
+     * @param h    The height of the box.
+     * @param out  Receives the matching slots; must be at least as long as the pool's count.
+     * @return The number of slots written to out.
+     */
+    int query(ObstaclePool pool, int x, int y, int w, int h, int[] out) {
+        if (w <= 0 || h <= 0) {
+            return 0;
+        }
+        int firstColumn = column(x - itemWidth);
+        int lastColumn = column(x + w);
+        int firstRow = row(y - itemHeight);
+        int lastRow = row(y + h);
+        int found = 0;
+        int candidates = 0;
+        for (int r = firstRow; r <= lastRow; r++) {
+            // The cells from the first to the last column of a row are filed one after the other.
+            candidates += cellStart[r * columns + lastColumn + 1] - cellStart[r * columns + firstColumn];
+        }
+        if (candidates > filed / SCAN_FRACTION) {
+            // Testing every item is cheaper than following the cells and sorting what they hold.
+            Collision.intersectsAll(x, y, w, h, pool.x, pool.y, itemWidth, itemHeight, 0, filed, hits);
+            for (int i = 0; i < filed; i++) {
+                if (hits[i] && itemCell[i] >= 0) {
+                    out[found++] = i;
+                }
+            }
+            return found;
+        }
+        for (int r = firstRow; r <= lastRow; r++) {
+            // The cells from the first to the last column of a row hold one run of items.
+            int start = cellStart[r * columns + firstColumn];
+            int end = cellStart[r * columns + lastColumn + 1];
+            if (end - start < BATCH_LENGTH) {
+                for (int k = start; k < end; k++) {
+                    if (Collision.intersects(x, y, w, h, cellX[k], cellY[k], itemWidth, itemHeight)) {
+                        out[found++] = cellItems[k];
+                    }
+                }
+                continue;
+            }
+            Collision.intersectsAll(x, y, w, h, cellX, cellY, itemWidth, itemHeight, start, end, hits);
+            for (int k = start; k < end; k++) {
+                if (hits[k]) {
+                    out[found++] = cellItems[k];
+                }
+            }
+        }
+        sortAscending(out, found);
+        return found;
+    }
+
+    /**
+     * Returns the column holding the given x-coordinate, clamped to the grid.
+     *
+     * @param x The x-coordinate.
+     * @return The column index.
+     */
+    private int column(int x) {
+        int c = Math.floorDiv(x - minX, cellSize);
+        return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+    }
+
+    /**
+     * Returns the row holding the given y-coordinate, clamped to the grid.
+     *
+     * @param y The y-coordinate.
+     * @return The row index.
+     */
+    private int row(int y) {
+        int r = Math.floorDiv(y - minY, cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    /**
+     * Sorts the first n values of an array with an insertion sort, which is the fastest choice for the
+     * handful of hits a query usually returns.
+     *
+     * @param values The array to sort.
+     * @param n      The number of values to sort.
+     */
+    private static void sortAscending(int[] values, int n) {
+        for (int i = 1; i < n; i++) {
+            int v = values[i];
+            int j = i - 1;
+            while (j >= 0 && values[j] > v) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = v;
+        }
+    }
+}
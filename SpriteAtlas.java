@@ -0,0 +1,214 @@
+/**
+ * Imports necessary for the SpriteAtlas class.
+ */
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * All of the game's sprites, decoded up front, scaled to their on-screen size and packed side by side
+ * into one image.
+ *
+ * The atlas is created compatible with the screen's {@link GraphicsConfiguration}, so Java2D can keep
+ * it in video memory, and every sprite already has the size it is drawn at. Drawing a sprite is a
+ * plain unscaled copy of its region of the atlas.
+ *
+ * The images are decoded, and each sprite cut out and scaled, as separate tasks of an
+ * {@link AssetManager}, so they all run in parallel and the atlas is packed as soon as the last one is done.
+ */
+class SpriteAtlas {
+    /**
+     * Sprite indices. The obstacle sprites are OBSTACLE + spriteIndex.
+     */
+    static final int PLAYER = 0;
+    static final int HEALTH_BUFF = 1;
+    static final int TIME_BUFF = 2;
+    static final int OBSTACLE = 3;
+    static final int SPRITE_COUNT = OBSTACLE + GameWorld.OBSTACLE_SPRITE_COUNT;
+
+    /**
+     * @param IMAGE_FILES File names of the images the atlas is made from.
+     */
+    static final List<String> IMAGE_FILES = List.of("rsH6n.png", "heartBuff.png", "timeBuff.png", "spritesheet.png");
+
+    /**
+     * @param SHEET_SPRITE_WIDTH Width of one obstacle on the sprite sheet, including its right margin.
+     * @param SHEET_SPRITE_HEIGHT Height of one obstacle on the sprite sheet.
+     * @param SHEET_SPRITE_SPACING Horizontal distance between two obstacles on the sprite sheet.
+     * @param image The packed atlas.
+     * @param regions Region of the atlas holding each sprite.
+     */
+    private static final int SHEET_SPRITE_WIDTH = 250;
+    private static final int SHEET_SPRITE_HEIGHT = 250;
+    private static final int SHEET_SPRITE_SPACING = 30;
+
+    private final BufferedImage image;
+    private final Rectangle[] regions;
+
+    /**
+     * Constructs an atlas from sprites that are already at their final size.
+     *
+     * @param image   The packed atlas.
+     * @param regions The region of the atlas holding each sprite.
+     */
+    private SpriteAtlas(BufferedImage image, Rectangle[] regions) {
+        this.image = image;
+        this.regions = regions;
+    }
+
+    /**
+     * Decodes the game's images and packs them into an atlas, waiting until it is done.
+     *
+     * @param config The configuration of the screen the atlas is drawn to, or null when headless.
+     * @return The atlas.
+     * @throws IOException If an image cannot be read.
+     */
+    static SpriteAtlas load(GraphicsConfiguration config) throws IOException {
+        try (AssetManager assets = new AssetManager(null, Runtime.getRuntime().availableProcessors())) {
+            return load(assets, config).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Starts decoding the game's images and packing them into an atlas.
+     *
+     * @param assets The manager to load the images with.
+     * @param config The configuration of the screen the atlas is drawn to, or null when headless.
+     * @return The future of the atlas, which fails if an image cannot be read.
+     */
+    static CompletableFuture<SpriteAtlas> load(AssetManager assets, GraphicsConfiguration config) {
+        List<CompletableFuture<BufferedImage>> sprites = new ArrayList<>();
+        sprites.add(scaled(assets, "rsH6n.png", GameWorld.PLAYER_WIDTH, GameWorld.PLAYER_HEIGHT));
+        sprites.add(scaled(assets, "heartBuff.png", GameWorld.PLAYER_WIDTH, GameWorld.PLAYER_HEIGHT));
+        sprites.add(scaled(assets, "timeBuff.png", GameWorld.PLAYER_WIDTH, GameWorld.PLAYER_HEIGHT));
+
+        // Cut each obstacle out of the sprite sheet, clipped to the sheet as CropImageFilter did.
+        CompletableFuture<BufferedImage> sheet = assets.image("spritesheet.png");
+        for (int i = 0; i < GameWorld.OBSTACLE_SPRITE_COUNT; i++) {
+            int index = i;
+            sprites.add(assets.derive("spritesheet.png #" + i, sheet, source -> {
+                Rectangle crop = new Rectangle(index * (SHEET_SPRITE_WIDTH + SHEET_SPRITE_SPACING), 0,
+                    SHEET_SPRITE_WIDTH - 20, SHEET_SPRITE_HEIGHT).intersection(new Rectangle(source.getWidth(), source.getHeight()));
+                BufferedImage sprite = source.getSubimage(crop.x, crop.y, crop.width, crop.height);
+                return scale(sprite, GameWorld.OBSTACLE_WIDTH, GameWorld.OBSTACLE_HEIGHT);
+            }));
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(sprites.toArray(new CompletableFuture<?>[0]));
+        return assets.derive("sprite atlas", all, done -> {
+            // Every sprite is done by now, so joining does not wait.
+            BufferedImage[] scaled = new BufferedImage[SPRITE_COUNT];
+            for (int i = 0; i < SPRITE_COUNT; i++) {
+                scaled[i] = sprites.get(i).join();
+            }
+            return pack(scaled, config);
+        });
+    }
+
+    /**
+     * Starts decoding an image and scaling it to its on-screen size.
+     *
+     * @param assets The manager to load the image with.
+     * @param name   The file name of the image.
+     * @param width  The on-screen width.
+     * @param height The on-screen height.
+     * @return The future of the scaled image.
+     */
+    private static CompletableFuture<BufferedImage> scaled(AssetManager assets, String name, int width, int height) {
+        return assets.derive(name + " scaled", assets.image(name), image -> scale(image, width, height));
+    }
+
+    /**
+     * Draws a sprite with its top-left corner at the given position.
+     *
+     * @param g      The Graphics object to draw on.
+     * @param sprite The index of the sprite.
+     * @param x      The x-coordinate to draw at.
+     * @param y      The y-coordinate to draw at.
+     */
+    void draw(Graphics g, int sprite, int x, int y) {
+        Rectangle r = regions[sprite];
+        g.drawImage(image, x, y, x + r.width, y + r.height, r.x, r.y, r.x + r.width, r.y + r.height, null);
+    }
+
+    /**
+     * Returns the packed atlas image.
+     *
+     * @return The atlas image.
+     */
+    BufferedImage image() {
+        return image;
+    }
+
+    /**
+     * Scales an image to the given size, halving it with bilinear filtering until the last step, which
+     * keeps large downscales as smooth as Image.SCALE_SMOOTH.
+     *
+     * @param source The image to scale.
+     * @param width  The target width.
+     * @param height The target height.
+     * @return The scaled image.
+     */
+    static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = Math.max(width, w / 2);
+            h = Math.max(height, h / 2);
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(current, 0, 0, w, h, null);
+            g.dispose();
+            current = next;
+        } while (w != width || h != height);
+        return current;
+    }
+
+    /**
+     * Packs the sprites left to right into one image.
+     *
+     * @param sprites The sprites at their final size.
+     * @param config  The configuration to make the atlas compatible with, or null.
+     * @return The atlas.
+     */
+    private static SpriteAtlas pack(BufferedImage[] sprites, GraphicsConfiguration config) {
+        int width = 0;
+        int height = 0;
+        for (BufferedImage sprite : sprites) {
+            width += sprite.getWidth();
+            height = Math.max(height, sprite.getHeight());
+        }
+        BufferedImage atlas = config != null
+            ? config.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+            : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+
+        Rectangle[] regions = new Rectangle[sprites.length];
+        Graphics2D g = atlas.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        int x = 0;
+        for (int i = 0; i < sprites.length; i++) {
+            g.drawImage(sprites[i], x, 0, null);
+            regions[i] = new Rectangle(x, 0, sprites[i].getWidth(), sprites[i].getHeight());
+            x += sprites[i].getWidth();
+        }
+        g.dispose();
+        return new SpriteAtlas(atlas, regions);
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Imports necessary for the TickEvent class.
+ */
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event for one simulation tick, with the time spent in each of its phases.
+ */
+@Name("spacegame.Tick")
+@Label("Simulation Tick")
+@Category("Space Game")
+@Description("One fixed-timestep tick of the game simulation")
+class TickEvent extends Event {
+    @Label("Tick")
+    long tick;
+
+    @Label("Spawn")
+    @Timespan(Timespan.NANOSECONDS)
+    long spawnNanos;
+
+    @Label("Move")
+    @Timespan(Timespan.NANOSECONDS)
+    long moveNanos;
+
+    @Label("Collide")
+    @Timespan(Timespan.NANOSECONDS)
+    long collideNanos;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocatedBytes;
+}
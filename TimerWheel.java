@@ -0,0 +1,330 @@
+/**
+ * Imports necessary for the TimerWheel class.
+ */
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A hierarchical timer wheel counting simulation ticks.
+ *
+ * Each pending timer carries an int event code and the tick it is due on. The wheel has
+ * {@link #LEVELS} levels of {@link #SLOTS} slots; level 0 holds timers due within the next 64 ticks,
+ * one slot per tick, and each higher level covers 64 times the span of the one below. Whenever the
+ * lower levels complete a rotation, the timers in the next slot of the level above are moved down.
+ * Scheduling, cancelling and expiring a timer are all O(1), however many timers are pending.
+ *
+ * The wheel only moves when {@link #advance()} is called, once per simulation tick, so pausing the
+ * game pauses every timer and stepping faster plays them out faster. The timers due on a tick are
+ * handed out in a fixed order that depends only on the calls made, which keeps seeded games
+ * reproducible. Timers live in parallel arrays that only grow, so the wheel does not allocate once
+ * it has held the most timers it ever needs. The pending timers can be written to a buffer and read
+ * back into the same lists in the same order, so a restored wheel hands them out exactly as the
+ * original would have.
+ */
+class TimerWheel {
+    /**
+     * @param LEVEL_BITS Number of tick bits resolved by each level.
+     * @param SLOTS Number of slots in each level.
+     * @param LEVELS Number of levels.
+     * @param MAX_DELAY Longest delay that can be scheduled, in ticks.
+     * @param DUE Index of the list of timers due on the current tick, after the wheel slots.
+     * @param NONE Index marking the end of a list.
+     * @param TIMER_BYTES Size of one timer written by {@link #write(ByteBuffer)}.
+     * @param now Tick the wheel was last advanced to.
+     * @param heads First timer of each slot and of the due list.
+     * @param tails Last timer of each slot and of the due list.
+     * @param deadline Tick each timer is due on.
+     * @param event Event code of each timer.
+     * @param next Next timer in the same list, or the next free timer.
+     * @param prev Previous timer in the same list.
+     * @param list Slot or due list each timer is in.
+     * @param free First unused timer.
+     * @param pending Number of pending timers.
+     */
+    static final int LEVEL_BITS = 6;
+    static final int SLOTS = 1 << LEVEL_BITS;
+    static final int LEVELS = 4;
+    static final long MAX_DELAY = (1L << (LEVEL_BITS * LEVELS)) - 1;
+    private static final int DUE = LEVELS * SLOTS;
+    private static final int NONE = -1;
+    private static final int TIMER_BYTES = 14;
+
+    long now;
+    private final int[] heads = new int[DUE + 1];
+    private final int[] tails = new int[DUE + 1];
+    private long[] deadline;
+    private int[] event;
+    private int[] next;
+    private int[] prev;
+    private int[] list;
+    private int free = NONE;
+    private int pending;
+
+    /**
+     * Constructs an empty wheel at tick 0.
+     *
+     * @param capacity The number of timers the wheel can hold before it has to grow.
+     */
+    TimerWheel(int capacity) {
+        deadline = new long[0];
+        event = new int[0];
+        next = new int[0];
+        prev = new int[0];
+        list = new int[0];
+        grow(Math.max(1, capacity));
+        clear(0);
+    }
+
+    /**
+     * Returns the number of pending timers, including the ones due but not yet polled.
+     *
+     * @return The number of pending timers.
+     */
+    int pending() {
+        return pending;
+    }
+
+    /**
+     * Schedules a timer.
+     *
+     * @param delay     The number of ticks from the current tick, at least 1 and at most {@link #MAX_DELAY}.
+     * @param eventCode The event code handed out by {@link #poll()} when the timer is due.
+     * @return The handle of the timer, valid for {@link #cancel(int)} until the timer has been polled.
+     */
+    int schedule(long delay, int eventCode) {
+        if (delay < 1 || delay > MAX_DELAY) {
+            throw new IllegalArgumentException("Delay out of range: " + delay);
+        }
+        if (free == NONE) {
+            grow(deadline.length * 2);
+        }
+        int timer = free;
+        free = next[timer];
+        deadline[timer] = now + delay;
+        event[timer] = eventCode;
+        file(timer);
+        pending++;
+        return timer;
+    }
+
+    /**
+     * Cancels a pending timer.
+     *
+     * @param timer The handle returned by {@link #schedule(long, int)}.
+     */
+    void cancel(int timer) {
+        unlink(timer);
+        release(timer);
+    }
+
+    /**
+     * Moves the wheel on by one tick. The timers due on the new tick are then handed out by {@link #poll()}.
+     */
+    void advance() {
+        now++;
+        // Move timers down from the highest level whose span just started, so a timer moved down two
+        // levels is moved again by the level in between on the same tick.
+        int level = 0;
+        while (level + 1 < LEVELS && (now & ((1L << (LEVEL_BITS * (level + 1))) - 1)) == 0) {
+            level++;
+        }
+        for (; level > 0; level--) {
+            int slot = level * SLOTS + slotIndex(now, level);
+            int timer = heads[slot];
+            heads[slot] = NONE;
+            tails[slot] = NONE;
+            while (timer != NONE) {
+                int following = next[timer];
+                file(timer);
+                timer = following;
+            }
+        }
+
+        // Append the timers of the level 0 slot for this tick to the due list.
+        int slot = slotIndex(now, 0);
+        int timer = heads[slot];
+        heads[slot] = NONE;
+        tails[slot] = NONE;
+        while (timer != NONE) {
+            int following = next[timer];
+            append(DUE, timer);
+            timer = following;
+        }
+    }
+
+    /**
+     * Removes the next timer that is due on the current tick.
+     *
+     * @return The event code of the timer, or -1 once no more timers are due.
+     */
+    int poll() {
+        int timer = heads[DUE];
+        if (timer == NONE) {
+            return -1;
+        }
+        int eventCode = event[timer];
+        unlink(timer);
+        release(timer);
+        return eventCode;
+    }
+
+    /**
+     * Drops every pending timer and sets the current tick.
+     *
+     * @param tick The tick the wheel is at.
+     */
+    void clear(long tick) {
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+        free = NONE;
+        for (int timer = deadline.length - 1; timer >= 0; timer--) {
+            next[timer] = free;
+            free = timer;
+        }
+        pending = 0;
+        now = tick;
+    }
+
+    /**
+     * Returns the number of bytes {@link #write(ByteBuffer)} needs for the timers pending now.
+     *
+     * @return The size of the written state in bytes.
+     */
+    int stateSize() {
+        return 12 + pending * TIMER_BYTES;
+    }
+
+    /**
+     * Writes the current tick and every pending timer, list by list and in list order.
+     *
+     * @param out The buffer to write to.
+     */
+    void write(ByteBuffer out) {
+        out.putLong(now);
+        out.putInt(pending);
+        for (int slot = 0; slot <= DUE; slot++) {
+            for (int timer = heads[slot]; timer != NONE; timer = next[timer]) {
+                out.putShort((short) slot);
+                out.putLong(deadline[timer]);
+                out.putInt(event[timer]);
+            }
+        }
+    }
+
+    /**
+     * Replaces the wheel's state with one written by {@link #write(ByteBuffer)}. The timer handles
+     * given out before are no longer valid.
+     *
+     * @param in The buffer to read from.
+     */
+    void read(ByteBuffer in) {
+        clear(in.getLong());
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            int slot = in.getShort();
+            if (slot < 0 || slot > DUE) {
+                throw new IllegalArgumentException("Timer list out of range: " + slot);
+            }
+            if (free == NONE) {
+                grow(deadline.length * 2);
+            }
+            int timer = free;
+            free = next[timer];
+            deadline[timer] = in.getLong();
+            event[timer] = in.getInt();
+            append(slot, timer);
+            pending++;
+        }
+    }
+
+    /**
+     * Puts a timer into the slot for its deadline: the lowest level whose span still reaches it.
+     *
+     * @param timer The timer to file.
+     */
+    private void file(int timer) {
+        long delta = deadline[timer] - now;
+        int level = 0;
+        while (delta >= 1L << (LEVEL_BITS * (level + 1))) {
+            level++;
+        }
+        append(level * SLOTS + slotIndex(deadline[timer], level), timer);
+    }
+
+    /**
+     * Returns the slot a tick falls in on one level.
+     *
+     * @param tick  The tick.
+     * @param level The level.
+     * @return The slot index within the level.
+     */
+    private static int slotIndex(long tick, int level) {
+        return (int) (tick >>> (LEVEL_BITS * level)) & (SLOTS - 1);
+    }
+
+    /**
+     * Appends a timer to the end of a list.
+     *
+     * @param slot  The slot or due list.
+     * @param timer The timer.
+     */
+    private void append(int slot, int timer) {
+        list[timer] = slot;
+        next[timer] = NONE;
+        prev[timer] = tails[slot];
+        if (tails[slot] == NONE) {
+            heads[slot] = timer;
+        } else {
+            next[tails[slot]] = timer;
+        }
+        tails[slot] = timer;
+    }
+
+    /**
+     * Removes a timer from the list it is in.
+     *
+     * @param timer The timer.
+     */
+    private void unlink(int timer) {
+        int slot = list[timer];
+        if (prev[timer] == NONE) {
+            heads[slot] = next[timer];
+        } else {
+            next[prev[timer]] = next[timer];
+        }
+        if (next[timer] == NONE) {
+            tails[slot] = prev[timer];
+        } else {
+            prev[next[timer]] = prev[timer];
+        }
+    }
+
+    /**
+     * Returns a timer to the free list.
+     *
+     * @param timer The timer.
+     */
+    private void release(int timer) {
+        next[timer] = free;
+        free = timer;
+        pending--;
+    }
+
+    /**
+     * Grows the timer arrays, adding the new timers to the free list.
+     *
+     * @param capacity The new number of timers.
+     */
+    private void grow(int capacity) {
+        int old = deadline.length;
+        deadline = Arrays.copyOf(deadline, capacity);
+        event = Arrays.copyOf(event, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        list = Arrays.copyOf(list, capacity);
+        for (int timer = capacity - 1; timer >= old; timer--) {
+            next[timer] = free;
+            free = timer;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * The weapons the player can fire.
+ *
+ * {@link #SINGLE} is the original weapon: one projectile on screen, and firing again moves it back to
+ * the player. The other weapons keep every projectile they fire until it leaves the screen or hits.
+ */
+enum Weapon {
+    SINGLE(25, 0),
+    RAPID(3, 0),
+    SPREAD(8, 2);
+
+    /**
+     * @param cooldownTicks Ticks that must pass between two shots.
+     * @param spreadLevels Number of extra projectile pairs fanned out to each side of the centre shot.
+     */
+    final int cooldownTicks;
+    final int spreadLevels;
+
+    /**
+     * Constructs a weapon.
+     *
+     * @param cooldownTicks Ticks that must pass between two shots.
+     * @param spreadLevels  Number of extra projectile pairs fanned out to each side of the centre shot.
+     */
+    Weapon(int cooldownTicks, int spreadLevels) {
+        this.cooldownTicks = cooldownTicks;
+        this.spreadLevels = spreadLevels;
+    }
+
+    /**
+     * Returns the weapon that follows this one when the player switches weapons.
+     *
+     * @return The next weapon, wrapping around to the first.
+     */
+    Weapon next() {
+        Weapon[] all = values();
+        return all[(ordinal() + 1) % all.length];
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Imports necessary for the VectorBoxKernel class.
+ */
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The batched box test of {@link Collision#intersectsAll} written with the incubating Vector API, so it
+ * tests as many boxes per instruction as the processor's widest int vector holds, whether or not the
+ * JIT would have vectorized the scalar loop.
+ *
+ * This file needs the jdk.incubator.vector module to compile and to run, so it lives apart from the
+ * game's sources: compile it with {@code javac --add-modules jdk.incubator.vector} against the game's
+ * classes, and start the game with {@code --add-modules jdk.incubator.vector} to use it.
+ * {@link Collision} only loads it, by name, when that module is in the boot layer.
+ */
+public final class VectorBoxKernel implements BoxKernel {
+    /**
+     * @param SPECIES Int vectors of the widest shape the processor supports.
+     * @param FLAGS Byte vectors for storing the hit flags, with as many lanes as SPECIES but at least 8,
+     *     the fewest a byte vector has; with the 4 int lanes of SSE and NEON each store writes 4 flags more.
+     * @param ZERO Int vector of zeros.
+     * @param ONE Int vector of ones.
+     * @param WARMUP_ROUNDS Number of runs tested to warm the kernel up.
+     * @param MIN_BITS Size of the narrowest vectors the kernel is used with.
+     */
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> FLAGS = VectorSpecies.of(byte.class,
+        VectorShape.forBitSize(Math.max(VectorShape.S_64_BIT.vectorBitSize(), SPECIES.length() * Byte.SIZE)));
+    private static final IntVector ZERO = IntVector.zero(SPECIES);
+    private static final IntVector ONE = IntVector.broadcast(SPECIES, 1);
+    private static final int WARMUP_ROUNDS = 400;
+    private static final int MIN_BITS = 128;
+
+    /**
+     * Constructs the kernel, which {@link Collision} does by reflection, and warms it up. Processors
+     * whose int vectors are narrower than 128 bits are turned down.
+     *
+     * Until the JIT has compiled the kernel, every vector it uses is an object on the heap. The kernel
+     * is therefore run here on runs of every length up to two stores and a box, and on boxes whose
+     * edges wrap, so each of its branches has been taken before the JIT compiles it. A branch first
+     * taken later would make the JIT throw the compiled kernel away, and the game would allocate until
+     * it is compiled again.
+     *
+     * @throws UnsupportedOperationException If the processor's int vectors are too narrow.
+     */
+    public VectorBoxKernel() {
+        if (SPECIES.vectorBitSize() < MIN_BITS) {
+            // The JIT leaves vectors this narrow as objects, so they would only be slower.
+            throw new UnsupportedOperationException("The widest int vectors have " + SPECIES.vectorBitSize() + " bits");
+        }
+        int[] xs = new int[FLAGS.length() * 2 + 1];
+        int[] ys = new int[xs.length];
+        boolean[] hits = new boolean[xs.length];
+        for (int k = 0; k < xs.length; k++) {
+            xs[k] = k * 7 % 40;
+            ys[k] = k * 13 % 40;
+        }
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            int to = round % (xs.length + 1);
+            int edge = round % 3 == 0 ? Integer.MAX_VALUE : 10;
+            intersectsAll(round % 20, round % 30, edge, edge, xs, ys, 8, 8, round % 2, Math.max(round % 2, to),
+                hits);
+        }
+    }
+
+    /**
+     * Flags each box of the run that the box intersects, a vector of boxes at a time and the boxes left
+     * over one by one.
+     *
+     * @param x    The x-coordinate of the box.
+     * @param y    The y-coordinate of the box.
+     * @param w    The width of the box.
+     * @param h    The height of the box.
+     * @param xs   The x-coordinates of the boxes of the run.
+     * @param ys   The y-coordinates of the boxes of the run.
+     * @param bw   The width of every box of the run.
+     * @param bh   The height of every box of the run.
+     * @param from The index of the first box of the run.
+     * @param to   The index after the last box of the run.
+     * @param hits Receives at each index of the run whether that box intersects the box.
+     */
+    @Override
+    public void intersectsAll(int x, int y, int w, int h, int[] xs, int[] ys, int bw, int bh, int from, int to,
+            boolean[] hits) {
+        // The same edge comparisons as the scalar loop; int lanes wrap on overflow just like ints do.
+        int right = x + w;
+        int bottom = y + h;
+        boolean wrapsRight = right < x;
+        boolean wrapsBottom = bottom < y;
+        VectorMask<Integer> rightOk = SPECIES.maskAll(wrapsRight);
+        VectorMask<Integer> bottomOk = SPECIES.maskAll(wrapsBottom);
+        // The flags a store writes past the vector's lanes are written again by the next vector or the
+        // loop after this one, so the vectors stop where a store would run past the end of the run.
+        int k = from;
+        for (; k <= to - FLAGS.length(); k += SPECIES.length()) {
+            IntVector bx = IntVector.fromArray(SPECIES, xs, k);
+            IntVector by = IntVector.fromArray(SPECIES, ys, k);
+            IntVector bRight = bx.add(bw);
+            IntVector bBottom = by.add(bh);
+            VectorMask<Integer> hit = rightOk.or(bx.compare(VectorOperators.LT, right))
+                .and(bottomOk.or(by.compare(VectorOperators.LT, bottom)))
+                .and(bRight.compare(VectorOperators.LT, bx).or(bRight.compare(VectorOperators.GT, x)))
+                .and(bBottom.compare(VectorOperators.LT, by).or(bBottom.compare(VectorOperators.GT, y)));
+            // Stored as bytes, since storing the mask itself, or storing under a mask, allocates on this JDK.
+            ZERO.blend(ONE, hit).convertShape(VectorOperators.I2B, FLAGS, 0).reinterpretAsBytes()
+                .intoBooleanArray(hits, k);
+        }
+        for (; k < to; k++) {
+            int bx = xs[k];
+            int by = ys[k];
+            int bRight = bx + bw;
+            int bBottom = by + bh;
+            hits[k] = (wrapsRight | right > bx) & (wrapsBottom | bottom > by)
+                & (bRight < bx | bRight > x) & (bBottom < by | bBottom > y);
+        }
+    }
+}
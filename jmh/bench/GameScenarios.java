@@ -0,0 +1,154 @@
+package bench;
+
+/**
+ * Imports necessary for the GameScenarios class.
+ */
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the game's benchmark {@link Scenarios} under JMH, each in forked JVMs with JMH's warm-up,
+ * iterations and error bounds, and with its profilers, such as {@code -prof gc} for the allocation per
+ * operation.
+ *
+ * Each scenario is named after its group and the name the group gives it, and is a value of the
+ * scenario parameter. To set a scenario up, its group runs on a thread of its own with a measure
+ * callback that runs the operations of the other scenarios once, which leaves the group's state as the
+ * hand-rolled runner would, and hands the chosen operation to the benchmark thread, waiting for the
+ * trial to end before the group finishes and cleans up.
+ *
+ * Usage: {@code java bench.GameScenarios [group...] [JMH option...]}, which runs every scenario of the
+ * given groups, or of all groups.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Djava.awt.headless=true"})
+public class GameScenarios {
+    /**
+     * @param SCENARIOS Scenarios of the game.
+     * @param SEPARATOR Text between the group and the name of a scenario.
+     * @param scenario Scenario to run, its group and name joined by SEPARATOR; main sets every scenario.
+     * @param operation Operation of the scenario, handed over by its group.
+     * @param group Thread running the scenario's group.
+     * @param failure Exception the group ended with, if any.
+     * @param trialEnded Released when the trial ends, to let the group go on.
+     */
+    private static final Scenarios SCENARIOS = Scenarios.load();
+    private static final String SEPARATOR = ": ";
+
+    @Param("collision: collision, batched test, scalar loop, 1000 obstacles")
+    public String scenario;
+
+    private Runnable operation;
+    private Thread group;
+    private volatile Throwable failure;
+    private final CountDownLatch trialEnded = new CountDownLatch(1);
+
+    /**
+     * Starts the scenario's group and waits until it hands over the scenario's operation.
+     *
+     * @throws Exception If the group fails or has no such scenario.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int split = scenario.indexOf(SEPARATOR);
+        String groupName = scenario.substring(0, split);
+        String name = scenario.substring(split + SEPARATOR.length());
+        SynchronousQueue<Runnable> handoff = new SynchronousQueue<>();
+        group = new Thread(() -> {
+            try {
+                SCENARIOS.run(groupName, (measured, operation) -> {
+                    if (!measured.equals(name)) {
+                        operation.run();
+                        return;
+                    }
+                    try {
+                        handoff.put(operation);
+                        trialEnded.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }, "benchmark-group");
+        group.start();
+        while ((operation = handoff.poll(100, TimeUnit.MILLISECONDS)) == null) {
+            if (!group.isAlive()) {
+                throw new IllegalStateException("No scenario " + scenario, failure);
+            }
+        }
+    }
+
+    /**
+     * Runs the scenario's operation once.
+     */
+    @Benchmark
+    public void run() {
+        operation.run();
+    }
+
+    /**
+     * Lets the group finish and clean up.
+     *
+     * @throws Exception If the group failed after the scenario.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        trialEnded.countDown();
+        group.join();
+        if (failure != null) {
+            throw new IllegalStateException("Group of " + scenario + " failed", failure);
+        }
+    }
+
+    /**
+     * The entry point: lists the scenarios of the chosen groups and runs them under JMH.
+     *
+     * @param args Group names, all groups if none, and JMH options.
+     * @throws Exception If a group cannot be listed or an option is not understood.
+     */
+    public static void main(String[] args) throws Exception {
+        List<String> known = SCENARIOS.groups();
+        List<String> groups = new ArrayList<>();
+        List<String> options = new ArrayList<>();
+        for (String arg : args) {
+            (known.contains(arg) ? groups : options).add(arg);
+        }
+        List<String> scenarios = new ArrayList<>();
+        for (String groupName : groups.isEmpty() ? known : groups) {
+            // Only collect the names; none of the operations run while listing.
+            SCENARIOS.run(groupName, (name, operation) -> scenarios.add(groupName + SEPARATOR + name));
+        }
+        Options run = new OptionsBuilder()
+            .parent(new CommandLineOptions(options.toArray(new String[0])))
+            .include(GameScenarios.class.getName())
+            .param("scenario", scenarios.toArray(new String[0]))
+            .build();
+        new Runner(run).run();
+    }
+}
@@ -0,0 +1,51 @@
+package bench;
+
+/**
+ * Imports necessary for the Scenarios interface.
+ */
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.function.BiConsumer;
+
+/**
+ * The game's benchmark scenarios, grouped by the part of the game they measure, for any runner to time.
+ *
+ * A group sets its scenarios up one after the other and hands each scenario's name and operation to the
+ * runner's measure callback, which times the operation before it returns; the group then moves on to its
+ * next scenario and cleans up once the last one has been measured. The game's hand-rolled
+ * GameBenchmark runner and the JMH benchmarks both run the scenarios through this interface.
+ *
+ * The game's classes live in the unnamed package, which code in a package cannot name, and JMH only
+ * generates benchmarks for classes in a package. The scenarios are therefore implemented next to the
+ * game and registered as a service, and {@link #load()} finds them.
+ */
+public interface Scenarios {
+    /**
+     * Returns the names of the groups, in the order they run when all of them are run.
+     *
+     * @return The group names.
+     */
+    List<String> groups();
+
+    /**
+     * Runs the scenarios of one group, handing each to a measure callback.
+     *
+     * @param group   The name of the group.
+     * @param measure Receives each scenario's name and operation, and times the operation before it
+     *                returns.
+     * @throws IllegalArgumentException If there is no such group.
+     * @throws Exception If the group cannot set up its scenarios.
+     */
+    void run(String group, BiConsumer<String, Runnable> measure) throws Exception;
+
+    /**
+     * Finds the scenarios registered on the class path.
+     *
+     * @return The scenarios.
+     * @throws IllegalStateException If none are registered.
+     */
+    static Scenarios load() {
+        return ServiceLoader.load(Scenarios.class).findFirst()
+            .orElseThrow(() -> new IllegalStateException("No benchmark scenarios on the class path"));
+    }
+}